@@ -0,0 +1,90 @@
+package emissary.core;
+
+import emissary.core.channels.SeekableByteChannelHelper;
+import emissary.jmh.Payloads;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payload, parameter and form handling on {@link BaseDataObject} as places use it while routing
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BaseDataObjectBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    /** Parameters already on the object, a typical count after Id and Transform places have run */
+    @Param({"50"})
+    public int parameters;
+
+    private byte[] data;
+    private BaseDataObject populated;
+
+    @Setup
+    public void setup() {
+        data = Payloads.text(size);
+        populated = new BaseDataObject(data, "benchmark", "UNKNOWN");
+        for (int i = 0; i < parameters; i++) {
+            populated.appendParameter("PARAM_" + i, "value-" + i);
+            populated.appendParameter("PARAM_" + i, "other-" + i);
+        }
+        for (int i = 0; i < 10; i++) {
+            populated.pushCurrentForm("FORM_" + i);
+        }
+    }
+
+    @Benchmark
+    public byte[] setAndGetData() {
+        final BaseDataObject d = new BaseDataObject();
+        d.setData(data);
+        return d.data();
+    }
+
+    @Benchmark
+    public byte[] channelToData() {
+        final BaseDataObject d = new BaseDataObject();
+        d.setChannelFactory(SeekableByteChannelHelper.memory(data));
+        return d.data();
+    }
+
+    @Benchmark
+    public void parameters(final Blackhole bh) {
+        populated.appendParameter("PARAM_0", "extra");
+        bh.consume(populated.getStringParameter("PARAM_" + (parameters / 2)));
+        bh.consume(populated.hasParameter("MISSING"));
+        populated.deleteParameter("PARAM_0");
+        populated.appendParameter("PARAM_0", "value-0");
+    }
+
+    @Benchmark
+    public void currentForms(final Blackhole bh) {
+        populated.pushCurrentForm("PUSHED");
+        bh.consume(populated.searchCurrentForm("FORM_3"));
+        bh.consume(populated.currentForm());
+        bh.consume(populated.popCurrentForm());
+    }
+
+    @Benchmark
+    public IBaseDataObject cloneObject() throws CloneNotSupportedException {
+        return populated.clone();
+    }
+}
@@ -0,0 +1,115 @@
+package emissary.directory;
+
+import emissary.core.BaseDataObject;
+import emissary.core.IBaseDataObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing lookups in {@link DirectoryPlace#nextKeys} and the {@link KeyManipulator} key parsing done for every hop
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoutingBenchmark {
+
+    private static final String[] STAGES = {"STUDY", "ID", "COORDINATE", "TRANSFORM", "ANALYZE", "IO"};
+    private static final String CONFIG = "PLACE_NAME = \"DirectoryPlace\"\nSERVICE_NAME = \"DIRECTORY\"\nSERVICE_TYPE = \"STUDY\"\n"
+            + "SERVICE_DESCRIPTION = \"benchmark\"\nSERVICE_COST = 50\nSERVICE_QUALITY = 50\n";
+
+    /** Number of distinct forms with places registered, each has a place in every stage */
+    @Param({"100", "1000"})
+    public int forms;
+
+    private DirectoryPlace directory;
+    private DirectoryEntryMap entries;
+    private IBaseDataObject payload;
+    private String[] dataIds;
+    private DirectoryEntry lastPlace;
+    private String key;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = new DirectoryPlace(new ByteArrayInputStream(CONFIG.getBytes(StandardCharsets.UTF_8)), "http://localhost:8001/DirectoryPlace",
+                new EmissaryNode());
+        entries = new DirectoryEntryMap();
+        final List<DirectoryEntry> list = new ArrayList<>();
+        for (int f = 0; f < forms; f++) {
+            for (int s = 0; s < STAGES.length; s++) {
+                // a couple of competing places per form and stage, plus wildcard entries that match everything
+                list.add(new DirectoryEntry("FORM" + f + ".PLACE" + f + "A." + STAGES[s] + ".http://host" + (f % 8) + ".example.com:8001/Place" + f
+                        + "A$" + (1000 + s * 10)));
+                list.add(new DirectoryEntry("FORM" + f + ".PLACE" + f + "B." + STAGES[s] + ".http://host" + ((f + 1) % 8)
+                        + ".example.com:8001/Place" + f + "B$" + (2000 + s * 10)));
+            }
+        }
+        for (String stage : STAGES) {
+            list.add(new DirectoryEntry("*.WILDCARD." + stage + ".http://host0.example.com:8001/WildcardPlace$9000"));
+        }
+        entries.addEntries(list);
+
+        payload = new BaseDataObject(new byte[0], "benchmark", "FORM0");
+        dataIds = new String[64];
+        for (int i = 0; i < dataIds.length; i++) {
+            dataIds[i] = "FORM" + (i * 7919 % forms) + KeyManipulator.DATAIDSEPARATOR + STAGES[i % STAGES.length];
+        }
+        lastPlace = list.get(0);
+        key = lastPlace.getFullKey();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        directory.shutDown();
+    }
+
+    @Benchmark
+    public List<DirectoryEntry> nextKeys() {
+        final String dataId = dataIds[next++ & (dataIds.length - 1)];
+        return directory.nextKeys(dataId, payload, lastPlace, entries);
+    }
+
+    @Benchmark
+    public List<DirectoryEntry> nextKeysNoMatch() {
+        return directory.nextKeys("UNREGISTERED::TRANSFORM", payload, lastPlace, entries);
+    }
+
+    @Benchmark
+    public void keyManipulator(final Blackhole bh) {
+        bh.consume(KeyManipulator.getDataType(key));
+        bh.consume(KeyManipulator.getServiceName(key));
+        bh.consume(KeyManipulator.getServiceType(key));
+        bh.consume(KeyManipulator.getServiceLocation(key));
+        bh.consume(KeyManipulator.getServiceHostUrl(key));
+        bh.consume(KeyManipulator.getExpense(key));
+        bh.consume(KeyManipulator.getDataId(key));
+    }
+
+    @Benchmark
+    public boolean gmatch() {
+        return KeyManipulator.gmatch(key, "FORM0.*.STUDY.*");
+    }
+}
@@ -0,0 +1,88 @@
+package emissary.jmh;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Deterministic payloads for the benchmarks. Data is generated from a fixed seed so every run, and every release being
+ * compared, sees the same bytes.
+ */
+public final class Payloads {
+
+    /** Seed used for every generated payload */
+    public static final long SEED = 0x5EEDL;
+
+    /** Keywords planted in text payloads, also used to build the scanners */
+    public static final String[] KEYWORDS = {"emissary", "payload", "confidential", "invoice", "password", "transfer", "account", "wire",
+            "<html>", "From:", "Subject:", "PK\u0003\u0004"};
+
+    private static final String[] WORDS = {"the", "of", "and", "to", "in", "is", "that", "for", "it", "as", "with", "was", "on", "be", "at", "by",
+            "this", "had", "not", "are", "but", "from", "or", "have", "an", "they", "which", "one", "you", "were", "her", "all", "she", "there",
+            "would", "their", "we", "him", "been", "has", "when", "who", "will", "more", "no", "if", "out", "so", "said", "what", "up", "its",
+            "about", "into", "than", "them", "can", "only", "other", "new", "some", "could", "time", "these", "two", "may", "then", "do", "first",
+            "any", "my", "now", "such", "like", "our", "over", "man", "me", "even", "most", "made", "after", "also", "did", "many", "before"};
+
+    private Payloads() {}
+
+    /**
+     * Mostly English text with keywords planted about once every 2k bytes and the odd run of binary, roughly what a mail
+     * body or document extract looks like
+     *
+     * @param size length in bytes
+     * @return the payload
+     */
+    public static byte[] text(final int size) {
+        final Random random = new Random(SEED);
+        final byte[] data = new byte[size];
+        int pos = 0;
+        while (pos < size) {
+            final byte[] word;
+            final int pick = random.nextInt(400);
+            if (pick == 0) {
+                word = KEYWORDS[random.nextInt(KEYWORDS.length)].getBytes(StandardCharsets.ISO_8859_1);
+            } else if (pick == 1) {
+                word = new byte[16 + random.nextInt(48)];
+                random.nextBytes(word);
+            } else {
+                word = WORDS[random.nextInt(WORDS.length)].getBytes(StandardCharsets.ISO_8859_1);
+            }
+            final int len = Math.min(word.length, size - pos);
+            System.arraycopy(word, 0, data, pos, len);
+            pos += len;
+            if (pos < size) {
+                data[pos++] = (byte) (random.nextInt(12) == 0 ? '\n' : ' ');
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Uniformly random bytes, like compressed or encrypted content
+     *
+     * @param size length in bytes
+     * @return the payload
+     */
+    public static byte[] random(final int size) {
+        final byte[] data = new byte[size];
+        new Random(SEED).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Payload of the requested kind
+     *
+     * @param kind either "text" or "random"
+     * @param size length in bytes
+     * @return the payload
+     */
+    public static byte[] of(final String kind, final int size) {
+        switch (kind) {
+            case "text":
+                return text(size);
+            case "random":
+                return random(size);
+            default:
+                throw new IllegalArgumentException("Unknown payload kind " + kind);
+        }
+    }
+}
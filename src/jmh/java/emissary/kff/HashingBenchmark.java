@@ -0,0 +1,74 @@
+package emissary.kff;
+
+import emissary.core.channels.SeekableByteChannelFactory;
+import emissary.core.channels.SeekableByteChannelHelper;
+import emissary.jmh.Payloads;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checksums and ssdeep fuzzy hashes computed by the KFF places, over both byte array and channel backed payloads
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashingBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    /** Text hashes to short signatures and forces ssdeep to retry with smaller block sizes, random data does not */
+    @Param({"text", "random"})
+    public String kind;
+
+    private byte[] data;
+    private SeekableByteChannelFactory channel;
+    private ChecksumCalculator calculator;
+    private Ssdeep ssdeep;
+
+    @Setup
+    public void setup() throws NoSuchAlgorithmException {
+        data = Payloads.of(kind, size);
+        channel = SeekableByteChannelHelper.memory(data);
+        calculator = new ChecksumCalculator(Arrays.asList("MD5", "SHA-1", "SHA-256", "SSDEEP"));
+        calculator.setUseCrc(true);
+        ssdeep = new Ssdeep();
+    }
+
+    @Benchmark
+    public ChecksumResults digestBytes() {
+        return calculator.digest(data);
+    }
+
+    @Benchmark
+    public ChecksumResults digestChannel() {
+        return calculator.digest(channel);
+    }
+
+    @Benchmark
+    public String ssdeepBytes() {
+        return ssdeep.fuzzyHash(data);
+    }
+
+    @Benchmark
+    public String ssdeepChannel() {
+        return ssdeep.fuzzyHash(channel);
+    }
+}
@@ -0,0 +1,94 @@
+package emissary.output.filter;
+
+import emissary.config.ServiceConfigGuide;
+import emissary.core.DataObjectFactory;
+import emissary.core.IBaseDataObject;
+import emissary.jmh.Payloads;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a family of payloads by {@link JsonOutputFilter}, both into a byte array and streamed to an output
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonOutputFilterBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    /** Payloads in the family, the parent and its children */
+    @Param({"10"})
+    public int family;
+
+    private Path outputPath;
+    private JsonOutputFilter filter;
+    private List<IBaseDataObject> list;
+    private Map<String, Object> params;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        outputPath = Files.createTempDirectory("jmh-json");
+        final ServiceConfigGuide config = new ServiceConfigGuide();
+        config.addEntry("OUTPUT_PATH", outputPath.toAbsolutePath().toString());
+        filter = new JsonOutputFilter();
+        filter.initialize(config, "JSON", config);
+
+        final byte[] data = Payloads.text(size);
+        list = new ArrayList<>();
+        for (int i = 0; i < family; i++) {
+            final IBaseDataObject d = DataObjectFactory.getInstance();
+            d.setData(data);
+            d.setFilename("/benchmark/input.dat" + (i == 0 ? "" : "-att-" + i));
+            d.setFileType("TEXT");
+            d.setCurrentForm("TEXT");
+            for (int p = 0; p < 40; p++) {
+                d.appendParameter("PARAM_" + p, "value " + p + " of payload " + i);
+            }
+            list.add(d);
+        }
+        params = new HashMap<>();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        filter.close();
+        Files.deleteIfExists(outputPath);
+    }
+
+    @Benchmark
+    public byte[] convert() throws IOException {
+        return filter.convert(list, params);
+    }
+
+    @Benchmark
+    public int filterToStream() {
+        return filter.filter(list, params, NullOutputStream.INSTANCE);
+    }
+}
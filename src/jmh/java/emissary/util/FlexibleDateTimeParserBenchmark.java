@@ -0,0 +1,59 @@
+package emissary.util;
+
+import emissary.config.ConfigUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FlexibleDateTimeParser#parse(String)} on dates as they appear in message headers and metadata, compared with
+ * trying every main format in turn.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlexibleDateTimeParserBenchmark {
+
+    /** Dates matched early, late and never in the main formats */
+    @Param({"Mon, 4 Jan 2016 18:20:30 +0000 (GMT)", "2016-01-04T18:20:30.123Z", "Mon Jan 04 18:20:30 EST 2016", "20160104182030",
+            "not a date at all"})
+    public String date;
+
+    private List<DateTimeFormatter> formats;
+
+    @Setup
+    public void setup() {
+        // the formats come from the parser's configuration, found on the classpath when no config dir is given
+        if (System.getProperty(ConfigUtil.CONFIG_DIR_PROPERTY) == null) {
+            System.setProperty(ConfigUtil.CONFIG_DIR_PROPERTY, "src/main/config");
+        }
+        formats = FlexibleDateTimeParser.getDateFormatsMain();
+    }
+
+    @Benchmark
+    public ZonedDateTime shaped() {
+        return FlexibleDateTimeParser.parse(date);
+    }
+
+    @Benchmark
+    public ZonedDateTime linear() {
+        return FlexibleDateTimeParser.parse(date, formats);
+    }
+}
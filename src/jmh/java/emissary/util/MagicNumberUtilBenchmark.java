@@ -0,0 +1,93 @@
+package emissary.util;
+
+import emissary.jmh.Payloads;
+import emissary.util.magic.MagicNumber;
+import emissary.util.magic.MagicNumberFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MagicNumberUtil#describe(byte[])} against the full magic file shipped in src/main/config, compared with a walk
+ * of every entry in file order. The file can be changed with -Demissary.jmh.magic=path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MagicNumberUtilBenchmark {
+
+    private static final int SAMPLE_SIZE = 4096;
+
+    /** Samples matched early, late and never in the magic file */
+    @Param({"pdf", "zip", "elf", "png", "text"})
+    public String sample;
+
+    private MagicNumberUtil magic;
+    private List<MagicNumber> magicNumbers;
+    private byte[] data;
+
+    @Setup
+    public void setup() throws IOException {
+        final File magicFile = new File(System.getProperty("emissary.jmh.magic", "src/main/config/magic"));
+        magic = new MagicNumberUtil();
+        magic.load(magicFile, true);
+        magicNumbers = MagicNumberFactory.buildMagicNumberList(Files.readAllBytes(magicFile.toPath()), null, null, true);
+
+        final byte[] header;
+        switch (sample) {
+            case "pdf":
+                header = "%PDF-1.7\n%âãÏÓ\n".getBytes(StandardCharsets.ISO_8859_1);
+                break;
+            case "zip":
+                header = new byte[] {'P', 'K', 3, 4, 20, 0, 0, 0, 8, 0};
+                break;
+            case "elf":
+                header = new byte[] {0x7f, 'E', 'L', 'F', 2, 1, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2, 0, 0x3e, 0};
+                break;
+            case "png":
+                header = new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R'};
+                break;
+            default:
+                header = new byte[0];
+        }
+        data = Payloads.text(SAMPLE_SIZE);
+        System.arraycopy(header, 0, data, 0, header.length);
+    }
+
+    @Benchmark
+    public String describe() {
+        return magic.describe(data);
+    }
+
+    /** The walk of every entry that describe did before it was indexed */
+    @Benchmark
+    public String linear() {
+        String description = null;
+        for (final MagicNumber item : magicNumbers) {
+            description = item.describe(data);
+            if (description != null && !description.isEmpty()) {
+                break;
+            }
+        }
+        return description;
+    }
+}
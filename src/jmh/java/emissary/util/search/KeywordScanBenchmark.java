@@ -0,0 +1,68 @@
+package emissary.util.search;
+
+import emissary.jmh.Payloads;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi keyword scanning of text payloads with {@link FastBoyerMoore}, {@link MultiKeywordScanner} and
+ * {@link AhoCorasickScanner}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeywordScanBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    private byte[] data;
+    private FastBoyerMoore boyerMoore;
+    private MultiKeywordScanner scanner;
+    private AhoCorasickScanner ahoCorasick;
+
+    @Setup
+    public void setup() throws Exception {
+        data = Payloads.text(size);
+        boyerMoore = new FastBoyerMoore(Payloads.KEYWORDS);
+        scanner = new MultiKeywordScanner();
+        scanner.loadKeywords(Payloads.KEYWORDS);
+        ahoCorasick = new AhoCorasickScanner(Payloads.KEYWORDS);
+    }
+
+    @Benchmark
+    public List<int[]> fastBoyerMoore() {
+        final List<int[]> result = new ArrayList<>();
+        boyerMoore.scan(data, 0, data.length, result);
+        return result;
+    }
+
+    @Benchmark
+    public HitList multiKeywordScanner() {
+        return scanner.findAll(data);
+    }
+
+    @Benchmark
+    public int ahoCorasick() {
+        final AhoCorasickScanner.IntHitList hits = new AhoCorasickScanner.IntHitList();
+        ahoCorasick.scan(data, hits);
+        return hits.size();
+    }
+}
@@ -34,7 +34,7 @@ public class EmissaryResponse {
 
     public EmissaryResponse(ClassicHttpResponse response) {
         int tempStatus = response.getCode();
-        String tempContent;
+        Object tempContent;
         headers = response.getHeaders();
         Header[] contentHeaders = response.getHeaders(HttpHeaders.CONTENT_TYPE);
         if (contentHeaders.length > 0) {
@@ -54,6 +54,9 @@ public class EmissaryResponse {
             if (entity == null) {
                 logger.debug("No entity");
                 tempContent = "";
+            } else if (contentType.startsWith(MediaType.APPLICATION_OCTET_STREAM)) {
+                // binary content is kept as is, decoding it would corrupt it
+                tempContent = IOUtils.toByteArray(entity.getContent());
             } else {
                 tempContent = IOUtils.toString(entity.getContent(), StandardCharsets.UTF_8);
             }
@@ -71,6 +74,10 @@ public class EmissaryResponse {
         return status;
     }
 
+    public String getContentType() {
+        return contentType;
+    }
+
     public Header[] getHeaders() {
         return headers;
     }
@@ -81,11 +88,25 @@ public class EmissaryResponse {
             return null;
         }
 
+        String text = content instanceof byte[] ? new String((byte[]) content, StandardCharsets.UTF_8) : content.toString();
         if (status == HttpStatus.SC_OK) {
-            return content.toString();
+            return text;
         } else {
-            return "Bad request -> status: " + status + " message: " + content;
+            return "Bad request -> status: " + status + " message: " + text;
+        }
+    }
+
+    /**
+     * Get the content as it was sent, for binary content types
+     *
+     * @return the content bytes, text content encoded as UTF-8, or null if there was none
+     */
+    @Nullable
+    public byte[] getContentBytes() {
+        if (content == null) {
+            return null;
         }
+        return content instanceof byte[] ? (byte[]) content : content.toString().getBytes(StandardCharsets.UTF_8);
     }
 
     public <T extends BaseEntity> T getContent(Class<T> mapper) {
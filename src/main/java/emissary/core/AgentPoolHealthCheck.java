@@ -1,7 +1,6 @@
 package emissary.core;
 
 import emissary.pool.AgentPool;
-import emissary.pool.MobileAgentFactory;
 
 import com.codahale.metrics.health.HealthCheck;
 
@@ -9,20 +8,13 @@ public class AgentPoolHealthCheck extends HealthCheck {
 
     @Override
     protected Result check() {
-        int active = 0;
-        int idle = 0;
         try {
-            for (int i = 0; i < AgentPool.lookup().getMaxTotal(); i++) {
-                String agentKey = MobileAgentFactory.AGENT_NAME + "-" + String.format("%02d", i);
-                if (Namespace.exists(agentKey)) {
-                    if (Namespace.lookup(agentKey).toString().startsWith("Idle")) {
-                        idle++;
-                    } else {
-                        active++;
-                    }
-                } else {
-                    return Result.unhealthy("Missing an agent in the Namespace: " + agentKey);
-                }
+            // count from the pool since agent names are not contiguous once the pool has been resized
+            AgentPool pool = AgentPool.lookup();
+            int active = pool.getNumActive();
+            int idle = pool.getNumIdle();
+            if (active + idle < pool.getMaxTotal()) {
+                return Result.unhealthy("Missing agents in the pool, active/idle: " + active + "/" + idle + " of " + pool.getMaxTotal());
             }
             return Result.healthy("Pool size active/idle: " + active + "/" + idle);
         } catch (EmissaryException e) {
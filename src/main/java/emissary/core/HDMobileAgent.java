@@ -1,20 +1,33 @@
 package emissary.core;
 
+import emissary.config.ConfigUtil;
+import emissary.config.Configurator;
 import emissary.directory.DirectoryEntry;
 import emissary.directory.KeyManipulator;
 import emissary.log.MDCConstants;
 import emissary.place.EmptyFormPlace;
 import emissary.place.IServiceProviderPlace;
+import emissary.pool.AgentPool;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
 /**
@@ -32,6 +45,20 @@ public class HDMobileAgent extends MobileAgent {
     // What we carry around with us
     protected List<IBaseDataObject> payloadList = Collections.synchronizedList(new ArrayList<>());
 
+    // Config keys in AgentPool.cfg for the parallel intra-family processing mode
+    public static final String PARALLEL_ENABLED_KEY = "agent.hd.parallel";
+    public static final String PARALLEL_THREADS_KEY = "agent.hd.parallel.threads";
+    public static final String PARALLEL_MIN_SPROUTS_KEY = "agent.hd.parallel.min.sprouts";
+
+    // Process independent sprouts on the shared family pool instead of one at a time on the agent thread
+    protected boolean parallelFamilyProcessing = ParallelConfig.ENABLED;
+
+    // Minimum number of sprouts returned from one place before they are handed to the family pool
+    protected int parallelMinSprouts = ParallelConfig.MIN_SPROUTS;
+
+    // Itinerary state for a sprout being routed on a family pool thread
+    private static final ThreadLocal<SproutItinerary> sproutItinerary = new ThreadLocal<>();
+
     /**
      * Still have the uncaught exception handler but not really in a true ThreadGroup
      */
@@ -47,6 +74,16 @@ public class HDMobileAgent extends MobileAgent {
         logger.debug("Constructed HD agent {}", threadName);
     }
 
+    /**
+     * Constructor for an unpooled HD Agent without a thread of its own
+     *
+     * @param agentName symbolic name for this agent
+     * @see emissary.pool.AgentExecutor
+     */
+    public HDMobileAgent(final String agentName) {
+        super(agentName);
+    }
+
     /**
      * Override getPayload to just return the first on list or null
      */
@@ -261,7 +298,11 @@ public class HDMobileAgent extends MobileAgent {
 
                     // Add any sprouts collected from the payloads
                     if (!sprouts.isEmpty()) {
-                        addPayload(sprouts);
+                        if (isParallelFamilyProcessing() && sprouts.size() >= this.parallelMinSprouts) {
+                            addPayload(processSproutsInParallel(currentPlace, sprouts));
+                        } else {
+                            addPayload(sprouts);
+                        }
                     }
                 }
             }
@@ -377,6 +418,192 @@ public class HDMobileAgent extends MobileAgent {
         }
     }
 
+    /**
+     * Run each sprout (and any sprouts it produces in turn) through its own itinerary on the shared family pool. Each
+     * sprout proceeds through local places until it has nowhere left to go, needs a remote place, or is ready for the IO
+     * phase. This method does not return until every sprout has stopped, so the IO phase is still deferred until all
+     * siblings are done, and anything left over is finished by the normal control loop. The family comes back in the
+     * order the serial path would have given it, not the order the sprouts finished in.
+     *
+     * @param sproutPlace the place that produced the sprouts
+     * @param sprouts the newly sprouted payloads
+     * @return the sprouts plus everything they sprouted, to be added to the payload list
+     */
+    protected List<IBaseDataObject> processSproutsInParallel(final IServiceProviderPlace sproutPlace, final List<IBaseDataObject> sprouts) {
+        final ForkJoinPool pool = ParallelConfig.POOL;
+        final List<SproutNode> roots = new ArrayList<>(sprouts.size());
+        final AtomicInteger pending = new AtomicInteger();
+        final Map<String, String> mdc = MDC.getCopyOfContextMap();
+        logger.debug("Processing {} sprouts from {} in parallel", sprouts.size(), sproutPlace);
+
+        // Join barrier, nothing moves on to the IO phase until all the siblings have stopped. The run loop holds our
+        // monitor, so wait on it rather than blocking so that places on the pool threads can still call back into us
+        boolean interrupted = false;
+        synchronized (this) {
+            for (final IBaseDataObject sprout : sprouts) {
+                roots.add(submitSprout(pool, pending, mdc, new SproutNode(sproutPlace, sprout)));
+            }
+            while (pending.get() > 0) {
+                try {
+                    wait(1000);
+                } catch (InterruptedException e) {
+                    logger.warn("Interrupted while waiting on {} sprouts from {}, still waiting", pending.get(), sproutPlace);
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Every sprout has joined, so the children lists are complete. Walk them a generation at a time
+        final List<IBaseDataObject> family = new ArrayList<>();
+        final Deque<SproutNode> generation = new ArrayDeque<>(roots);
+        while (!generation.isEmpty()) {
+            final SproutNode node = generation.poll();
+            family.add(node.payload);
+            generation.addAll(node.children);
+        }
+        logger.debug("Parallel processing from {} finished with {} family members", sproutPlace, family.size());
+        return family;
+    }
+
+    /**
+     * Hand one sprout to the family pool, falling back to the calling thread if the pool will not take it
+     *
+     * @param node the sprout and the place that produced it
+     * @return the node, which will hold the sprout's children once it has been processed
+     */
+    private SproutNode submitSprout(final ForkJoinPool pool, final AtomicInteger pending, @Nullable final Map<String, String> mdc,
+            final SproutNode node) {
+        final IBaseDataObject sprout = node.payload;
+        pending.incrementAndGet();
+        final Runnable task = () -> {
+            final Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            try {
+                if (mdc != null) {
+                    MDC.setContextMap(mdc);
+                }
+                MDC.put(MDCConstants.SHORT_NAME, sprout.shortName());
+                for (final SproutNode child : processSproutItinerary(node.place, sprout)) {
+                    node.children.add(submitSprout(pool, pending, mdc, child));
+                }
+            } catch (RuntimeException e) {
+                logger.error("Problem processing sprout {} in parallel", sprout.shortName(), e);
+            } finally {
+                if (previousMdc == null) {
+                    MDC.clear();
+                } else {
+                    MDC.setContextMap(previousMdc);
+                }
+                if (pending.decrementAndGet() == 0) {
+                    synchronized (this) {
+                        notifyAll();
+                    }
+                }
+            }
+        };
+
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Family pool rejected sprout {}, processing on the current thread", sprout.shortName());
+            task.run();
+        }
+        return node;
+    }
+
+    /**
+     * Route a single sprout through local places using its own itinerary state. Stops short of the IO phase and of any
+     * remote place, leaving the sprout for the normal control loop.
+     *
+     * @param startPlace the place the sprout was produced at
+     * @param sprout the payload to route
+     * @return everything sprouted along the way, each with the place that produced it
+     */
+    private List<SproutNode> processSproutItinerary(final IServiceProviderPlace startPlace, final IBaseDataObject sprout) {
+        final List<SproutNode> children = new ArrayList<>();
+        final SproutItinerary previous = sproutItinerary.get();
+        final SproutItinerary itinerary = new SproutItinerary();
+        sproutItinerary.set(itinerary);
+        try {
+            setParallelTrackingInfoFor(sprout);
+            IServiceProviderPlace place = startPlace;
+            while (!this.timeToQuit) {
+                final DirectoryEntry entry = getNextKey(place, sprout);
+                if (entry == null || "IO".equals(entry.getServiceType()) || !entry.isLocal()) {
+                    logger.debug("Parallel itinerary for {} stopping at {} after {}", sprout.shortName(), entry, itinerary.lastPlaceProcessed);
+                    break;
+                }
+                recordHistory(entry, sprout);
+                place = entry.getLocalPlace();
+                final List<IBaseDataObject> processed = new ArrayList<>();
+                processed.add(sprout);
+                for (final IBaseDataObject child : atPlaceHD(place, processed)) {
+                    children.add(new SproutNode(place, child));
+                }
+            }
+        } finally {
+            if (previous == null) {
+                sproutItinerary.remove();
+            } else {
+                sproutItinerary.set(previous);
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Use the itinerary state of the sprout being routed on this thread, if any
+     */
+    @Override
+    protected Set<String> getParallelTrackingInfo() {
+        final SproutItinerary itinerary = sproutItinerary.get();
+        return itinerary == null ? super.getParallelTrackingInfo() : itinerary.visitedPlaces;
+    }
+
+    /**
+     * Use the itinerary state of the sprout being routed on this thread, if any
+     */
+    @Override
+    protected Deque<DirectoryEntry> getNextKeyQueue() {
+        final SproutItinerary itinerary = sproutItinerary.get();
+        return itinerary == null ? super.getNextKeyQueue() : itinerary.nextKeyQueue;
+    }
+
+    /**
+     * A family pool thread routing a sprout for this agent counts as its own
+     */
+    @Override
+    protected boolean isOnAgentThread() {
+        return sproutItinerary.get() != null || super.isOnAgentThread();
+    }
+
+    /**
+     * Report whether sprouts are processed in parallel
+     */
+    public boolean isParallelFamilyProcessing() {
+        return this.parallelFamilyProcessing;
+    }
+
+    /**
+     * Turn parallel processing of sprouts on or off for this agent
+     *
+     * @param value true to hand sprouts to the shared family pool
+     */
+    public void setParallelFamilyProcessing(final boolean value) {
+        this.parallelFamilyProcessing = value;
+    }
+
+    /**
+     * Set the minimum number of sprouts from one place that triggers parallel processing
+     *
+     * @param value the minimum number of sprouts
+     */
+    public void setParallelMinSprouts(final int value) {
+        this.parallelMinSprouts = Math.max(1, value);
+    }
+
     /**
      * Make the payload at the specified index the new primary one and reset the logger context to the new value
      * 
@@ -409,11 +636,18 @@ public class HDMobileAgent extends MobileAgent {
 
         List<IBaseDataObject> ret = Collections.emptyList();
 
-        try (TimedResource tr = resourceWatcherStart(place)) {
+        // A sprout on a family pool thread is timed and interrupted on its own, and keeps its own last place
+        final SproutItinerary itinerary = sproutItinerary.get();
+        try (TimedResource tr = itinerary == null ? resourceWatcherStart(place)
+                : resourceWatcherStart(place, Thread.currentThread(), payloadListArg.size())) {
             assert tr != null; // to silence an unused resource warning
 
             // Process and get back a list of sprouted payloads
-            lastPlaceProcessed = place.getDirectoryEntry().getKey();
+            if (itinerary == null) {
+                lastPlaceProcessed = place.getDirectoryEntry().getKey();
+            } else {
+                itinerary.lastPlaceProcessed = place.getDirectoryEntry().getKey();
+            }
 
             if (moveErrorsOccurred > 0) {
                 addMoveErrorCount(payloadListArg);
@@ -588,7 +822,10 @@ public class HDMobileAgent extends MobileAgent {
     @Override
     @SuppressWarnings("Interruption")
     public void interrupt() {
-        this.thread.interrupt();
+        final Thread t = this.thread;
+        if (t != null) {
+            t.interrupt();
+        }
     }
 
     /**
@@ -599,4 +836,61 @@ public class HDMobileAgent extends MobileAgent {
         return this.timeToQuit;
     }
 
+    /**
+     * Per-sprout routing state, kept apart from the agent's own while a sprout is routed on a family pool thread
+     */
+    private static final class SproutItinerary {
+        final Deque<DirectoryEntry> nextKeyQueue = new ArrayDeque<>();
+        final Set<String> visitedPlaces = new HashSet<>();
+        @Nullable
+        String lastPlaceProcessed;
+    }
+
+    /**
+     * A sprout, the place that produced it and the sprouts it produced in turn, only written by the thread processing that
+     * sprout
+     */
+    private static final class SproutNode {
+        final IServiceProviderPlace place;
+        final IBaseDataObject payload;
+        final List<SproutNode> children = new ArrayList<>();
+
+        SproutNode(final IServiceProviderPlace place, final IBaseDataObject payload) {
+            this.place = place;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Lazily read settings and the work-stealing pool shared by every HD agent in the JVM, so the number of threads used
+     * for parallel family processing stays bounded no matter how many agents are busy
+     */
+    private static final class ParallelConfig {
+        static final boolean ENABLED;
+        static final int MIN_SPROUTS;
+        static final ForkJoinPool POOL;
+
+        static {
+            boolean enabled = false;
+            int threads = Runtime.getRuntime().availableProcessors();
+            int minSprouts = 2;
+            try {
+                final Configurator conf = ConfigUtil.getConfigInfo(AgentPool.class);
+                enabled = conf.findBooleanEntry(PARALLEL_ENABLED_KEY, enabled);
+                threads = conf.findIntEntry(PARALLEL_THREADS_KEY, threads);
+                minSprouts = conf.findIntEntry(PARALLEL_MIN_SPROUTS_KEY, minSprouts);
+            } catch (IOException e) {
+                logger.debug("Cannot read AgentPool.cfg, parallel family processing takes default values");
+            }
+            ENABLED = enabled;
+            MIN_SPROUTS = Math.max(1, minSprouts);
+            POOL = new ForkJoinPool(Math.max(1, threads), pool -> {
+                final ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                t.setName("HDFamily-" + t.getPoolIndex());
+                t.setDaemon(true);
+                return t;
+            }, null, true);
+        }
+    }
+
 }
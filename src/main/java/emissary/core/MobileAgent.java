@@ -40,7 +40,13 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
 
     // The thread we plan to run on (we are autonomous, in a limited sense)
     @Nullable
-    protected transient Thread thread = null;
+    protected transient volatile Thread thread = null;
+
+    // Name of this agent, the name of its thread when it has one
+    private final String agentName;
+
+    // True when the agent goes back to the AgentPool after each payload
+    protected final boolean pooled;
 
     // Name for our threads
     public static final String AGENT_THREAD = "MobileAgent-";
@@ -106,6 +112,8 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
     @SuppressWarnings("ThreadPriorityCheck")
     public MobileAgent(final ThreadGroup threadGroup, final String threadName) {
         logger.debug("Constructing agent {}", threadName);
+        this.agentName = threadName;
+        this.pooled = true;
         this.thread = new Thread(threadGroup, this, threadName);
         this.thread.setPriority(Thread.NORM_PRIORITY);
         this.thread.setDaemon(true);
@@ -114,12 +122,25 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
         JMXUtil.registerMBean(this);
     }
 
+    /**
+     * Create an agent without a thread of its own. It is not pooled, the payload handed over with go or arrive is processed
+     * when {@link #execute()} is called on a thread of the caller's choosing.
+     *
+     * @param agentName symbolic name for this agent
+     * @see emissary.pool.AgentExecutor
+     */
+    protected MobileAgent(final String agentName) {
+        logger.debug("Constructing unpooled agent {}", agentName);
+        this.agentName = agentName;
+        this.pooled = false;
+    }
+
     /**
      * Report this agents name for logging purposes
      */
     @Override
     public String getName() {
-        return this.thread.getName();
+        return this.agentName;
     }
 
     /**
@@ -148,24 +169,50 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
                 // Thread.yield();
 
                 if (isInUse()) {
-                    logger.debug("Starting work for {}", agentId());
-                    MDC.put(MDCConstants.SHORT_NAME, getPayload().shortName());
-                    try {
-                        agentControl(this.arrivalPlace);
-                    } catch (Throwable throwable) {
-                        logger.error("Problem with agent", throwable);
-                    } finally {
-                        // prevent an interrupted thread from returning the agent
-                        if (!this.timeToQuit) {
-                            agentReturn();
-                            MDC.clear(); // clear all MDC context
-                        }
-                    }
+                    processPayload();
                 }
             }
         }
     }
 
+    /**
+     * Process the payload handed over with go or arrive on the calling thread. This is how an agent created without a
+     * thread of its own does its work. Unlike the run loop the agent's monitor is not held while processing, so a virtual
+     * thread is not pinned to its carrier while a place blocks.
+     */
+    public void execute() {
+        if (this.pooled) {
+            throw new IllegalStateException("Agent " + getName() + " runs on its own thread");
+        }
+        this.thread = Thread.currentThread();
+        try {
+            if (isInUse()) {
+                processPayload();
+            }
+        } finally {
+            this.thread = null;
+        }
+    }
+
+    /**
+     * Run the agent control loop for the current payload and return the agent when done
+     */
+    protected void processPayload() {
+        logger.debug("Starting work for {}", agentId());
+        MDC.put(MDCConstants.SHORT_NAME, getPayload().shortName());
+        try {
+            agentControl(this.arrivalPlace);
+        } catch (Throwable throwable) {
+            logger.error("Problem with agent", throwable);
+        } finally {
+            // prevent an interrupted thread from returning the agent
+            if (!this.timeToQuit) {
+                agentReturn();
+                MDC.clear(); // clear all MDC context
+            }
+        }
+    }
+
     /**
      * Call this method to permanently stop the running thread when we finish what we are doing
      */
@@ -186,9 +233,13 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
     public void killAgentAsync() {
         logger.debug("killAgentAsync called on {}", getName());
         this.timeToQuit = true;
+        final Thread t = this.thread;
+        if (t == null) {
+            return;
+        }
         try {
-            this.thread.setPriority(Thread.MIN_PRIORITY);
-            this.thread.interrupt();
+            t.setPriority(Thread.MIN_PRIORITY);
+            t.interrupt();
         } catch (RuntimeException ignored) {
             // empty catch block
         }
@@ -237,15 +288,33 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
     }
 
     protected void clearParallelTrackingInfo() {
-        this.visitedPlaces.clear();
+        getParallelTrackingInfo().clear();
     }
 
     protected void addParallelTrackingInfo(final String t) {
-        this.visitedPlaces.add(t);
+        getParallelTrackingInfo().add(t);
     }
 
     protected boolean checkParallelTrackingFor(final String type) {
-        return this.visitedPlaces.contains(type);
+        return getParallelTrackingInfo().contains(type);
+    }
+
+    /**
+     * Get the set of parallel service names visited by the payload currently being routed
+     *
+     * @return the mutable tracking set
+     */
+    protected Set<String> getParallelTrackingInfo() {
+        return this.visitedPlaces;
+    }
+
+    /**
+     * Get the queue of directory entries remaining from the last directory lookup for the payload currently being routed
+     *
+     * @return the mutable itinerary queue
+     */
+    protected Deque<DirectoryEntry> getNextKeyQueue() {
+        return this.nextKeyQueue;
     }
 
     /**
@@ -381,7 +450,7 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
     protected final void checkInterrupt(final IServiceProviderPlace place) {
         if (Thread.interrupted()) {
             // this should NEVER happen. if it does, we've done something bad
-            if (this.thread != Thread.currentThread()) {
+            if (!isOnAgentThread()) {
                 logger.error("MobileAgent thread instance is not the current thread. Instance thread: {} \tCurrent thread: {}", this.thread,
                         Thread.currentThread());
             }
@@ -395,12 +464,31 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
         }
     }
 
+    /**
+     * Report whether the calling thread is the one this agent's work runs on
+     */
+    protected boolean isOnAgentThread() {
+        return this.thread == Thread.currentThread();
+    }
+
     protected TimedResource resourceWatcherStart(final IServiceProviderPlace place) {
+        return resourceWatcherStart(place, null, payloadCount());
+    }
+
+    /**
+     * Start tracking a place with the resource watcher
+     *
+     * @param place the place executing
+     * @param worker the thread to interrupt if the place runs too long, or null for the agent's own
+     * @param payloadCount number of payloads the place is working on
+     */
+    protected TimedResource resourceWatcherStart(final IServiceProviderPlace place, @Nullable final Thread worker, final int payloadCount) {
         TimedResource tr = TimedResource.EMPTY;
         // CoordinationPlaces are tracked individually
         if (!(place instanceof CoordinationPlace)) {
             try {
-                tr = ResourceWatcher.lookup().starting(this, place);
+                tr = worker == null ? ResourceWatcher.lookup().starting(this, place)
+                        : ResourceWatcher.lookup().starting(this, place, worker, payloadCount);
             } catch (EmissaryException ex) {
                 logger.debug("No resource monitoring enabled");
             }
@@ -409,13 +497,16 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
     }
 
     /**
-     * Clean up, idle, and return agent to pool
+     * Clean up, idle, and return agent to pool if it came from one
      */
     protected synchronized void agentReturn() {
         clear();
         setArrivalPlace(null);
         this.lastPlaceProcessed = null;
         this.idle.set(true);
+        if (!this.pooled) {
+            return;
+        }
         AgentPool pool = null;
         try {
             pool = AgentPool.lookup();
@@ -453,9 +544,9 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
         // Perhaps we already have additional keys to process
         // from the last time we asked the directory. If so,
         // choose the next one and spit it out
-        if (!this.nextKeyQueue.isEmpty()) {
-            logger.debug("Returning next key from stack size={}", this.nextKeyQueue.size());
-            return this.nextKeyQueue.removeFirst();
+        if (!getNextKeyQueue().isEmpty()) {
+            logger.debug("Returning next key from stack size={}", getNextKeyQueue().size());
+            return getNextKeyQueue().removeFirst();
         }
 
         // We would need a current form of the payload to continue
@@ -547,19 +638,20 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
                         parallelEntryRejected = false;
                         logger.debug(
                                 "curEntry isParallel with curType={}, curEntry={}, visitedPlace={}, serviceName={}, lastServiceType={}, curTypeName={}",
-                                curType, curEntry.getFullKey(), this.visitedPlaces, curEntry.getServiceName(), lastServiceType,
+                                curType, curEntry.getFullKey(), getParallelTrackingInfo(), curEntry.getServiceName(), lastServiceType,
                                 stageName);
-                        if (this.visitedPlaces.isEmpty() || stageName.equals(lastServiceType)) {
+                        if (getParallelTrackingInfo().isEmpty() || stageName.equals(lastServiceType)) {
                             if (checkParallelTrackingFor(curEntry.getServiceName())) {
                                 lastEntry = new DirectoryEntry(curEntry);
                                 lastEntry.setDataType(form);
                                 formId = lastEntry.getDataId();
                                 parallelEntryRejected = true;
-                                logger.debug("Rejecting parallel entry found for {}: visitedPlaces={}", lastEntry.getFullKey(), this.visitedPlaces);
+                                logger.debug("Rejecting parallel entry found for {}: visitedPlaces={}", lastEntry.getFullKey(),
+                                        getParallelTrackingInfo());
                                 curEntry = nextKeyFromDirectory(formId, place, lastEntry, payloadArg);
                             } else {
                                 addParallelTrackingInfo(curEntry.getServiceName());
-                                logger.debug("Added parallel tracking = {}", this.visitedPlaces);
+                                logger.debug("Added parallel tracking = {}", getParallelTrackingInfo());
                             }
                         } else {
                             clearParallelTrackingInfo();
@@ -616,7 +708,7 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
 
             // Add the entries returned to the queue
             if ((entries != null) && !entries.isEmpty()) {
-                this.nextKeyQueue.addAll(entries);
+                getNextKeyQueue().addAll(entries);
                 logger.debug("Added {} new key entries from the directory for {}", entries.size(), dataId);
             }
 
@@ -628,8 +720,8 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
 
         // Dequeue first item and return it to the caller
         DirectoryEntry tmpEntry = null;
-        if (!this.nextKeyQueue.isEmpty()) {
-            tmpEntry = this.nextKeyQueue.removeFirst();
+        if (!getNextKeyQueue().isEmpty()) {
+            tmpEntry = getNextKeyQueue().removeFirst();
         }
         logger.debug("nextKeyFromDirectory found {}", tmpEntry);
         return tmpEntry;
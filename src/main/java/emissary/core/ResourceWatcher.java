@@ -94,6 +94,21 @@ public class ResourceWatcher implements Runnable {
         return tr;
     }
 
+    /**
+     * Register work an agent is running on another thread to start tracking it
+     *
+     * @param agent the agent the work belongs to
+     * @param place place executing
+     * @param worker the thread running the place
+     * @param payloadCount number of payloads the place is working on
+     * @return TimedResource for the place and worker
+     */
+    public TimedResource starting(final IMobileAgent agent, final IServiceProviderPlace place, final Thread worker, final int payloadCount) {
+        TimedResource tr = new TimedResource(agent, place, getPlaceDuration(place), metrics.timer(place.getPlaceName()), worker, payloadCount);
+        tracking.offer(tr);
+        return tr;
+    }
+
     /**
      * Lookup the default ResourceWatcher in the Namespace
      * 
@@ -20,6 +20,8 @@ public class TimedResource implements AutoCloseable {
 
     @Nullable
     private final IMobileAgent agent;
+    @Nullable
+    private final Thread worker;
     private final int payloadCount;
     private final long allowedDuration;
     private final String placeName;
@@ -37,15 +39,32 @@ public class TimedResource implements AutoCloseable {
         started = -1;
         allowedDuration = -1;
         agent = null;
+        worker = null;
         payloadCount = -1;
         placeName = "NOOP";
         timerContext = null;
     }
 
     public TimedResource(final IMobileAgent agent, final IServiceProviderPlace place, final long allowedDuration, final Timer timer) {
+        this(agent, place, allowedDuration, timer, null, agent.payloadCount());
+    }
+
+    /**
+     * Track a place running on a thread other than the agent's own, such as a sprout on a family pool thread
+     *
+     * @param agent the agent the work belongs to
+     * @param place the place executing
+     * @param allowedDuration millis allowed per payload
+     * @param timer the timer for the place
+     * @param worker the thread to interrupt when time runs out, or null to interrupt the agent
+     * @param payloadCount number of payloads the place is working on
+     */
+    public TimedResource(final IMobileAgent agent, final IServiceProviderPlace place, final long allowedDuration, final Timer timer,
+            @Nullable final Thread worker, final int payloadCount) {
         this.started = System.currentTimeMillis();
         this.agent = agent;
-        this.payloadCount = agent.payloadCount();
+        this.worker = worker;
+        this.payloadCount = payloadCount;
         this.placeName = place.getPlaceName();
         this.timerContext = timer.time();
         this.allowedDuration = allowedDuration;
@@ -60,7 +79,8 @@ public class TimedResource implements AutoCloseable {
         return isClosed;
     }
 
-    // test visibility
+    // test visibility; a sprout running on a pool thread is interrupted there rather than on its agent
+    @SuppressWarnings("Interruption")
     void interruptAgent() {
         // don't grab the lock if we're done
         if (isClosed) {
@@ -70,7 +90,11 @@ public class TimedResource implements AutoCloseable {
         try {
             if (!isClosed) {
                 LOG.debug("Found agent that needs interrupting {} in place {}", agent.getName(), placeName);
-                agent.interrupt();
+                if (worker != null) {
+                    worker.interrupt();
+                } else {
+                    agent.interrupt();
+                }
             }
         } catch (RuntimeException e) {
             LOG.error("Unable to interrupt agent {}: {}", agent.getName(), e.getMessage(), e);
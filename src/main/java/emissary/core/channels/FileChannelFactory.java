@@ -10,6 +10,7 @@ import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.Collections;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Provide a file-backed implementation for streaming data to a consumer
@@ -29,7 +30,36 @@ public final class FileChannelFactory {
      * @see SeekableByteChannelHelper#file(Path)
      */
     public static SeekableByteChannelFactory create(final Path path) {
-        return ImmutableChannelFactory.create(new FileChannelFactoryImpl(path));
+        return new FileBackedChannelFactory(path);
+    }
+
+    /**
+     * Find the file behind a factory, so that its contents can be handed to other processes by name rather than read
+     *
+     * @param sbcf the factory to look at
+     * @return the file if the factory was made by {@link #create(Path)}, otherwise null
+     */
+    @Nullable
+    public static Path getPath(@Nullable final SeekableByteChannelFactory sbcf) {
+        return sbcf instanceof FileBackedChannelFactory ? ((FileBackedChannelFactory) sbcf).path : null;
+    }
+
+    /**
+     * The immutable factory handed to callers, remembering which file it reads
+     */
+    private static final class FileBackedChannelFactory implements SeekableByteChannelFactory {
+        private final Path path;
+        private final SeekableByteChannelFactory delegate;
+
+        private FileBackedChannelFactory(final Path path) {
+            this.delegate = ImmutableChannelFactory.create(new FileChannelFactoryImpl(path));
+            this.path = path;
+        }
+
+        @Override
+        public SeekableByteChannel create() {
+            return delegate.create();
+        }
     }
 
     /**
@@ -203,12 +203,22 @@ public class DirectoryEntryList extends CopyOnWriteArrayList<DirectoryEntry> {
      * @param desiredExpense the expense we want
      */
     public DirectoryEntry pickOneOf(final int desiredExpense) {
+        return pickOneOf(this, desiredExpense);
+    }
+
+    /**
+     * Pick one of any that are tied for expense at random from a list already sorted by expense
+     * 
+     * @param list the sorted entries to choose from
+     * @param desiredExpense the expense we want
+     */
+    public static DirectoryEntry pickOneOf(final List<DirectoryEntry> list, final int desiredExpense) {
         int min = 0;
         int max = 0;
         int pos = 0;
 
-        while (pos < this.size()) {
-            final DirectoryEntry e = getEntry(pos);
+        while (pos < list.size()) {
+            final DirectoryEntry e = list.get(pos);
             if (e.getExpense() == desiredExpense) {
                 min = pos;
                 max = pos;
@@ -217,8 +227,8 @@ public class DirectoryEntryList extends CopyOnWriteArrayList<DirectoryEntry> {
             pos++;
         }
 
-        while (pos < this.size()) {
-            final DirectoryEntry e = getEntry(pos);
+        while (pos < list.size()) {
+            final DirectoryEntry e = list.get(pos);
             if (e.getExpense() != desiredExpense) {
                 break;
             }
@@ -228,17 +238,17 @@ public class DirectoryEntryList extends CopyOnWriteArrayList<DirectoryEntry> {
 
         // if there's only one pick it
         if (min == max) {
-            return getEntry(min);
+            return list.get(min);
         }
 
         // we have more than one (which we really should prevent at start-up)
         List<String> serviceList = new ArrayList<>();
-        for (DirectoryEntry entry : this) {
+        for (DirectoryEntry entry : list) {
             serviceList.add(entry.getKey());
         }
         logger.error("There is a service cost/quality collision at {} for {}.", desiredExpense, StringUtils.join(serviceList, ","));
         // since the entries should be sorted, the first one should always be the same
-        return getEntry(min);
+        return list.get(min);
     }
 
     /**
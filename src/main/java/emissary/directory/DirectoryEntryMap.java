@@ -4,14 +4,25 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 
 /**
  * Keep a map of DataID to DirectoryEntryList for the Directory Extensible to use other things for the key if desired,
  * just override the methods that figure out the key automatically from the DirectoryEntry or DirectoryEntryList.
+ * <p>
+ * The map carries a version number that changes whenever entries are added, removed or re-sorted through the map so
+ * that derived structures such as the {@link RoutingTable} can tell when they are out of date. The version at which
+ * each DataID last changed is remembered, including DataIDs that have since been removed, so that a peer holding the
+ * map as of one version can be sent just the lists changed after it. Versions are only comparable between maps with the
+ * same {@link #getEpoch() epoch}. Changes made directly to a DirectoryEntryList held in the map are not tracked.
  */
 public class DirectoryEntryMap extends ConcurrentHashMap<String, DirectoryEntryList> {
 
@@ -26,6 +37,18 @@ public class DirectoryEntryMap extends ConcurrentHashMap<String, DirectoryEntryL
     /** Value of SHALLOW_COPY flag */
     public static final boolean SHALLOW_COPY = false;
 
+    /** Bumped on every change made through this map */
+    private final AtomicLong version = new AtomicLong();
+
+    /** Version at which each DataID last changed, guarded by itself so the version and record move together */
+    private final Map<String, Long> modified = new ConcurrentHashMap<>();
+
+    /** Version of the last change recorded against the whole map rather than one DataID, guarded by modified */
+    private long wholeMapVersion = -1L;
+
+    /** Identifies this instance, whose versions mean nothing to any other map */
+    private final String epoch = UUID.randomUUID().toString();
+
     /**
      * No arg ctor supplies our tuned defaults to the super ctor
      */
@@ -109,6 +132,7 @@ public class DirectoryEntryMap extends ConcurrentHashMap<String, DirectoryEntryL
         final int beforeSize = list.size();
         list.add(d);
         final int afterSize = list.size();
+        changed(key);
 
         if (logger.isDebugEnabled()) {
             // This check could be wrong since nothing is synchronized.
@@ -192,6 +216,7 @@ public class DirectoryEntryMap extends ConcurrentHashMap<String, DirectoryEntryL
                 if (entry.getKey().equals(entryKey)) {
                     removed = entry;
                     list.remove(i);
+                    changed(key);
                     break;
                 }
             }
@@ -371,6 +396,7 @@ public class DirectoryEntryMap extends ConcurrentHashMap<String, DirectoryEntryL
                     put(entry.getKey(), list);
                 }
                 list.addAll(entry.getValue());
+                changed(entry.getKey());
             }
         }
     }
@@ -385,14 +411,23 @@ public class DirectoryEntryMap extends ConcurrentHashMap<String, DirectoryEntryL
     public List<String> addCostToMatching(final String key, final int increment) {
         final List<DirectoryEntry> list = collectAllMatching(key);
         final List<String> ret = new ArrayList<>();
+        final List<String> dataIds = new ArrayList<>();
         for (final DirectoryEntry e : list) {
             e.addCost(increment);
             ret.add(e.getFullKey());
+            final String dataId = KeyManipulator.getDataId(e.getKey());
+            if (!dataIds.contains(dataId)) {
+                dataIds.add(dataId);
+            }
         }
 
         // Put them back in order if something changed
-        if (!ret.isEmpty()) {
-            sort();
+        for (final String dataId : dataIds) {
+            final DirectoryEntryList changedList = get(dataId);
+            if (changedList != null) {
+                changedList.sort();
+            }
+            changed(dataId);
         }
 
         return ret;
@@ -402,8 +437,122 @@ public class DirectoryEntryMap extends ConcurrentHashMap<String, DirectoryEntryL
      * Force a sort on all the directory entry lists due to some external factors
      */
     public void sort() {
-        for (final DirectoryEntryList list : values()) {
-            list.sort();
+        for (final Map.Entry<String, DirectoryEntryList> entry : entrySet()) {
+            entry.getValue().sort();
+            changed(entry.getKey());
+        }
+    }
+
+    @Override
+    public DirectoryEntryList put(final String key, final DirectoryEntryList value) {
+        final DirectoryEntryList previous = super.put(key, value);
+        changed(key);
+        return previous;
+    }
+
+    @Override
+    public DirectoryEntryList remove(final Object key) {
+        final DirectoryEntryList previous = super.remove(key);
+        if (previous != null) {
+            changed((String) key);
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        final List<String> keys = new ArrayList<>(keySet());
+        super.clear();
+        for (final String key : keys) {
+            changed(key);
+        }
+    }
+
+    /**
+     * Get the current version of this map. Any change made through the map produces a new, larger, version.
+     *
+     * @return the version number
+     */
+    public long getVersion() {
+        return this.version.get();
+    }
+
+    /**
+     * Get the identity of this map instance. A version from a map with another epoch, such as one from before a restart,
+     * cannot be used with {@link #changedSince(long)}.
+     *
+     * @return the epoch
+     */
+    public String getEpoch() {
+        return this.epoch;
+    }
+
+    /**
+     * Get a consistent version to build a delta against, every change up to it is visible to {@link #changedSince(long)}
+     *
+     * @return the version number
+     */
+    public long getStableVersion() {
+        synchronized (this.modified) {
+            return this.version.get();
+        }
+    }
+
+    /**
+     * Find the DataIDs changed after a version, including those that have been removed. Take the version to report with the
+     * result from {@link #getStableVersion()} before calling this, so that a change racing with the call is sent again next
+     * time rather than lost.
+     *
+     * @param since the version the caller already has
+     * @return the changed DataIDs, or null if since is not a version of this map
+     */
+    @Nullable
+    public Collection<String> changedSince(final long since) {
+        if (since < 0 || since > getVersion()) {
+            return null;
+        }
+        final List<String> changed = new ArrayList<>();
+        if (since < wholeMapVersion()) {
+            final Set<String> all = new LinkedHashSet<>(this.modified.keySet());
+            all.addAll(keySet());
+            changed.addAll(all);
+            return changed;
+        }
+        for (final Map.Entry<String, Long> entry : this.modified.entrySet()) {
+            if (entry.getValue() > since) {
+                changed.add(entry.getKey());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Version of the last whole map change
+     */
+    private long wholeMapVersion() {
+        synchronized (this.modified) {
+            return this.wholeMapVersion;
+        }
+    }
+
+    /**
+     * Record a change to the contents of the map without saying which DataIDs changed, so every DataID counts as changed
+     * to a peer holding an earlier version
+     */
+    protected void changed() {
+        synchronized (this.modified) {
+            this.wholeMapVersion = this.version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record a change to one DataID of the map
+     *
+     * @param dataId the key that changed
+     */
+    protected void changed(final String dataId) {
+        synchronized (this.modified) {
+            this.modified.put(dataId, this.version.incrementAndGet());
         }
     }
 }
@@ -13,11 +13,14 @@ import org.slf4j.MDC;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import javax.annotation.Nullable;
 
@@ -48,6 +51,10 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
      */
     protected DirectoryEntryMap entryMap = new DirectoryEntryMap();
 
+    /** Routing snapshot of the entryMap, replaced whenever the map version changes */
+    @Nullable
+    protected volatile RoutingTable routingTable = null;
+
     /** Peer directories to this one */
     protected Set<DirectoryEntry> peerDirectories = new CopyOnWriteArraySet<>();
 
@@ -56,6 +63,9 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
      */
     protected Set<String> staticPeers = new HashSet<>();
 
+    /** Full zone last received from each static peer, so the next transfer only has to carry what changed since */
+    protected final Map<String, ZoneTransfer> peerZones = new ConcurrentHashMap<>();
+
     /** Heartbeat manager for checking up on remote directories */
     protected HeartbeatManager heartbeat;
 
@@ -148,6 +158,8 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
      * <li>HEARTBEAT_INTERVAL_SECONDS, default is 30</li>
      * <li>HEARTBEAT_FAILURE_THRESHOLD, set transient failure count, default owned by HeartbeatManager</li>
      * <li>HEARTBEAT_PERMANENT_FAILURE_THRESHOLD, set permanent failure count, default owned by HeartbeatManager</li>
+     * <li>HEARTBEAT_TIMEOUT_SECONDS, longest a heartbeat may take, default is the interval</li>
+     * <li>HEARTBEAT_MAX_CONCURRENT, most heartbeats outstanding at once, default owned by HeartbeatManager</li>
      * </ul>
      */
     private void setupDirectory() {
@@ -167,6 +179,16 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
             if (heartbeatPermanentFailure > 0) {
                 this.heartbeat.setPermanentFailThreshold(heartbeatPermanentFailure);
             }
+
+            final int heartbeatTimeout = configG.findIntEntry("HEARTBEAT_TIMEOUT_SECONDS", -1);
+            if (heartbeatTimeout > 0) {
+                this.heartbeat.setTimeoutMillis(heartbeatTimeout * 1000L);
+            }
+
+            final int heartbeatConcurrency = configG.findIntEntry("HEARTBEAT_MAX_CONCURRENT", -1);
+            if (heartbeatConcurrency > 0) {
+                this.heartbeat.setMaxConcurrentHeartbeats(heartbeatConcurrency);
+            }
         }
 
         // Set up deferred stuff from ServiceProviderPlace
@@ -414,11 +436,22 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
             // Also registers as a peer with them
             // TODO should we need to get the current EmissaryClient to ensure parameters are set correctly
             final DirectoryAdapter da = new DirectoryAdapter();
-            map = da.outboundRegisterPeer(key, myKey);
+            final ZoneTransfer previous = this.peerZones.get(key);
+            final ZoneTransfer zone = previous == null ? da.outboundRegisterPeer(key, myKey, null, 0)
+                    : da.outboundRegisterPeer(key, myKey, previous.getEpoch(), previous.getVersion());
+
+            // Rebuild the whole remote map from a delta so stale entries are found just as for a full transfer
+            map = zone.applyTo(previous == null ? null : previous.getEntries());
+            if (zone.getEpoch() != null) {
+                this.peerZones.put(key, new ZoneTransfer(new DirectoryEntryMap(map, DirectoryEntryMap.DEEP_COPY), zone.getEpoch(), zone.getVersion(),
+                        false));
+            } else {
+                this.peerZones.remove(key);
+            }
 
             if (logger.isDebugEnabled()) {
-                logger.debug("Retrieved {} entries in zone transfer from {} in {} millis", map.entryCount(), key,
-                        (System.currentTimeMillis() - startZone));
+                logger.debug("Retrieved {} entries in {} zone transfer from {} in {} millis", zone.getEntries().entryCount(),
+                        (zone.isDelta() ? "delta" : "full"), key, (System.currentTimeMillis() - startZone));
             }
 
             // No entries mean we got the remote message,
@@ -440,6 +473,8 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
                 logger.debug("Skipping load of {} new entries from {} returning list to caller", map.entryCount(), key);
             }
         } catch (Exception ex) {
+            // Start over with a full transfer next time
+            this.peerZones.remove(key);
             if (logger.isDebugEnabled()) {
                 logger.debug("Unable to zone transfer with {}", key, ex);
             } else {
@@ -967,17 +1002,17 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
      */
     protected List<DirectoryEntry> nextKeys(final String dataId, final IBaseDataObject payload, @Nullable final DirectoryEntry lastPlace,
             final DirectoryEntryMap entries) {
-        // Find the entry list for the type being requested
-        final DirectoryEntryList currentList = getWildcardedEntryList(dataId, entries);
+        // Find the candidate entries for the type being requested
+        final DirectoryEntry[] candidates = getRoutingTable(entries).lookup(dataId);
 
         // Nothing for the dataId or any wildcarded versions, we are done
-        if ((currentList == null) || currentList.isEmpty()) {
+        if (candidates.length == 0) {
             logger.debug("nextKey - nothing found here for {}", dataId);
             return List.of();
         }
 
         // remove denied entries
-        currentList.removeIf(de -> de.getLocalPlace() != null && de.getLocalPlace().isDenied(payload.currentForm()));
+        final List<DirectoryEntry> currentList = removeDenied(candidates, payload.currentForm());
 
         if (currentList.isEmpty()) {
             logger.debug("nextKeys - no non-DENIED entries found here for {}", dataId);
@@ -989,14 +1024,14 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
         // The dataId this time is different from the last place
         // visited, so we can just choose from the list of the lowest
         // expense places and get on with it
-        DirectoryEntry trialEntry = currentList.getEntry(0);
+        DirectoryEntry trialEntry = currentList.get(0);
         if (lastPlace == null || (!lastPlace.getDataId().equals(dataId) && !trialEntry.getServiceLocation().equals(lastPlace.getServiceLocation()))) {
             logger.debug("doing first in list for {}", trialEntry);
-            keyList.add(currentList.pickOneOf(trialEntry.getExpense()));
+            keyList.add(DirectoryEntryList.pickOneOf(currentList, trialEntry.getExpense()));
         } else {
             // Trying a particular "dataType::serviceType" pair again
             for (int i = 0; i < currentList.size(); i++) {
-                trialEntry = currentList.getEntry(i);
+                trialEntry = currentList.get(i);
 
                 // Skip entry if less/same expensive. Includes the obvious
                 // test, plus evaluation of whether we would choose a
@@ -1027,7 +1062,7 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
 
                 // Entry is more expense and different service
                 logger.debug("nextKey - doing next in list");
-                keyList.add(currentList.pickOneOf(trialEntry.getExpense()));
+                keyList.add(DirectoryEntryList.pickOneOf(currentList, trialEntry.getExpense()));
                 break;
             }
 
@@ -1036,6 +1071,51 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
         return keyList;
     }
 
+    /**
+     * Get a routing table that is current for the specified map. The table for the main entry map is kept and only rebuilt
+     * after the map changes, other maps get a throw-away table.
+     *
+     * @param entries the entry map being routed against
+     * @return a routing table reflecting the current contents of entries
+     */
+    // Only the table for our own map instance is kept, any other map gets a throw-away table even if equal
+    @SuppressWarnings("ReferenceEquality")
+    protected RoutingTable getRoutingTable(final DirectoryEntryMap entries) {
+        RoutingTable table = this.routingTable;
+        if (table != null && table.isCurrentFor(entries)) {
+            return table;
+        }
+        table = new RoutingTable(entries);
+        if (entries == this.entryMap) {
+            logger.debug("Rebuilt routing table at version {}", table.getVersion());
+            this.routingTable = table;
+        }
+        return table;
+    }
+
+    /**
+     * Filter out entries for local places that deny the specified form. The candidates are shared and never modified, a
+     * copy is only made when something has to be removed.
+     *
+     * @param candidates the sorted candidate entries
+     * @param form the current form of the payload being routed
+     * @return the remaining entries in the same order
+     */
+    protected static List<DirectoryEntry> removeDenied(final DirectoryEntry[] candidates, final String form) {
+        List<DirectoryEntry> allowed = null;
+        for (int i = 0; i < candidates.length; i++) {
+            final DirectoryEntry de = candidates[i];
+            if (de.getLocalPlace() != null && de.getLocalPlace().isDenied(form)) {
+                if (allowed == null) {
+                    allowed = new ArrayList<>(Arrays.asList(candidates).subList(0, i));
+                }
+            } else if (allowed != null) {
+                allowed.add(de);
+            }
+        }
+        return allowed == null ? Arrays.asList(candidates) : allowed;
+    }
+
     /**
      * Get the possibly wildcarded DirectoryEntryList for the dataId
      *
@@ -8,6 +8,7 @@ import org.jdom2.JDOMException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -22,6 +23,9 @@ public class DirectoryXmlContainer {
     public static final String DIRECTORY = "directory";
     public static final String LOC_ATTR = "location";
     public static final String DATAID_ATTR = "dataid";
+    public static final String EPOCH_ATTR = "epoch";
+    public static final String VERSION_ATTR = "version";
+    public static final String SINCE_ATTR = "since";
 
     /**
      * Build an xml document from the contents of a directory place
@@ -132,6 +136,78 @@ public class DirectoryXmlContainer {
         return xml;
     }
 
+    /**
+     * Build a zone transfer document for a peer. When the peer names the epoch of our map and a version of it, only the
+     * lists changed since that version are included, a removed list appearing empty. Otherwise every list is included.
+     * Either way the document carries the epoch and the version of the map it brings the peer up to.
+     *
+     * @param dir the directory to transfer
+     * @param epoch the epoch the peer has, or null for a full transfer
+     * @param since the version the peer has
+     * @return the document
+     */
+    public static Document buildZoneDocument(final DirectoryPlace dir, @Nullable final String epoch, final long since) {
+        final DirectoryEntryMap map = dir.entryMap;
+
+        // Read the version first, anything changing from here on is sent again next time
+        final long version = map.getStableVersion();
+        final Collection<String> changed = map.getEpoch().equals(epoch) ? map.changedSince(since) : null;
+        final Collection<String> dataIds = changed != null ? changed : map.keySet();
+
+        final Element root = new Element(DIRECTORY);
+        root.setAttribute(LOC_ATTR, dir.getKey());
+        root.setAttribute(EPOCH_ATTR, map.getEpoch());
+        root.setAttribute(VERSION_ATTR, Long.toString(version));
+        if (changed != null) {
+            root.setAttribute(SINCE_ATTR, Long.toString(since));
+        }
+
+        for (final String dataId : dataIds) {
+            final DirectoryEntryList list = map.get(dataId);
+            final Element listEl =
+                    list != null ? new DirectoryEntryList(list, DirectoryEntryList.DEEP_COPY, DirectoryEntryList.PRESERVE_TIME).getXml()
+                            : new DirectoryEntryList().getXml();
+            if (list != null || changed != null) {
+                listEl.setAttribute(DATAID_ATTR, dataId);
+                root.addContent(listEl);
+            }
+        }
+
+        logger.debug("Built zone of {} lists for version {} since {}", dataIds.size(), version, changed != null ? since : "start");
+        return new Document(root);
+    }
+
+    /**
+     * Build a zone transfer xml string for a peer
+     *
+     * @see #buildZoneDocument(DirectoryPlace, String, long)
+     */
+    public static String toZoneXmlString(final DirectoryPlace dir, @Nullable final String epoch, final long since) {
+        return SaferJDOMUtil.toString(buildZoneDocument(dir, epoch, since));
+    }
+
+    /**
+     * Build a zone transfer from string xml. A document without an epoch, as sent by directories that do not version their
+     * map, is taken as a full transfer.
+     */
+    public static ZoneTransfer buildZoneTransfer(final String xml) throws JDOMException {
+        final Element el = SaferJDOMUtil.createDocument(xml).getRootElement();
+        final DirectoryEntryMap map = buildEntryListMap(el);
+        final String epoch = el.getAttributeValue(EPOCH_ATTR);
+        long version = 0;
+        boolean delta = false;
+        if (epoch != null) {
+            try {
+                version = Long.parseLong(el.getAttributeValue(VERSION_ATTR, "0"));
+                delta = el.getAttributeValue(SINCE_ATTR) != null;
+            } catch (NumberFormatException ex) {
+                logger.debug("Bad zone version {}, taking as a full transfer", el.getAttributeValue(VERSION_ATTR));
+                return new ZoneTransfer(map, null, 0, false);
+            }
+        }
+        return new ZoneTransfer(map, epoch, version, delta);
+    }
+
     /**
      * Build a DirectoryEntryList map from string xml
      */
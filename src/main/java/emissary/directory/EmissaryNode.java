@@ -8,7 +8,9 @@ import emissary.core.EmissaryException;
 import emissary.core.MetricsManager;
 import emissary.core.ResourceWatcher;
 import emissary.core.sentinel.Sentinel;
+import emissary.pool.AgentExecutor;
 import emissary.pool.AgentPool;
+import emissary.pool.AgentPoolController;
 import emissary.pool.MobileAgentFactory;
 import emissary.pool.MoveSpool;
 import emissary.roll.RollManager;
@@ -250,6 +252,13 @@ public class EmissaryNode {
         AgentPool pool = new AgentPool(new MobileAgentFactory());
         logger.debug("Setup AgentPool with {} agents...", pool.getNumIdle());
 
+        // The optional AgentExecutor, used by the MoveSpool instead of the pool
+        AgentExecutor executor = AgentExecutor.fromConfig();
+        if (executor != null) {
+            executor.bind();
+            logger.debug("Setup {}", executor);
+        }
+
         // The MoveSpool
         MoveSpool spool = new MoveSpool();
         logger.debug("Started MoveSpool...{}", spool);
@@ -262,6 +271,13 @@ public class EmissaryNode {
         ResourceWatcher watcher = new ResourceWatcher(metricsManager);
         logger.debug("Started resource watcher...{}", watcher);
 
+        // The optional controller that resizes the AgentPool
+        AgentPoolController poolController = AgentPoolController.fromConfig(pool);
+        if (poolController != null) {
+            poolController.start();
+            logger.debug("Started {}", poolController);
+        }
+
         // Initialize list of configured spi classes
         SPILoader.load();
 
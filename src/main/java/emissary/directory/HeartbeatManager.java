@@ -17,13 +17,25 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
 /**
  * Facility for directory instances to check up on each other by sending a heartbeat message
+ * <p>
+ * Each remote directory is sent its heartbeat on its own jittered schedule, from a bounded pool of threads, so a slow
+ * or unreachable peer only delays its own next heartbeat. Every heartbeat has a deadline after which the request is
+ * aborted and counted as a failure. The deadline adapts to the response times seen from that peer, in the manner of a
+ * TCP retransmission timeout, bounded above by the configured heartbeat timeout.
  */
 public class HeartbeatManager {
     // Our logger
@@ -35,9 +47,25 @@ public class HeartbeatManager {
     public static final String BAD_RESPOSNE = "Bad request -> status: 500";
 
 
-    /** The timer drives the tasks and scheduling of heartbeat pings */
-    @Nullable
-    protected Timer timer = null;
+    /** Drives the scheduling of heartbeat pings and the deadlines on them */
+    protected ScheduledExecutorService scheduler;
+
+    /** Sends the heartbeats, at most one outstanding per remote directory */
+    protected ThreadPoolExecutor senders;
+
+    /** Default number of heartbeats sent at once {@value} */
+    public static final int DEFAULT_MAX_CONCURRENT_HEARTBEATS = 8;
+
+    /** Fraction of the interval each scheduled heartbeat is moved earlier or later by at random */
+    public static final double JITTER = 0.1;
+
+    /** Shortest deadline given to a heartbeat however quickly the peer has been answering {@value} */
+    public static final long MIN_TIMEOUT_MILLIS = 2000L;
+
+    /** Longest a heartbeat may take before it is aborted, defaults to the interval */
+    protected long timeoutMillis;
+
+    private volatile boolean shutdown = false;
 
     /** Directory this instance acts on behalf of */
     protected String thisDirectory;
@@ -103,25 +131,38 @@ public class HeartbeatManager {
             @Nullable final List<String> dirList) {
         this.initialDelaySeconds = initialDelaySeconds;
         this.intervalSeconds = intervalSeconds;
+        this.timeoutMillis = Math.max(MIN_TIMEOUT_MILLIS, intervalSeconds * 1000L);
 
         logger.debug("Starting with initialDelay={}, interval={}", initialDelaySeconds, intervalSeconds);
 
-        // new daemon timer
-        this.timer = new Timer("HeartbeatManager", true);
+        // daemon threads for scheduling and sending
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r, "HeartbeatManager");
+            t.setDaemon(true);
+            return t;
+        });
+        final AtomicInteger senderCount = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(DEFAULT_MAX_CONCURRENT_HEARTBEATS, DEFAULT_MAX_CONCURRENT_HEARTBEATS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    final Thread t = new Thread(r, "HeartbeatSender-" + senderCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.senders.allowCoreThreadTimeOut(true);
 
         // Save directory key
         this.thisDirectory = directoryKey;
 
         // Save each directory in dirList along with good
-        // starting health value
+        // starting health value, spreading the first heartbeats
+        // over an interval after the initial delay so they are
+        // not all sent at once
         if (dirList != null) {
             for (final String key : dirList) {
-                addRemoteDirectory(key);
+                addRemoteDirectory(key, true,
+                        this.initialDelaySeconds * 1000L + ThreadLocalRandom.current().nextLong(this.intervalSeconds * 1000L + 1));
             }
         }
-
-        // "smooth" execution every 30 seconds starting in 2 minutes
-        this.timer.schedule(new HeartbeatTask(), (this.initialDelaySeconds * 1000L), (this.intervalSeconds * 1000L));
     }
 
     /**
@@ -140,11 +181,38 @@ public class HeartbeatManager {
         logger.debug("Set new permanent fail threshold to {}", t);
     }
 
+    /**
+     * Set the most heartbeats that may be outstanding at once
+     */
+    public void setMaxConcurrentHeartbeats(final int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Need at least one heartbeat sender");
+        }
+        if (n > this.senders.getMaximumPoolSize()) {
+            this.senders.setMaximumPoolSize(n);
+            this.senders.setCorePoolSize(n);
+        } else {
+            this.senders.setCorePoolSize(n);
+            this.senders.setMaximumPoolSize(n);
+        }
+        logger.debug("Set max concurrent heartbeats to {}", n);
+    }
+
+    /**
+     * Set the longest a heartbeat may take before it is aborted and counted as a failure
+     */
+    public void setTimeoutMillis(final long t) {
+        this.timeoutMillis = Math.max(MIN_TIMEOUT_MILLIS, t);
+        logger.debug("Set heartbeat timeout to {}ms", this.timeoutMillis);
+    }
+
     /**
      * Shutdown processing
      */
     public void shutDown() {
-        this.timer.cancel();
+        this.shutdown = true;
+        this.scheduler.shutdownNow();
+        this.senders.shutdownNow();
     }
 
     /**
@@ -163,10 +231,26 @@ public class HeartbeatManager {
      * @param isAlive initial status
      */
     public void addRemoteDirectory(final String key, final boolean isAlive) {
+        addRemoteDirectory(key, isAlive, nextDelayMillis());
+    }
+
+    /**
+     * Add another directory to monitor with initial status and the delay before its first heartbeat
+     *
+     * @param key four-tuple for the remote directory
+     * @param isAlive initial status
+     * @param firstDelayMillis milliseconds until the first heartbeat
+     */
+    private void addRemoteDirectory(final String key, final boolean isAlive, final long firstDelayMillis) {
         // Skip if on same JVM
         if (!KeyManipulator.isLocalTo(this.thisDirectory, key)) {
             final String dkey = KeyManipulator.getDefaultDirectoryKey(key);
-            this.directories.put(dkey, new Health(isAlive, "Initial status"));
+            final Health health = new Health(isAlive, "Initial status");
+            final Health replaced = this.directories.put(dkey, health);
+            if (replaced != null) {
+                replaced.stop();
+            }
+            schedule(dkey, health, firstDelayMillis);
             logger.debug("Added remote {} with initial status {} now monitoring {} remote directories", dkey, isAlive, this.directories.size());
         } else {
             logger.debug("Skipping local directory {}, is not remote", key);
@@ -179,7 +263,10 @@ public class HeartbeatManager {
      * @param key four-tuple for the remote directory
      */
     public void removeRemoteDirectory(final String key) {
-        this.directories.remove(KeyManipulator.getDefaultDirectoryKey(key));
+        final Health removed = this.directories.remove(KeyManipulator.getDefaultDirectoryKey(key));
+        if (removed != null) {
+            removed.stop();
+        }
     }
 
     /**
@@ -245,13 +332,19 @@ public class HeartbeatManager {
             return;
         }
 
-        final boolean wasAlive = v.isAlive();
-        final boolean wasHealthy = v.isHealthy();
+        final boolean wasAlive;
+        final boolean wasHealthy;
+        final boolean isAlive;
+        final boolean isHealthy;
+        synchronized (v) {
+            wasAlive = v.isAlive();
+            wasHealthy = v.isHealthy();
 
-        v.addReport(status, reason);
+            v.addReport(status, reason);
 
-        final boolean isAlive = v.isAlive();
-        final boolean isHealthy = v.isHealthy();
+            isAlive = v.isAlive();
+            isHealthy = v.isHealthy();
+        }
 
         if (logger.isDebugEnabled()) {
             logger.debug("Reporting on {} status={}, wasAlive/Healthy={}/{}, isAlive/Healthy={}/{}", key, status, wasAlive, wasHealthy, isAlive,
@@ -308,23 +401,47 @@ public class HeartbeatManager {
 
 
     /**
-     * The Task thread, monitors all remote directories
+     * Arrange the next heartbeat to a remote directory. The chain of heartbeats is cancelled once the directory is removed
+     * or added again with a new status, the latter having started a chain of its own.
+     *
+     * @param key key of the remote directory
+     * @param health the health record the chain belongs to
+     * @param delayMillis how long to wait before sending
      */
-    class HeartbeatTask extends TimerTask {
-        @Override
-        public void run() {
-            try {
-                logger.debug("Running timer task on {} directories", HeartbeatManager.this.directories.size());
-                for (final String dir : HeartbeatManager.this.directories.keySet()) {
-                    heartbeat(dir);
+    private void schedule(final String key, final Health health, final long delayMillis) {
+        if (this.shutdown) {
+            return;
+        }
+        try {
+            health.setNext(this.scheduler.schedule(() -> {
+                if (health.isStopped()) {
+                    logger.debug("Stopping heartbeats to {}, no longer monitored", key);
+                    return;
                 }
-                logger.debug("Ending the HeartbeatTask run method");
-            } catch (RuntimeException e) {
-                logger.error("Unexpected problem in heartbeat timer", e);
-            }
+                this.senders.execute(() -> {
+                    try {
+                        heartbeat(key);
+                    } catch (RuntimeException e) {
+                        logger.error("Unexpected problem sending heartbeat to {}", key, e);
+                    } finally {
+                        schedule(key, health, nextDelayMillis());
+                    }
+                });
+            }, delayMillis, TimeUnit.MILLISECONDS));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Not scheduling heartbeat to {} after shutdown", key);
         }
     }
 
+    /**
+     * The interval moved earlier or later at random so that heartbeats to different peers drift apart
+     */
+    private long nextDelayMillis() {
+        final long interval = this.intervalSeconds * 1000L;
+        final long jitter = (long) (interval * JITTER);
+        return interval - jitter + ThreadLocalRandom.current().nextLong(2 * jitter + 1);
+    }
+
     /**
      * Send a heartbeat message to the directory represented by key and take follow-on actions as appropriate Called from
      * the timer task normally, but can be called externally by the impatient
@@ -337,8 +454,27 @@ public class HeartbeatManager {
         boolean isup = false;
         try {
             logger.debug("Sending heartbeat msg to {}", key);
-            EmissaryResponse response = getHeartbeat(this.thisDirectory, key);
+            final Health health = this.directories.get(KeyManipulator.getDefaultDirectoryKey(key));
+            final long deadline = health != null ? health.getTimeoutMillis() : this.timeoutMillis;
+            final EmissaryClient client = new EmissaryClient();
+            final HttpPost method = createHeartbeat(this.thisDirectory, key, client);
+            final long start = System.nanoTime();
+            final EmissaryResponse response;
+            final ScheduledFuture<?> alarm = this.scheduler.schedule(() -> {
+                method.cancel();
+            }, deadline, TimeUnit.MILLISECONDS);
+            try {
+                response = client.send(method);
+            } finally {
+                alarm.cancel(false);
+            }
+            if (method.isCancelled()) {
+                logger.debug("Heartbeat to {} passed its {}ms deadline", key, deadline);
+            }
             if (response.getStatus() == 200) {
+                if (health != null) {
+                    health.addResponseTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
                 healthReport(key, true, response.getContentString());
                 isup = true;
             } else {
@@ -358,6 +494,13 @@ public class HeartbeatManager {
     }
 
     public static EmissaryResponse getHeartbeat(String fromPlace, String toPlace, EmissaryClient client) {
+        return client.send(createHeartbeat(fromPlace, toPlace, client));
+    }
+
+    /**
+     * Build the heartbeat request without sending it, so the caller may abort it
+     */
+    static HttpPost createHeartbeat(String fromPlace, String toPlace, EmissaryClient client) {
         final String directoryUrl = KeyManipulator.getServiceHostUrl(toPlace);
         final HttpPost method = client.createHttpPost(directoryUrl, EmissaryClient.context, "/Heartbeat.action");
         final String loc = KeyManipulator.getServiceLocation(toPlace);
@@ -366,8 +509,7 @@ public class HeartbeatManager {
         nvps.add(new BasicNameValuePair(HeartbeatAdapter.FROM_PLACE_NAME, fromPlace));
         nvps.add(new BasicNameValuePair(HeartbeatAdapter.TO_PLACE_NAME, loc));
         method.setEntity(new UrlEncodedFormEntity(nvps, StandardCharsets.UTF_8));
-
-        return client.send(method);
+        return method;
     }
 
 
@@ -380,6 +522,15 @@ public class HeartbeatManager {
 
         private String lastMessage;
 
+        // Smoothed response time and its mean deviation in millis, negative until the first answer
+        private double smoothedMillis = -1;
+        private double deviationMillis = 0;
+
+        // The next heartbeat scheduled for the directory
+        @Nullable
+        private ScheduledFuture<?> next;
+        private boolean stopped = false;
+
         /**
          * Create a new Health object with the specified status and msg
          *
@@ -396,7 +547,7 @@ public class HeartbeatManager {
          * @param v the most recent status
          * @param msg the most recent message
          */
-        public void addReport(final boolean v, final String msg) {
+        public synchronized void addReport(final boolean v, final String msg) {
             this.lastMessage = msg;
             if (v) {
                 this.failCounter = 0;
@@ -411,7 +562,7 @@ public class HeartbeatManager {
          * @param isAlive false means permanent failure indicated
          * @param message message to asocciate with this statsu
          */
-        void setStatus(final boolean isAlive, final String message) {
+        synchronized void setStatus(final boolean isAlive, final String message) {
             if (!isAlive) {
                 this.failCounter = HeartbeatManager.this.permanentFailThreshold;
                 this.lastMessage = message;
@@ -421,12 +572,49 @@ public class HeartbeatManager {
             }
         }
 
+        /**
+         * Hold the next scheduled heartbeat so it can be cancelled, cancelling it at once if monitoring has stopped
+         *
+         * @param future the scheduled heartbeat
+         */
+        synchronized void setNext(final ScheduledFuture<?> future) {
+            this.next = future;
+            if (this.stopped) {
+                future.cancel(false);
+            }
+        }
+
+        /**
+         * Stop monitoring the directory, cancelling the next scheduled heartbeat
+         */
+        synchronized void stop() {
+            this.stopped = true;
+            if (this.next != null) {
+                this.next.cancel(false);
+            }
+        }
+
+        // test visibility
+        @Nullable
+        synchronized ScheduledFuture<?> getNext() {
+            return this.next;
+        }
+
+        /**
+         * Check if monitoring of the directory has stopped
+         *
+         * @return true once stopped
+         */
+        synchronized boolean isStopped() {
+            return this.stopped;
+        }
+
         /**
          * Report our health status
          *
          * @return true if failed less than threshold times
          */
-        public boolean isHealthy() {
+        public synchronized boolean isHealthy() {
             return this.failCounter < HeartbeatManager.this.failThreshold;
         }
 
@@ -435,15 +623,44 @@ public class HeartbeatManager {
          *
          * @return true if failed less than permanent threshold times
          */
-        public boolean isAlive() {
+        public synchronized boolean isAlive() {
             return this.failCounter < HeartbeatManager.this.permanentFailThreshold;
         }
 
         /**
          * Access to the last saved message
          */
-        public String getLastMessage() {
+        public synchronized String getLastMessage() {
             return this.lastMessage;
         }
+
+        /**
+         * Fold the time taken by a successful heartbeat into the running estimate
+         *
+         * @param millis how long the peer took to answer
+         */
+        synchronized void addResponseTime(final long millis) {
+            if (this.smoothedMillis < 0) {
+                this.smoothedMillis = millis;
+                this.deviationMillis = millis / 2.0;
+            } else {
+                this.deviationMillis = 0.75 * this.deviationMillis + 0.25 * Math.abs(this.smoothedMillis - millis);
+                this.smoothedMillis = 0.875 * this.smoothedMillis + 0.125 * millis;
+            }
+        }
+
+        /**
+         * How long to wait for the next heartbeat from what the peer has taken so far, the configured timeout until it has
+         * answered
+         *
+         * @return the deadline in millis
+         */
+        synchronized long getTimeoutMillis() {
+            if (this.smoothedMillis < 0) {
+                return HeartbeatManager.this.timeoutMillis;
+            }
+            final long estimate = (long) Math.ceil(this.smoothedMillis + 4 * this.deviationMillis);
+            return Math.min(HeartbeatManager.this.timeoutMillis, Math.max(MIN_TIMEOUT_MILLIS, estimate));
+        }
     }
 }
@@ -0,0 +1,96 @@
+package emissary.directory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable routing snapshot of a {@link DirectoryEntryMap} at one version. Each dataId is mapped to the sorted
+ * array of candidate entries gathered from the dataId and all of its wildcarded forms (see {@link WildcardEntry}), so a
+ * routing decision is an array read instead of a wildcard expansion and a list merge.
+ * <p>
+ * Every dataId present in the map when the table is built is resolved up front. Other dataIds, which can only match
+ * through wildcards, are resolved on first use and remembered for the life of the table. A table is discarded as soon
+ * as the version of its map changes.
+ */
+public class RoutingTable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutingTable.class);
+
+    /** Upper bound on remembered dataIds, beyond this lookups are resolved but not remembered */
+    public static final int MAX_RESOLVED_IDS = 10000;
+
+    private static final DirectoryEntry[] NO_ENTRIES = new DirectoryEntry[0];
+
+    private final DirectoryEntryMap source;
+    private final long version;
+    private final Map<String, DirectoryEntry[]> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * Build a routing table from the current contents of the map
+     *
+     * @param source the map to build from
+     */
+    public RoutingTable(final DirectoryEntryMap source) {
+        this.source = source;
+        // Read the version first, a change during the build makes this table stale right away
+        this.version = source.getVersion();
+        for (final String dataId : source.keySet()) {
+            this.resolved.put(dataId, resolve(dataId));
+        }
+        logger.debug("Built routing table version {} with {} dataIds", this.version, this.resolved.size());
+    }
+
+    /**
+     * Determine if this table still reflects the specified map
+     *
+     * @param map the map routing is being done against
+     * @return true if this table was built from that map and the map has not changed since
+     */
+    // The version only means something for the instance the table was built from, an equal map is not enough
+    @SuppressWarnings("ReferenceEquality")
+    public boolean isCurrentFor(final DirectoryEntryMap map) {
+        return map == this.source && map.getVersion() == this.version;
+    }
+
+    /**
+     * Get the version of the map this table was built from
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Get the candidate entries for a dataId, cheapest first. The returned array is shared and must not be modified.
+     *
+     * @param dataId the dataType::serviceType being routed
+     * @return the candidates, possibly empty but never null
+     */
+    // An array keeps routing, the hottest path in the directory, free of wrapper allocation and iterators
+    @SuppressWarnings("AvoidObjectArrays")
+    public DirectoryEntry[] lookup(final String dataId) {
+        final DirectoryEntry[] entries = this.resolved.get(dataId);
+        if (entries != null) {
+            return entries;
+        }
+        final DirectoryEntry[] found = resolve(dataId);
+        if (this.resolved.size() < MAX_RESOLVED_IDS) {
+            this.resolved.putIfAbsent(dataId, found);
+        }
+        return found;
+    }
+
+    /**
+     * Number of dataIds currently resolved in this table
+     */
+    public int size() {
+        return this.resolved.size();
+    }
+
+    private DirectoryEntry[] resolve(final String dataId) {
+        final DirectoryEntryList list = WildcardEntry.getWildcardedEntry(dataId, this.source);
+        return list.isEmpty() ? NO_ENTRIES : list.toArray(NO_ENTRIES);
+    }
+}
@@ -0,0 +1,83 @@
+package emissary.directory;
+
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * The directory entries received from a peer in one zone transfer along with the version of the peer's map they bring
+ * the receiver up to. A delta holds only the lists changed since the version the receiver asked from, a list that is
+ * now empty standing for one the peer no longer has. A snapshot holds every list.
+ */
+public class ZoneTransfer {
+
+    private final DirectoryEntryMap entries;
+    @Nullable
+    private final String epoch;
+    private final long version;
+    private final boolean delta;
+
+    /**
+     * Create a transfer
+     *
+     * @param entries the lists received
+     * @param epoch the epoch of the peer's map, or null if the peer does not version its map
+     * @param version the version of the peer's map that the lists bring the receiver up to
+     * @param delta true if the entries only hold changes
+     */
+    public ZoneTransfer(final DirectoryEntryMap entries, @Nullable final String epoch, final long version, final boolean delta) {
+        this.entries = entries;
+        this.epoch = epoch;
+        this.version = version;
+        this.delta = delta;
+    }
+
+    /**
+     * The lists received, changed ones only for a delta
+     */
+    public DirectoryEntryMap getEntries() {
+        return this.entries;
+    }
+
+    /**
+     * The epoch of the peer's map, or null if it does not support deltas
+     */
+    @Nullable
+    public String getEpoch() {
+        return this.epoch;
+    }
+
+    /**
+     * The version of the peer's map this transfer brings the receiver up to
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Whether this holds only the changes since the version asked for
+     */
+    public boolean isDelta() {
+        return this.delta;
+    }
+
+    /**
+     * Build the peer's full map as of this transfer
+     *
+     * @param previous the full map as of the version asked for, ignored unless this is a delta
+     * @return a new map holding every list the peer has
+     */
+    public DirectoryEntryMap applyTo(@Nullable final DirectoryEntryMap previous) {
+        if (!this.delta) {
+            return new DirectoryEntryMap(this.entries, DirectoryEntryMap.DEEP_COPY);
+        }
+        final DirectoryEntryMap full = new DirectoryEntryMap(previous, DirectoryEntryMap.DEEP_COPY);
+        for (final Map.Entry<String, DirectoryEntryList> entry : this.entries.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                full.remove(entry.getKey());
+            } else {
+                full.put(entry.getKey(), new DirectoryEntryList(entry.getValue(), DirectoryEntryList.DEEP_COPY));
+            }
+        }
+        return full;
+    }
+}
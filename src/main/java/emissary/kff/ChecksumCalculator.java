@@ -5,8 +5,8 @@ import emissary.core.channels.SeekableByteChannelFactory;
 import org.apache.commons.collections4.CollectionUtils;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.channels.Channels;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
@@ -32,6 +32,16 @@ public class ChecksumCalculator {
     /** Used for hash calculations */
     private final List<MessageDigest> digest = new ArrayList<>();
 
+    /** Default size of the buffer used to read channel-backed data */
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    /** Size of the buffer used to read channel-backed data */
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    /** Reusable direct buffer for reading channel-backed data, allocated on first use */
+    @Nullable
+    private ByteBuffer buffer = null;
+
     /**
      * Constructor initializes SHA-1 generator and turns on the CRC32 processing as well
      * 
@@ -136,6 +146,28 @@ public class ChecksumCalculator {
         }
     }
 
+    /**
+     * Get the size of the buffer used when reading channel-backed data
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Set the size of the buffer used when reading channel-backed data
+     *
+     * @param size the buffer size in bytes
+     */
+    public void setBufferSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Buffer size must be greater than zero");
+        }
+        if (size != bufferSize) {
+            bufferSize = size;
+            buffer = null;
+        }
+    }
+
     /**
      * Calculates a CRC32 and a digest on a byte array.
      * 
@@ -169,24 +201,74 @@ public class ChecksumCalculator {
     }
 
     /**
-     * Calculates a CRC32 and a digest on a {@link java.nio.channels.SeekableByteChannel} of data.
+     * Calculates a CRC32 and a digest on a {@link java.nio.channels.SeekableByteChannel} of data. The data is read once,
+     * through a reusable direct buffer, and each chunk is fed to every configured digest, the CRC and the ssdeep hasher. If
+     * that read fails, each sum is computed on its own read of the data instead, so one failed read does not lose them all.
      *
      * @param sbcf Provider of data to compute results for
      * @return results of computing the requested hashes on the data
      */
     public ChecksumResults digest(final SeekableByteChannelFactory sbcf) {
         final ChecksumResults res = new ChecksumResults();
-        final byte[] b = new byte[1024];
+
+        if (digest.isEmpty() && crc == null && ssdeep == null) {
+            return res;
+        }
 
         for (final MessageDigest d : digest) {
-            try (InputStream is = Channels.newInputStream(sbcf.create())) {
-                d.reset();
+            d.reset();
+        }
+        if (crc != null) {
+            crc.reset();
+        }
 
-                int bytesRead;
-                while ((bytesRead = is.read(b)) != -1) {
-                    d.update(b, 0, bytesRead);
+        final ByteBuffer b = getBuffer();
+        try (SeekableByteChannel sbc = sbcf.create()) {
+            final Ssdeep.FuzzyHasher hasher = ssdeep != null ? ssdeep.newHasher(sbc.size()) : null;
+            b.clear();
+            while (sbc.read(b) != -1) {
+                if (!b.hasRemaining()) {
+                    update(b, hasher);
                 }
+            }
+            update(b, hasher);
+
+            for (final MessageDigest d : digest) {
+                res.setHash(d.getAlgorithm(), d.digest());
+            }
+            if (crc != null) {
+                res.setCrc(crc.getValue());
+            }
+            if (hasher != null) {
+                res.setSsdeep(hasher.hash());
+            }
+        } catch (final IOException ioe) {
+            return digestSeparately(sbcf);
+        }
+
+        return res;
+    }
 
+    /**
+     * Calculates each configured digest, the CRC and the ssdeep hash on its own read of the data, so each one fails
+     * independently of the others
+     *
+     * @param sbcf Provider of data to compute results for
+     * @return results of the hashes that could be computed
+     */
+    private ChecksumResults digestSeparately(final SeekableByteChannelFactory sbcf) {
+        final ChecksumResults res = new ChecksumResults();
+        final ByteBuffer b = getBuffer();
+
+        for (final MessageDigest d : digest) {
+            try (SeekableByteChannel sbc = sbcf.create()) {
+                d.reset();
+                b.clear();
+                while (sbc.read(b) != -1) {
+                    b.flip();
+                    d.update(b);
+                    b.clear();
+                }
                 res.setHash(d.getAlgorithm(), d.digest());
             } catch (final IOException ioe) {
                 // Ignore
@@ -194,14 +276,14 @@ public class ChecksumCalculator {
         }
 
         if (crc != null) {
-            try (InputStream is = Channels.newInputStream(sbcf.create())) {
+            try (SeekableByteChannel sbc = sbcf.create()) {
                 crc.reset();
-
-                int bytesRead;
-                while ((bytesRead = is.read(b)) != -1) {
-                    crc.update(b, 0, bytesRead);
+                b.clear();
+                while (sbc.read(b) != -1) {
+                    b.flip();
+                    crc.update(b);
+                    b.clear();
                 }
-
                 res.setCrc(crc.getValue());
             } catch (final IOException ioe) {
                 // Ignore
@@ -214,4 +296,35 @@ public class ChecksumCalculator {
 
         return res;
     }
+
+    /**
+     * Feed the filled part of the buffer to every digest, the CRC and the ssdeep hasher, leaving the buffer cleared for the
+     * next read
+     *
+     * @param b the buffer, in read mode
+     * @param hasher the ssdeep hasher, or null if not in use
+     */
+    private void update(final ByteBuffer b, @Nullable final Ssdeep.FuzzyHasher hasher) {
+        b.flip();
+        for (final MessageDigest d : digest) {
+            b.rewind();
+            d.update(b);
+        }
+        if (crc != null) {
+            b.rewind();
+            crc.update(b);
+        }
+        if (hasher != null) {
+            b.rewind();
+            hasher.update(b);
+        }
+        b.clear();
+    }
+
+    private ByteBuffer getBuffer() {
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+        return buffer;
+    }
 }
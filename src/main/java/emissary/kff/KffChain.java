@@ -189,7 +189,7 @@ public class KffChain {
         r.setItemName(itemName);
 
         for (KffFilter k : l) {
-            boolean hit = k.check(itemName, csum);
+            boolean hit = k.check(itemName, csum, r);
             if (hit) {
                 r.setFilterName(k.getName());
                 r.setHitAndType(k.getFilterType());
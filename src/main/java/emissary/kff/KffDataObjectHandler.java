@@ -33,6 +33,8 @@ public class KffDataObjectHandler {
     public static final String KFF_PARAM_PARENT_HIT = KFF_PARAM_BASE + "PARENT_IS_KNOWN_FILE";
     public static final String KFF_PARAM_KNOWN_FILTER_NAME = KFF_PARAM_BASE + "FILTERED_BY";
     public static final String KFF_PARAM_DUPE_FILTER_NAME = KFF_PARAM_BASE + "KNOWN_BY";
+    public static final String KFF_PARAM_SSDEEP_MATCH = KFF_PARAM_SSDEEP + "_MATCH";
+    public static final String KFF_PARAM_SSDEEP_SCORE = KFF_PARAM_SSDEEP + "_SCORE";
     public static final String KFF_DUPE_CURRENT_FORM = "KNOWN_FILE";
     public static final String MD5_ORIGINAL = "MD5_ORIGINAL";
 
@@ -167,6 +169,10 @@ public class KffDataObjectHandler {
             if (result.isDupe()) {
                 results.put(prefix + KFF_PARAM_DUPE_FILTER_NAME, result.getFilterName());
             }
+            if (result.getSimilarName() != null) {
+                results.put(prefix + KFF_PARAM_SSDEEP_MATCH, result.getSimilarName());
+                results.put(prefix + KFF_PARAM_SSDEEP_SCORE, Integer.toString(result.getSimilarScore()));
+            }
         }
 
         return results;
@@ -308,6 +314,8 @@ public class KffDataObjectHandler {
         d.deleteParameter(KFF_PARAM_SHA384);
         d.deleteParameter(KFF_PARAM_SHA512);
         d.deleteParameter(KFF_PARAM_SSDEEP);
+        d.deleteParameter(KFF_PARAM_SSDEEP_MATCH);
+        d.deleteParameter(KFF_PARAM_SSDEEP_SCORE);
     }
 
     /**
@@ -18,4 +18,17 @@ public interface KffFilter {
 
     boolean check(String fname, ChecksumResults sums) throws Exception;
 
+    /**
+     * Check the sums and record any details of a hit on the result. Filters that know more than hit or miss, such as which
+     * entry matched, override this to fill them in.
+     *
+     * @param fname the name of the item being checked
+     * @param sums the computed sums for the item
+     * @param result the result being built for the item
+     * @return true if the item is a hit for this filter
+     */
+    default boolean check(String fname, ChecksumResults sums, KffResult result) throws Exception {
+        return check(fname, sums);
+    }
+
 }
@@ -0,0 +1,225 @@
+package emissary.kff;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link KffFile} that memory maps the sorted record file instead of seeking through it under a lock, so any number
+ * of threads can search it at once. Files larger than 2 GB are mapped as several chunks, each holding a whole number of
+ * records.
+ * <p>
+ * When the file is loaded every record's hash is added to an in-memory Bloom filter. Since almost everything checked
+ * against a known file filter is not in it, most lookups are answered by the Bloom filter without touching the mapped
+ * file at all. The false positive rate, and so the size of the filter, can be set on the constructor.
+ * <p>
+ * Use it in the KffChain configuration by naming this class in the KFF_IMPL_ entry for the filter.
+ */
+public class KffMappedFile extends KffFile {
+    private static final Logger logger = LoggerFactory.getLogger(KffMappedFile.class);
+
+    /** Default false positive probability for the Bloom pre-filter */
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    /** Number of records in each mapped chunk */
+    protected final int recordsPerChunk;
+
+    /** Total number of records in the file */
+    protected final long recordCount;
+
+    /** The mapped chunks of the file, read only with absolute gets */
+    protected final MappedByteBuffer[] chunks;
+
+    /** False positive probability used when building the Bloom filter */
+    protected final double falsePositiveRate;
+
+    /** Number of leading bytes of each record fed to the Bloom filter */
+    protected volatile int bloomKeyLength;
+
+    /** Pre-filter over the hash portion of every record, null if none could be built */
+    @Nullable
+    protected volatile BloomFilter<byte[]> bloomFilter;
+
+    /**
+     * Creates a new mapped instance using the default record length and Bloom filter false positive rate
+     *
+     * @param filename Name of binary file containing sorted records
+     * @param filterName the name of this filter
+     * @param ftype type of this filter
+     * @throws IOException if thrown by file I/O
+     */
+    public KffMappedFile(String filename, String filterName, FilterType ftype) throws IOException {
+        this(filename, filterName, ftype, DEFAULT_RECORD_LENGTH, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Creates a new mapped instance
+     *
+     * @param filename Name of binary file containing sorted records
+     * @param filterName the name of this filter
+     * @param ftype type of this filter
+     * @param recordLength fixed record length in file
+     * @param falsePositiveRate Bloom filter false positive probability, zero or less to skip the Bloom filter
+     * @throws IOException if thrown by file I/O
+     */
+    public KffMappedFile(String filename, String filterName, FilterType ftype, int recordLength, double falsePositiveRate) throws IOException {
+        super(filename, filterName, ftype, recordLength);
+        this.falsePositiveRate = falsePositiveRate;
+
+        final FileChannel channel = knownFile.getChannel();
+        final long size = channel.size();
+        this.recordCount = size / recordLength;
+        this.recordsPerChunk = Integer.MAX_VALUE / recordLength;
+
+        final int chunkCount = (int) ((recordCount + recordsPerChunk - 1) / recordsPerChunk);
+        this.chunks = new MappedByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            final long start = (long) i * recordsPerChunk * recordLength;
+            final long length = Math.min((long) recordsPerChunk * recordLength, (recordCount * recordLength) - start);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        }
+        logger.debug("KFF File {} mapped {} records in {} chunks", filename, recordCount, chunkCount);
+
+        buildBloomFilter();
+    }
+
+    /**
+     * Set the preferred algorithm, rebuilding the Bloom filter if the hash length changes
+     *
+     * @param alg the new algorithm to use
+     */
+    @Override
+    public void setPreferredAlgorithm(String alg) {
+        super.setPreferredAlgorithm(alg);
+        if (keyLength() != bloomKeyLength) {
+            buildBloomFilter();
+        }
+    }
+
+    /**
+     * Number of leading record bytes that hold the hash for the preferred algorithm
+     */
+    protected int keyLength() {
+        try {
+            final int digestLength = MessageDigest.getInstance(myPreferredAlgorithm).getDigestLength();
+            if (digestLength > 0) {
+                return Math.min(digestLength, recordLength);
+            }
+        } catch (NoSuchAlgorithmException e) {
+            logger.debug("Unknown algorithm {}, keying Bloom filter on the whole record", myPreferredAlgorithm);
+        }
+        return recordLength;
+    }
+
+    /**
+     * Load the hash of every record into a new Bloom filter
+     */
+    protected synchronized void buildBloomFilter() {
+        if (falsePositiveRate <= 0.0 || recordCount == 0) {
+            bloomFilter = null;
+            return;
+        }
+        final int keyLength = keyLength();
+        final BloomFilter<byte[]> bf = BloomFilter.create(Funnels.byteArrayFunnel(), recordCount, falsePositiveRate);
+        final byte[] key = new byte[keyLength];
+        for (final MappedByteBuffer chunk : chunks) {
+            final ByteBuffer view = chunk.duplicate();
+            final int records = view.limit() / recordLength;
+            for (int r = 0; r < records; r++) {
+                view.position(r * recordLength);
+                view.get(key);
+                bf.put(key);
+            }
+        }
+        bloomKeyLength = keyLength;
+        bloomFilter = bf;
+        logger.debug("Built Bloom filter over {} records keyed on {} bytes", recordCount, keyLength);
+    }
+
+    /**
+     * Binary search the mapped chunks for a given HASH/CRC without locking
+     *
+     * @param hash Result of HASH calculation
+     * @param crc Result of CRC calculation
+     * @return true if the record is in the list, false if it isn't
+     */
+    protected boolean mappedSearch(@Nonnull byte[] hash, long crc) {
+        final BloomFilter<byte[]> bf = bloomFilter;
+        if (bf != null && hash.length == bloomKeyLength && !bf.mightContain(hash)) {
+            return false;
+        }
+
+        long low = 0;
+        long high = recordCount - 1;
+        while (low <= high) {
+            final long mid = (low + high) >>> 1;
+            final ByteBuffer chunk = chunks[(int) (mid / recordsPerChunk)];
+            final int offset = (int) (mid % recordsPerChunk) * recordLength;
+            final int c = compare(chunk, offset, hash, crc);
+            if (c < 0) {
+                high = mid - 1;
+            } else if (c > 0) {
+                low = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares the given hash/crc to the record at the offset using absolute reads, with the same ordering as the record
+     * comparison in KffFile
+     *
+     * @param buf the mapped chunk
+     * @param offset start of the record in the chunk
+     * @param hash HASH to compare to record
+     * @param crc CRC to compare to record
+     * @return &lt;0 if given value is less than record, &gt;0 if given value is greater than record, 0 if they match
+     */
+    private int compare(ByteBuffer buf, int offset, @Nonnull byte[] hash, long crc) {
+        int i;
+        for (i = 0; i < hash.length; i++) {
+            int ihash = hash[i] & 0xff;
+            int irec = buf.get(offset + i) & 0xff;
+            if (ihash < irec) {
+                return -1;
+            } else if (ihash > irec) {
+                return 1;
+            }
+        }
+
+        if (crc != -1L) {
+            for (int j = 24; i < recordLength; i++, j -= 8) {
+                int icrc = ((int) crc >> j) & 0xff;
+                int irec = buf.get(offset + i) & 0xff;
+                if (icrc < irec) {
+                    return -1;
+                } else if (icrc > irec) {
+                    return 1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean check(String fname, ChecksumResults csum) throws Exception {
+        byte[] hash = csum.getHash(myPreferredAlgorithm);
+        if (hash == null) {
+            logger.warn("Filter cannot be used, {} not computed on {}", myPreferredAlgorithm, fname);
+            return false;
+        }
+        return mappedSearch(hash, csum.getCrc());
+    }
+}
@@ -35,6 +35,11 @@ public class KffResult implements Serializable {
 
     Map<String, byte[]> hashComp = new TreeMap<>();
 
+    @Nullable
+    String similarName = null;
+
+    int similarScore = -1;
+
     /**
      * Create an empty result object
      */
@@ -273,4 +278,30 @@ public class KffResult implements Serializable {
     public String getFilterName() {
         return this.filterName;
     }
+
+    /**
+     * Record the closest known entry found by a similarity filter
+     *
+     * @param name the name of the known entry
+     * @param score how similar it is, 0-100
+     */
+    public void setSimilarMatch(String name, int score) {
+        this.similarName = name;
+        this.similarScore = score;
+    }
+
+    /**
+     * Get the name of the closest known entry found by a similarity filter, null if there was none
+     */
+    @Nullable
+    public String getSimilarName() {
+        return this.similarName;
+    }
+
+    /**
+     * Get the score of the closest known entry found by a similarity filter, -1 if there was none
+     */
+    public int getSimilarScore() {
+        return this.similarScore;
+    }
 }
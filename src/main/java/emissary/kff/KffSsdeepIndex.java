@@ -0,0 +1,450 @@
+package emissary.kff;
+
+import emissary.config.ConfigUtil;
+import emissary.config.Configurator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link KffFilter} that finds the known ssdeep signature most similar to the one computed for an item. The file is
+ * in the format written by the ssdeep program, one {@code blocksize:hash1:hash2,"name"} entry per line. The name is
+ * optional and the {@code ssdeep,1.1--} header line, blank lines and lines starting with # are skipped.
+ * <p>
+ * Two signatures only score above zero when their hash strings for a shared block size have a common substring of seven
+ * characters, so every seven character gram of every loaded hash is put in an inverted index keyed by block size. A
+ * lookup gathers the entries sharing a gram with the item's signature, at its own block size and at the neighbouring
+ * ones it can be compared with, and scores just those with {@link Ssdeep}. The result is the same as comparing against
+ * every loaded signature. The index is held in a few primitive arrays to keep millions of signatures affordable.
+ * <p>
+ * The item is a hit when the best score reaches the configured threshold, and the matching entry and score are recorded
+ * on the {@link KffResult}, where {@link KffDataObjectHandler} picks them up as parameters. The SSDEEP algorithm must
+ * be in the chain's KFF_ALG list. Since the chain stops at the first hit and a KNOWN hit marks the item as known data,
+ * this filter is usually best loaded last.
+ * <p>
+ * Configuration file options are:
+ * <ul>
+ * <li>SSDEEP_MATCH_THRESHOLD: the lowest score, 1-100, that counts as a hit, default 80</li>
+ * <li>SSDEEP_MAX_CANDIDATES: the most entries to score for a single lookup, zero for no limit, default 0</li>
+ * </ul>
+ */
+public class KffSsdeepIndex implements KffFilter {
+    private static final Logger logger = LoggerFactory.getLogger(KffSsdeepIndex.class);
+
+    /** Default lowest score that counts as a hit */
+    public static final int DEFAULT_THRESHOLD = 80;
+
+    /** Length of the grams in the index */
+    private static final int GRAM = Ssdeep.ROLLING_WINDOW_SIZE;
+
+    /** Bits used for the entry number in a packed posting */
+    private static final int ID_BITS = 27;
+
+    /** Bits used for the gram hash in a packed posting, leaving six for the block size exponent and the sign bit clear */
+    private static final int GRAM_BITS = 30;
+
+    /** Maximum number of entries that fit the packed postings */
+    static final int MAX_ENTRIES = 1 << ID_BITS;
+
+    /** Map from base64 character to its six bit value, -1 for anything else */
+    private static final byte[] B64 = new byte[256];
+
+    static {
+        Arrays.fill(B64, (byte) -1);
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            B64[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    /** Name of this filter */
+    protected final String filterName;
+
+    /** Type of this filter */
+    protected final FilterType ftype;
+
+    /** Lowest score that counts as a hit */
+    protected int threshold = DEFAULT_THRESHOLD;
+
+    /** Most entries to score for one lookup, zero for no limit */
+    protected int maxCandidates = 0;
+
+    /** Name of each entry */
+    private final String[] names;
+
+    /** Block size of each entry */
+    private final long[] blockSizes;
+
+    /** First hash of each entry with long runs eliminated */
+    private final byte[][] firstParts;
+
+    /** Second hash of each entry with long runs eliminated */
+    private final byte[][] secondParts;
+
+    /** Sorted distinct keys, a block size exponent and gram hash */
+    private final long[] keys;
+
+    /** Start of the postings for each key, with one extra element marking the end */
+    private final int[] offsets;
+
+    /** Entry numbers for each key in ascending order */
+    private final int[] postings;
+
+    /**
+     * Load the index using the threshold from configuration if there is any
+     *
+     * @param filename name of the file holding the known signatures
+     * @param filterName name of this filter
+     * @param ftype type of this filter
+     * @throws IOException if the file cannot be read
+     */
+    public KffSsdeepIndex(String filename, String filterName, FilterType ftype) throws IOException {
+        this(filename, filterName, ftype, DEFAULT_THRESHOLD);
+        try {
+            final Configurator configG = ConfigUtil.getConfigInfo(KffSsdeepIndex.class);
+            setThreshold(configG.findIntEntry("SSDEEP_MATCH_THRESHOLD", DEFAULT_THRESHOLD));
+            setMaxCandidates(configG.findIntEntry("SSDEEP_MAX_CANDIDATES", 0));
+        } catch (IOException e) {
+            logger.debug("No configuration for {}, using a threshold of {}", filterName, threshold);
+        }
+    }
+
+    /**
+     * Load the index
+     *
+     * @param filename name of the file holding the known signatures
+     * @param filterName name of this filter
+     * @param ftype type of this filter
+     * @param threshold lowest score that counts as a hit
+     * @throws IOException if the file cannot be read
+     */
+    public KffSsdeepIndex(String filename, String filterName, FilterType ftype, int threshold) throws IOException {
+        this.filterName = filterName;
+        this.ftype = ftype;
+        setThreshold(threshold);
+
+        final List<String> nameList = new ArrayList<>();
+        final List<SpamSumSignature> signatures = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filename), StandardCharsets.ISO_8859_1)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || line.startsWith("ssdeep,")) {
+                    continue;
+                }
+                final int comma = line.indexOf(',');
+                final String signature = comma < 0 ? line : line.substring(0, comma);
+                try {
+                    signatures.add(new SpamSumSignature(signature));
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Skipping bad signature on line {} of {}", lineNumber, filename);
+                    continue;
+                }
+                nameList.add(comma < 0 ? signature : unquote(line.substring(comma + 1)));
+            }
+        }
+
+        final int count = signatures.size();
+        if (count > MAX_ENTRIES) {
+            throw new IOException("Too many signatures in " + filename + ", the limit is " + MAX_ENTRIES);
+        }
+        this.names = nameList.toArray(new String[0]);
+        this.blockSizes = new long[count];
+        this.firstParts = new byte[count][];
+        this.secondParts = new byte[count][];
+
+        // Pack every (key, entry) pair in a long and sort them so each key's postings end up together and in order
+        long[] packed = new long[count * 16];
+        int used = 0;
+        for (int id = 0; id < count; id++) {
+            final SpamSumSignature s = signatures.get(id);
+            blockSizes[id] = s.getBlockSize();
+            firstParts[id] = Ssdeep.eliminateLongSequences(s.getHashPart1());
+            secondParts[id] = Ssdeep.eliminateLongSequences(s.getHashPart2());
+            final long[] grams = new long[firstParts[id].length + secondParts[id].length];
+            final int n = keys(s.getBlockSize(), firstParts[id], secondParts[id], grams);
+            if (used + n > packed.length) {
+                packed = Arrays.copyOf(packed, Math.max(packed.length * 2, used + n));
+            }
+            for (int i = 0; i < n; i++) {
+                packed[used++] = (grams[i] << ID_BITS) | id;
+            }
+        }
+        signatures.clear();
+        Arrays.sort(packed, 0, used);
+
+        int distinct = 0;
+        for (int i = 0; i < used; i++) {
+            if (i == 0 || (packed[i] >>> ID_BITS) != (packed[i - 1] >>> ID_BITS)) {
+                distinct++;
+            }
+        }
+        this.keys = new long[distinct];
+        this.offsets = new int[distinct + 1];
+        this.postings = new int[used];
+        int k = -1;
+        for (int i = 0; i < used; i++) {
+            final long key = packed[i] >>> ID_BITS;
+            if (k < 0 || key != keys[k]) {
+                keys[++k] = key;
+                offsets[k] = i;
+            }
+            postings[i] = (int) (packed[i] & (MAX_ENTRIES - 1));
+        }
+        offsets[distinct] = used;
+        logger.debug("KFF ssdeep index {} loaded {} signatures with {} grams", filename, count, distinct);
+    }
+
+    /**
+     * Strip the quotes ssdeep puts around file names
+     */
+    private static String unquote(final String s) {
+        final String t = s.trim();
+        if (t.length() >= 2 && t.charAt(0) == '"' && t.charAt(t.length() - 1) == '"') {
+            return t.substring(1, t.length() - 1);
+        }
+        return t;
+    }
+
+    /**
+     * Compute the distinct index keys for a signature. The first hash is keyed under the signature's block size and the
+     * second under twice that, matching how {@link Ssdeep#compare(SpamSumSignature, SpamSumSignature)} pairs them up.
+     *
+     * @param blockSize the signature block size
+     * @param first the first hash, long runs eliminated
+     * @param second the second hash, long runs eliminated
+     * @param out receives the keys, at least as long as both hashes together
+     * @return the number of keys written
+     */
+    private static int keys(final long blockSize, final byte[] first, final byte[] second, final long[] out) {
+        final int exponent = exponent(blockSize);
+        if (exponent < 0) {
+            return 0;
+        }
+        int n = grams(exponent, first, out, 0);
+        n = grams(exponent + 1, second, out, n);
+        Arrays.sort(out, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || out[i] != out[distinct - 1]) {
+                out[distinct++] = out[i];
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Add the keys for every gram of one hash string
+     */
+    private static int grams(final int exponent, final byte[] hash, final long[] out, final int start) {
+        int n = start;
+        long window = 0L;
+        int valid = 0;
+        for (final byte b : hash) {
+            final int v = B64[b & 0xff];
+            if (v < 0) {
+                valid = 0;
+                continue;
+            }
+            window = ((window << 6) | v) & ((1L << (6 * GRAM)) - 1);
+            if (++valid >= GRAM) {
+                out[n++] = ((long) exponent << GRAM_BITS) | mix(window);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Fold a 42 bit gram into the key's gram bits. Collisions only cost an extra comparison.
+     */
+    private static long mix(final long gram) {
+        long h = gram * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        return h & ((1L << GRAM_BITS) - 1);
+    }
+
+    /**
+     * The power of two the block size is over the minimum, -1 if it is not a valid ssdeep block size
+     */
+    private static int exponent(final long blockSize) {
+        if (blockSize < 3 || blockSize % 3 != 0) {
+            return -1;
+        }
+        final long p = blockSize / 3;
+        return Long.bitCount(p) == 1 && p <= Integer.MAX_VALUE ? Long.numberOfTrailingZeros(p) : -1;
+    }
+
+    /**
+     * Find the loaded entry most similar to a signature
+     *
+     * @param signature the signature to look up
+     * @return the best match, or null if no entry scores above zero
+     */
+    @Nullable
+    public Match findBestMatch(final SpamSumSignature signature) {
+        final long blockSize = signature.getBlockSize();
+        final byte[] first = Ssdeep.eliminateLongSequences(signature.getHashPart1());
+        final byte[] second = Ssdeep.eliminateLongSequences(signature.getHashPart2());
+        final long[] grams = new long[first.length + second.length];
+        final int n = keys(blockSize, first, second, grams);
+
+        int total = 0;
+        final int[] from = new int[n];
+        final int[] to = new int[n];
+        for (int i = 0; i < n; i++) {
+            final int k = Arrays.binarySearch(keys, grams[i]);
+            if (k >= 0) {
+                from[i] = offsets[k];
+                to[i] = offsets[k + 1];
+                total += to[i] - from[i];
+            }
+        }
+        if (total == 0) {
+            return null;
+        }
+
+        // Gather the candidates, then rank them by the number of grams shared so a limit drops the least likely ones
+        final int[] candidates = new int[total];
+        int c = 0;
+        for (int i = 0; i < n; i++) {
+            final int len = to[i] - from[i];
+            System.arraycopy(postings, from[i], candidates, c, len);
+            c += len;
+        }
+        Arrays.sort(candidates);
+        long[] ranked = new long[total];
+        int distinct = 0;
+        for (int i = 0; i < total;) {
+            int j = i;
+            while (j < total && candidates[j] == candidates[i]) {
+                j++;
+            }
+            ranked[distinct++] = ((long) (total - (j - i)) << 32) | candidates[i];
+            i = j;
+        }
+        if (maxCandidates > 0 && distinct > maxCandidates) {
+            Arrays.sort(ranked, 0, distinct);
+            distinct = maxCandidates;
+        }
+        ranked = Arrays.copyOf(ranked, distinct);
+
+        int bestId = -1;
+        int bestScore = 0;
+        for (final long r : ranked) {
+            final int id = (int) r;
+            final int score = Ssdeep.compareParts(blockSize, first, second, blockSizes[id], firstParts[id], secondParts[id]);
+            if (score > bestScore) {
+                bestScore = score;
+                bestId = id;
+                if (score == 100) {
+                    break;
+                }
+            }
+        }
+        return bestId < 0 ? null : new Match(names[bestId], bestScore);
+    }
+
+    @Override
+    public boolean check(String fname, ChecksumResults sums) throws Exception {
+        return check(fname, sums, new KffResult());
+    }
+
+    @Override
+    public boolean check(String fname, ChecksumResults sums, KffResult result) throws Exception {
+        final String ssdeep = sums.getSsdeep();
+        if (ssdeep == null) {
+            return false;
+        }
+        final Match m = findBestMatch(new SpamSumSignature(ssdeep));
+        if (m == null || m.getScore() < threshold) {
+            return false;
+        }
+        logger.debug("Item {} is similar to {} with score {}", fname, m.getName(), m.getScore());
+        result.setSimilarMatch(m.getName(), m.getScore());
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return filterName;
+    }
+
+    @Override
+    public FilterType getFilterType() {
+        return ftype;
+    }
+
+    /**
+     * Number of signatures loaded
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Get the lowest score that counts as a hit
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Set the lowest score that counts as a hit
+     *
+     * @param threshold the score, 1-100
+     */
+    public void setThreshold(int threshold) {
+        if (threshold < 1 || threshold > 100) {
+            throw new IllegalArgumentException("Threshold must be from 1 to 100: " + threshold);
+        }
+        this.threshold = threshold;
+    }
+
+    /**
+     * Set the most entries scored for one lookup. The entries sharing the most grams with the signature are scored first.
+     *
+     * @param maxCandidates the limit, zero or less for none
+     */
+    public void setMaxCandidates(int maxCandidates) {
+        this.maxCandidates = Math.max(0, maxCandidates);
+    }
+
+    /**
+     * A loaded entry and how similar it is
+     */
+    public static final class Match {
+        private final String name;
+        private final int score;
+
+        Match(final String name, final int score) {
+            this.name = name;
+            this.score = score;
+        }
+
+        /**
+         * Name of the matching entry
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Similarity score, 1-100
+         */
+        public int getScore() {
+            return score;
+        }
+    }
+}
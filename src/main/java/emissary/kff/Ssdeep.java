@@ -9,8 +9,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
-import java.nio.channels.Channels;
+import java.nio.ByteBuffer;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -33,8 +32,8 @@ public final class Ssdeep {
 
     public static final int FUZZY_MAX_RESULT = (SPAMSUM_LENGTH + (SPAMSUM_LENGTH / 2 + 20));
 
-    /** The window size for the rolling hash. */
-    private static final int ROLLING_WINDOW_SIZE = 7;
+    /** The window size for the rolling hash, also the length of the common substring two hashes need to be compared. */
+    static final int ROLLING_WINDOW_SIZE = 7;
 
     /** The buffer size to use when reading data from a file. */
     private static final int BUFFER_SIZE = 8192;
@@ -64,336 +63,345 @@ public final class Ssdeep {
         return b64Table[((int) v) & 0x3f];
     }
 
-    private static final class SsContext {
+    /**
+     * Computes a signature in a single pass over the input, however it is supplied. Rather than guessing one block size and
+     * hashing everything again with half the block size whenever the signature comes out too short, the hasher keeps the
+     * piecewise hash state for every block size that could still be chosen and picks the block size when the signature is
+     * requested. The result is the same signature the guess and retry approach produces.
+     * <p>
+     * A block size only triggers where every smaller block size also triggers, so the state for the next larger block size
+     * is a copy of the current one up to its first trigger. New block sizes are therefore added as they are first needed,
+     * and small block sizes are dropped once a larger candidate is known to produce a long enough signature. All state is
+     * allocated up front and the per byte loop does not allocate.
+     * <p>
+     * Instances are not thread safe. Use {@link #reset()} to hash another input with the same instance.
+     */
+    public static final class FuzzyHasher {
 
-        /** A buffer for the main hash output. */
-        private final byte[] fuzzHash1 = new byte[SPAMSUM_LENGTH + 1];
+        /** Number of block sizes tracked, {@code MIN_BLOCKSIZE << 31} can never trigger on a 32-bit rolling hash */
+        private static final int NUM_BLOCKSIZES = 32;
 
-        /** A buffer for the secondary hash output. */
-        private final byte[] fuzzHash2 = new byte[SPAMSUM_LENGTH / 2 + 1];
+        /** The largest block size index that can be chosen */
+        private static final int MAX_CHOSEN = NUM_BLOCKSIZES - 2;
 
-        /** The count of output bytes currently stored in {@link #fuzzHash1}, initially zero. */
-        private int fuzzLen1;
+        /** Length at which the half length signature is full */
+        private static final int HALF_FULL = SPAMSUM_LENGTH / 2 - 1;
 
-        /** The count of output bytes currently stored in {@link #fuzzHash2}, initially zero. */
-        private int fuzzLen2;
+        /** Size of the scratch buffer used to read direct buffers */
+        private static final int SCRATCH_SIZE = 8192;
 
-        private long sumHash1; // Initially zero.
-        private long sumHash2; // Initially zero.
-        private long blockSize; // Initialized by constructor.
+        // FNV parameters as ints, the hashes are 32-bit and int arithmetic wraps the same way the masked longs do
+        private static final int FNV_INIT = (int) HASH_INIT;
+        private static final int FNV_PRIME = (int) HASH_PRIME;
 
-        /**
-         * Estimate the block size to use.
-         *
-         * @param expectedInputLength The expected amount of data to be processed, in bytes. A 0 value can be used if the length
-         *        is unknown, in which case a default block size is returned.
-         * @return The estimated block size to use.
-         */
-        private static long estimateBlockSize(final long expectedInputLength) {
-            long blockSize = MIN_BLOCKSIZE;
-            while ((blockSize * SPAMSUM_LENGTH) < expectedInputLength) {
-                blockSize *= 2;
-            }
-            return blockSize;
-        }
+        /** Block size index estimated from the expected length, or -1 if it depends on the bytes seen */
+        private final int fixedEstimate;
 
-        /**
-         * Construct a spam sum context to process a file.
-         *
-         * @param f The file that will be processed, if known. If non-{@code null}, the length of the file is used to guess the
-         *        hash block size to use.
-         */
-        public SsContext(@Nullable final File f) {
-            final long expectedInputLength = (f != null) ? f.length() : 0;
-            this.blockSize = estimateBlockSize(expectedInputLength);
-        }
+        /** Signature characters for each block size, indexed by block size index */
+        private final byte[][] digest = new byte[NUM_BLOCKSIZES][SPAMSUM_LENGTH];
 
-        /**
-         * Construct a spam sum context to process a byte array.
-         *
-         * @param data The bytes that will be processed, if known. If non-{@code null}, the length of the array is used to guess
-         *        the hash block size to use.
-         */
-        public SsContext(@Nullable final byte[] data) {
-            final long expectedInputLength = (data != null) ? data.length : 0;
-            this.blockSize = estimateBlockSize(expectedInputLength);
-        }
+        /** Count of signature characters for each block size */
+        private final int[] digestLength = new int[NUM_BLOCKSIZES];
+
+        /** Piecewise FNV hash since the last signature character for each block size */
+        private final int[] sumHash = new int[NUM_BLOCKSIZES];
 
         /**
-         * Construct a spam sum context to process a {@link SeekableByteChannel}
-         *
-         * @param sbcf The channel that will be processed, if known. If non-{@code null}, the length of the channel is used to
-         *        guess the hash block size to use.
+         * Piecewise FNV hash for the half length signature that uses each block size. Until the half length signature is full
+         * it is the same as {@link #sumHash} and is not maintained separately, after that it keeps hashing the rest of the
+         * input.
          */
-        public SsContext(final SeekableByteChannelFactory sbcf) {
-            long expectedInputLength = 0;
+        private final int[] halfSumHash = new int[NUM_BLOCKSIZES];
 
-            try (SeekableByteChannel sbc = sbcf.create()) {
-                expectedInputLength = sbc.size();
-            } catch (final IOException ioe) {
-                // Ignore
-            }
+        /** Lowest block size index that could still be chosen */
+        private int start;
 
-            this.blockSize = estimateBlockSize(expectedInputLength);
-        }
+        /** One past the highest block size index tracked */
+        private int end;
+
+        /** Number of bytes hashed */
+        private long totalLength;
+
+        /** Block size index the input length is estimated to need */
+        private int estimate;
+
+        // Rolling hash state, based on the Adler checksum so that the piecewise hashes resynchronize after inserts and
+        // deletes
+        private final int[] window = new int[ROLLING_WINDOW_SIZE];
+        private int windowPosition;
+        private int h1;
+        private int h2;
+        private int h3;
+
+        @Nullable
+        private byte[] scratch;
 
         /**
-         * A simple non-rolling hash, based on the FNV hash
-         * 
-         * @param b The next byte value, assumed to be in the range 0..255.
-         * @param h The existing hash value, 32-bit unsigned.
-         * @return The updated hash value, 32-bit unsigned.
+         * Create a hasher that chooses the block size from the number of bytes hashed
          */
-        private static long updateSumHash(final int b, final long h) {
-            return ((h * HASH_PRIME) ^ b) & MASK32;
+        public FuzzyHasher() {
+            this(0L);
         }
 
         /**
-         * Apply some bytes to a SpamSum context.
+         * Create a hasher for an input of known length. The length is used the way the length of an array or file is used to
+         * estimate the block size, and it allows the hasher to stop tracking block sizes that could never be chosen.
          *
-         * @param rollState The rolling hash state to use.
-         * @param buffer A buffer containing the input bytes.
-         * @param start The starting offset in {@code buffer}, inclusive.
-         * @param end The ending offset in {@code buffer}, exclusive.
+         * @param expectedLength the expected number of bytes, or zero or less if unknown
          */
-        private void applyBytes(final RollingState rollState, final byte[] buffer, final int start, final int end) {
-            // At each byte we update the rolling hash and the normal
-            // hash. When the rolling hash hits the reset value, we
-            // emit the normal hash as an element of the signature and
-            // reset both hashes.
-            for (int i = start; i < end; i++) {
-                // Get the next input byte and normalize to 0..255.
-                final int nextByte = ((int) buffer[i]) & 0xff;
-
-                // Apply the next byte to the hashes.
-                this.sumHash1 = updateSumHash(nextByte, this.sumHash1);
-                this.sumHash2 = updateSumHash(nextByte, this.sumHash2);
-                final long rollingHash = rollState.roll(nextByte);
-
-                if ((rollingHash % this.blockSize) == (this.blockSize - 1)) {
-                    // We have hit a reset point. We now emit a hash
-                    // which is based on all bytes in the input
-                    // between the last reset point and this one.
-                    if (this.fuzzLen1 < (SPAMSUM_LENGTH - 1)) {
-                        // We can have a problem with the tail
-                        // overflowing. The easiest way to cope with
-                        // this is to only reset the second hash if we
-                        // have room for more characters in our
-                        // signature. This has the effect of combining
-                        // the last few pieces of the message into a
-                        // single piece
-                        this.fuzzHash1[this.fuzzLen1++] = b64EncodeLowBits(this.sumHash1);
-                        this.sumHash1 = HASH_INIT;
-                    }
-
-                    // This produces a second signature with a block size
-                    // of blockSize*2. By producing dual signatures in
-                    // this way the effect of small changes in the message
-                    // size near a block size boundary is greatly reduced.
-                    //
-                    // NOTE: we only have to check this when the main
-                    // signature has hit a reset point, because
-                    // mathematically:
-                    //
-                    // [ h === -1 (mod 2*bs) ] --implies--> [ h === -1 (mod bs) ]
-                    //
-                    // In other words, if this condition is true then the
-                    // main signature condition must always also be true.
-                    // Therefore this secondary signature condition can
-                    // only potentially be true if the main signature
-                    // condition (which we've already checked) is true.
-                    if ((rollingHash % (this.blockSize * 2)) == ((this.blockSize * 2) - 1)) {
-                        if (this.fuzzLen2 < (SPAMSUM_LENGTH / 2 - 1)) {
-                            this.fuzzHash2[this.fuzzLen2++] = b64EncodeLowBits(this.sumHash2);
-                            this.sumHash2 = HASH_INIT;
-                        }
-                    }
-                }
-            }
+        public FuzzyHasher(final long expectedLength) {
+            this.fixedEstimate = expectedLength > 0 ? estimateIndex(expectedLength) : -1;
+            reset();
         }
 
         /**
-         * Discard any existing hash state and prepare to compute a new hash. This should be followed by calls to
-         * {@link #applyBytes(RollingState, byte[], int, int)} to provide the data, and then
-         * {@link #finishHashing(RollingState)} to complete the computations.
+         * Discard all state and prepare to hash a new input of the same expected length
          */
-        private void beginHashing() {
-            this.fuzzLen1 = 0;
-            this.fuzzLen2 = 0;
-            this.sumHash1 = HASH_INIT;
-            this.sumHash2 = HASH_INIT;
+        public void reset() {
+            Arrays.fill(this.digestLength, 0);
+            this.sumHash[0] = FNV_INIT;
+            this.start = 0;
+            this.end = 1;
+            this.totalLength = 0L;
+            this.estimate = Math.max(this.fixedEstimate, 0);
+            Arrays.fill(this.window, 0);
+            this.windowPosition = 0;
+            this.h1 = 0;
+            this.h2 = 0;
+            this.h3 = 0;
         }
 
         /**
-         * Truncate an array if larger than the given length.
-         *
-         * @param input The input array.
-         * @param maxLength The desired maximum array length.
-         * @return If {@code input} is no larger than {@code maxLength}, this just returns {@code input}. Otherwise this returns
-         *         a new array with the same content as {@code input} but with the length truncated to {@code maxLength}.
+         * Block size index that an input of the given length would be hashed with first
          */
-        private static byte[] truncateArray(final byte[] input, final int maxLength) {
-            if (input.length == maxLength) {
-                return input;
-            } else {
-                return Arrays.copyOf(input, maxLength);
+        private static int estimateIndex(final long length) {
+            int index = 0;
+            while (index < MAX_CHOSEN && ((long) MIN_BLOCKSIZE << index) * SPAMSUM_LENGTH < length) {
+                index++;
             }
+            return index;
         }
 
         /**
-         * Finish hashing and generate the final signature. This should be done after all bytes have been applied with
-         * {@link #applyBytes(RollingState, byte[], int, int)}.
+         * Hash some bytes
          *
-         * @param rollState The rolling hash state used during hashing.
-         * @return The final signature.
+         * @param data the bytes to hash
          */
-        private SpamSumSignature finishHashing(final RollingState rollState) {
-            if (rollState.getHash() != 0) {
-                this.fuzzHash1[this.fuzzLen1++] = b64EncodeLowBits(this.sumHash1);
-                this.fuzzHash2[this.fuzzLen2++] = b64EncodeLowBits(this.sumHash2);
-            }
-
-            final byte[] finalHash1 = truncateArray(this.fuzzHash1, this.fuzzLen1);
-            final byte[] finalHash2 = truncateArray(this.fuzzHash2, this.fuzzLen2);
-            return new SpamSumSignature(this.blockSize, finalHash1, finalHash2);
+        public void update(final byte[] data) {
+            update(data, 0, data.length);
         }
 
         /**
-         * Generate the hash for some input.
+         * Hash some bytes
          *
-         * <p>
-         * The computations will use the current block size from the context, but any other existing hash state will be
-         * discarded.
-         *
-         * @param data The bytes to hash.
-         * @return The signature for the given data.
+         * @param data array containing the bytes to hash
+         * @param offset starting offset in the array
+         * @param length number of bytes to hash
          */
-        public SpamSumSignature generateHash(@Nullable final byte[] data) {
-            beginHashing();
-            final RollingState rollState = new RollingState();
-
-            if (data != null) {
-                applyBytes(rollState, data, 0, data.length);
+        public void update(final byte[] data, final int offset, final int length) {
+            if (offset < 0 || length < 0 || offset > data.length - length) {
+                throw new IndexOutOfBoundsException(
+                        "Range [" + offset + ", " + offset + " + " + length + ") out of bounds for length " + data.length);
             }
+            final int[] sums = this.sumHash;
+            final int[] halves = this.halfSumHash;
+            final int[] lengths = this.digestLength;
+            final int[] win = this.window;
+            int pos = this.windowPosition;
+            int r1 = this.h1;
+            int r2 = this.h2;
+            int r3 = this.h3;
+            int first = this.start;
+            int last = this.end;
+
+            final int limit = offset + length;
+            for (int i = offset; i < limit; i++) {
+                final int b = data[i] & 0xff;
+
+                // rolling hash over the last ROLLING_WINDOW_SIZE bytes
+                r2 = r2 - r1 + ROLLING_WINDOW_SIZE * b;
+                r1 = r1 + b - win[pos];
+                win[pos] = b;
+                if (++pos == ROLLING_WINDOW_SIZE) {
+                    pos = 0;
+                }
+                r3 = (r3 << 5) ^ b;
 
-            return finishHashing(rollState);
-        }
-
-        public SpamSumSignature generateHash(final SeekableByteChannelFactory sbcf) {
-            beginHashing();
-            final RollingState rollState = new RollingState();
-
-            try (InputStream is = Channels.newInputStream(sbcf.create())) {
-                final byte[] b = new byte[1024];
+                // piecewise hashes for every block size still tracked
+                for (int j = first; j < last; j++) {
+                    sums[j] = (sums[j] * FNV_PRIME) ^ b;
+                    if (lengths[j] > HALF_FULL) {
+                        halves[j] = (halves[j] * FNV_PRIME) ^ b;
+                    }
+                }
 
-                int bytesRead;
-                while ((bytesRead = is.read(b)) != -1) {
-                    applyBytes(rollState, b, 0, bytesRead);
+                // The rolling hash triggers block size 3 * 2^j when it is one less than a multiple of it. A trigger for a
+                // block size is also a trigger for every smaller one, so only the smallest needs checking here.
+                final long next = ((r1 + r2 + r3) & MASK32) + 1;
+                if ((next & ((1L << first) - 1)) == 0 && ((next >>> first) % MIN_BLOCKSIZE) == 0) {
+                    trigger(next);
+                    first = this.start;
+                    last = this.end;
                 }
-            } catch (final IOException e) {
-                // Ignore
             }
 
-            return finishHashing(rollState);
+            this.windowPosition = pos;
+            this.h1 = r1;
+            this.h2 = r2;
+            this.h3 = r3;
+            this.totalLength += length;
+            if (this.fixedEstimate < 0) {
+                this.estimate = estimateIndex(this.totalLength);
+                prune();
+            }
         }
 
         /**
-         * Generate the hash for some input.
+         * Hash the remaining bytes of a buffer. The buffer position is advanced to its limit.
          *
-         * <p>
-         * The computations will use the current block size from the context, but any other existing hash state will be
-         * discarded.
-         *
-         * @param stream A file containing the bytes to hash. Assumed non-{@code null}. The processing will start reading at the
-         *        current file position and hash all of the data from there to the end of the file. The file position when this
-         *        returns is unspecified. The file is not closed by this operation.
-         * @return The signature for the given stream content.
-         * @throws IOException If there is some I/O problem while reading the stream.
+         * @param buffer the bytes to hash
          */
-        public SpamSumSignature generateHash(final RandomAccessFile stream) throws IOException {
-            beginHashing();
-            final RollingState rollState = new RollingState();
-
-            final byte[] buffer = new byte[BUFFER_SIZE];
-            while (true) {
-                final int bytesRead = stream.read(buffer, 0, buffer.length);
-                if (bytesRead <= 0) {
-                    break; // No more input.
-                }
-                applyBytes(rollState, buffer, 0, bytesRead);
+        public void update(final ByteBuffer buffer) {
+            if (buffer.hasArray()) {
+                final int length = buffer.remaining();
+                update(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+                buffer.position(buffer.limit());
+                return;
+            }
+            if (this.scratch == null) {
+                this.scratch = new byte[SCRATCH_SIZE];
+            }
+            while (buffer.hasRemaining()) {
+                final int length = Math.min(buffer.remaining(), this.scratch.length);
+                buffer.get(this.scratch, 0, length);
+                update(this.scratch, 0, length);
             }
-
-            return finishHashing(rollState);
         }
-    }
-
-    /**
-     * A rolling hash, based on the Adler checksum. By using a rolling hash we can perform auto resynchronisation after
-     * inserts/deletes.
-     */
-    private static final class RollingState {
-
-        /** Rolling window. Each value is in the range 0..255. Initially all 0. */
-        private final int[] window = new int[ROLLING_WINDOW_SIZE];
-
-        /** An index into {@link #window}. Initially 0. */
-        private int windowPosition;
-
-        /** The sum of the values in {@link #window}. Initially 0. */
-        private long h1;
 
         /**
-         * The original documentation says this is the sum of the bytes times the index, but I'm not sure about that. 32-bit
-         * unsigned, initially 0.
+         * Emit a signature character for every block size the rolling hash triggers
+         *
+         * @param next the rolling hash plus one, known to trigger the smallest tracked block size
          */
-        private long h2;
+        private void trigger(final long next) {
+            for (int i = this.start; i < this.end; i++) {
+                if ((next & ((1L << i) - 1)) != 0 || ((next >>> i) % MIN_BLOCKSIZE) != 0) {
+                    break;
+                }
+                if (i == this.end - 1) {
+                    fork();
+                }
+                final int len = this.digestLength[i];
+                if (len == HALF_FULL) {
+                    // the half length signature using this block size is full, it hashes the rest of the input from here
+                    this.halfSumHash[i] = this.sumHash[i];
+                }
+                if (len < (SPAMSUM_LENGTH - 1)) {
+                    // once full the last character covers the rest of the input
+                    this.digest[i][len] = b64EncodeLowBits(this.sumHash[i]);
+                    this.digestLength[i] = len + 1;
+                    this.sumHash[i] = FNV_INIT;
+                }
+            }
+            prune();
+        }
 
         /**
-         * A shift/xor based rolling hash, mostly needed to ensure that we can cope with large blocksize values. 32-bit
-         * unsigned, initially 0.
+         * Start tracking the next larger block size. Up to the first trigger of the current largest block size the next one has
+         * seen no trigger either, so its state is a copy.
          */
-        private long h3;
+        private void fork() {
+            final int next = this.end;
+            final int limit = this.fixedEstimate >= 0 ? this.fixedEstimate + 2 : NUM_BLOCKSIZES;
+            if (next >= limit) {
+                return;
+            }
+            this.sumHash[next] = this.sumHash[next - 1];
+            this.digestLength[next] = 0;
+            this.end = next + 1;
+        }
 
         /**
-         * Construct a new rolling hash state.
+         * Stop tracking the smallest block sizes once a larger one is a candidate that already has a long enough signature,
+         * since the block size search would stop there first
          */
-        public RollingState() {}
+        private void prune() {
+            while (this.start + 1 < this.end && this.start + 1 <= this.estimate && this.digestLength[this.start + 1] >= SPAMSUM_LENGTH / 2) {
+                this.start++;
+            }
+        }
 
         /**
-         * Get the current hash value.
-         *
-         * @return The current 32-bit unsigned hash value.
+         * Number of bytes hashed so far
          */
-        public long getHash() {
-            return (this.h1 + this.h2 + this.h3) & MASK32;
+        public long getLength() {
+            return this.totalLength;
         }
 
         /**
-         * Update the rolling hash state with another input byte.
+         * Compute the signature of the bytes hashed so far. More bytes can still be added afterwards.
          *
-         * @param b The byte value to apply. Assumed to be in the range 0..255.
-         * @return The state is updated and the resulting unsigned 32-bit hash value is returned.
+         * @return the signature
          */
-        public long roll(final int b) {
-            this.h2 = (this.h2 - this.h1 + (ROLLING_WINDOW_SIZE * ((long) b))) & MASK32;
-            this.h1 = (this.h1 + b - this.window[this.windowPosition]) & MASK32;
-            this.window[this.windowPosition] = b;
-
-            // Advance the window position, wrappping around at the end.
-            if (this.windowPosition == (ROLLING_WINDOW_SIZE - 1)) {
-                this.windowPosition = 0;
-            } else {
-                this.windowPosition++;
+        public SpamSumSignature digest() {
+            final boolean tail = (this.h1 + this.h2 + this.h3) != 0;
+            final int extra = tail ? 1 : 0;
+
+            // Search down from the estimate for the first block size giving at least half a signature, as the retry
+            // loop of the original implementation did
+            int chosen = Math.max(this.estimate, this.start);
+            while (chosen > this.start && (this.digestLength[chosen] + extra) < (SPAMSUM_LENGTH / 2)) {
+                chosen--;
             }
 
-            this.h3 = ((this.h3 << 5) & MASK32) ^ b;
+            final int len1 = this.digestLength[chosen];
+            final byte[] hash1 = Arrays.copyOf(this.digest[chosen], len1 + extra);
+            if (tail) {
+                hash1[len1] = b64EncodeLowBits(this.sumHash[chosen]);
+            }
 
-            return (this.h1 + this.h2 + this.h3) & MASK32;
+            // The half length signature uses twice the block size. If that block size was never tracked it has seen no
+            // trigger and its state is the same as the chosen one.
+            final int half = chosen + 1 < this.end ? chosen + 1 : chosen;
+            final int len2 = half == chosen ? 0 : Math.min(this.digestLength[half], HALF_FULL);
+            final byte[] hash2 = Arrays.copyOf(this.digest[half], len2 + extra);
+            if (tail) {
+                hash2[len2] = b64EncodeLowBits(this.digestLength[half] > HALF_FULL ? this.halfSumHash[half] : this.sumHash[half]);
+            }
+            return new SpamSumSignature((long) MIN_BLOCKSIZE << chosen, hash1, hash2);
+        }
+
+        /**
+         * Compute the signature of the bytes hashed so far as a string
+         *
+         * @return the signature, in the form blocksize:hash1:hash2
+         */
+        public String hash() {
+            return digest().toString();
         }
     }
 
     public Ssdeep() {}
 
+    /**
+     * Create a hasher for incremental input of unknown length
+     *
+     * @return a new hasher
+     */
+    public FuzzyHasher newHasher() {
+        return new FuzzyHasher();
+    }
+
+    /**
+     * Create a hasher for incremental input of known length
+     *
+     * @param expectedLength the number of bytes that will be hashed
+     * @return a new hasher
+     */
+    public FuzzyHasher newHasher(final long expectedLength) {
+        return new FuzzyHasher(expectedLength);
+    }
+
     /**
      * Calculate the SpamSum hash for a byte array.
      *
@@ -401,33 +409,31 @@ public final class Ssdeep {
      * @return The SpamSum signature for the bytes.
      */
     public String fuzzyHash(final byte[] data) {
-        final SsContext ctx = new SsContext(data);
-        while (true) {
-            final SpamSumSignature signature = ctx.generateHash(data);
-
-            // Our blocksize guess may have been way off, repeat with
-            // a smaller block size if necessary.
-            if ((ctx.blockSize > MIN_BLOCKSIZE) && (ctx.fuzzLen1 < (SPAMSUM_LENGTH / 2))) {
-                ctx.blockSize = ctx.blockSize / 2;
-            } else {
-                return signature.toString();
-            }
-        }
+        final FuzzyHasher hasher = new FuzzyHasher(data.length);
+        hasher.update(data);
+        return hasher.hash();
     }
 
+    /**
+     * Calculate the SpamSum hash for the content of a channel, reading it once.
+     *
+     * @param sbcf Provider of the bytes to be hashed.
+     * @return The SpamSum signature for the bytes.
+     */
     public String fuzzyHash(final SeekableByteChannelFactory sbcf) {
-        final SsContext ctx = new SsContext(sbcf);
-        while (true) {
-            final SpamSumSignature signature = ctx.generateHash(sbcf);
-
-            // Our blocksize guess may have been way off, repeat with
-            // a smaller block size if necessary.
-            if ((ctx.blockSize > MIN_BLOCKSIZE) && (ctx.fuzzLen1 < (SPAMSUM_LENGTH / 2))) {
-                ctx.blockSize = ctx.blockSize / 2;
-            } else {
-                return signature.toString();
+        FuzzyHasher hasher = new FuzzyHasher();
+        try (SeekableByteChannel sbc = sbcf.create()) {
+            hasher = new FuzzyHasher(sbc.size());
+            final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (sbc.read(buffer) != -1) {
+                buffer.flip();
+                hasher.update(buffer);
+                buffer.clear();
             }
+        } catch (final IOException e) {
+            // Ignore, a read failure ends the input
         }
+        return hasher.hash();
     }
 
     /**
@@ -438,20 +444,14 @@ public final class Ssdeep {
      * @throws IOException If there is some I/O problem accessing the file.
      */
     public String fuzzyHashFile(final File file) throws IOException {
-        try (RandomAccessFile stream = new RandomAccessFile(file, "r")) {
-            final SsContext ctx = new SsContext(file);
-            while (true) {
-                stream.seek(0);
-                final SpamSumSignature signature = ctx.generateHash(stream);
-
-                // Our blocksize guess may have been way off, repeat with
-                // a smaller block size if necessary.
-                if ((ctx.blockSize > MIN_BLOCKSIZE) && (ctx.fuzzLen1 < (SPAMSUM_LENGTH / 2))) {
-                    ctx.blockSize = ctx.blockSize / 2;
-                } else {
-                    return signature.toString();
-                }
+        try (InputStream stream = Files.newInputStream(file.toPath())) {
+            final FuzzyHasher hasher = new FuzzyHasher(file.length());
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = stream.read(buffer)) != -1) {
+                hasher.update(buffer, 0, bytesRead);
             }
+            return hasher.hash();
         }
     }
 
@@ -534,7 +534,7 @@ public final class Ssdeep {
      * @return An array containing the same content as {@code in}, except that any sequences of more than 3 identical bytes
      *         are truncated to 3 bytes. For example "aaabbbbcddddd" becomes "aaabbbcddd".
      */
-    private static byte[] eliminateLongSequences(final byte[] in) {
+    static byte[] eliminateLongSequences(final byte[] in) {
         if (in.length < 4) {
             return in; // There is not enough input to require any change.
         }
@@ -677,11 +677,18 @@ public final class Ssdeep {
         // the same character like 'LLLLL'. Eliminate any sequences
         // longer than 3. This is especially important when combined
         // with the hasCommonSequence() test.
-        final byte[] s1First = eliminateLongSequences(signature1.getHashPart1());
-        final byte[] s1Second = eliminateLongSequences(signature1.getHashPart2());
-        final byte[] s2First = eliminateLongSequences(signature2.getHashPart1());
-        final byte[] s2Second = eliminateLongSequences(signature2.getHashPart2());
+        return compareParts(blockSize1, eliminateLongSequences(signature1.getHashPart1()), eliminateLongSequences(signature1.getHashPart2()),
+                blockSize2, eliminateLongSequences(signature2.getHashPart1()), eliminateLongSequences(signature2.getHashPart2()));
+    }
 
+    /**
+     * Score two signatures whose hash parts have already been through {@link #eliminateLongSequences(byte[])}. The block
+     * sizes must be equal or one must be twice the other.
+     *
+     * @return the score in the range 0..100
+     */
+    static int compareParts(final long blockSize1, final byte[] s1First, final byte[] s1Second, final long blockSize2, final byte[] s2First,
+            final byte[] s2Second) {
         // Each signature has a string for two block sizes. We now
         // choose how to combine the two block sizes. We checked above
         // that they have at least one block size in common.
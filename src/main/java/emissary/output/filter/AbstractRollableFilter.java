@@ -6,6 +6,7 @@ import emissary.core.IBaseDataObject;
 import emissary.output.io.DateStampFilenameGenerator;
 import emissary.output.roller.IJournaler;
 import emissary.output.roller.JournaledCoalescer;
+import emissary.output.roller.journal.GroupCommit;
 import emissary.output.roller.journal.KeyedOutput;
 import emissary.pool.AgentPool;
 import emissary.roll.RollManager;
@@ -35,6 +36,10 @@ public abstract class AbstractRollableFilter extends AbstractFilter {
     public static final String MAX_ROLL_FILE_SIZE = "MAX_FILE_SIZE";
     public static final String MAX_OUTPUT_APPENDERS = "MAX_OUTPUT_APPENDERS";
     public static final String ROLL_INTERVAL_UNIT = "ROLL_INTERVAL_UNIT";
+    public static final String JOURNAL_BATCH_ENTRIES = "JOURNAL_BATCH_ENTRIES";
+    public static final String JOURNAL_MAX_DELAY_MILLIS = "JOURNAL_MAX_DELAY_MILLIS";
+    public static final String JOURNAL_FORCE_SIZE = "JOURNAL_FORCE_SIZE";
+    public static final String JOURNAL_FORCE_INTERVAL_MILLIS = "JOURNAL_FORCE_INTERVAL_MILLIS";
 
     protected String defaultOutputPath = "./out";
     protected Path outputPath;
@@ -46,6 +51,7 @@ public abstract class AbstractRollableFilter extends AbstractFilter {
     protected IJournaler rollable;
     protected FileNameGenerator fileNameGenerator;
     protected boolean appendNewLine = true;
+    protected GroupCommit groupCommit = GroupCommit.NONE;
 
     /**
      * Method to convert payload(s) to an output type
@@ -57,6 +63,19 @@ public abstract class AbstractRollableFilter extends AbstractFilter {
      */
     public abstract byte[] convert(final List<IBaseDataObject> list, final Map<String, Object> params) throws IOException;
 
+    /**
+     * Method to convert payload(s) to an output type, writing directly to the output. The default implementation writes the
+     * result of {@link #convert(List, Map)}, filters that can stream their output should override this.
+     *
+     * @param list the payload list
+     * @param params the list of parameters
+     * @param output the stream to write the converted payload(s) to
+     * @throws IOException if there is an issue outputting the data
+     */
+    protected void convert(final List<IBaseDataObject> list, final Map<String, Object> params, final OutputStream output) throws IOException {
+        output.write(convert(list, params));
+    }
+
     /**
      * Initialization phase hook for the filter with provided filter configuration
      *
@@ -98,6 +117,10 @@ public abstract class AbstractRollableFilter extends AbstractFilter {
         this.maxOutputAppenders = this.filterConfig.findIntEntry(MAX_OUTPUT_APPENDERS, AgentPool.computePoolSize());
         this.rollInterval = this.filterConfig.findLongEntry(CFG_ROLL_INTERVAL, rollInterval);
         this.rollIntervalUnits = TimeUnit.valueOf(this.filterConfig.findStringEntry(ROLL_INTERVAL_UNIT, rollIntervalUnits.toString()));
+        this.groupCommit = new GroupCommit(this.filterConfig.findIntEntry(JOURNAL_BATCH_ENTRIES, groupCommit.getMaxBatchEntries()),
+                this.filterConfig.findLongEntry(JOURNAL_MAX_DELAY_MILLIS, groupCommit.getMaxDelayMillis()),
+                this.filterConfig.findSizeEntry(JOURNAL_FORCE_SIZE, groupCommit.getForceBytes()),
+                this.filterConfig.findLongEntry(JOURNAL_FORCE_INTERVAL_MILLIS, groupCommit.getForceIntervalMillis()));
     }
 
     /**
@@ -144,7 +167,7 @@ public abstract class AbstractRollableFilter extends AbstractFilter {
      * @throws InterruptedException if the journal is interrupted
      */
     protected IJournaler createRollable() throws IOException, InterruptedException {
-        return new JournaledCoalescer(this.outputPath, this.fileNameGenerator, this.maxOutputAppenders);
+        return new JournaledCoalescer(this.outputPath, this.fileNameGenerator, this.maxOutputAppenders, this.groupCommit);
     }
 
     /**
@@ -197,7 +220,7 @@ public abstract class AbstractRollableFilter extends AbstractFilter {
         list.get(0).putParameter("DESCENDANT_COUNT", list.size() - 1);
 
         try {
-            output.write(convert(list, params));
+            convert(list, params, output);
             if (appendNewLine) {
                 output.write("\n".getBytes());
             }
@@ -19,6 +19,7 @@ import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.ser.BeanSerializerFactory;
 import com.fasterxml.jackson.databind.ser.PropertyWriter;
@@ -29,6 +30,10 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.apache.commons.collections4.CollectionUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
@@ -96,6 +101,18 @@ public class JsonOutputFilter extends AbstractRollableFilter {
         return jsonMapper.writeValueAsBytes(list);
     }
 
+    /**
+     * Stream the payload list to the output with a json generator so the family is never held on the heap as a whole
+     */
+    @Override
+    protected void convert(final List<IBaseDataObject> list, final Map<String, Object> params, final OutputStream output) throws IOException {
+        try (JsonGenerator jgen = jsonMapper.getFactory().createGenerator(output)) {
+            // the output belongs to the caller, e.g. a KeyedOutput that still has to be committed
+            jgen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            jsonMapper.writeValue(jgen, list);
+        }
+    }
+
     class IbdoParameterFilter extends SimpleBeanPropertyFilter {
 
         protected final boolean outputAll;
@@ -244,6 +261,32 @@ public class JsonOutputFilter extends AbstractRollableFilter {
         }
     }
 
+    /**
+     * Write the payload as base64 by reading the channel in chunks, so large channel-backed data is neither truncated nor
+     * copied into a byte array first
+     */
+    static class PayloadSerializer extends JsonSerializer<SeekableByteChannelFactory> {
+
+        @Override
+        public boolean isEmpty(SerializerProvider provider, @Nullable SeekableByteChannelFactory sbcf) {
+            if (sbcf == null) {
+                return true;
+            }
+            try (SeekableByteChannel channel = sbcf.create()) {
+                return channel.size() == 0;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void serialize(SeekableByteChannelFactory sbcf, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+            try (InputStream is = Channels.newInputStream(sbcf.create())) {
+                jgen.writeBinary(is, -1);
+            }
+        }
+    }
+
     /**
      * This class is used so we do not have to annotate the IBaseDataObject. Set custom annotations on the method signatures
      * to include/exclude fields in the ibdo.
@@ -266,9 +309,6 @@ public class JsonOutputFilter extends AbstractRollableFilter {
         @JsonInclude(NON_EMPTY)
         abstract List<IBaseDataObject> getExtractedRecords();
 
-        @JsonIgnore
-        abstract SeekableByteChannelFactory getChannelFactory();
-
         @JsonIgnore
         abstract int dataLength();
 
@@ -340,14 +380,21 @@ public class JsonOutputFilter extends AbstractRollableFilter {
         @JsonIgnore
         abstract byte[] data();
 
+        @JsonIgnore
+        abstract SeekableByteChannelFactory getChannelFactory();
+
         @JsonIgnore
         abstract Map<String, byte[]> getAlternateViews();
     }
 
     abstract static class IbdoPayloadMixin extends IbdoMixin {
+        @JsonIgnore
+        abstract byte[] data();
+
         @JsonProperty("payload")
         @JsonInclude(NON_EMPTY)
-        abstract byte[] data();
+        @JsonSerialize(using = PayloadSerializer.class)
+        abstract SeekableByteChannelFactory getChannelFactory();
 
         @JsonProperty("views")
         @JsonInclude(NON_EMPTY)
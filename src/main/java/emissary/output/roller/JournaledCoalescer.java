@@ -1,5 +1,6 @@
 package emissary.output.roller;
 
+import emissary.output.roller.journal.GroupCommit;
 import emissary.output.roller.journal.Journal;
 import emissary.output.roller.journal.JournalEntry;
 import emissary.output.roller.journal.JournalReader;
@@ -71,6 +72,10 @@ public class JournaledCoalescer implements IJournaler, ICoalescer {
      * Max number of pooled outputs to create *
      */
     private final int poolsize;
+    /**
+     * Policy for writing and forcing journal entries *
+     */
+    private final GroupCommit groupCommit;
     /**
      * File extension used while coalescing part files
      */
@@ -106,9 +111,23 @@ public class JournaledCoalescer implements IJournaler, ICoalescer {
      * @param poolsize The max number of outputs for the pool.
      */
     public JournaledCoalescer(final Path outPath, final FileNameGenerator fileNameGenerator, int poolsize) throws IOException, InterruptedException {
+        this(outPath, fileNameGenerator, poolsize, GroupCommit.NONE);
+    }
+
+    /**
+     * The Rollable with take all files in a Path and combine them into a single destination file on each roll.
+     *
+     * @param outPath The Path to use for reading input and writing combined output
+     * @param fileNameGenerator The FileNameGenerator to use for unique destination file names
+     * @param poolsize The max number of outputs for the pool.
+     * @param groupCommit The policy for writing and forcing journal entries of the pooled outputs
+     */
+    public JournaledCoalescer(final Path outPath, final FileNameGenerator fileNameGenerator, int poolsize, GroupCommit groupCommit)
+            throws IOException, InterruptedException {
         this.outputPath = outPath.toAbsolutePath();
         this.fileNameGenerator = fileNameGenerator;
         this.poolsize = poolsize;
+        this.groupCommit = groupCommit;
         validateOutputPath();
         cleanupOrphanedRolledFiles();
         initializeNextPool();
@@ -158,7 +177,7 @@ public class JournaledCoalescer implements IJournaler, ICoalescer {
                 this.journaledPool.close();
             }
             Collection<Path> journals = JournalReader.getJournalPaths(outputPath);
-            this.journaledPool = new JournaledChannelPool(outputPath, this.fileNameGenerator.nextFileName(), poolsize);
+            this.journaledPool = new JournaledChannelPool(outputPath, this.fileNameGenerator.nextFileName(), poolsize, groupCommit);
             LOG.debug("Generated new Journal file name: {}", this.journaledPool);
             return journals;
         } finally {
@@ -0,0 +1,103 @@
+package emissary.output.roller.journal;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Group commit policy for a {@link JournalWriter}. Journal entries are collected and written to the journal file in
+ * batches instead of one small write per commit, and the content and journal files can be forced to storage once enough
+ * bytes have been committed or enough time has passed.
+ * <p>
+ * Entries that have not been written to the journal yet are lost on a crash, so the recovered output ends at the last
+ * written entry just as it does for a commit that never happened. The batch size and maximum delay bound that window.
+ * The default policy, {@link #NONE}, writes every entry as it is committed and never forces, which is how the journal
+ * has always behaved.
+ * <p>
+ * Batching is per journal, and there is one journal per {@link JournaledChannel}. Entries from the KeyedOutputs leased
+ * from the same channel share writes and forces, but outputs committed together on different channels do not, so each
+ * channel with unforced entries still pays its own force of its content and journal files. A policy that forces on
+ * every commit therefore costs two forces per channel per commit however many outputs are committed at once.
+ */
+public final class GroupCommit {
+
+    /** Write each entry as it is committed and leave forcing to the operating system */
+    public static final GroupCommit NONE = new GroupCommit(1, 0L, 0L, 0L);
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    // one daemon thread flushes every journal with a time based policy
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread t = new Thread(r, "JournalGroupCommit-" + threadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    final int maxBatchEntries;
+    final long maxDelayMillis;
+    final long forceBytes;
+    final long forceIntervalMillis;
+
+    /**
+     * Create a group commit policy
+     *
+     * @param maxBatchEntries number of entries collected before they are written to the journal
+     * @param maxDelayMillis longest time an entry waits to be written, zero or less to only write full batches
+     * @param forceBytes force content and journal to storage after this many content bytes, zero or less to disable
+     * @param forceIntervalMillis force content and journal to storage at this interval, zero or less to disable
+     */
+    public GroupCommit(final int maxBatchEntries, final long maxDelayMillis, final long forceBytes, final long forceIntervalMillis) {
+        if (maxBatchEntries < 1) {
+            throw new IllegalArgumentException("Batch must hold at least one entry");
+        }
+        this.maxBatchEntries = maxBatchEntries;
+        this.maxDelayMillis = Math.max(0L, maxDelayMillis);
+        this.forceBytes = Math.max(0L, forceBytes);
+        this.forceIntervalMillis = Math.max(0L, forceIntervalMillis);
+    }
+
+    public int getMaxBatchEntries() {
+        return maxBatchEntries;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public long getForceBytes() {
+        return forceBytes;
+    }
+
+    public long getForceIntervalMillis() {
+        return forceIntervalMillis;
+    }
+
+    /**
+     * Period at which a writer using this policy should be checked, or zero if nothing is time based
+     */
+    long checkPeriodMillis() {
+        if (maxDelayMillis > 0L && forceIntervalMillis > 0L) {
+            return Math.min(maxDelayMillis, forceIntervalMillis);
+        }
+        return Math.max(maxDelayMillis, forceIntervalMillis);
+    }
+
+    /**
+     * Schedule periodic checks of a writer for entries or forces that are due
+     *
+     * @param task the check to run
+     * @return the scheduled check, to be cancelled when the writer is closed
+     */
+    ScheduledFuture<?> schedule(final Runnable task) {
+        final long period = checkPeriodMillis();
+        return SCHEDULER.scheduleWithFixedDelay(task, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "GroupCommit{" + "maxBatchEntries=" + maxBatchEntries + ", maxDelayMillis=" + maxDelayMillis + ", forceBytes=" + forceBytes
+                + ", forceIntervalMillis=" + forceIntervalMillis + '}';
+    }
+}
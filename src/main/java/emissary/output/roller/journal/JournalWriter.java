@@ -1,5 +1,8 @@
 package emissary.output.roller.journal;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -7,6 +10,8 @@ import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.Nullable;
 
@@ -26,12 +31,18 @@ import static emissary.output.roller.journal.Journal.SEP;
  * <code>
  * [Journal sequence number][null byte][Entry value.size()][null byte][Entry val.getBytes()][null byte][position][null padded to fixed len]
  * </code>
+ *
+ * Entries are written according to a {@link GroupCommit} policy, which can batch several entries into one write and
+ * force the content and journal files to storage. The file format is the same whatever the policy.
  */
 public class JournalWriter implements Closeable {
 
+    private static final Logger LOG = LoggerFactory.getLogger(JournalWriter.class);
+
     private final ReentrantLock lock = new ReentrantLock();
+    // holds the header or up to a batch of fixed length entries
     @Nullable
-    private ByteBuffer b = ByteBuffer.allocateDirect(Journal.ENTRY_LENGTH);
+    private ByteBuffer b;
     // full path to journal file
     final Path journalPath;
     // current sequence value
@@ -42,14 +53,40 @@ public class JournalWriter implements Closeable {
     @Nullable
     FileChannel journal;
     JournalEntry prev;
+    // when and how entries are written and forced
+    final GroupCommit policy;
+    // content file the entries describe, forced ahead of the journal
+    @Nullable
+    private final FileChannel content;
+    @Nullable
+    private ScheduledFuture<?> scheduled;
+    // entries in the buffer not yet written to the journal
+    private int pending;
+    private long firstPendingNanos;
+    // content bytes committed and entries written since the last force
+    private long unforcedBytes;
+    private boolean unforced;
+    private long lastForceNanos = System.nanoTime();
 
     public JournalWriter(final Path dir, final String key) throws IOException {
         this(dir, key, key);
     }
 
     public JournalWriter(final Path dir, final String journalFileName, final String key) throws IOException {
+        this(dir, journalFileName, key, GroupCommit.NONE);
+    }
+
+    public JournalWriter(final Path dir, final String journalFileName, final String key, final GroupCommit policy) throws IOException {
+        this(dir, journalFileName, key, policy, null);
+    }
+
+    JournalWriter(final Path dir, final String journalFileName, final String key, final GroupCommit policy, @Nullable final FileChannel content)
+            throws IOException {
         this.journalPath = dir.resolve(journalFileName + Journal.EXT);
         this.key = key;
+        this.policy = policy;
+        this.content = content;
+        this.b = ByteBuffer.allocateDirect(Journal.ENTRY_LENGTH * policy.getMaxBatchEntries());
         checkJournal();
     }
 
@@ -62,7 +99,7 @@ public class JournalWriter implements Closeable {
     }
 
     /**
-     * Write to journal
+     * Write to journal. Depending on the {@link GroupCommit} policy the entry may be held and written with later entries.
      *
      * @return position difference between last entry and current
      */
@@ -72,14 +109,20 @@ public class JournalWriter implements Closeable {
             if (journal == null) {
                 writeHeader();
             }
-            b.clear();
+            // fixed record length format so zero out everything after the entry
+            b.limit(b.position() + Journal.ENTRY_LENGTH);
             b.putLong(++sequence);
             b.put(SEP);
             e.serialize(b);
-            // fixed record length format so zero out everything
             nullpad();
-            write();
-            return prev == null ? e.offset : e.offset - prev.offset;
+            b.limit(b.capacity());
+            if (pending++ == 0) {
+                firstPendingNanos = System.nanoTime();
+            }
+            final long diff = prev == null ? e.offset : e.offset - prev.offset;
+            unforcedBytes += Math.max(0L, diff);
+            commitDue();
+            return diff;
         } finally {
             prev = e;
             lock.unlock();
@@ -88,10 +131,78 @@ public class JournalWriter implements Closeable {
 
     private void write() throws IOException {
         b.flip();
-        journal.write(b);
+        while (b.hasRemaining()) {
+            journal.write(b);
+        }
         b.clear();
     }
 
+    /**
+     * Write any held entries and force the content and journal files to storage
+     *
+     * @throws IOException If there is some I/O problem.
+     */
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            if (journal != null) {
+                force();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // write and force whatever the policy says is due, lock must be held
+    private void commitDue() throws IOException {
+        final long now = System.nanoTime();
+        if (pending >= policy.maxBatchEntries
+                || (pending > 0 && policy.maxDelayMillis > 0L && now - firstPendingNanos >= TimeUnit.MILLISECONDS.toNanos(policy.maxDelayMillis))) {
+            writePending();
+        }
+        if ((policy.forceBytes > 0L && unforcedBytes >= policy.forceBytes)
+                || (policy.forceIntervalMillis > 0L && now - lastForceNanos >= TimeUnit.MILLISECONDS.toNanos(policy.forceIntervalMillis))) {
+            force();
+        }
+    }
+
+    // lock must be held
+    private void writePending() throws IOException {
+        if (pending == 0) {
+            return;
+        }
+        write();
+        pending = 0;
+        unforced = true;
+    }
+
+    // lock must be held, content first so a forced entry never points past forced content
+    private void force() throws IOException {
+        writePending();
+        if (unforced || unforcedBytes > 0L) {
+            if (content != null && content.isOpen()) {
+                content.force(false);
+            }
+            journal.force(false);
+        }
+        unforcedBytes = 0L;
+        unforced = false;
+        lastForceNanos = System.nanoTime();
+    }
+
+    private void commitScheduled() {
+        lock.lock();
+        try {
+            if (journal != null) {
+                commitDue();
+            }
+        } catch (IOException ex) {
+            LOG.warn("Unable to commit journal {}", journalPath, ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private void writeHeader() throws IOException {
         this.journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
         b.clear();
@@ -112,6 +223,9 @@ public class JournalWriter implements Closeable {
         b.putLong(sequence);
         b.put(SEP);
         write();
+        if (policy.checkPeriodMillis() > 0L) {
+            scheduled = policy.schedule(this::commitScheduled);
+        }
     }
 
     // fill buffer with zeros from current position to limit
@@ -122,14 +236,26 @@ public class JournalWriter implements Closeable {
     }
 
     /**
-     * Closes underlying journal channel.
+     * Writes any held entries, forcing them if the policy forces, and closes underlying journal channel.
      */
     @Override
     public void close() throws IOException {
         lock.lock();
         try {
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
             if (journal != null) {
-                journal.close();
+                try {
+                    if (policy.forceBytes > 0L || policy.forceIntervalMillis > 0L) {
+                        force();
+                    } else {
+                        writePending();
+                    }
+                } finally {
+                    journal.close();
+                }
             }
             journal = null;
             b = null;
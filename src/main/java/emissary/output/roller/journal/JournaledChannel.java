@@ -31,10 +31,14 @@ public class JournaledChannel extends OutputStream implements SeekableByteChanne
     ByteBuffer directBuff;
 
     JournaledChannel(final Path path, final String key, final int index) throws IOException {
+        this(path, key, index, GroupCommit.NONE);
+    }
+
+    JournaledChannel(final Path path, final String key, final int index, final GroupCommit policy) throws IOException {
         this.fc = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
         this.path = path;
         this.index = index;
-        this.journal = new JournalWriter(path.getParent(), path.getFileName().toString(), key);
+        this.journal = new JournalWriter(path.getParent(), path.getFileName().toString(), key, policy, this.fc);
         this.directBuff = ByteBuffer.allocateDirect(BUFF_SIZE);
         writeEntry();
     }
@@ -130,7 +134,8 @@ public class JournaledChannel extends OutputStream implements SeekableByteChanne
     }
 
     /**
-     * Commits writes to underlying storage. This method should only be called after a successful write.
+     * Commits writes to underlying storage. This method should only be called after a successful write. When the journal
+     * batches entries the commit becomes durable once its entry is written, see {@link GroupCommit}.
      * 
      * @throws IOException If there is some I/O problem.
      */
@@ -152,11 +157,15 @@ public class JournaledChannel extends OutputStream implements SeekableByteChanne
      */
     @Override
     public void close() throws IOException {
-        if (this.fc != null) {
-            this.fc.close();
-            this.fc = null;
+        // journal first, it may still write or force entries for the content
+        try {
+            this.journal.close();
+        } finally {
+            if (this.fc != null) {
+                this.fc.close();
+                this.fc = null;
+            }
         }
-        this.journal.close();
         this.e = null;
         this.directBuff = null;
     }
@@ -28,16 +28,22 @@ public class JournaledChannelPool implements AutoCloseable {
     final int max;
     final Path directory;
     final String key;
+    final GroupCommit groupCommit;
     private final Deque<JournaledChannel> free = new ArrayDeque<>();
     private int created;
     @Nullable
     private JournaledChannel[] allchannels;
 
-    @SuppressWarnings("CheckedExceptionNotThrown")
     public JournaledChannelPool(final Path directory, final String key, final int max) throws IOException {
+        this(directory, key, max, GroupCommit.NONE);
+    }
+
+    @SuppressWarnings("CheckedExceptionNotThrown")
+    public JournaledChannelPool(final Path directory, final String key, final int max, final GroupCommit groupCommit) throws IOException {
         this.max = max;
         this.directory = directory;
         this.key = key;
+        this.groupCommit = groupCommit;
         this.allchannels = new JournaledChannel[max];
     }
 
@@ -151,7 +157,7 @@ public class JournaledChannelPool implements AutoCloseable {
 
     private void createChannel() throws IOException {
         final Path p = Paths.get(this.directory.toString(), this.key + "_" + UUID.randomUUID().toString() + EXTENSION);
-        final JournaledChannel ko = new JournaledChannel(p, this.key, this.created);
+        final JournaledChannel ko = new JournaledChannel(p, this.key, this.created, this.groupCommit);
         this.allchannels[this.created++] = ko;
         this.free.add(ko);
     }
@@ -1,6 +1,7 @@
 package emissary.parser;
 
 import emissary.core.IBaseDataObject;
+import emissary.core.channels.SeekableByteChannelFactory;
 
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
@@ -34,6 +35,8 @@ public class DecomposedSession {
     @Nullable
     protected byte[] data = null;
     @Nullable
+    protected SeekableByteChannelFactory dataChannelFactory = null;
+    @Nullable
     protected String classification = null;
     protected List<String> initialForms = new ArrayList<>();
     protected ArrayListMultimap<String, Object> metadata = ArrayListMultimap.create(100, 1);
@@ -91,6 +94,7 @@ public class DecomposedSession {
      * @param copy make a copy when true
      */
     public void setData(@Nullable byte[] d, boolean copy) {
+        dataChannelFactory = null;
         if (d == null || !copy) {
             data = d;
         } else {
@@ -106,6 +110,7 @@ public class DecomposedSession {
      * @param end ending offset
      */
     public void setData(byte[] d, int start, int end) {
+        dataChannelFactory = null;
         data = new byte[end - start];
         System.arraycopy(d, start, data, 0, data.length);
     }
@@ -119,6 +124,26 @@ public class DecomposedSession {
         return data;
     }
 
+    /**
+     * Set the data entry as a view of the input rather than a copy of it. Previously existing data is lost
+     *
+     * @param sbcf factory for the session data
+     */
+    public void setDataChannelFactory(@Nullable SeekableByteChannelFactory sbcf) {
+        data = null;
+        dataChannelFactory = sbcf;
+    }
+
+    /**
+     * Get the data entry when it was set as a view of the input
+     *
+     * @return the factory for the data or null if the data is held as bytes or not set
+     */
+    @Nullable
+    public SeekableByteChannelFactory getDataChannelFactory() {
+        return dataChannelFactory;
+    }
+
     /**
      * Set the classification
      *
@@ -205,7 +230,7 @@ public class DecomposedSession {
      * @return true if there is a data entry
      */
     public boolean hasData() {
-        return data != null;
+        return data != null || dataChannelFactory != null;
     }
 
     /**
@@ -1,5 +1,9 @@
 package emissary.parser;
 
+import emissary.core.channels.SeekableByteChannelFactory;
+
+import javax.annotation.Nullable;
+
 /**
  * Base for all session parsers returned from ParserFactory
  */
@@ -10,6 +14,10 @@ public abstract class SessionParser {
 
     protected boolean fullyParsed = false;
 
+    /** Factory for the data being parsed, when sessions may be handed out as views of it */
+    @Nullable
+    protected SeekableByteChannelFactory sourceChannelFactory = null;
+
     /**
      * Indicates if the data has been fully parsed or not.
      * 
@@ -28,6 +36,27 @@ public abstract class SessionParser {
         this.fullyParsed = fullyParsed;
     }
 
+    /**
+     * Provide a factory for the same data this parser is reading. Parsers that support it will describe session data as
+     * segments of this factory on {@link DecomposedSession#getDataChannelFactory()} rather than copying it into arrays, so
+     * the factory must remain readable for as long as the sessions are in use. Parsers that do not support it ignore it.
+     *
+     * @param sbcf the factory for the parsed data or null to copy session data as usual
+     */
+    public void setSourceChannelFactory(@Nullable SeekableByteChannelFactory sbcf) {
+        this.sourceChannelFactory = sbcf;
+    }
+
+    /**
+     * Get the factory for the parsed data
+     *
+     * @return the factory or null if sessions are copied
+     */
+    @Nullable
+    public SeekableByteChannelFactory getSourceChannelFactory() {
+        return sourceChannelFactory;
+    }
+
     /**
      * Get session name or null if none can be provided
      * 
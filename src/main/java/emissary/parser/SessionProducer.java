@@ -2,6 +2,7 @@ package emissary.parser;
 
 import emissary.core.DataObjectFactory;
 import emissary.core.IBaseDataObject;
+import emissary.core.channels.SeekableByteChannelFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -65,7 +66,16 @@ public class SessionProducer {
             sName = defaultSessionName;
         }
 
-        IBaseDataObject dataObject = DataObjectFactory.getInstance(new Object[] {theData, sName});
+        IBaseDataObject dataObject;
+        SeekableByteChannelFactory theDataChannel = session.getDataChannelFactory();
+        if (theDataChannel != null) {
+            // The session is a view of the input, hand it on without reading it
+            dataObject = DataObjectFactory.getInstance();
+            dataObject.setChannelFactory(theDataChannel);
+            dataObject.setFilename(sName);
+        } else {
+            dataObject = DataObjectFactory.getInstance(new Object[] {theData, sName});
+        }
 
         // Pop default form if we have something to say
         if (initialForms != null && !initialForms.isEmpty()) {
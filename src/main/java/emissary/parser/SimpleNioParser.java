@@ -1,5 +1,9 @@
 package emissary.parser;
 
+import emissary.core.channels.ConcatenateChannelFactory;
+import emissary.core.channels.SeekableByteChannelFactory;
+import emissary.core.channels.SegmentChannelFactory;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,8 +50,14 @@ public class SimpleNioParser extends NIOSessionParser {
 
                 d.setFooter(makeDataSlice(session.getFooter()));
 
-                d.setData(makeDataSlice(session.getData()));
-                long length = d.getData() == null ? -1L : d.getData().length;
+                long length;
+                if (sourceChannelFactory != null) {
+                    d.setDataChannelFactory(makeChannelSlice(session.getData()));
+                    length = d.getDataChannelFactory() == null ? -1L : totalLength(session.getData());
+                } else {
+                    d.setData(makeDataSlice(session.getData()));
+                    length = d.getData() == null ? -1L : d.getData().length;
+                }
 
                 // Cook the raw metadata and transfer to DecomposedSession
                 Map<String, Object> md = session.getMetaData();
@@ -143,6 +153,33 @@ public class SimpleNioParser extends NIOSessionParser {
         }
     }
 
+    /**
+     * Describe data as a view of the source channel factory based on a list of position records, without reading it
+     *
+     * @param records the list of position records indicating absolute offsets
+     * @return a segment of the source, a concatenation of segments for several records, or null if there are no records
+     */
+    @Nullable
+    SeekableByteChannelFactory makeChannelSlice(@Nullable List<PositionRecord> records) {
+        if (records == null || records.isEmpty() || sourceChannelFactory == null) {
+            return null;
+        }
+        SeekableByteChannelFactory slice = null;
+        for (PositionRecord r : records) {
+            SeekableByteChannelFactory segment = SegmentChannelFactory.create(sourceChannelFactory, r.getPosition(), r.getLength());
+            slice = slice == null ? segment : ConcatenateChannelFactory.create(slice, segment);
+        }
+        return slice;
+    }
+
+    private static long totalLength(List<PositionRecord> records) {
+        long total = 0;
+        for (PositionRecord r : records) {
+            total += r.getLength();
+        }
+        return total;
+    }
+
     /**
      * Slice data from a buffer based on a single position record
      *
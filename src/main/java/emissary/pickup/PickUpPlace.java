@@ -6,8 +6,11 @@ import emissary.core.Form;
 import emissary.core.IBaseDataObject;
 import emissary.core.IMobileAgent;
 import emissary.core.NamespaceException;
+import emissary.core.channels.FileChannelFactory;
 import emissary.core.channels.InMemoryChannelFactory;
+import emissary.core.channels.SeekableByteChannelFactory;
 import emissary.log.MDCConstants;
+import emissary.parser.DecomposedSession;
 import emissary.parser.ParserEOFException;
 import emissary.parser.ParserException;
 import emissary.parser.ParserFactory;
@@ -16,6 +19,7 @@ import emissary.parser.SessionProducer;
 import emissary.place.AgentsNotSupportedPlace;
 import emissary.place.IServiceProviderPlace;
 import emissary.place.ServiceProviderPlace;
+import emissary.pool.AgentExecutor;
 import emissary.pool.AgentPool;
 import emissary.spi.ObjectTracing;
 import emissary.spi.ObjectTracingService;
@@ -29,10 +33,22 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.Nullable;
 
 import static emissary.core.constants.Parameters.FILE_DATE;
@@ -81,6 +97,26 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
 
     protected boolean useObjectTraceLogger = false;
 
+    // True hands out payloads as views of the input file rather
+    // than reading them onto the heap, when there is a done area
+    // for the file to rest in
+    protected boolean zeroCopy = false;
+
+    // Number of threads that turn parsed sessions into data objects
+    // and wait for agents while the next session is parsed, zero
+    // to parse and dispatch each session in turn
+    protected int sessionDispatchers = 0;
+
+    // How many parsed sessions may wait for a dispatcher
+    protected int sessionQueueSize = 16;
+
+    // How often an idle dispatcher checks whether parsing has finished
+    private static final long DISPATCH_POLL_MILLIS = 50L;
+
+    // Dispatcher threads, each file being parsed has SESSION_DISPATCHERS of them
+    @Nullable
+    private ExecutorService dispatchPool = null;
+
     public PickUpPlace() throws IOException {
         super();
         configurePickUpPlace();
@@ -152,6 +188,10 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
      * <li>DONE_DATA: where it goes when done</li>
      * <li>SIMPLE_MODE: boolean when true turns off DataIdentification engine</li>
      * <li>INITIAL_FORM: one or more forms for new payloads</li>
+     * <li>ZERO_COPY_DATA: boolean when true payloads are channel views of the file linked into the done area instead of
+     * copies</li>
+     * <li>SESSION_DISPATCHERS: threads dispatching parsed sessions of each file while parsing continues, 0 for none</li>
+     * <li>SESSION_QUEUE_SIZE: parsed sessions that may wait for a dispatcher</li>
      * </ul>
      */
     protected void configurePickUpPlace() {
@@ -187,6 +227,14 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
 
         // Whether or not to use the objectTrace logger
         useObjectTraceLogger = configG.findBooleanEntry("USE_OBJECT_TRACE_LOGGER", useObjectTraceLogger);
+
+        sessionDispatchers = configG.findIntEntry("SESSION_DISPATCHERS", sessionDispatchers);
+        sessionQueueSize = Math.max(1, configG.findIntEntry("SESSION_QUEUE_SIZE", sessionQueueSize));
+
+        zeroCopy = configG.findBooleanEntry("ZERO_COPY_DATA", zeroCopy);
+        if (zeroCopy && doneArea == null) {
+            logger.warn("ZERO_COPY_DATA needs a DONE_DATA area to keep files in while payloads refer to them, data will be copied");
+        }
     }
 
     /**
@@ -299,6 +347,15 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
 
         ObjectTracingService.emitLifecycleEvent(null, fixedName, ObjectTracing.Stage.PICK_UP, useObjectTraceLogger);
 
+        // For zero copy the file is linked into the done area first, so
+        // payloads refer to a name that never moves. The picked up file
+        // stays where it is until the outcome is known, so a crash part way
+        // through leaves it to be picked up and processed again
+        File staged = null;
+        if (zeroCopy && !isOversize && outputRoot != null) {
+            staged = linkFileIntoDoneArea(theFile, outputRoot);
+        }
+
         // Handle oversize data quickly without reading the file
         if (isOversize) {
             handleOversizePayload(theFile, fixedName, simpleMode);
@@ -306,14 +363,18 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
 
         // Handle it without session parsing if simple mode is on
         else if (simpleMode) {
-            handleSimplePayload(theFile, fixedName);
+            if (staged != null) {
+                handleSimplePayloadView(theFile, staged, fixedName);
+            } else {
+                handleSimplePayload(theFile, fixedName);
+            }
         }
 
         // Parse sessions out of the file
         else {
             try {
                 logger.debug("Starting processSessions on {}", theFile);
-                processSessions(theFile, fixedName);
+                processSessions(theFile, fixedName, staged);
                 logger.debug("Finished with processSessions on {}", theFile);
             } catch (ParserException ex) {
                 logger.error("Cannot parse {}", theFile.getName(), ex);
@@ -321,7 +382,17 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
             }
         }
 
-        if (success) {
+        if (staged != null) {
+            if (success) {
+                // The done area link now holds the data
+                deleteFileFromHoldingArea(theFile);
+            } else {
+                // Sessions dispatched before the failure keep any channel they
+                // have already opened, later reads of the view will fail
+                handleFileError(theFile);
+                unlinkFileFromDoneArea(staged);
+            }
+        } else if (success) {
             handleFileSuccess(theFile, outputRoot);
         } else {
             handleFileError(theFile);
@@ -364,6 +435,22 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
         return processDataObject(theContent, fixedName, theFile, true);
     }
 
+    /**
+     * Action to handle a simple mode File without reading it, the payload is a view of the file so the file must not be
+     * moved or removed while the payload is in use
+     * 
+     * @param theFile the file as it was picked up
+     * @param dataFile the done area link to read
+     * @param fixedName name to use for the dataObject
+     * @return true if the file is processed successfully
+     */
+    protected boolean handleSimplePayloadView(File theFile, File dataFile, String fixedName) throws EmissaryException {
+        IBaseDataObject d = DataObjectFactory.getInstance();
+        d.setChannelFactory(FileChannelFactory.create(dataFile.toPath()));
+        d.setFilename(fixedName);
+        return processDataObject(d, fixedName, theFile, true);
+    }
+
     /**
      * Action to move th file to the done area when successfully processed
      * 
@@ -382,14 +469,9 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
      * @return true if the file was renamed
      */
     protected boolean renameFileToDoneArea(File theFile, @Nullable String outputRoot) {
-        String base = theFile.getPath();
         boolean renamed = false;
-        if (holdingArea != null) {
-            base = base.substring(holdingArea.length());
-        }
-
         if (outputRoot != null) {
-            File dest = new File(outputRoot + "/" + base);
+            File dest = getDoneAreaFileFor(theFile, outputRoot);
             dest.getParentFile().mkdirs();
             renamed = theFile.renameTo(dest);
             if (renamed) {
@@ -401,6 +483,59 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
         return renamed;
     }
 
+    /**
+     * Link the file into the done area before it is processed, so that payloads can be views of the done area file while
+     * the picked up file is left in place until processing finishes
+     *
+     * @param theFile the file about to be processed
+     * @param outputRoot the done area
+     * @return the done area file, or null if it could not be linked and the data must be copied
+     */
+    @Nullable
+    protected File linkFileIntoDoneArea(File theFile, String outputRoot) {
+        File dest = getDoneAreaFileFor(theFile, outputRoot);
+        try {
+            Files.createDirectories(dest.getParentFile().toPath());
+            // left over from an earlier attempt at the same file
+            Files.deleteIfExists(dest.toPath());
+            Files.createLink(dest.toPath(), theFile.toPath());
+            logger.debug("{} linked into done area as {}", theFile.getName(), dest);
+            return dest;
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.warn("{} could not be linked into done area as {}, data will be copied", theFile.getName(), dest, e);
+            return null;
+        }
+    }
+
+    /**
+     * Remove a file linked into the done area by {@link #linkFileIntoDoneArea(File, String)} when it failed to process
+     *
+     * @param staged the done area file
+     */
+    protected void unlinkFileFromDoneArea(File staged) {
+        try {
+            Files.deleteIfExists(staged.toPath());
+            logger.debug("{} failed and is unlinked from the done area", staged.getName());
+        } catch (IOException e) {
+            logger.error("{} failed but could not be unlinked from the done area", staged.getName(), e);
+        }
+    }
+
+    /**
+     * Get the file name a processed file is given in the done area
+     * 
+     * @param theFile the file that was processed
+     * @param outputRoot the done area
+     * @return the destination in the done area
+     */
+    protected File getDoneAreaFileFor(File theFile, String outputRoot) {
+        String base = theFile.getPath();
+        if (holdingArea != null) {
+            base = base.substring(holdingArea.length());
+        }
+        return new File(outputRoot + "/" + base);
+    }
+
     /**
      * Get the endpoint file name for when the file is move to inProcess
      * 
@@ -574,19 +709,40 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
      * @throws IOException If there is some I/O problem.
      */
     public int processSessions(File theFile, String fixedName) throws IOException, ParserException {
+        return processSessions(theFile, fixedName, null);
+    }
+
+    /**
+     * Parse out sessions and process data from a file
+     * 
+     * @param theFile file to process, as it was picked up
+     * @param fixedName the good short name of the file
+     * @param dataFile where the file now rests if sessions should be channel views of it rather than copies, the file must
+     *        then not be moved or removed while the sessions are in use, or null to read theFile
+     * @return count of sessions parsed
+     * @throws IOException If there is some I/O problem.
+     */
+    public int processSessions(File theFile, String fixedName, @Nullable File dataFile) throws IOException, ParserException {
         // We are going to prefer a RAF parser if one
         // is available so start by getting the file opened
         logger.debug("PickUpPlace: Starting on {}", theFile.getName());
         int sessionNum = 0;
-        try (RandomAccessFile raf = new RandomAccessFile(theFile, "r")) {
+        File input = dataFile == null ? theFile : dataFile;
+        SeekableByteChannelFactory source = dataFile == null ? null : FileChannelFactory.create(dataFile.toPath());
+        try (RandomAccessFile raf = new RandomAccessFile(input, "r")) {
 
             // Get the right type of session parser
             SessionParser sp = parserFactory.makeSessionParser(raf.getChannel());
+            sp.setSourceChannelFactory(source);
             logger.debug("Using session parser from raf ident {}", sp.getClass().getName());
 
             // ... and a session producer to crank out the data objects...
             SessionProducer dof = new SessionProducer(sp, myKey, null);
 
+            if (sessionDispatchers > 0) {
+                return processSessionsPipelined(theFile, fixedName, sp, dof);
+            }
+
             long fileStart = System.currentTimeMillis();
             long totalSize = 0;
 
@@ -602,9 +758,10 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
                     logger.debug("Pulled session {} from {} shortName={}", sessionName, theFile.getName(), dataObject.shortName());
                     sessionNum++;
                     long sessionEnd = System.currentTimeMillis();
-                    totalSize += dataObject.data().length;
+                    long sessionSize = dataObject.getChannelSize();
+                    totalSize += sessionSize;
                     logger.info("sessionParseMetric:{},{},{},{},{},{}", sessionEnd - sessionStart, sp.getClass().getName(), theFile, sessionName,
-                            sessionNum, dataObject.data().length);
+                            sessionNum, sessionSize);
                     processDataObject(dataObject, sessionName, theFile, false);
                 } catch (ParserEOFException eof) {
                     // expected at end of file
@@ -664,6 +821,138 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
         return sessionNum;
     }
 
+    /**
+     * Parse sessions on the calling thread into a bounded queue while the dispatcher threads turn them into data objects
+     * and wait for agents, so parsing the next session overlaps with finding an agent for the last. Sessions may be
+     * dispatched out of order. The first dispatch failure stops the parsing and is thrown once the dispatchers are done.
+     * 
+     * @param theFile file being processed
+     * @param fixedName the good short name of the file
+     * @param sp parser positioned at the first session
+     * @param dof producer of data objects from the parser's sessions
+     * @return count of sessions parsed
+     */
+    protected int processSessionsPipelined(File theFile, String fixedName, SessionParser sp, SessionProducer dof) throws ParserException {
+        final BlockingQueue<ParsedSession> queue = new ArrayBlockingQueue<>(sessionQueueSize);
+        final AtomicBoolean parsing = new AtomicBoolean(true);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final AtomicLong totalSize = new AtomicLong();
+        final long fileStart = System.currentTimeMillis();
+
+        final List<Future<?>> dispatchers = new ArrayList<>(sessionDispatchers);
+        for (int i = 0; i < sessionDispatchers; i++) {
+            dispatchers.add(getDispatchPool().submit(() -> {
+                while (true) {
+                    ParsedSession p = queue.poll(DISPATCH_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (p == null) {
+                        if (!parsing.get()) {
+                            return null;
+                        }
+                    } else if (failure.get() == null) {
+                        // after a failure keep draining so the parser is never left blocked on a full queue
+                        try {
+                            IBaseDataObject dataObject = dof.createAndLoadDataObject(p.session, p.name);
+                            long sessionSize = dataObject.getChannelSize();
+                            totalSize.addAndGet(sessionSize);
+                            logger.info("sessionParseMetric:{},{},{},{},{},{}", p.parseMillis, sp.getClass().getName(), theFile, p.name, p.number,
+                                    sessionSize);
+                            processDataObject(dataObject, p.name, theFile, false);
+                        } catch (EmissaryException | IOException | RuntimeException ex) {
+                            failure.compareAndSet(null, ex);
+                        }
+                    }
+                }
+            }));
+        }
+
+        int sessionNum = 0;
+        try {
+            while (failure.get() == null) {
+                long sessionStart = System.currentTimeMillis();
+                DecomposedSession session;
+                try {
+                    session = sp.getNextSession();
+                } catch (ParserEOFException eof) {
+                    // expected at end of file
+                    break;
+                }
+                sessionNum++;
+                queue.put(new ParsedSession(session, fixedName + "-" + sessionNum, sessionNum, System.currentTimeMillis() - sessionStart));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, ex);
+        } finally {
+            parsing.set(false);
+            for (Future<?> f : dispatchers) {
+                try {
+                    f.get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    failure.compareAndSet(null, ex);
+                } catch (ExecutionException ex) {
+                    failure.compareAndSet(null, ex);
+                }
+            }
+        }
+
+        if (failure.get() != null) {
+            logger.error("Could not dispatch {}", theFile.getName(), failure.get());
+            throw new ParserException("Could not process " + theFile.getName(), failure.get());
+        }
+        logger.info("fileParseMetric:{},{},{},{},{}", System.currentTimeMillis() - fileStart, sp.getClass().getName(), theFile, sessionNum,
+                totalSize.get());
+        logger.debug("Done processing {} sessions from {}", sessionNum, theFile.getName());
+        return sessionNum;
+    }
+
+    /**
+     * Get the pool that runs the dispatchers, started on first use. Threads are added as files are parsed concurrently so
+     * the dispatchers of one file never wait on those of another.
+     */
+    protected synchronized ExecutorService getDispatchPool() {
+        if (dispatchPool == null) {
+            final String name = "SessionDispatcher-" + getPlaceName();
+            dispatchPool = Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return dispatchPool;
+    }
+
+    /**
+     * Stop the session dispatchers along with the place
+     */
+    @Override
+    public void shutDown() {
+        synchronized (this) {
+            if (dispatchPool != null) {
+                dispatchPool.shutdownNow();
+                dispatchPool = null;
+            }
+        }
+        super.shutDown();
+    }
+
+    /**
+     * A session waiting to be dispatched
+     */
+    private static final class ParsedSession {
+        final DecomposedSession session;
+        final String name;
+        final int number;
+        final long parseMillis;
+
+        ParsedSession(DecomposedSession session, String name, int number, long parseMillis) {
+            this.session = session;
+            this.name = name;
+            this.number = number;
+            this.parseMillis = parseMillis;
+        }
+    }
+
     /**
      * Produce a legal tracking filename from the disk filename
      * 
@@ -689,7 +978,8 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
     }
 
     /**
-     * Retrieve and agent from the pool and assign the payload to it
+     * Retrieve and agent from the pool and assign the payload to it. When an {@link AgentExecutor} is bound the payload is
+     * handed to it instead.
      * 
      * @param payload the payload for the agent
      * @param timeoutMs maximum time in millis to wait for an agent from the pool. Set to -1 to wait forever. The specified
@@ -702,7 +992,8 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
     }
 
     /**
-     * Retrieve and agent from the specified pool and assign the payload to it
+     * Retrieve and agent from the specified pool and assign the payload to it. When an {@link AgentExecutor} is bound the
+     * payload is handed to it instead, waiting for room if it has the maximum number of payloads in flight.
      * 
      * @param payload the payload for the agent
      * @param agentPool the pool of agents
@@ -724,6 +1015,21 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
         MDC.put(MDCConstants.SHORT_NAME, payload.shortName());
         try {
 
+            AgentExecutor executor = null;
+            try {
+                executor = AgentExecutor.lookup();
+            } catch (NamespaceException e) {
+                // no executor, use the pool
+            }
+            if (executor != null) {
+                try {
+                    return executor.go(payload, startingLocation);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new EmissaryException("Interrupted waiting for the agent executor with " + payload.shortName(), e);
+                }
+            }
+
             if (agentPool == null) {
                 agentPool = AgentPool.lookup();
             }
@@ -32,6 +32,11 @@ public abstract class PickUpSpace extends PickUpPlace implements IPickUpSpace {
     // Number of consecutive take errors that cause space to close
     protected static final int TAKE_ERROR_MAX = 10;
 
+    // How many bundles to ask each space for per take, set from
+    // TAKE_BATCH_SIZE while the superclass constructs so there is
+    // no initializer here to overwrite it
+    protected int takeBatchSize;
+
     /**
      * Create using default configuration
      */
@@ -75,6 +80,18 @@ public abstract class PickUpSpace extends PickUpPlace implements IPickUpSpace {
         super(configStream, theDir, thePlaceLocation);
     }
 
+    /**
+     * Configure the batch size along with the rest of the place
+     * <ul>
+     * <li>TAKE_BATCH_SIZE: how many bundles to take from each space at once, default 1</li>
+     * </ul>
+     */
+    @Override
+    protected void configurePickUpPlace() {
+        super.configurePickUpPlace();
+        takeBatchSize = Math.max(1, configG.findIntEntry("TAKE_BATCH_SIZE", 1));
+    }
+
     /**
      * Open a TreeSpace when told and start asking it for data
      * 
@@ -149,32 +166,36 @@ public abstract class PickUpSpace extends PickUpPlace implements IPickUpSpace {
         // Keep track of space we may have to close
         List<String> closers = new ArrayList<>();
 
-        // We will take up to one bundle per workspace
+        // We will take up to one batch of bundles per workspace
         int countTaken = 0;
         for (String openSpaceName : openSpaceNames) {
-            WorkBundle path = null;
+            List<WorkBundle> paths = null;
             try {
-                path = tpa.outboundWorkSpaceTake(openSpaceName, myKey);
+                paths = tpa.outboundWorkSpaceTake(openSpaceName, myKey, Math.max(1, takeBatchSize));
             } catch (RuntimeException ex) {
                 logger.error("Failed to take work from " + openSpaceName, ex);
             }
 
-            if (path == null) {
+            if (paths == null || paths.isEmpty()) {
                 // Error, record it, but might be transient
                 logger.error("Got a null WorkBundle from " + openSpaceName);
                 numConsecutiveTakeErrors.put(openSpaceName, numConsecutiveTakeErrors.get(openSpaceName) + 1);
-            } else if (path.size() == 0) {
-                // Close out message
-                closers.add(openSpaceName);
-            } else {
-                logger.debug("Received bundle of " + path.size() + " from " + openSpaceName);
-                lastBundleSize.put(openSpaceName, path.size());
-                numConsecutiveTakeErrors.put(openSpaceName, 0);
-                pendingBundles.put(path.getBundleId(), openSpaceName);
-                if (!enque(path)) {
-                    logger.error("Unable to enqueue bundle " + path.getBundleId() + " from " + openSpaceName + ", losing it.");
+                continue;
+            }
+            for (WorkBundle path : paths) {
+                if (path.size() == 0) {
+                    // Close out message
+                    closers.add(openSpaceName);
+                } else {
+                    logger.debug("Received bundle of " + path.size() + " from " + openSpaceName);
+                    lastBundleSize.put(openSpaceName, path.size());
+                    numConsecutiveTakeErrors.put(openSpaceName, 0);
+                    pendingBundles.put(path.getBundleId(), openSpaceName);
+                    if (!enque(path)) {
+                        logger.error("Unable to enqueue bundle " + path.getBundleId() + " from " + openSpaceName + ", losing it.");
+                    }
+                    countTaken++;
                 }
-                countTaken++;
             }
         }
         cleanupFailedSpaces(closers);
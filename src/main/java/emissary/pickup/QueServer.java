@@ -1,6 +1,7 @@
 package emissary.pickup;
 
 import emissary.core.Pausable;
+import emissary.pool.AgentPoolController;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -73,6 +74,9 @@ public abstract class QueServer extends Pausable {
     @Override
     public void run() {
         logger.debug("Starting the QueServer run method");
+        // let adaptive pool sizing see work waiting on this queue
+        final String backlogName = getName() + "-" + getId();
+        AgentPoolController.registerBacklog(backlogName, queue::getQueSize);
         while (!timeToShutdown) {
             // Process something on the queue
             try {
@@ -111,6 +115,7 @@ public abstract class QueServer extends Pausable {
                 }
             }
         }
+        AgentPoolController.unregisterBacklog(backlogName);
         logger.debug("Off the end of the QueServer.run method");
     }
 
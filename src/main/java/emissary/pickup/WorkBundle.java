@@ -7,6 +7,8 @@ import org.jdom2.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -596,6 +598,45 @@ public final class WorkBundle implements Comparable<WorkBundle> {
         return SaferJDOMUtil.toString(jdom);
     }
 
+    /**
+     * Serialize a batch of bundles with {@link #writeToStream(DataOutputStream)}, preceded by their count
+     *
+     * @param bundles the bundles to write
+     * @return the serialized bundles
+     * @throws IOException if a bundle cannot be written
+     */
+    public static byte[] toBytes(List<WorkBundle> bundles) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(bundles.size());
+            for (WorkBundle wb : bundles) {
+                wb.writeToStream(out);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Build a batch of WorkBundle objects written by {@link #toBytes(List)}
+     *
+     * @param bytes the serialized bundles
+     * @return the bundles in the order they were written
+     * @throws IOException if the bytes do not hold a batch of bundles
+     */
+    public static List<WorkBundle> buildWorkBundles(byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int count = in.readInt();
+            if (count < 0 || count > bytes.length) {
+                throw new IOException("Not a batch of WorkBundles, count is " + count);
+            }
+            List<WorkBundle> bundles = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                bundles.add(readFromStream(in));
+            }
+            return bundles;
+        }
+    }
+
     /**
      * Build a WorkBundle object from xml
      * 
@@ -34,14 +34,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
 /**
@@ -115,6 +118,9 @@ public class WorkSpace implements Runnable {
 
     protected long maxBundleSize = Long.getLong(CLZ + ".maxSizePerBundle", -1);
 
+    /** The most bundles handed out in one take, however many a client asks for */
+    protected int maxBundlesPerTake = Integer.getInteger(CLZ + ".maxBundlesPerTake", 16);
+
     // Metrics collection
     protected long filesProcessed = 0;
     protected long bundlesProcessed = 0;
@@ -124,21 +130,25 @@ public class WorkSpace implements Runnable {
     protected String dataCaseId = System.getProperty("caseId", null);
     protected boolean caseClosed = false;
 
-    // List of WorkBundle objects we are going to distribute
-    protected PriorityQueue<WorkBundle> outbound = new PriorityQueue<>();
+    // List of WorkBundle objects we are going to distribute, read and written without a lock so it must be thread safe
+    protected Queue<WorkBundle> outbound = new PriorityBlockingQueue<>();
 
     // List of WorkBundle objects that are pending completion notice
     // Keyed by bundleId to quickly remove items that are processed
     // normally (the expected case)
-    protected Map<String, WorkBundle> pending = new HashMap<>();
+    protected Map<String, WorkBundle> pending = new ConcurrentHashMap<>();
 
     // Keep track of files we have seen that are either outbound or pending
     // so that we can avoid using file timestamps in the collector loop
-    protected Map<String, Long> filesSeen = new HashMap<>();
-    protected Map<String, Long> filesDone = new HashMap<>();
+    protected Map<String, Long> filesSeen = new ConcurrentHashMap<>();
+    protected Map<String, Long> filesDone = new ConcurrentHashMap<>();
+
+    // Bundles taken from outbound but not yet on pending, still counted as outbound
+    private final AtomicInteger taking = new AtomicInteger();
 
-    // Used to synchronize access to the pending and outbound queues
-    // One lock to rule them all
+    // The queues and file maps are concurrent so the collector and
+    // the clients never wait on each other, this only guards the
+    // bundle counts they share
     @SuppressWarnings("ConstantField")
     protected final Object QLOCK = new Object(); // NOSONAR
 
@@ -192,7 +202,7 @@ public class WorkSpace implements Runnable {
         this.myDirectories.addAll(this.feedCommand.getPriorityDirectories());
 
         if (null != this.feedCommand.getSort()) {
-            this.outbound = new PriorityQueue<>(11, this.feedCommand.getSort());
+            this.outbound = new PriorityBlockingQueue<>(11, this.feedCommand.getSort());
         }
 
         configure();
@@ -682,6 +692,9 @@ public class WorkSpace implements Runnable {
      *
      * @param remoteKey the directory observer string key that was removed
      */
+    // pending is a ConcurrentHashMap, its iterators are weakly consistent and remove(key, value) skips a bundle replaced
+    // meanwhile
+    @SuppressWarnings("ModifyCollectionInEnhancedForLoop")
     protected void removePickUp(final String remoteKey) {
         this.pups.remove(remoteKey);
         if (logger.isDebugEnabled()) {
@@ -689,26 +702,26 @@ public class WorkSpace implements Runnable {
         }
         int pendCount = 0;
         final String remoteName = KeyManipulator.getServiceHost(remoteKey);
-        synchronized (this.QLOCK) {
-            // NB: no enhanced for loop with Iterator.remove()
-            for (Iterator<String> i = this.pending.keySet().iterator(); i.hasNext();) {
-                final String id = i.next();
-                final WorkBundle wb = this.pending.get(id);
-                if (remoteName.equals(wb.getSentTo())) {
-                    i.remove(); // remove from pending
-                    wb.setSentTo(null); // clear in progress indicator
+        for (final Map.Entry<String, WorkBundle> entry : this.pending.entrySet()) {
+            final WorkBundle wb = entry.getValue();
+            // a bundle completed meanwhile is no longer ours to move
+            if (remoteName.equals(wb.getSentTo()) && this.pending.remove(entry.getKey(), wb)) {
+                wb.setSentTo(null); // clear in progress indicator
+                synchronized (this.QLOCK) {
                     this.retryCount++;
-                    if (wb.incrementErrorCount() <= MAX_BUNDLE_RETRIES) {
-                        logger.debug("Removing pending bundle {} from pending pool, re-adding to outbound with errorCount={}", wb.getBundleId(),
-                                wb.getErrorCount());
-                        addOutboundBundle(wb); // send to outbound again
-                        pendCount++;
-
-                        // Set overall counts back to normal
+                }
+                if (wb.incrementErrorCount() <= MAX_BUNDLE_RETRIES) {
+                    logger.debug("Removing pending bundle {} from pending pool, re-adding to outbound with errorCount={}", wb.getBundleId(),
+                            wb.getErrorCount());
+                    addOutboundBundle(wb); // send to outbound again
+                    pendCount++;
+
+                    // Set overall counts back to normal
+                    synchronized (this.QLOCK) {
                         this.bundlesProcessed--;
-                    } else {
-                        logger.error("Bundle {} associated with too many failures, permanently discarding", wb);
                     }
+                } else {
+                    logger.error("Bundle {} associated with too many failures, permanently discarding", wb);
                 }
             }
         }
@@ -725,33 +738,58 @@ public class WorkSpace implements Runnable {
      * @return WorkBundle at the head of the list or null if empty
      */
     public WorkBundle take(final String remoteKey) {
+        return take(remoteKey, 1).get(0);
+    }
+
+    /**
+     * Take several bundles at once for a remote PickUp client
+     *
+     * @param remoteKey key of the requesting PickUp place
+     * @param max the most bundles to hand out, limited to {@link #maxBundlesPerTake}
+     * @return up to max bundles from the head of the list, or a single empty bundle if there are none
+     */
+    public List<WorkBundle> take(final String remoteKey, final int max) {
         final String remoteName = KeyManipulator.getServiceHost(remoteKey);
-        WorkBundle item;
-        synchronized (this.QLOCK) {
-            if (getOutboundQueueSize() == 0) {
-                // Empty WorkBundle will let them know to stop asking us
-                logger.info("Sent shutdown msg to {}", remoteName);
-                this.stats.shutDownSent(remoteName);
-                item = new WorkBundle();
-            } else {
+        final List<WorkBundle> items = new ArrayList<>();
+        final int limit = Math.max(1, Math.min(max, this.maxBundlesPerTake));
+        WorkBundle item = null;
+        while (items.size() < limit) {
+            this.taking.incrementAndGet();
+            try {
+                item = this.outbound.poll();
+                if (item == null) {
+                    break;
+                }
                 // transfer from outbound to pending list and
                 // record who the work was given to track
                 // completion status
                 this.stats.bump(remoteName);
-                item = this.outbound.poll();
                 item.setSentTo(remoteName);
                 this.pending.put(item.getBundleId(), item);
-                logger.info("Gave bundle {} to {}", item, remoteName);
-                final WorkBundle nextItem = this.outbound.peek();
-                if (nextItem != null && logger.isInfoEnabled()) {
-                    logger.info("After take: new top differs to prior by [oldest/youngest/size]=[{}/{}/{}]",
-                            nextItem.getOldestFileModificationTime() - item.getOldestFileModificationTime(),
-                            nextItem.getYoungestFileModificationTime() - item.getYoungestFileModificationTime(),
-                            nextItem.getTotalFileSize() - item.getTotalFileSize());
-                }
+            } finally {
+                this.taking.decrementAndGet();
             }
+            logger.info("Gave bundle {} to {}", item, remoteName);
+            items.add(item);
+        }
+
+        if (items.isEmpty()) {
+            // Empty WorkBundle will let them know to stop asking us
+            logger.info("Sent shutdown msg to {}", remoteName);
+            this.stats.shutDownSent(remoteName);
+            items.add(new WorkBundle());
+            return items;
         }
-        return item;
+
+        item = items.get(items.size() - 1);
+        final WorkBundle nextItem = this.outbound.peek();
+        if (nextItem != null && logger.isInfoEnabled()) {
+            logger.info("After take: new top differs to prior by [oldest/youngest/size]=[{}/{}/{}]",
+                    nextItem.getOldestFileModificationTime() - item.getOldestFileModificationTime(),
+                    nextItem.getYoungestFileModificationTime() - item.getYoungestFileModificationTime(),
+                    nextItem.getTotalFileSize() - item.getTotalFileSize());
+        }
+        return items;
     }
 
     /**
@@ -760,16 +798,15 @@ public class WorkSpace implements Runnable {
      * @param wb the new bundle
      */
     protected void addOutboundBundle(final WorkBundle wb) {
-        int sz;
         synchronized (this.QLOCK) {
             this.bundlesProcessed++;
-            sz = this.outbound.size();
-            this.outbound.add(wb);
-            addFilesSeen(wb.getFileNameList());
         }
+        // seen before it can be taken, so a completion never finds its files missing
+        addFilesSeen(wb.getFileNameList());
+        this.outbound.add(wb);
 
         if (logger.isInfoEnabled()) {
-            logger.info("Adding workbundle {} size {} filesSeen {}", wb, (sz + 1), this.filesSeen.size());
+            logger.info("Adding workbundle {} size {} filesSeen {}", wb, this.outbound.size(), this.filesSeen.size());
         }
     }
 
@@ -789,10 +826,8 @@ public class WorkSpace implements Runnable {
      */
     public List<String> showPendingItemsList() {
         final List<String> list = new ArrayList<>();
-        synchronized (this.QLOCK) {
-            for (final Map.Entry<String, WorkBundle> entry : this.pending.entrySet()) {
-                list.add(entry.getValue().toString());
-            }
+        for (final WorkBundle wb : this.pending.values()) {
+            list.add(wb.toString());
         }
         return list;
     }
@@ -802,19 +837,19 @@ public class WorkSpace implements Runnable {
      *
      * @return number of items removed
      */
+    // pending is a ConcurrentHashMap so removing while iterating is safe
+    @SuppressWarnings("ModifyCollectionInEnhancedForLoop")
     public int clearPendingQueue() {
-        final int size = getPendingQueueSize();
-
-        if (size > 0) {
-            synchronized (this.QLOCK) {
-                logger.debug("Clearing pending queue of {} items", size);
-                for (final Map.Entry<String, WorkBundle> entry : this.pending.entrySet()) {
-                    removeFilesSeen(entry.getValue().getFileNameList());
-                }
-                this.pending.clear();
-                logger.debug("Cleared filesSeen leaving {} items", this.filesSeen.size());
+        int size = 0;
+        for (final Map.Entry<String, WorkBundle> entry : this.pending.entrySet()) {
+            if (this.pending.remove(entry.getKey(), entry.getValue())) {
+                removeFilesSeen(entry.getValue().getFileNameList());
+                size++;
             }
         }
+        if (size > 0) {
+            logger.debug("Cleared {} pending items leaving {} filesSeen", size, this.filesSeen.size());
+        }
         return size;
     }
 
@@ -828,15 +863,12 @@ public class WorkSpace implements Runnable {
      * @return true if the item was removed from the pending list
      */
     public boolean workCompleted(final String remoteName, final String bundleId, final boolean itWorked) {
-        WorkBundle item;
-
-        synchronized (this.QLOCK) {
-            item = this.pending.remove(bundleId);
-            if (item != null) {
-                addFilesDone(item.getFileNameList());
-                removeFilesSeen(item.getFileNameList());
-                logger.debug("Removed {} from filesSeen leaving {}", item.size(), this.filesSeen.size());
-            }
+        final WorkBundle item = this.pending.remove(bundleId);
+        if (item != null) {
+            // done before no longer seen, so the collector never finds a file in neither
+            addFilesDone(item.getFileNameList());
+            removeFilesSeen(item.getFileNameList());
+            logger.debug("Removed {} from filesSeen leaving {}", item.size(), this.filesSeen.size());
         }
         if (item == null) {
             logger.info("Unknown bundle completed: {}", bundleId);
@@ -1045,9 +1077,7 @@ public class WorkSpace implements Runnable {
      * Return size of outbound queue
      */
     public int getOutboundQueueSize() {
-        synchronized (this.QLOCK) {
-            return this.outbound.size();
-        }
+        return this.outbound.size() + this.taking.get();
     }
 
     public int getRetriedCount() {
@@ -1058,9 +1088,7 @@ public class WorkSpace implements Runnable {
      * Return size of pending completion queue
      */
     public int getPendingQueueSize() {
-        synchronized (this.QLOCK) {
-            return this.pending.size();
-        }
+        return this.pending.size();
     }
 
     /**
@@ -1256,15 +1284,14 @@ public class WorkSpace implements Runnable {
                         continue;
                     }
 
-                    synchronized (WorkSpace.this.QLOCK) {
-                        if (WorkSpace.this.filesDone.containsKey(fileName)) {
-                            WorkSpace.this.filesDone.remove(fileName);
-                            continue;
-                        } else if (WorkSpace.this.filesSeen.containsKey(fileName)
-                                && WorkSpace.this.filesSeen.get(fileName) == next.lastModified()) {
-                            logger.debug("Skipping file already seen {}, touch file to force add", fileName);
-                            continue;
-                        }
+                    // seen before done, the reverse of workCompleted, so a completion in between is caught by one or the other
+                    final Long seen = WorkSpace.this.filesSeen.get(fileName);
+                    if (seen != null && seen == next.lastModified()) {
+                        logger.debug("Skipping file already seen {}, touch file to force add", fileName);
+                        continue;
+                    }
+                    if (WorkSpace.this.filesDone.remove(fileName) != null) {
+                        continue;
                     }
 
                     logger.debug("Adding filename to bundle {}", fileName);
@@ -1307,9 +1334,7 @@ public class WorkSpace implements Runnable {
                     }
                 }
                 // clear the files done list
-                synchronized (WorkSpace.this.QLOCK) {
-                    WorkSpace.this.filesDone.clear();
-                }
+                WorkSpace.this.filesDone.clear();
             } catch (Exception e) {
                 logger.error("System error", e);
                 return collected;
@@ -1377,8 +1402,8 @@ public class WorkSpace implements Runnable {
      * Collect per pickup statistics for this run
      */
     public static class WorkSpaceStats {
-        final Map<String, Integer> remoteMap = new HashMap<>();
-        final Set<String> shutDownSent = new HashSet<>();
+        final Map<String, Integer> remoteMap = new ConcurrentHashMap<>();
+        final Set<String> shutDownSent = ConcurrentHashMap.newKeySet();
 
         /**
          * Increment the bundle count for the machine when it takes one
@@ -1386,13 +1411,7 @@ public class WorkSpace implements Runnable {
          * @param machine the remote pickup
          */
         public void bump(final String machine) {
-            Integer count = this.remoteMap.get(machine);
-            if (count == null) {
-                count = 1;
-            } else {
-                count = count + 1;
-            }
-            this.remoteMap.put(machine, count);
+            this.remoteMap.merge(machine, 1, Integer::sum);
         }
 
         /**
@@ -5,9 +5,12 @@ import emissary.core.Family;
 import emissary.core.Form;
 import emissary.core.IBaseDataObject;
 import emissary.core.ResourceException;
+import emissary.core.channels.FileChannelFactory;
+import emissary.core.channels.SeekableByteChannelFactory;
 import emissary.directory.KeyManipulator;
 import emissary.kff.KffDataObjectHandler;
 import emissary.util.shell.Executrix;
+import emissary.util.shell.ResidentProcessPool;
 
 import java.io.File;
 import java.io.IOException;
@@ -53,6 +56,11 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
     @Nullable
     protected String contentFile = null;
     protected Executrix executrix;
+    /** Helpers kept running between payloads when RESIDENT_WORKERS is set, else null */
+    @Nullable
+    protected ResidentProcessPool residentPool;
+    /** Stage file backed payloads for the command straight from their file, see STAGE_FROM_FILE */
+    protected boolean stageFromFile = false;
     protected String logfilename;
     protected String charset = StandardCharsets.UTF_8.name();
     protected boolean singleOutputAsChild = false;
@@ -114,6 +122,13 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
      * <li>OUTPUT_CHARSET: charset of the process output, default UTF-8</li>
      * <li>SINGLE_OUTPUT_AS_CHILD: If only one output file keep it as a child and do not replace the parent.</li>
      * <li>PRESERVE_PARENT_DATA: Stops the parent from getting replaced by output data</li>
+     * <li>RESIDENT_COMMAND: command for a helper that stays running and is sent the path of each input file, see
+     * {@link ResidentProcessPool}. It writes its output files next to the input and answers with the parent data</li>
+     * <li>RESIDENT_WORKERS: number of resident helpers to keep, default 0 which runs the exec command once per payload</li>
+     * <li>RESIDENT_TIMEOUT_MILLIS: time a resident helper may take on one payload before it is restarted, default
+     * PROCESS_MAX_MILLIS</li>
+     * <li>STAGE_FROM_FILE: stage file backed payloads for the command from their file instead of their data, default
+     * false</li>
      * </ul>
      */
     @Override
@@ -146,6 +161,7 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
         logfilename = configG.findStringEntry("LOG_FILE_NAME", KeyManipulator.getServiceName(keys.get(0)) + ".log");
         singleOutputAsChild = configG.findBooleanEntry("SINGLE_OUTPUT_AS_CHILD", singleOutputAsChild);
         preserveParentData = configG.findBooleanEntry("PRESERVE_PARENT_DATA", preserveParentData);
+        stageFromFile = configG.findBooleanEntry("STAGE_FROM_FILE", stageFromFile);
 
         for (String name : configG.findEntries("CUSTOM_FILE_TYPES")) {
             String tmp = configG.findStringEntry(name + "_EXT", null);
@@ -155,6 +171,25 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
             }
             fileTypesByExtension.put(tmp, name);
         }
+
+        String residentCommand = configG.findStringEntry("RESIDENT_COMMAND", null);
+        int residentWorkers = configG.findIntEntry("RESIDENT_WORKERS", 0);
+        if (residentCommand != null && residentWorkers > 0) {
+            long residentTimeout = configG.findLongEntry("RESIDENT_TIMEOUT_MILLIS", executrix.getProcessMaxMillis());
+            residentPool = new ResidentProcessPool(new String[] {"/bin/sh", "-c", "exec " + residentCommand}, residentWorkers, residentTimeout);
+            logger.debug("Configured {} resident helpers running {}", residentWorkers, residentCommand);
+        }
+    }
+
+    /**
+     * Close any resident helpers along with the place
+     */
+    @Override
+    public void shutDown() {
+        super.shutDown();
+        if (residentPool != null) {
+            residentPool.close();
+        }
     }
 
 
@@ -592,6 +627,14 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
      * @return attachments
      */
     protected List<IBaseDataObject> processData(IBaseDataObject tData) throws ResourceException {
+        SeekableByteChannelFactory channel = findPreferredChannel(tData);
+        if (channel != null) {
+            try {
+                return processData(tData, 0L, tData.getChannelSize());
+            } catch (IOException e) {
+                logger.warn("Cannot size channel of {}", tData.shortName(), e);
+            }
+        }
         return processData(tData, 0, tData.dataLength());
     }
 
@@ -606,6 +649,19 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
      * @return attachments
      */
     protected List<IBaseDataObject> processData(@Nullable IBaseDataObject tData, int start, int len) throws ResourceException {
+        return processData(tData, (long) start, (long) len);
+    }
+
+    /**
+     * Process an incoming payload returning attachments, using only some of the data. Data backed by a file is staged for
+     * the command without being read into memory, so the offsets may pass the size of an array.
+     *
+     * @param tData the payload to process
+     * @param start offset in data to start
+     * @param len length of data to use
+     * @return attachments
+     */
+    protected List<IBaseDataObject> processData(@Nullable IBaseDataObject tData, long start, long len) throws ResourceException {
         List<IBaseDataObject> sprouts = new ArrayList<>();
 
         // Validate parameters
@@ -614,8 +670,9 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
             return sprouts;
         }
 
-        // Validate data
-        if (tData.data() == null) {
+        // Validate data, without reading it in when it can be staged from a file
+        SeekableByteChannelFactory channel = findPreferredChannel(tData);
+        if (channel == null && tData.data() == null) {
             logger.debug("Received null data: {}", tData);
             tData.addProcessingError("NULL data in " + placeName + ".process");
             tData.pushCurrentForm(newErrorForm);
@@ -623,7 +680,7 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
         }
 
         // Validate start and len
-        if (start < 0 || len <= 0 || (start + len) > tData.dataLength()) {
+        if (start < 0 || len <= 0 || (start + len) > dataSize(tData, channel)) {
             logger.debug("Invalid start/len for data {}/{}", start, len);
             tData.addProcessingError("Invalid data " + start + "/" + len);
             tData.pushCurrentForm(newErrorForm);
@@ -635,7 +692,8 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
         File f = null;
         int result = -1;
         try {
-            names = executrix.writeDataToNewTempDir(tData.data(), start, len);
+            names = channel != null ? executrix.writeDataToNewTempDir(channel, start, len)
+                    : executrix.writeDataToNewTempDir(tData.data(), (int) start, (int) len);
             f = new File(names[Executrix.INPATH]);
             logger.debug("Wrote file out to {}", f.getPath());
 
@@ -645,7 +703,9 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
 
             logger.debug("Generated command {}", Arrays.asList(cmd));
 
-            if (executrix.getOutput().equals("FILE")) {
+            if (residentPool != null) {
+                result = residentCommand(f.getPath(), parentData);
+            } else if (executrix.getOutput().equals("FILE")) {
                 result = processCommand(cmd);
             } else if (executrix.getOutput().equals("STD")) {
                 StringBuilder errbuf = new StringBuilder();
@@ -686,6 +746,65 @@ public class MultiFileUnixCommandPlace extends MultiFileServerPlace implements I
         return sprouts;
     }
 
+    /**
+     * Get the data to process when it can be staged for the command straight from a file, without being read into memory.
+     * Only used when STAGE_FROM_FILE is configured, since the int ranged {@link #processData(IBaseDataObject, int, int)} is
+     * then skipped.
+     *
+     * @param tData the payload
+     * @return the file backed channel of the payload, or null to use its data
+     */
+    @Nullable
+    protected SeekableByteChannelFactory findPreferredChannel(IBaseDataObject tData) {
+        if (!stageFromFile) {
+            return null;
+        }
+        SeekableByteChannelFactory sbcf = tData.getChannelFactory();
+        return FileChannelFactory.getPath(sbcf) != null ? sbcf : null;
+    }
+
+    private static long dataSize(IBaseDataObject tData, @Nullable SeekableByteChannelFactory channel) {
+        if (channel != null) {
+            try {
+                return tData.getChannelSize();
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+        return tData.dataLength();
+    }
+
+    /**
+     * Send the path of the input file to a resident helper
+     *
+     * @param inputPath the input file, output files are picked up from its directory
+     * @param stdout builder to append the answer of the helper, when output is STD
+     * @return 0 on success or -1 if the helper failed
+     */
+    protected int residentCommand(String inputPath, StringBuilder stdout) throws ResourceException {
+        byte[] answer;
+        try {
+            answer = residentPool.exchange(inputPath.getBytes(StandardCharsets.UTF_8));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ResourceException(ex); // framework notification to stop
+        } catch (IOException ex) {
+            logger.warn("Bad exchange with resident helper", ex);
+            return -1;
+        }
+        if (answer == null) {
+            return -1;
+        }
+        if (executrix.getOutput().equals("STD")) {
+            try {
+                stdout.append(new String(answer, charset));
+            } catch (UnsupportedEncodingException e) {
+                stdout.append(new String(answer, StandardCharsets.UTF_8));
+            }
+        }
+        return 0;
+    }
+
     /**
      * Execute the command and args in the array
      * 
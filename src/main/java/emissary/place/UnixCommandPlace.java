@@ -3,13 +3,17 @@ package emissary.place;
 import emissary.core.Form;
 import emissary.core.IBaseDataObject;
 import emissary.core.ResourceException;
+import emissary.core.channels.FileChannelFactory;
+import emissary.core.channels.SeekableByteChannelFactory;
 import emissary.directory.KeyManipulator;
 import emissary.util.shell.Executrix;
+import emissary.util.shell.ResidentProcessPool;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.channels.SeekableByteChannel;
 import java.util.Arrays;
 import javax.annotation.Nullable;
 
@@ -36,6 +40,13 @@ public class UnixCommandPlace extends ServiceProviderPlace {
 
     protected Executrix executrix;
 
+    /** Helpers kept running between payloads when RESIDENT_WORKERS is set, else null */
+    @Nullable
+    protected ResidentProcessPool residentPool;
+
+    /** Stage file backed payloads for the command straight from their file, see STAGE_FROM_FILE */
+    protected boolean stageFromFile = false;
+
     /**
      * Create the place from the specified config file or resource
      * 
@@ -93,6 +104,13 @@ public class UnixCommandPlace extends ServiceProviderPlace {
      * <li>OUTPUT_CHARSET: charset of the process output, default 8859_1</li>
      * <li>KEEP_FILES_DEBUG: when true don't clean up after exec is finished, default false</li>
      * <li>LOG_FILE_NAME: name of output file to translate into logger commands, default: [servicename].log from key</li>
+     * <li>RESIDENT_COMMAND: command for a helper that stays running and answers framed requests on stdin, see
+     * {@link ResidentProcessPool}</li>
+     * <li>RESIDENT_WORKERS: number of resident helpers to keep, default 0 which runs the exec command once per payload</li>
+     * <li>RESIDENT_TIMEOUT_MILLIS: time a resident helper may take on one payload before it is restarted, default
+     * PROCESS_MAX_MILLIS</li>
+     * <li>STAGE_FROM_FILE: stage file backed payloads for the command from their file instead of the bytes from
+     * findPreferredData, default false</li>
      * </ul>
      * Also all of the config values read by emissary.util.shell.Executrix are needed here
      */
@@ -117,7 +135,27 @@ public class UnixCommandPlace extends ServiceProviderPlace {
         charset = configG.findStringEntry("OUTPUT_CHARSET", charset);
         executrix = new Executrix(configG);
         logfilename = configG.findStringEntry("LOG_FILE_NAME", KeyManipulator.getServiceName(keys.get(0)) + ".log");
+        stageFromFile = configG.findBooleanEntry("STAGE_FROM_FILE", stageFromFile);
         logger.debug("Configured {} type process with charset {}", executrix.getOutput(), charset);
+
+        String residentCommand = configG.findStringEntry("RESIDENT_COMMAND", null);
+        int residentWorkers = configG.findIntEntry("RESIDENT_WORKERS", 0);
+        if (residentCommand != null && residentWorkers > 0) {
+            long residentTimeout = configG.findLongEntry("RESIDENT_TIMEOUT_MILLIS", executrix.getProcessMaxMillis());
+            residentPool = new ResidentProcessPool(new String[] {"/bin/sh", "-c", "exec " + residentCommand}, residentWorkers, residentTimeout);
+            logger.debug("Configured {} resident helpers running {}", residentWorkers, residentCommand);
+        }
+    }
+
+    /**
+     * Close any resident helpers along with the place
+     */
+    @Override
+    public void shutDown() {
+        super.shutDown();
+        if (residentPool != null) {
+            residentPool.close();
+        }
     }
 
     /**
@@ -276,8 +314,27 @@ public class UnixCommandPlace extends ServiceProviderPlace {
      * @param data the bytes to run the command on
      * @return byte array of output
      */
-    @SuppressWarnings("CatchingUnchecked")
     protected byte[] runCommandOn(byte[] data) throws ResourceException {
+        if (residentPool != null) {
+            return residentProcess(data, perlChop);
+        }
+        return runCommandOnStaged(data, null);
+    }
+
+    /**
+     * Helper routine to run command on data that is staged from a channel without reading it into memory
+     *
+     * @param channel the data to run the command on
+     * @return byte array of output
+     * @see Executrix#stageChannel(SeekableByteChannelFactory, long, long, String)
+     */
+    @Nullable
+    protected byte[] runCommandOn(SeekableByteChannelFactory channel) throws ResourceException {
+        return runCommandOnStaged(null, channel);
+    }
+
+    @SuppressWarnings("CatchingUnchecked")
+    private byte[] runCommandOnStaged(@Nullable byte[] data, @Nullable SeekableByteChannelFactory channel) throws ResourceException {
         String[] names = executrix.makeTempFilenames();
         String tempDirName = names[Executrix.DIR];
         String inputFileName = names[Executrix.INPATH];
@@ -291,7 +348,14 @@ public class UnixCommandPlace extends ServiceProviderPlace {
                 return outputData;
             }
 
-            boolean written = Executrix.writeDataToFile(data, inputFileName, true);
+            boolean written;
+            if (channel != null) {
+                try (SeekableByteChannel sbc = channel.create()) {
+                    written = executrix.stageChannel(channel, 0, sbc.size(), inputFileName);
+                }
+            } else {
+                written = Executrix.writeDataToFile(data, inputFileName, true);
+            }
 
             if (written) {
                 String[] cmd = executrix.getCommand(names);
@@ -323,6 +387,37 @@ public class UnixCommandPlace extends ServiceProviderPlace {
 
     }
 
+    /**
+     * Hand the data to a resident helper instead of writing it to disk and starting the command
+     *
+     * @param data the bytes to run the command on
+     * @param chop if true chomp CRLF from output
+     * @return bytes of output from the helper or null if it failed
+     */
+    @Nullable
+    protected byte[] residentProcess(byte[] data, boolean chop) throws ResourceException {
+        byte[] outputData;
+        try {
+            outputData = residentPool.exchange(data);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ResourceException(ex); // framework notification to stop
+        } catch (IOException ex) {
+            logger.warn("Bad exchange with resident helper", ex);
+            return null;
+        }
+        if (outputData != null && chop) {
+            int len = outputData.length;
+            while (len > 0 && (outputData[len - 1] == '\n' || outputData[len - 1] == '\r')) {
+                len--;
+            }
+            if (len < outputData.length) {
+                outputData = Arrays.copyOf(outputData, len);
+            }
+        }
+        return outputData;
+    }
+
     /**
      * Hook to add command ouput as an alternate view
      * 
@@ -399,7 +494,8 @@ public class UnixCommandPlace extends ServiceProviderPlace {
      */
     protected void processData(IBaseDataObject tData) throws ResourceException {
 
-        byte[] outputData = runCommandOn(findPreferredData(tData));
+        SeekableByteChannelFactory channel = residentPool == null ? findPreferredChannel(tData) : null;
+        byte[] outputData = channel != null ? runCommandOn(channel) : runCommandOn(findPreferredData(tData));
         String serviceType = KeyManipulator.getServiceType(keys.get(0));
 
         if (serviceType.equals("ID") || serviceType.equals("ANALYZE")) {
@@ -446,4 +542,21 @@ public class UnixCommandPlace extends ServiceProviderPlace {
         return tData.data();
     }
 
+    /**
+     * Get data to process when it can be staged for the command straight from a file, without being read into memory. Only
+     * used when STAGE_FROM_FILE is configured, since the file is the whole payload and anything a subclass does in
+     * {@link #findPreferredData(IBaseDataObject)} or {@link #runCommandOn(byte[])} is skipped.
+     *
+     * @param tData the data object
+     * @return the file backed channel of the data object, or null to use {@link #findPreferredData(IBaseDataObject)}
+     */
+    @Nullable
+    protected SeekableByteChannelFactory findPreferredChannel(IBaseDataObject tData) {
+        if (!stageFromFile) {
+            return null;
+        }
+        SeekableByteChannelFactory sbcf = tData.getChannelFactory();
+        return FileChannelFactory.getPath(sbcf) != null ? sbcf : null;
+    }
+
 }
@@ -0,0 +1,310 @@
+package emissary.pool;
+
+import emissary.config.ConfigUtil;
+import emissary.config.Configurator;
+import emissary.core.Factory;
+import emissary.core.MobileAgent;
+import emissary.core.Namespace;
+import emissary.core.NamespaceException;
+import emissary.directory.DirectoryEntry;
+import emissary.place.IServiceProviderPlace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+
+/**
+ * Runs each payload on a new, unpooled agent with a thread of its own for just that payload, as an alternative to
+ * borrowing a long lived agent and its parked thread from the {@link AgentPool}. The number of payloads in flight is
+ * bounded by a semaphore rather than by the pool size.
+ * <p>
+ * On a JVM with virtual threads (Java 21 and later) each agent runs on a virtual thread, so places that block on
+ * subprocesses or remote I/O cost a little heap rather than a platform thread, and many more payloads can be in flight
+ * than there are agents in a pool. On older JVMs each agent runs on a new platform daemon thread.
+ * <p>
+ * The agent class must have a public constructor taking just the agent name, see
+ * {@link emissary.core.HDMobileAgent#HDMobileAgent(String)}. The executor is enabled with {@code agent.executor} in
+ * AgentPool.cfg, in which case the MoveSpool hands arriving payloads to it instead of the pool.
+ */
+public class AgentExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AgentExecutor.class);
+
+    /** The name by which we register into the namespace */
+    public static final String NAMESPACE_NAME = "AgentExecutor";
+
+    // Config keys in AgentPool.cfg
+    public static final String ENABLED_KEY = "agent.executor";
+    public static final String MAX_IN_FLIGHT_KEY = "agent.executor.max.inflight";
+    public static final String VIRTUAL_KEY = "agent.executor.virtual";
+
+    /** Agent implementation used when none is configured */
+    public static final String DEFAULT_AGENT_CLASS = "emissary.core.HDMobileAgent";
+
+    /** Default bound on payloads in flight */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+
+    private static final String THREAD_PREFIX = "AgentExecutor-";
+
+    private final String agentClass;
+    private final int maxInFlight;
+    private final int maxMoveErrors;
+    private final int maxItinerarySteps;
+    private final Semaphore permits;
+    private final ThreadFactory threadFactory;
+    private final boolean virtual;
+
+    private final AtomicLong agentCounter = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+
+    private volatile boolean closed = false;
+
+    /**
+     * Create an executor from the settings in AgentPool.cfg
+     *
+     * @return the configured executor, or null if it is not enabled
+     */
+    @Nullable
+    public static AgentExecutor fromConfig() {
+        try {
+            Configurator conf = ConfigUtil.getConfigInfo(AgentPool.class);
+            if (!conf.findBooleanEntry(ENABLED_KEY, false)) {
+                return null;
+            }
+            return new AgentExecutor(conf.findStringEntry("agent.class", DEFAULT_AGENT_CLASS),
+                    conf.findIntEntry(MAX_IN_FLIGHT_KEY, DEFAULT_MAX_IN_FLIGHT), conf.findBooleanEntry(VIRTUAL_KEY, true),
+                    conf.findIntEntry("agent.move.errors", MobileAgent.DEFAULT_MAX_MOVE_ERRORS),
+                    conf.findIntEntry("agent.max.itinerary", MobileAgent.DEFAULT_MAX_ITINERARY_STEPS));
+        } catch (IOException e) {
+            logger.debug("Cannot read AgentPool.cfg, agent executor is not enabled");
+            return null;
+        }
+    }
+
+    /**
+     * Create an executor using default agent limits
+     *
+     * @param agentClass the agent implementation, must have a constructor taking only the agent name
+     * @param maxInFlight the most payloads that can be processed at once
+     * @param preferVirtual true to use virtual threads when the JVM has them
+     */
+    public AgentExecutor(final String agentClass, final int maxInFlight, final boolean preferVirtual) {
+        this(agentClass, maxInFlight, preferVirtual, MobileAgent.DEFAULT_MAX_MOVE_ERRORS, MobileAgent.DEFAULT_MAX_ITINERARY_STEPS);
+    }
+
+    /**
+     * Create an executor
+     *
+     * @param agentClass the agent implementation, must have a constructor taking only the agent name
+     * @param maxInFlight the most payloads that can be processed at once
+     * @param preferVirtual true to use virtual threads when the JVM has them
+     * @param maxMoveErrors move error limit for each agent
+     * @param maxItinerarySteps itinerary limit for each agent
+     */
+    public AgentExecutor(final String agentClass, final int maxInFlight, final boolean preferVirtual, final int maxMoveErrors,
+            final int maxItinerarySteps) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Must allow at least one payload in flight");
+        }
+        this.agentClass = agentClass;
+        this.maxInFlight = maxInFlight;
+        this.maxMoveErrors = maxMoveErrors;
+        this.maxItinerarySteps = maxItinerarySteps;
+        this.permits = new Semaphore(maxInFlight);
+
+        final ThreadFactory vtf = preferVirtual ? virtualThreadFactory() : null;
+        this.virtual = vtf != null;
+        this.threadFactory = this.virtual ? vtf : platformThreadFactory();
+        logger.info("AgentExecutor running {} agents on {} threads, at most {} in flight", agentClass, this.virtual ? "virtual" : "platform",
+                maxInFlight);
+    }
+
+    /**
+     * Build a factory for named virtual threads if the JVM supports them. Reflection keeps this usable on the Java 11
+     * baseline.
+     *
+     * @return the factory, or null if virtual threads are not available
+     */
+    @Nullable
+    static ThreadFactory virtualThreadFactory() {
+        try {
+            final Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = ofVirtual.invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, THREAD_PREFIX, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Virtual threads are not available, falling back to platform threads: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static ThreadFactory platformThreadFactory() {
+        final ThreadGroup group = new AgentThreadGroup("Agent Executor Threads");
+        final AtomicLong count = new AtomicLong();
+        return r -> {
+            final Thread t = new Thread(group, r, THREAD_PREFIX + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Start a payload at a place, waiting for room if the maximum number of payloads are in flight
+     *
+     * @param payload the data object or Collection to process
+     * @param place the place to start from
+     * @return the agent the payload was handed to
+     * @throws InterruptedException if interrupted while waiting for room
+     */
+    public MobileAgent go(final Object payload, final IServiceProviderPlace place) throws InterruptedException {
+        final MobileAgent agent = acquireAgent();
+        try {
+            agent.go(payload, place);
+        } catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+        launch(agent);
+        return agent;
+    }
+
+    /**
+     * Continue processing a payload that arrived from another node, waiting for room if the maximum number of payloads are
+     * in flight
+     *
+     * @param payload the data object or Collection to process
+     * @param place the place to process at first
+     * @param errorCount state from the transferred agent
+     * @param itineraryItems state from the transferred agent
+     * @throws Exception if the payload cannot be handed to an agent or if interrupted while waiting for room
+     */
+    public void arrive(final Object payload, final IServiceProviderPlace place, final int errorCount, final List<DirectoryEntry> itineraryItems)
+            throws Exception {
+        final MobileAgent agent = acquireAgent();
+        try {
+            agent.arrive(payload, place, errorCount, itineraryItems);
+        } catch (Exception e) {
+            release();
+            throw e;
+        }
+        launch(agent);
+    }
+
+    private MobileAgent acquireAgent() throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("AgentExecutor is closed");
+        }
+        permits.acquire();
+        inFlight.incrementAndGet();
+        try {
+            final MobileAgent agent = (MobileAgent) Factory.create(agentClass, THREAD_PREFIX + agentCounter.getAndIncrement());
+            agent.setMaxMoveErrors(maxMoveErrors);
+            agent.setMaxItinerarySteps(maxItinerarySteps);
+            return agent;
+        } catch (RuntimeException | Error e) {
+            release();
+            throw e;
+        }
+    }
+
+    private void launch(final MobileAgent agent) {
+        try {
+            threadFactory.newThread(() -> {
+                try {
+                    agent.execute();
+                } finally {
+                    completed.increment();
+                    release();
+                }
+            }).start();
+        } catch (RuntimeException | OutOfMemoryError e) {
+            release();
+            throw e;
+        }
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        permits.release();
+    }
+
+    /**
+     * Stop accepting payloads and wait for the ones in flight to finish
+     *
+     * @param timeoutMillis how long to wait
+     * @return true if all payloads finished in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean close(final long timeoutMillis) throws InterruptedException {
+        closed = true;
+        final boolean done = permits.tryAcquire(maxInFlight, timeoutMillis, TimeUnit.MILLISECONDS);
+        if (done) {
+            permits.release(maxInFlight);
+        }
+        Namespace.unbind(NAMESPACE_NAME);
+        return done;
+    }
+
+    /**
+     * Register this executor in the namespace
+     */
+    public void bind() {
+        Namespace.bind(NAMESPACE_NAME, this);
+    }
+
+    /**
+     * Look up the executor in the namespace
+     *
+     * @return the executor
+     * @throws NamespaceException if no executor is bound
+     */
+    public static AgentExecutor lookup() throws NamespaceException {
+        return (AgentExecutor) Namespace.lookup(NAMESPACE_NAME);
+    }
+
+    /**
+     * True if agents run on virtual threads
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * The most payloads that can be processed at once
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Number of payloads being processed now
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Number of payloads finished since the executor was created
+     */
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "AgentExecutor in flight/max = " + getInFlight() + "/" + maxInFlight + " - " + (virtual ? "virtual" : "platform") + " threads, "
+                + getCompletedCount() + " completed";
+    }
+}
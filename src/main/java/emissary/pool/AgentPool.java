@@ -314,6 +314,52 @@ public class AgentPool extends GenericObjectPool<IMobileAgent> {
         return factory.getClassString();
     }
 
+    /**
+     * Change the number of agents in the pool while it is running. Growing adds idle agents right away. Shrinking removes
+     * surplus idle agents now, busy agents over the new size are destroyed as they are returned.
+     *
+     * @param size the new pool size, at least one
+     */
+    public void resize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool must hold at least one agent");
+        }
+        int previous = getMaxTotal();
+        if (size == previous) {
+            return;
+        }
+        logger.info("Resizing AgentPool from {} to {} agents", previous, size);
+        if (size > previous) {
+            setMaxTotal(size);
+            setMaxIdle(size);
+            setMinIdle(size);
+            for (int i = getCurrentPoolSize(); i < size; i++) {
+                try {
+                    addObject();
+                } catch (Exception e) {
+                    logger.error("Cannot grow AgentPool", e);
+                    break;
+                }
+            }
+        } else {
+            setMinIdle(size);
+            setMaxIdle(size);
+            setMaxTotal(size);
+            int surplus = getCurrentPoolSize() - size;
+            for (int i = 0; i < surplus && getNumIdle() > 0; i++) {
+                IMobileAgent a = null;
+                try {
+                    // never block here, busy agents are handled on return
+                    a = borrowObject(Duration.ZERO);
+                    invalidateObject(a);
+                } catch (Exception e) {
+                    logger.debug("Stopped shrinking AgentPool early", e);
+                    break;
+                }
+            }
+        }
+    }
+
     /**
      * Try to predict whether a borrow will block/grow the pool
      */
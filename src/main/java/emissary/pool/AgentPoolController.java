@@ -0,0 +1,415 @@
+package emissary.pool;
+
+import emissary.config.ConfigUtil;
+import emissary.config.Configurator;
+import emissary.core.Namespace;
+import emissary.core.NamespaceException;
+import emissary.core.ResourceWatcher;
+import emissary.util.JMXUtil;
+
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import javax.annotation.Nullable;
+
+/**
+ * Grows and shrinks the {@link AgentPool} while the node runs, instead of keeping the size computed from the heap at
+ * startup. On each check the controller samples:
+ * <ul>
+ * <li>agent utilization, the share of pooled agents that are busy</li>
+ * <li>backlog, the depth of the MoveSpool and of any registered pickup queues</li>
+ * <li>heap occupancy after the last garbage collection</li>
+ * <li>system load per processor</li>
+ * <li>the mean latency of the slowest place tracked by the ResourceWatcher</li>
+ * </ul>
+ * The pool grows by a step when nearly every agent is busy, work is waiting or places are slow, and there is heap and
+ * CPU to spare. It shrinks by a step when the heap is under pressure or most agents sit idle with nothing waiting. The
+ * size always stays between the configured bounds.
+ * <p>
+ * Settings are read from AgentPool.cfg and can be changed over JMX. The last sample and decision are shown by the
+ * /api/pool endpoint.
+ */
+public class AgentPoolController implements AgentPoolControllerMBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AgentPoolController.class);
+
+    /** The name by which we register into the namespace */
+    public static final String NAMESPACE_NAME = "AgentPoolController";
+
+    // Config keys in AgentPool.cfg
+    public static final String ENABLED_KEY = "agent.pool.adaptive";
+    public static final String MIN_KEY = "agent.pool.adaptive.min";
+    public static final String MAX_KEY = "agent.pool.adaptive.max";
+    public static final String STEP_KEY = "agent.pool.adaptive.step";
+    public static final String INTERVAL_KEY = "agent.pool.adaptive.interval.millis";
+    public static final String UTIL_HIGH_KEY = "agent.pool.adaptive.utilization.high";
+    public static final String UTIL_LOW_KEY = "agent.pool.adaptive.utilization.low";
+    public static final String HEAP_HIGH_KEY = "agent.pool.adaptive.heap.high";
+    public static final String HEAP_LOW_KEY = "agent.pool.adaptive.heap.low";
+    public static final String CPU_HIGH_KEY = "agent.pool.adaptive.cpu.high";
+    public static final String LATENCY_HIGH_KEY = "agent.pool.adaptive.latency.high.millis";
+
+    // Sources of queued work other than the MoveSpool
+    private static final Map<String, IntSupplier> backlogSources = new ConcurrentHashMap<>();
+
+    private final AgentPool pool;
+    private volatile boolean enabled = true;
+    private volatile int minAgents;
+    private volatile int maxAgents;
+    private int step = 5;
+    private long intervalMillis = 30000L;
+    private double utilizationHigh = 0.9;
+    private double utilizationLow = 0.5;
+    private double heapHigh = 0.85;
+    private double heapLow = 0.7;
+    private double cpuHigh = 0.9;
+    private double latencyHighMillis = 0.0;
+
+    @Nullable
+    private ScheduledExecutorService scheduler;
+    @Nullable
+    private ScheduledFuture<?> checker;
+    private volatile Signals last = new Signals(0.0, 0, 0.0, 0.0, 0.0);
+    private volatile String lastDecision = "none";
+
+    /**
+     * Observed state of the node at one check
+     */
+    static final class Signals {
+        final double utilization;
+        final int backlog;
+        final double heapOccupancy;
+        final double cpuLoad;
+        final double slowestPlaceMillis;
+
+        Signals(double utilization, int backlog, double heapOccupancy, double cpuLoad, double slowestPlaceMillis) {
+            this.utilization = utilization;
+            this.backlog = backlog;
+            this.heapOccupancy = heapOccupancy;
+            this.cpuLoad = cpuLoad;
+            this.slowestPlaceMillis = slowestPlaceMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("utilization=%.2f, backlog=%d, heap=%.2f, cpu=%.2f, slowestPlaceMs=%.1f", utilization, backlog, heapOccupancy,
+                    cpuLoad,
+                    slowestPlaceMillis);
+        }
+    }
+
+    /**
+     * Create a controller from the settings in AgentPool.cfg
+     *
+     * @param pool the pool to size
+     * @return the configured controller, or null if adaptive sizing is not enabled
+     */
+    @Nullable
+    public static AgentPoolController fromConfig(final AgentPool pool) {
+        try {
+            Configurator conf = ConfigUtil.getConfigInfo(AgentPool.class);
+            if (!conf.findBooleanEntry(ENABLED_KEY, false)) {
+                return null;
+            }
+            AgentPoolController controller = new AgentPoolController(pool, conf.findIntEntry(MIN_KEY, Math.max(1, pool.getMaxTotal() / 2)),
+                    conf.findIntEntry(MAX_KEY, pool.getMaxTotal() * 4));
+            controller.step = Math.max(1, conf.findIntEntry(STEP_KEY, controller.step));
+            controller.intervalMillis = Math.max(1000L, conf.findLongEntry(INTERVAL_KEY, controller.intervalMillis));
+            controller.utilizationHigh = conf.findDoubleEntry(UTIL_HIGH_KEY, controller.utilizationHigh);
+            controller.utilizationLow = conf.findDoubleEntry(UTIL_LOW_KEY, controller.utilizationLow);
+            controller.heapHigh = conf.findDoubleEntry(HEAP_HIGH_KEY, controller.heapHigh);
+            controller.heapLow = conf.findDoubleEntry(HEAP_LOW_KEY, controller.heapLow);
+            controller.cpuHigh = conf.findDoubleEntry(CPU_HIGH_KEY, controller.cpuHigh);
+            controller.latencyHighMillis = conf.findDoubleEntry(LATENCY_HIGH_KEY, controller.latencyHighMillis);
+            return controller;
+        } catch (IOException e) {
+            logger.debug("Cannot read AgentPool.cfg, adaptive pool sizing is not enabled");
+            return null;
+        }
+    }
+
+    /**
+     * Create a controller using the default thresholds
+     *
+     * @param pool the pool to size
+     * @param minAgents smallest pool size
+     * @param maxAgents largest pool size
+     */
+    public AgentPoolController(final AgentPool pool, final int minAgents, final int maxAgents) {
+        if (minAgents < 1 || maxAgents < minAgents) {
+            throw new IllegalArgumentException("Bounds must satisfy 1 <= min <= max, got " + minAgents + " and " + maxAgents);
+        }
+        this.pool = pool;
+        this.minAgents = minAgents;
+        this.maxAgents = maxAgents;
+    }
+
+    /**
+     * Register a source of queued work, such as a pickup queue, to be counted in the backlog
+     *
+     * @param name unique name of the source
+     * @param depth supplies the number of items waiting
+     */
+    public static void registerBacklog(final String name, final IntSupplier depth) {
+        backlogSources.put(name, depth);
+    }
+
+    /**
+     * Stop counting a source of queued work
+     *
+     * @param name the name the source was registered with
+     */
+    public static void unregisterBacklog(final String name) {
+        backlogSources.remove(name);
+    }
+
+    /**
+     * Start checking the pool periodically, bind into the namespace and register with JMX
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "AgentPoolController");
+            t.setDaemon(true);
+            return t;
+        });
+        checker = scheduler.scheduleWithFixedDelay(this::check, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        Namespace.bind(NAMESPACE_NAME, this);
+        JMXUtil.registerMBean(this);
+        logger.info("Started {}", this);
+    }
+
+    /**
+     * Stop checking the pool and unbind from the namespace
+     */
+    public synchronized void stop() {
+        if (checker != null) {
+            checker.cancel(false);
+            checker = null;
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        Namespace.unbind(NAMESPACE_NAME);
+    }
+
+    /**
+     * Look up the controller in the namespace
+     *
+     * @return the controller
+     * @throws NamespaceException if no controller is bound
+     */
+    public static AgentPoolController lookup() throws NamespaceException {
+        return (AgentPoolController) Namespace.lookup(NAMESPACE_NAME);
+    }
+
+    /**
+     * Sample the node and resize the pool if called for
+     */
+    void check() {
+        try {
+            Signals signals = sample();
+            last = signals;
+            if (!enabled) {
+                return;
+            }
+            int current = pool.getMaxTotal();
+            int target = decide(signals, current);
+            if (target != current) {
+                lastDecision = (target > current ? "grow " : "shrink ") + current + " -> " + target + " on " + signals;
+                logger.info("AgentPool {}", lastDecision);
+                pool.resize(target);
+            } else {
+                lastDecision = "hold " + current + " on " + signals;
+                logger.debug("AgentPool {}", lastDecision);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Problem sizing the agent pool", e);
+        }
+    }
+
+    /**
+     * Decide the pool size for the observed signals
+     *
+     * @param s the observed signals
+     * @param current the current pool size
+     * @return the new pool size, the current size to hold
+     */
+    int decide(final Signals s, final int current) {
+        final int min = minAgents;
+        final int max = maxAgents;
+        if (current < min) {
+            return min;
+        }
+        if (current > max) {
+            return max;
+        }
+        if (s.heapOccupancy >= heapHigh) {
+            return Math.max(min, current - step);
+        }
+        final boolean waiting = s.backlog > 0 || (latencyHighMillis > 0.0 && s.slowestPlaceMillis >= latencyHighMillis);
+        if (s.utilization >= utilizationHigh && waiting && s.heapOccupancy < heapLow && s.cpuLoad < cpuHigh) {
+            return Math.min(max, current + step);
+        }
+        if (s.utilization < utilizationLow && s.backlog == 0) {
+            return Math.max(min, current - step);
+        }
+        return current;
+    }
+
+    /**
+     * Observe the node now
+     */
+    Signals sample() {
+        final int total = pool.getMaxTotal();
+        final double utilization = total > 0 ? (double) pool.getNumActive() / total : 0.0;
+        return new Signals(utilization, sampleBacklog(), sampleHeapOccupancy(), sampleCpuLoad(), sampleSlowestPlaceMillis());
+    }
+
+    private static int sampleBacklog() {
+        int backlog = 0;
+        try {
+            backlog += MoveSpool.lookup().getCurrentSpoolSize();
+        } catch (NamespaceException e) {
+            // no spool on this node
+        }
+        for (IntSupplier depth : backlogSources.values()) {
+            backlog += depth.getAsInt();
+        }
+        return backlog;
+    }
+
+    /**
+     * Share of the heap still in use after the last collection, taking the fullest pool that reports it
+     */
+    private static double sampleHeapOccupancy() {
+        double occupancy = -1.0;
+        for (MemoryPoolMXBean mp : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (mp.getType() != MemoryType.HEAP || !mp.isValid() || !mp.isCollectionUsageThresholdSupported()) {
+                continue;
+            }
+            MemoryUsage usage = mp.getCollectionUsage();
+            if (usage != null && usage.getMax() > 0) {
+                occupancy = Math.max(occupancy, (double) usage.getUsed() / usage.getMax());
+            }
+        }
+        if (occupancy < 0.0) {
+            Runtime rt = Runtime.getRuntime();
+            occupancy = (double) (rt.totalMemory() - rt.freeMemory()) / rt.maxMemory();
+        }
+        return occupancy;
+    }
+
+    private static double sampleCpuLoad() {
+        double load = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+        // not available on every platform
+        return load < 0.0 ? 0.0 : load / Runtime.getRuntime().availableProcessors();
+    }
+
+    private static double sampleSlowestPlaceMillis() {
+        double slowest = 0.0;
+        try {
+            for (Timer timer : ResourceWatcher.lookup().getStats().values()) {
+                if (timer.getCount() > 0) {
+                    slowest = Math.max(slowest, timer.getSnapshot().getMean() / TimeUnit.MILLISECONDS.toNanos(1));
+                }
+            }
+        } catch (NamespaceException e) {
+            // no resource watcher on this node
+        }
+        return slowest;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public int getMinAgents() {
+        return minAgents;
+    }
+
+    @Override
+    public void setMinAgents(int minAgents) {
+        if (minAgents < 1 || minAgents > maxAgents) {
+            throw new IllegalArgumentException("Minimum must be between 1 and " + maxAgents);
+        }
+        this.minAgents = minAgents;
+    }
+
+    @Override
+    public int getMaxAgents() {
+        return maxAgents;
+    }
+
+    @Override
+    public void setMaxAgents(int maxAgents) {
+        if (maxAgents < minAgents) {
+            throw new IllegalArgumentException("Maximum must be at least " + minAgents);
+        }
+        this.maxAgents = maxAgents;
+    }
+
+    @Override
+    public int getPoolSize() {
+        return pool.getMaxTotal();
+    }
+
+    @Override
+    public double getUtilization() {
+        return last.utilization;
+    }
+
+    @Override
+    public int getBacklog() {
+        return last.backlog;
+    }
+
+    @Override
+    public double getHeapOccupancy() {
+        return last.heapOccupancy;
+    }
+
+    @Override
+    public double getCpuLoad() {
+        return last.cpuLoad;
+    }
+
+    @Override
+    public double getSlowestPlaceMillis() {
+        return last.slowestPlaceMillis;
+    }
+
+    @Override
+    public String getLastDecision() {
+        return lastDecision;
+    }
+
+    @Override
+    public String toString() {
+        return "AgentPoolController " + (enabled ? "enabled" : "disabled") + " size/min/max = " + getPoolSize() + "/" + minAgents + "/" + maxAgents
+                + ", last decision: " + lastDecision;
+    }
+}
@@ -0,0 +1,33 @@
+package emissary.pool;
+
+/**
+ * MBean interface that exposes the adaptive agent pool controller to JConsole
+ */
+public interface AgentPoolControllerMBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    int getMinAgents();
+
+    void setMinAgents(int minAgents);
+
+    int getMaxAgents();
+
+    void setMaxAgents(int maxAgents);
+
+    int getPoolSize();
+
+    double getUtilization();
+
+    int getBacklog();
+
+    double getHeapOccupancy();
+
+    double getCpuLoad();
+
+    double getSlowestPlaceMillis();
+
+    String getLastDecision();
+}
@@ -1,5 +1,7 @@
 package emissary.pool;
 
+import emissary.config.ConfigUtil;
+import emissary.config.Configurator;
 import emissary.core.IMobileAgent;
 import emissary.core.Namespace;
 import emissary.core.NamespaceException;
@@ -12,17 +14,33 @@ import emissary.util.PayloadUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayDeque;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 import javax.annotation.Nullable;
 
 /**
  * Provide a storage area for incoming "moveTo(here)" payloads so that the http transfer can become more asnychronous.
  * This class provides a FIFO for payloads that are arriving and a thread that will put them into agents from the pool
  * as agents become available
+ * <p>
+ * Arrivals are added to a lock-free queue so senders never contend with the spool thread. The spool can be bounded in
+ * AgentPool.cfg, in which case a sender arriving at a full spool either waits for room or is rejected so the move can
+ * be reported as failed to the sending node.
  */
 
 public class MoveSpool implements Runnable {
@@ -30,30 +48,69 @@ public class MoveSpool implements Runnable {
     // Our logger
     private static final Logger logger = LoggerFactory.getLogger(MoveSpool.class);
 
-    // The payload FIFO
-    protected final Deque<SpoolItem> spool = new ArrayDeque<>();
+    // Config keys in AgentPool.cfg
+    public static final String CAPACITY_KEY = "spool.capacity";
+    public static final String FULL_POLICY_KEY = "spool.full.policy";
+    public static final String BLOCK_MILLIS_KEY = "spool.block.millis";
+
+    // Default wait for room on a full spool when blocking
+    public static final long DEFAULT_BLOCK_MILLIS = 30000L;
+
+    // The payload FIFO, many senders and the single spool thread
+    protected final Deque<SpoolItem> spool = new ConcurrentLinkedDeque<>();
+
+    // Size of the spool, kept apart since the queue size is not constant time
+    private final AtomicInteger spoolSize = new AtomicInteger();
+
+    // Room left on a bounded spool, null when unbounded
+    @Nullable
+    private Semaphore room;
+
+    // Bound on the spool, zero for unbounded
+    private int capacity = 0;
+
+    // What to do with arrivals when the spool is full
+    private FullPolicy fullPolicy = FullPolicy.BLOCK;
+
+    // How long a blocked sender waits for room before being rejected
+    private long blockMillis = DEFAULT_BLOCK_MILLIS;
+
+    // Set while the spool thread is parked waiting for work
+    private volatile boolean waiting = false;
 
     // Reference to the agent pool
     protected AgentPool pool;
 
+    // Reference to the agent executor, used instead of the pool when there is one
+    @Nullable
+    protected AgentExecutor executor;
+
     // The thread that stuffs payloads into pool agents
     Thread watcher;
 
     // thread quit control
-    boolean timeToQuit = false;
+    volatile boolean timeToQuit = false;
 
     // How we want to be registerd in the namespace
     public static final String NAMESPACE_NAME = "ArrivalSpool";
 
     // Stats on how many moves and for what types arrived here
-    public final Map<String, Integer> moveCountMap = new HashMap<>();
+    private final ConcurrentMap<String, LongAdder> moveCounters = new ConcurrentHashMap<>();
+
+    /**
+     * Read only view of how many moves and for what types arrived here
+     *
+     * @deprecated use {@link #getMoveCountMap()}
+     */
+    @Deprecated
+    public final Map<String, Integer> moveCountMap = new MoveCountView();
 
     // Stats collection
-    private int highWaterMark = 0;
-    @SuppressWarnings("NonFinalStaticField")
-    private static long lookupCount = 0;
-    private long enqueCount = 0;
-    private long dequeCount = 0;
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+    private static final LongAdder lookupCount = new LongAdder();
+    private final LongAdder enqueCount = new LongAdder();
+    private final LongAdder dequeCount = new LongAdder();
+    private final LongAdder rejectCount = new LongAdder();
 
     // Cached ref to my local directory
     @Nullable
@@ -64,6 +121,11 @@ public class MoveSpool implements Runnable {
         ARRIVE, GO
     }
 
+    // What a bounded spool does with arrivals when it is full
+    public enum FullPolicy {
+        BLOCK, REJECT
+    }
+
     /**
      * Make one and bind it in the namespace
      */
@@ -74,11 +136,49 @@ public class MoveSpool implements Runnable {
         Namespace.bind(NAMESPACE_NAME, this);
     }
 
+    /**
+     * Make one with the given bounds rather than those in AgentPool.cfg and bind it in the namespace
+     *
+     * @param capacity bound on the spool, zero for unbounded
+     * @param fullPolicy what to do with arrivals when the spool is full
+     * @param blockMillis how long a blocked sender waits for room
+     */
+    public MoveSpool(int capacity, FullPolicy fullPolicy, long blockMillis) {
+        this.capacity = capacity;
+        this.fullPolicy = fullPolicy;
+        this.blockMillis = blockMillis;
+        start();
+
+        // register this pool in the namespace
+        Namespace.bind(NAMESPACE_NAME, this);
+    }
+
     /**
      * Configure stuff
      */
-    @SuppressWarnings("ThreadPriorityCheck")
     private void configure() {
+        // Get the spool bounds
+        try {
+            Configurator conf = ConfigUtil.getConfigInfo(AgentPool.class);
+            capacity = conf.findIntEntry(CAPACITY_KEY, capacity);
+            fullPolicy = FullPolicy.valueOf(conf.findStringEntry(FULL_POLICY_KEY, fullPolicy.name()));
+            blockMillis = conf.findLongEntry(BLOCK_MILLIS_KEY, blockMillis);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.debug("Cannot read spool settings from AgentPool.cfg, taking default values", e);
+        }
+        start();
+    }
+
+    /**
+     * Apply the spool bounds, find the agents and start the spool thread
+     */
+    @SuppressWarnings("ThreadPriorityCheck")
+    private void start() {
+        if (capacity > 0) {
+            room = new Semaphore(capacity);
+        }
+        logger.debug("MoveSpool capacity={}, fullPolicy={}, blockMillis={}", capacity, fullPolicy, blockMillis);
+
         // Get the agent pool
         resetPool();
 
@@ -97,6 +197,14 @@ public class MoveSpool implements Runnable {
         } catch (NamespaceException nex) {
             logger.error("Unable to find agent pool, " + "please create the agent pool before creating the MoveSpool");
         }
+
+        // use the executor if one has been set up
+        try {
+            executor = AgentExecutor.lookup();
+            logger.debug("Found the AgentExecutor on MoveSpool#resetPool");
+        } catch (NamespaceException nex) {
+            executor = null;
+        }
     }
 
     /**
@@ -104,13 +212,13 @@ public class MoveSpool implements Runnable {
      */
     public void quit() {
         logger.warn("Purging the spool...");
-        synchronized (spool) {
-            if (!spool.isEmpty()) {
-                spool.clear();
-            }
-            spool.notifyAll();
-        }
         timeToQuit = true;
+        int purged = 0;
+        while (removeFirstPayload() != null) {
+            purged++;
+        }
+        LockSupport.unpark(watcher);
+        logger.debug("Purged {} items from the spool", purged);
         Namespace.unbind(NAMESPACE_NAME);
         logger.info("Done stopping the move spool");
     }
@@ -148,24 +256,25 @@ public class MoveSpool implements Runnable {
         // Run until we are told to quit
         while (!timeToQuit) {
             // Check the spool for work to be done
-            int sz = 0;
-            synchronized (spool) {
-                sz = spool.size();
-            }
-
-            if (sz == 0) {
+            if (spool.isEmpty()) {
                 // No payloads to look at. Sleep a while
                 consecutiveSendCounter = 0;
-                try {
-                    logger.debug("Nothing in spool, time to wait...");
-                    Thread.yield();
-                    synchronized (spool) {
-                        if (spool.isEmpty()) {
-                            spool.wait(60000);
-                        }
-                    }
-                } catch (InterruptedException ignore) {
-                    Thread.currentThread().interrupt();
+                logger.debug("Nothing in spool, time to wait...");
+                Thread.yield();
+                // Check again after announcing the wait so an arrival in between is not missed
+                waiting = true;
+                if (spool.isEmpty() && !timeToQuit) {
+                    LockSupport.parkNanos(this, TimeUnit.SECONDS.toNanos(60));
+                }
+                waiting = false;
+                continue;
+            }
+
+            // Hand the item to the executor, it waits for room itself
+            if (executor != null) {
+                SpoolItem item = removeFirstPayload();
+                if (item != null) {
+                    execute(executor, item);
                 }
                 continue;
             }
@@ -239,21 +348,49 @@ public class MoveSpool implements Runnable {
         }
     }
 
+    /**
+     * Start a spool item on an agent from the executor
+     *
+     * @param agentExecutor the executor to run on
+     * @param item the item to start
+     */
+    private void execute(AgentExecutor agentExecutor, SpoolItem item) {
+        String itemName = PayloadUtil.getName(item.getPayload());
+        logger.debug("Handing over {} to the agent executor, method={}", itemName, item.getMethod());
+        try {
+            if (item.getMethod() == Method.GO) {
+                IServiceProviderPlace place = item.getPlace();
+                if (place == null) {
+                    place = getLocalDirectory();
+                }
+                agentExecutor.go(item.getPayload(), place);
+            } else if (item.getMethod() == Method.ARRIVE) {
+                agentExecutor.arrive(item.getPayload(), item.getPlace(), item.getErrorCount(), item.getItineraryItems());
+            } else {
+                logger.error("Illegal spooler method specified {}, payload={} will be irretreivably lost", item.getMethod(), item.getPayload());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted starting agent, payload {} is irretrievably lost", itemName);
+        } catch (Exception e) {
+            logger.error("Unable to start agent, payload {} is irretrievably lost", itemName, e);
+        }
+    }
+
     /**
      * Remove the oldest payload item on the spool
      *
      * @return SpoolItem from the spool
      */
+    @Nullable
     protected SpoolItem removeFirstPayload() {
-        SpoolItem s = null;
-        synchronized (spool) {
-            // Do some stats
-            if (spool.size() > highWaterMark) {
-                highWaterMark = spool.size();
+        SpoolItem s = spool.poll();
+        if (s != null) {
+            spoolSize.decrementAndGet();
+            dequeCount.increment();
+            if (room != null) {
+                room.release();
             }
-
-            s = spool.removeFirst();
-            dequeCount++;
         }
         return s;
     }
@@ -303,7 +440,7 @@ public class MoveSpool implements Runnable {
      * @param place IServiceProviderPlace ref for the agent to visit, possibly null
      * @param errorCount state from the transferred MobileAgent or null for GO
      * @param itineraryItems state from the transferred MobileAgent or empty for GO
-     * @return number of items on the queue
+     * @return number of items on the queue, or -1 if the spool is full and the item was rejected
      */
     protected int enqueue(Method method, Object payload, @Nullable IServiceProviderPlace place, int errorCount,
             @Nullable List<DirectoryEntry> itineraryItems) {
@@ -311,36 +448,54 @@ public class MoveSpool implements Runnable {
         String itemName = PayloadUtil.getName(payload);
         logger.debug("Enqueue item " + itemName + " for place " + place + ", method=" + method);
         SpoolItem s = new SpoolItem(method, payload, place, errorCount, itineraryItems);
-        int size = 0;
 
-        synchronized (spool) {
-            spool.addLast(s);
-            enqueCount++;
-            size = spool.size();
-            spool.notifyAll();
+        if (!reserveRoom()) {
+            rejectCount.increment();
+            logger.warn("MoveSpool is full at {} items, rejecting {}", capacity, itemName);
+            return -1;
         }
 
-        // Collect the stats
-        synchronized (moveCountMap) {
-            String serviceName = s.getServiceName();
-            if (moveCountMap.containsKey(serviceName)) {
-                Integer count = moveCountMap.get(serviceName);
-                moveCountMap.put(serviceName, Integer.valueOf(count.intValue() + 1));
-            } else {
-                moveCountMap.put(serviceName, Integer.valueOf(1));
-            }
+        spool.offer(s);
+        enqueCount.increment();
+        int size = spoolSize.incrementAndGet();
+        highWaterMark.accumulateAndGet(size, Math::max);
+        if (waiting) {
+            LockSupport.unpark(watcher);
         }
 
+        // Collect the stats
+        moveCounters.computeIfAbsent(s.getServiceName(), k -> new LongAdder()).increment();
+
         logger.debug("Done enqueue of " + itemName + ", size=" + size);
         return size;
     }
 
 
+    /**
+     * Take a place on a bounded spool according to the full policy
+     *
+     * @return true if there is room for the item
+     */
+    private boolean reserveRoom() {
+        if (room == null) {
+            return true;
+        }
+        if (fullPolicy == FullPolicy.REJECT) {
+            return room.tryAcquire();
+        }
+        try {
+            return room.tryAcquire(blockMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
     /**
      * Look up the instance in the namespace
      */
     public static MoveSpool lookup() throws NamespaceException {
-        lookupCount++;
+        lookupCount.increment();
         return (MoveSpool) Namespace.lookup(NAMESPACE_NAME);
     }
 
@@ -349,9 +504,9 @@ public class MoveSpool implements Runnable {
      * on this node
      */
     public Map<String, Integer> getMoveCountMap() {
-        synchronized (moveCountMap) {
-            return new HashMap<>(moveCountMap);
-        }
+        Map<String, Integer> copy = new HashMap<>();
+        moveCounters.forEach((k, v) -> copy.put(k, v.intValue()));
+        return copy;
     }
 
     /**
@@ -362,13 +517,11 @@ public class MoveSpool implements Runnable {
     public String getStatPairs() {
         StringBuilder sb = new StringBuilder();
         sb.append("{");
-        synchronized (moveCountMap) {
-            for (String key : moveCountMap.keySet()) {
-                if (sb.length() > 1) {
-                    sb.append(",");
-                }
-                sb.append(key).append("=").append(moveCountMap.get(key));
+        for (Map.Entry<String, LongAdder> entry : moveCounters.entrySet()) {
+            if (sb.length() > 1) {
+                sb.append(",");
             }
+            sb.append(entry.getKey()).append("=").append(entry.getValue().sum());
         }
         sb.append("}");
         return sb.toString();
@@ -380,9 +533,52 @@ public class MoveSpool implements Runnable {
      */
     @Override
     public String toString() {
-        // Spool size is deliberately not synchronized
-        return "MoveSpool current/high " + spool.size() + "/" + highWaterMark + ", en/dequeue " + enqueCount + "/" + dequeCount + ", serviceNames="
-                + getStatPairs();
+        return "MoveSpool current/high " + spoolSize.get() + "/" + highWaterMark.get() + ", en/dequeue " + enqueCount.sum() + "/" + dequeCount.sum()
+                + ", rejected " + rejectCount.sum() + ", serviceNames=" + getStatPairs();
+    }
+
+    /**
+     * Live read only view of the move counters as Integer counts, kept for readers of {@link #moveCountMap}
+     */
+    private class MoveCountView extends AbstractMap<String, Integer> {
+        @Override
+        @Nullable
+        public Integer get(Object key) {
+            LongAdder count = moveCounters.get(key);
+            return count == null ? null : count.intValue();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return moveCounters.containsKey(key);
+        }
+
+        @Override
+        public Set<Map.Entry<String, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Integer>>() {
+                @Override
+                public Iterator<Map.Entry<String, Integer>> iterator() {
+                    Iterator<Map.Entry<String, LongAdder>> it = moveCounters.entrySet().iterator();
+                    return new Iterator<Map.Entry<String, Integer>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<String, Integer> next() {
+                            Map.Entry<String, LongAdder> e = it.next();
+                            return new SimpleImmutableEntry<>(e.getKey(), e.getValue().intValue());
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return moveCounters.size();
+                }
+            };
+        }
     }
 
     /**
@@ -460,7 +656,7 @@ public class MoveSpool implements Runnable {
      * @return the lookupCount
      */
     public static long getLookupCount() {
-        return lookupCount;
+        return lookupCount.sum();
     }
 
     /**
@@ -469,7 +665,7 @@ public class MoveSpool implements Runnable {
      * @return the dequeCount
      */
     public long getDequeCount() {
-        return dequeCount;
+        return dequeCount.sum();
     }
 
     /**
@@ -478,7 +674,7 @@ public class MoveSpool implements Runnable {
      * @return the enqueCount
      */
     public long getEnqueCount() {
-        return enqueCount;
+        return enqueCount.sum();
     }
 
     /**
@@ -487,10 +683,37 @@ public class MoveSpool implements Runnable {
      * @return the highWaterMark
      */
     public int getHighWaterMark() {
-        return highWaterMark;
+        return highWaterMark.get();
+    }
+
+    /**
+     * Get the number of items rejected because the spool was full
+     *
+     * @return the rejectCount
+     */
+    public long getRejectCount() {
+        return rejectCount.sum();
+    }
+
+    /**
+     * Get the spool capacity
+     *
+     * @return the capacity, zero when unbounded
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the policy used when the spool is full
+     *
+     * @return the full policy
+     */
+    public FullPolicy getFullPolicy() {
+        return fullPolicy;
     }
 
     public int getCurrentSpoolSize() {
-        return spool.size();
+        return spoolSize.get();
     }
 }
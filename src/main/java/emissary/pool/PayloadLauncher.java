@@ -39,10 +39,34 @@ public class PayloadLauncher {
 
             if (spool != null) {
                 int sz = spool.arrive(payload, place, errorCount, itineraryItems);
+                if (sz < 0) {
+                    // spool is full, push back on the sender
+                    throw new EmissaryException("Arrival spool is full, cannot accept " + payloadName);
+                }
                 logger.debug("Payload " + payloadName + " spooled out, " + sz + " on the spool");
 
                 return true;
             }
+            // Use the agent executor if there is one, this may block the caller
+            AgentExecutor executor = null;
+            try {
+                executor = AgentExecutor.lookup();
+            } catch (NamespaceException nse) {
+                // fall back to the pool
+            }
+            if (executor != null) {
+                try {
+                    executor.arrive(payload, place, errorCount, itineraryItems);
+                    logger.debug("Handed payload={} to the agent executor with place={}", payloadName, place);
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new EmissaryException("Interrupted waiting for the agent executor with " + payloadName, e);
+                } catch (Exception e) {
+                    throw new EmissaryException("Cannot get agent started on payload for " + payloadName, e);
+                }
+            }
+
             // Use the agent pool directly, this may block the caller
             AgentPool pool = null;
             try {
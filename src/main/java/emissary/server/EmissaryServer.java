@@ -18,7 +18,9 @@ import emissary.core.sentinel.Sentinel;
 import emissary.directory.DirectoryPlace;
 import emissary.directory.EmissaryNode;
 import emissary.place.IServiceProviderPlace;
+import emissary.pool.AgentExecutor;
 import emissary.pool.AgentPool;
+import emissary.pool.AgentPoolController;
 import emissary.pool.MoveSpool;
 import emissary.roll.RollManager;
 import emissary.server.mvc.ThreadDumpAction;
@@ -326,6 +328,12 @@ public class EmissaryServer {
             LOG.warn("No sentinel available");
         }
 
+        try {
+            AgentPoolController.lookup().stop();
+        } catch (NamespaceException e) {
+            LOG.debug("No AgentPoolController to stop");
+        }
+
         try {
             if (force) {
                 AgentPool.lookup().kill();
@@ -336,6 +344,17 @@ public class EmissaryServer {
             LOG.warn("Problem stopping AgentPool", e);
         }
 
+        try {
+            if (!AgentExecutor.lookup().close(force ? 0L : TimeUnit.MINUTES.toMillis(1))) {
+                LOG.warn("Agents still running on the AgentExecutor");
+            }
+        } catch (NamespaceException e) {
+            LOG.debug("No AgentExecutor to stop");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted stopping AgentExecutor", e);
+        }
+
         logThreadDump("Thread dump after closing agent pool");
 
         try {
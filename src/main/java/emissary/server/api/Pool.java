@@ -7,7 +7,7 @@ import emissary.core.Namespace;
 import emissary.core.NamespaceException;
 import emissary.directory.EmissaryNode;
 import emissary.pool.AgentPool;
-import emissary.pool.MobileAgentFactory;
+import emissary.pool.AgentPoolController;
 import emissary.server.EmissaryServer;
 
 import jakarta.ws.rs.GET;
@@ -69,25 +69,13 @@ public class Pool {
             EmissaryServer emissaryServer = (EmissaryServer) Namespace.lookup("EmissaryServer");
             EmissaryNode localNode = emissaryServer.getNode();
             String nodeName = localNode.getNodeName() + ":" + localNode.getNodePort();
-            int active = 0;
-            int idle = 0;
             try {
-                for (int i = 0; i < AgentPool.lookup().getMaxTotal(); i++) {
-                    String agentKey = MobileAgentFactory.AGENT_NAME + "-" + String.format("%02d", i);
-                    if (Namespace.exists(agentKey)) {
-                        if (Namespace.lookup(agentKey).toString().startsWith("Idle")) {
-                            idle++;
-                        } else {
-                            active++;
-                        }
-                    } else {
-                        // TODO Handle this any better?
-                        logger.error("Missing an agent in the Namespace: {}", agentKey);
-                        entity.addError("Missing an agent in the Namespace: " + agentKey);
-                        idle++;
-                    }
+                // count from the pool since agent names are not contiguous once the pool has been resized
+                AgentPool pool = AgentPool.lookup();
+                entity.addKeyValue(nodeName, "Poolsize active/idle: " + pool.getNumActive() + "/" + pool.getNumIdle());
+                if (Namespace.exists(AgentPoolController.NAMESPACE_NAME)) {
+                    entity.addKeyValue(nodeName + " controller", AgentPoolController.lookup().toString());
                 }
-                entity.addKeyValue(nodeName, "Poolsize active/idle: " + active + "/" + idle);
             } catch (EmissaryException e) {
                 // TODO Figure out what we really want to do here in the event a node crashes
                 logger.error("Problem when looking up the pool", e);
@@ -10,6 +10,7 @@ import emissary.directory.DirectoryEntryMap;
 import emissary.directory.DirectoryXmlContainer;
 import emissary.directory.IRemoteDirectory;
 import emissary.directory.KeyManipulator;
+import emissary.directory.ZoneTransfer;
 import emissary.log.MDCConstants;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -53,6 +54,8 @@ public class DirectoryAdapter extends EmissaryClient {
     public static final String FAILED_DIRECTORY_NAME = "dirFailName";
     public static final String DIRECTORY_NAME = "directoryName";
     public static final String ADD_ENTRIES = "dirAddEntries";
+    public static final String ZONE_EPOCH = "dirZoneEpoch";
+    public static final String ZONE_SINCE = "dirZoneSince";
     public static final String DIRECTORY_KEY = "EMISSARY_DIRECTORY_SERVICES::STUDY";
     public static final String FILE_PICKUP_KEY = "INITIAL::INPUT";
     // These two parameters will cause each node to only have copies of its own places.
@@ -234,6 +237,22 @@ public class DirectoryAdapter extends EmissaryClient {
         return zoneTransfer(key, peerKey, "/RegisterPeer.action");
     }
 
+    /**
+     * Register the caller as a peer of the destination and request the changes to its entries since a version of its map
+     * already held. The remote sends every entry instead if it cannot tell what changed, such as after a restart.
+     *
+     * @param key the key of the remote directory to request the zone transfer from
+     * @param peerKey the key of the peer requesting the zone
+     * @param epoch the epoch of the remote map already held, or null to request every entry
+     * @param since the version of the remote map already held
+     * @return the entries from the remote side and the version they bring the caller up to
+     * @throws EmissaryException if remote returns an error
+     */
+    public ZoneTransfer outboundRegisterPeer(final String key, final String peerKey, @Nullable final String epoch, final long since)
+            throws EmissaryException {
+        return zoneTransfer(key, peerKey, "/RegisterPeer.action", epoch, since);
+    }
+
     /**
      * Request the XML directory entry markup from a remote directory peer and turn the response XML into a Map of
      * String,DirectoryEntryList for return.
@@ -245,6 +264,22 @@ public class DirectoryAdapter extends EmissaryClient {
      * @throws EmissaryException if remote returns an error
      */
     private DirectoryEntryMap zoneTransfer(final String key, @Nullable final String myKey, final String action) throws EmissaryException {
+        return zoneTransfer(key, myKey, action, null, 0).getEntries();
+    }
+
+    /**
+     * Request the XML directory entry markup from a remote directory peer, all of it or the changes since a version
+     *
+     * @param key the key of the remote directory to request the zone transfer from
+     * @param myKey the key of the local dir requesting the zone or null if none
+     * @param action the action to use in the request
+     * @param epoch the epoch of the remote map already held, or null to request every entry
+     * @param since the version of the remote map already held
+     * @return the entries from the remote side and the version they bring the caller up to
+     * @throws EmissaryException if remote returns an error
+     */
+    private ZoneTransfer zoneTransfer(final String key, @Nullable final String myKey, final String action, @Nullable final String epoch,
+            final long since) throws EmissaryException {
         final HttpPost method = createHttpPost(KeyManipulator.getServiceHostUrl(key), context, action);
 
         final String parentLoc = KeyManipulator.getServiceLocation(key);
@@ -255,9 +290,14 @@ public class DirectoryAdapter extends EmissaryClient {
             nvps.add(new BasicNameValuePair(DIRECTORY_NAME, myKey));
         }
 
+        if (epoch != null) {
+            nvps.add(new BasicNameValuePair(ZONE_EPOCH, epoch));
+            nvps.add(new BasicNameValuePair(ZONE_SINCE, Long.toString(since)));
+        }
+
         method.setEntity(new UrlEncodedFormEntity(nvps, StandardCharsets.UTF_8));
 
-        DirectoryEntryMap map = null;
+        ZoneTransfer zone = null;
         EmissaryResponse ws = null;
 
         try {
@@ -266,13 +306,13 @@ public class DirectoryAdapter extends EmissaryClient {
             if (ws.getStatus() != HttpStatus.SC_OK) {
                 logger.debug("Unable to contact remote directory for zone transfer: {}", ws.getContentString());
             } else {
-                map = DirectoryXmlContainer.buildEntryListMap(ws.getContentString());
+                zone = DirectoryXmlContainer.buildZoneTransfer(ws.getContentString());
             }
         } catch (Exception ex) {
             logger.debug("Unable to contact remote directory for " + "zone transfer " + key, ex);
         }
 
-        if (map == null) {
+        if (zone == null) {
             String errMsg = "Unable to perform zone transfer to " + key + ": received map is null";
             if (ws != null) {
                 errMsg += ", isError=" + ws.getStatus() + ", msgBody=" + ws.getContentString();
@@ -282,9 +322,9 @@ public class DirectoryAdapter extends EmissaryClient {
 
         // This ensures each node only has knowledge of all DirectoryPlace and FilePickupPlace entries
         if (filterDirectoryEntryMap) {
-            return filterDirectoryEntryMap(map);
+            return new ZoneTransfer(filterDirectoryEntryMap(zone.getEntries()), zone.getEpoch(), zone.getVersion(), zone.isDelta());
         } else {
-            return map;
+            return zone;
         }
     }
 
@@ -5,17 +5,22 @@ import emissary.client.EmissaryResponse;
 import emissary.directory.KeyManipulator;
 import emissary.pickup.WorkBundle;
 
+import jakarta.ws.rs.core.MediaType;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.entity.UrlEncodedFormEntity;
+import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.NameValuePair;
 import org.apache.hc.core5.http.message.BasicNameValuePair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import javax.annotation.Nullable;
 
 /**
  * Stuff for adapting the WorkSpace remote call to HTTP
@@ -28,6 +33,10 @@ public class WorkSpaceAdapter extends EmissaryClient {
     public static final String SPACE_NAME = "workSpaceName";
     public static final String WORK_BUNDLE_ID = "tpId";
     public static final String WORK_BUNDLE_STATUS = "tpStatus";
+    public static final String WORK_BUNDLE_MAX = "tpMax";
+
+    // Ask for bundles in binary, a space that only knows xml still answers with that
+    private static final String TAKE_ACCEPT = MediaType.APPLICATION_OCTET_STREAM + ", " + MediaType.APPLICATION_XML + ";q=0.5";
 
     /**
      * Outbound open tells a remote WorkSpace to start pulling data
@@ -78,6 +87,47 @@ public class WorkSpaceAdapter extends EmissaryClient {
         return path;
     }
 
+    /**
+     * Outbound take grabs several WorkBundles from remote WorkSpace at once, carried in binary rather than xml when the
+     * space supports it
+     * 
+     * @param space the remote space to contact
+     * @param place the name of the requesting place
+     * @param max the most bundles to take
+     * @return the bundles taken, a single empty bundle when the space has no more work, or null on error
+     */
+    @Nullable
+    public List<WorkBundle> outboundWorkSpaceTake(final String space, final String place, final int max) {
+
+        final String placeUrl = KeyManipulator.getServiceHostUrl(space);
+        final HttpPost method = createHttpPost(placeUrl, context, "/WorkSpaceClientSpaceTake.action");
+        method.setHeader(HttpHeaders.ACCEPT, TAKE_ACCEPT);
+
+        final List<NameValuePair> nvps = new ArrayList<>();
+        nvps.add(new BasicNameValuePair(CLIENT_NAME, place));
+        nvps.add(new BasicNameValuePair(SPACE_NAME, space));
+        nvps.add(new BasicNameValuePair(WORK_BUNDLE_MAX, Integer.toString(max)));
+
+        method.setEntity(new UrlEncodedFormEntity(nvps, StandardCharsets.UTF_8));
+        final EmissaryResponse status = send(method);
+
+        if (status.getStatus() != HttpStatus.SC_OK) {
+            logger.debug("Take from space {} was an error: {}", space, status.getContentString());
+            return null;
+        }
+        final byte[] content = status.getContentBytes();
+        if (content != null && status.getContentType().startsWith(MediaType.APPLICATION_OCTET_STREAM)) {
+            try {
+                return WorkBundle.buildWorkBundles(content);
+            } catch (IOException e) {
+                logger.error("Cannot read WorkBundles taken from {}", space, e);
+                return null;
+            }
+        }
+        final WorkBundle path = WorkBundle.buildWorkBundle(status.getContentString());
+        return path == null ? null : Collections.singletonList(path);
+    }
+
     /**
      * Outbound notice that bundle was completed
      * 
@@ -24,9 +24,12 @@ import org.slf4j.MDC;
 
 import java.util.HashSet;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 import static emissary.server.mvc.adapters.DirectoryAdapter.DIRECTORY_NAME;
 import static emissary.server.mvc.adapters.DirectoryAdapter.TARGET_DIRECTORY;
+import static emissary.server.mvc.adapters.DirectoryAdapter.ZONE_EPOCH;
+import static emissary.server.mvc.adapters.DirectoryAdapter.ZONE_SINCE;
 
 @Path("")
 // context is /emissary, set in EmissaryServer
@@ -46,17 +49,30 @@ public class RegisterPeerAction {
     @Path("/RegisterPeer.action")
     @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
     @Produces(MediaType.APPLICATION_XML)
-    public Response registerPeerPost(@FormParam(DIRECTORY_NAME) String directoryName, @FormParam(TARGET_DIRECTORY) String targetDirectory) {
+    public Response registerPeerPost(@FormParam(DIRECTORY_NAME) String directoryName, @FormParam(TARGET_DIRECTORY) String targetDirectory,
+            @FormParam(ZONE_EPOCH) String zoneEpoch, @FormParam(ZONE_SINCE) String zoneSince) {
         String cleanDirectoryName = RequestUtil.sanitizeParameter(directoryName);
         String cleanTargetDirectory = RequestUtil.sanitizeParameter(targetDirectory);
         if (StringUtils.isBlank(cleanDirectoryName) || StringUtils.isBlank(cleanTargetDirectory)) {
             return Response.serverError().entity(HtmlEscaper.escapeHtml(
                     "Bad Params: " + DIRECTORY_NAME + " - " + cleanDirectoryName + ", " + TARGET_DIRECTORY + " - " + cleanTargetDirectory)).build();
         }
-        return processRegisterPeer(cleanDirectoryName, cleanTargetDirectory);
+        return processRegisterPeer(cleanDirectoryName, cleanTargetDirectory, RequestUtil.sanitizeParameter(zoneEpoch),
+                parseVersion(zoneSince));
     }
 
-    private Response processRegisterPeer(String peerKey, String dirName) {
+    private static long parseVersion(@Nullable String version) {
+        if (StringUtils.isBlank(version)) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(version.trim());
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private Response processRegisterPeer(String peerKey, String dirName, @Nullable String zoneEpoch, long zoneSince) {
         final IRemoteDirectory dir = new IRemoteDirectory.Lookup().getLocalDirectory(dirName);
         if (dir == null) {
             // If we get here, there was a problem looking up the IRemoteDirectory
@@ -68,8 +84,9 @@ public class RegisterPeerAction {
 
         logger.info("Attempting to register peer {} with {}", peerKey, dirName);
 
+        final DirectoryPlace d;
         try {
-            final DirectoryPlace d = (DirectoryPlace) Namespace.lookup(dirName);
+            d = (DirectoryPlace) Namespace.lookup(dirName);
             if (!d.isStaticPeer(KeyManipulator.getDefaultDirectoryKey(peerKey))) {
                 logger.warn("Contact attempted from {} but it is not a configured peer", peerKey);
                 return Response.serverError().entity("Registration failed for peer: " + HtmlEscaper.escapeHtml(peerKey)).build();
@@ -90,6 +107,7 @@ public class RegisterPeerAction {
 
         logger.info("Registered peer {}", peerKey);
 
-        return Response.ok().entity(DirectoryXmlContainer.toXmlString(dir)).build();
+        // Send the changes since the version the peer already holds when it names one we can answer for
+        return Response.ok().entity(DirectoryXmlContainer.toZoneXmlString(d, zoneEpoch, zoneSince)).build();
     }
 }
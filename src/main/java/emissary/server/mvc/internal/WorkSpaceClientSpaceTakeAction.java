@@ -8,16 +8,23 @@ import emissary.server.mvc.adapters.RequestUtil;
 import emissary.util.web.HtmlEscaper;
 
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.FormParam;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.List;
+import javax.annotation.Nullable;
+
 @Path("")
 // context is /emissary, set in EmissaryServer
 public class WorkSpaceClientSpaceTakeAction {
@@ -29,6 +36,7 @@ public class WorkSpaceClientSpaceTakeAction {
     public static final String WORK_BUNDLE_ID = "tpId";
     public static final String WORK_BUNDLE_STATUS = "tpStatus";
     public static final String DATA_IDENTIFIER = "tdataId";
+    public static final String WORK_BUNDLE_MAX = "tpMax";
 
     /*
      * <!-- Take data from a WorkSpace --> <Use-Case source="*" action="/WorkSpaceClientSpaceTake.action"> <Work type="Bean"
@@ -37,11 +45,17 @@ public class WorkSpaceClientSpaceTakeAction {
      * status="-1" view="/error.jsp"/> </Use-Case>
      */
 
+    /**
+     * Take work from a WorkSpace. A single bundle is returned as xml unless the client prefers
+     * {@link MediaType#APPLICATION_OCTET_STREAM}, in which case up to {@link #WORK_BUNDLE_MAX} bundles, no more than the
+     * WorkSpace allows in one take, are returned in the binary form of {@link WorkBundle#toBytes(java.util.List)}.
+     */
     @POST
     @Path("/WorkSpaceClientSpaceTake.action")
     @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
-    @Produces(MediaType.APPLICATION_XML)
-    public Response clientSpaceTake(@FormParam(CLIENT_NAME) String placeName, @FormParam(SPACE_NAME) String spaceName) {
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_OCTET_STREAM})
+    public Response clientSpaceTake(@FormParam(CLIENT_NAME) String placeName, @FormParam(SPACE_NAME) String spaceName,
+            @FormParam(WORK_BUNDLE_MAX) @DefaultValue("1") int max, @Context HttpHeaders headers) {
         String cleanPlaceName = RequestUtil.sanitizeParameter(placeName);
         String cleanSpaceName = RequestUtil.sanitizeParameter(spaceName);
         if (StringUtils.isBlank(cleanPlaceName) || StringUtils.isBlank(cleanSpaceName)) {
@@ -50,14 +64,33 @@ public class WorkSpaceClientSpaceTakeAction {
         }
 
         try {
-            return doClientSpaceTake(cleanPlaceName, cleanSpaceName);
-        } catch (EmissaryException | IllegalArgumentException e) {
+            return doClientSpaceTake(cleanPlaceName, cleanSpaceName, max, wantsBinary(headers));
+        } catch (EmissaryException | IllegalArgumentException | IOException e) {
             logger.warn("There was an exception in the WorkSpaceClientSpaceTake", e);
             return Response.serverError().entity("There was an exception in the WorkSpaceClientSpaceTake").build();
         }
     }
 
-    private static Response doClientSpaceTake(String placeName, String spaceName) throws EmissaryException {
+    /**
+     * Binary only when asked for by name ahead of xml, so clients that accept anything keep getting xml
+     */
+    private static boolean wantsBinary(@Nullable HttpHeaders headers) {
+        if (headers == null) {
+            return false;
+        }
+        for (MediaType type : headers.getAcceptableMediaTypes()) {
+            if (type.isCompatible(MediaType.APPLICATION_XML_TYPE) || type.isWildcardType()) {
+                return false;
+            }
+            if (type.equals(MediaType.APPLICATION_OCTET_STREAM_TYPE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Response doClientSpaceTake(String placeName, String spaceName, int max, boolean binary)
+            throws EmissaryException, IOException {
         // TODO Figure out why we have to remove the key prefix now
         String workspaceKey = spaceName.substring("WORKSPACE.WORK_SPACE.INPUT.".length());
         final WorkSpace space = (WorkSpace) Namespace.lookup(workspaceKey);
@@ -65,6 +98,14 @@ public class WorkSpaceClientSpaceTakeAction {
             throw new IllegalArgumentException("No WorkSpace found using name " + spaceName);
         }
 
+        if (binary) {
+            final List<WorkBundle> paths = space.take(placeName, max);
+            if (paths == null || paths.isEmpty()) {
+                throw new EmissaryException("WorkSpaceClientSpaceTakeWorker failed, no bundle to retrieve");
+            }
+            return Response.ok(WorkBundle.toBytes(paths), MediaType.APPLICATION_OCTET_STREAM_TYPE).build();
+        }
+
         final WorkBundle path = space.take(placeName);
         if (path == null) {
             throw new EmissaryException("WorkSpaceClientSpaceTakeWorker failed, no bundle to retrieve");
@@ -72,6 +113,6 @@ public class WorkSpaceClientSpaceTakeAction {
 
         // old return from WorkSpaceClientSpaceTakeWorker
         // return WORKER_SUCCESS;
-        return Response.ok().entity(path.toXml()).build();
+        return Response.ok(path.toXml(), MediaType.APPLICATION_XML_TYPE).build();
     }
 }
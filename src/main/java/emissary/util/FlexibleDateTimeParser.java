@@ -10,6 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.text.ParsePosition;
 import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -20,8 +21,11 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -33,6 +37,11 @@ import static java.util.stream.Collectors.toList;
  * Attempt to parse a date in an unknown format. This will loop through a set of configured formats and convert it into
  * a {@link ZonedDateTime}.
  * <p>
+ * Most of the configured formats cannot match a given string at all, so rather than failing through each of them the
+ * configured lists remember, for the shape of recently seen strings (each digit made alike, letters and separators
+ * kept), which formats can parse that layout. Only those are tried, in configured order, so the result is the same as
+ * trying every format in turn.
+ * <p>
  * Other parsing libs:
  * <p>
  * Natty - It handled a good chunk of the formats but not all.
@@ -52,6 +61,9 @@ public final class FlexibleDateTimeParser {
     private static final String SPACE = " ";
     private static final String EMPTY = "";
 
+    /* Number of recent date string shapes remembered for each list of formats */
+    private static final int SHAPE_CACHE_SIZE = 1024;
+
     /* Remove all tabs and extra spaces */
     private static final Pattern REPLACE = Pattern.compile("\t+|[ ]+", Pattern.DOTALL);
 
@@ -76,6 +88,10 @@ public final class FlexibleDateTimeParser {
     /* Extra date time formats - list to try if our main list has failed - vars: FORMAT_DATETIME_EXTRA */
     private static final List<DateTimeFormatter> dateFormatsExtra;
 
+    /* The main and extra formats with the shapes each can parse */
+    private static final ShapedFormats shapedFormatsMain;
+    private static final ShapedFormats shapedFormatsExtra;
+
     /* init */
     static {
         try {
@@ -89,6 +105,9 @@ public final class FlexibleDateTimeParser {
             List<ConfigEntry> configEntriesExtra = configurator.findStringMatchEntries(CFG_FORMAT_EXTRA);
             dateFormatsExtra = setupDateFormats(configEntriesExtra, getConfigFormats(configEntriesExtra));
 
+            shapedFormatsMain = new ShapedFormats(dateFormatsMain);
+            shapedFormatsExtra = new ShapedFormats(dateFormatsExtra);
+
             String removeRegex = configurator.findStringEntry(CFG_REMOVE_REGEX, "<.+?>$|=0D$|\\(|\\)|\"|\\[|]|\\W+$|^\\W+");
             remove = Pattern.compile(removeRegex, Pattern.DOTALL);
 
@@ -165,33 +184,69 @@ public final class FlexibleDateTimeParser {
         }
 
         for (DateTimeFormatter formatter : formats) {
-            if (formatter == null) {
-                continue;
+            ZonedDateTime zdt = parseCleaned(cleanedDateString, formatter);
+            if (zdt != null) {
+                return zdt;
             }
+        }
+        return null;
+    }
 
-            try {
-                // try for a zoned date (has timezone), local date time (no time zone), or just a local date (no time)
-                TemporalAccessor accessor =
-                        formatter.parseBest(cleanedDateString, ZonedDateTime::from, OffsetDateTime::from, LocalDateTime::from, LocalDate::from);
-                if (accessor instanceof ZonedDateTime) {
-                    return (ZonedDateTime) accessor; // return the date time w/ timezone
-                } else if (accessor instanceof OffsetDateTime) {
-                    return ((OffsetDateTime) accessor).atZoneSameInstant(timezone);
-                } else if (accessor instanceof LocalDateTime) {
-                    return ((LocalDateTime) accessor).atZone(timezone); // set the timezone
-                } else if (accessor instanceof LocalDate) {
-                    return ((LocalDate) accessor).atStartOfDay(timezone); // add zeroed out time
-                }
+    /* Private Methods */
+
+    /**
+     * Attempts to parse a cleaned date string with one format
+     *
+     * @param cleanedDateString the string to parse, already cleaned
+     * @param formatter the date/time format to use
+     * @return the parsed zoned-date, or null if it failed to parse
+     */
+    @Nullable
+    private static ZonedDateTime parseCleaned(final String cleanedDateString, @Nullable final DateTimeFormatter formatter) {
+        if (formatter == null) {
+            return null;
+        }
 
-            } catch (NullPointerException | IllegalArgumentException | DateTimeParseException e) {
-                // Ignore b/c failures are expected -> set to trace otherwise will be noisy
-                logger.trace("Error parsing date {} with format {}", dateString, formatter);
+        try {
+            // try for a zoned date (has timezone), local date time (no time zone), or just a local date (no time)
+            TemporalAccessor accessor =
+                    formatter.parseBest(cleanedDateString, ZonedDateTime::from, OffsetDateTime::from, LocalDateTime::from, LocalDate::from);
+            if (accessor instanceof ZonedDateTime) {
+                return (ZonedDateTime) accessor; // return the date time w/ timezone
+            } else if (accessor instanceof OffsetDateTime) {
+                return ((OffsetDateTime) accessor).atZoneSameInstant(timezone);
+            } else if (accessor instanceof LocalDateTime) {
+                return ((LocalDateTime) accessor).atZone(timezone); // set the timezone
+            } else if (accessor instanceof LocalDate) {
+                return ((LocalDate) accessor).atStartOfDay(timezone); // add zeroed out time
             }
+
+        } catch (NullPointerException | IllegalArgumentException | DateTimeParseException e) {
+            // Ignore b/c failures are expected -> set to trace otherwise will be noisy
+            logger.trace("Error parsing date {} with format {}", cleanedDateString, formatter);
         }
         return null;
     }
 
-    /* Private Methods */
+    /**
+     * Compute the shape of a cleaned date string in one pass: every digit becomes 0 and letters are lower cased, everything
+     * else is kept. Whether a format can parse the layout of a string depends only on its shape.
+     *
+     * @param cleanedDateString the cleaned string
+     * @return the shape, the same length as the string
+     */
+    static String shapeOf(final String cleanedDateString) {
+        final char[] shape = new char[cleanedDateString.length()];
+        for (int i = 0; i < shape.length; i++) {
+            final char c = cleanedDateString.charAt(i);
+            if (c >= '0' && c <= '9') {
+                shape[i] = '0';
+            } else {
+                shape[i] = Character.toLowerCase(c);
+            }
+        }
+        return new String(shape);
+    }
 
     /**
      * If all our formats failed to parse a date string, give it one last try to parse it. Look for a numeric offset (e.g.
@@ -225,17 +280,30 @@ public final class FlexibleDateTimeParser {
      * @param tryExtensiveParsing Whether to use the extensive set of date formats
      * @return The ZonedDateTime object if our parsing was successful, or null if not
      */
+    @Nullable
     private static ZonedDateTime parseToZonedDateTime(final String dateString, boolean tryExtensiveParsing) {
-        ZonedDateTime zdt = parse(dateString, dateFormatsMain);
+        String cleanedDateString = cleanDateString(dateString);
+        if (StringUtils.isBlank(cleanedDateString)) {
+            return null;
+        }
+        String shape = shapeOf(cleanedDateString);
+        ZonedDateTime zdt = shapedFormatsMain.parse(cleanedDateString, shape);
 
         // if we got a successful parse or we don't want to attempt "extensive parsing", return here
         if (!tryExtensiveParsing || zdt != null) {
             return zdt;
         }
-        zdt = parse(dateString, dateFormatsExtra);
+        zdt = shapedFormatsExtra.parse(cleanedDateString, shape);
         return zdt;
     }
 
+    /**
+     * The main date formats, as configured
+     */
+    static List<DateTimeFormatter> getDateFormatsMain() {
+        return dateFormatsMain;
+    }
+
     /**
      * Get the timezone to use for parsing (needed for DateTimes that do not have timezone information)
      *
@@ -329,4 +397,73 @@ public final class FlexibleDateTimeParser {
      */
     private FlexibleDateTimeParser() {}
 
+    /**
+     * A list of formats that remembers which of them can parse the layout of each recently seen shape
+     */
+    private static final class ShapedFormats {
+        private final DateTimeFormatter[] formats;
+
+        /* shape -> positions in formats that can parse it, ascending, least recently used dropped first */
+        private final Map<String, int[]> shapes = new LinkedHashMap<String, int[]>(64, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+                return size() > SHAPE_CACHE_SIZE;
+            }
+        };
+
+        ShapedFormats(final List<DateTimeFormatter> formats) {
+            this.formats = formats.toArray(new DateTimeFormatter[0]);
+        }
+
+        /**
+         * Parse with the first format in list order that succeeds, only trying those that can parse the shape. The candidates
+         * for a shape are only remembered once one of them has parsed a string of that shape, since a string with an out of
+         * range value such as an offset of +0070 can fail the layout check of formats that suit the shape.
+         */
+        @Nullable
+        ZonedDateTime parse(final String cleanedDateString, final String shape) {
+            int[] cached;
+            synchronized (shapes) {
+                cached = shapes.get(shape);
+            }
+            final int[] candidates = cached != null ? cached : findCandidates(cleanedDateString);
+            for (int i : candidates) {
+                ZonedDateTime zdt = parseCleaned(cleanedDateString, formats[i]);
+                if (zdt != null) {
+                    if (cached == null) {
+                        synchronized (shapes) {
+                            shapes.put(shape, candidates);
+                        }
+                    }
+                    return zdt;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Find the formats whose pattern can consume the whole string, without resolving any fields. A format that throws is
+         * kept, since that happens when a value such as an offset is out of range and so depends on more than the shape.
+         */
+        private int[] findCandidates(final String cleanedDateString) {
+            final int[] found = new int[formats.length];
+            int count = 0;
+            for (int i = 0; i < formats.length; i++) {
+                try {
+                    final ParsePosition position = new ParsePosition(0);
+                    if (formats[i].parseUnresolved(cleanedDateString, position) == null || position.getErrorIndex() >= 0
+                            || position.getIndex() != cleanedDateString.length()) {
+                        continue;
+                    }
+                } catch (RuntimeException e) {
+                    logger.trace("Keeping format {} that cannot check the layout of {}", formats[i], cleanedDateString, e);
+                }
+                found[count++] = i;
+            }
+            return Arrays.copyOf(found, count);
+        }
+    }
+
 }
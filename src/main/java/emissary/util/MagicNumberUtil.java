@@ -2,6 +2,7 @@ package emissary.util;
 
 import emissary.util.magic.MagicNumber;
 import emissary.util.magic.MagicNumberFactory;
+import emissary.util.magic.MagicNumberIndex;
 import emissary.util.shell.Executrix;
 
 import org.slf4j.Logger;
@@ -82,6 +83,9 @@ public final class MagicNumberUtil {
     /** The magic number instances */
     private final List<MagicNumber> magicNumbers = new ArrayList<>();
 
+    /** Index over the magic numbers used by describe, replaced as a whole on each load so readers never see it change */
+    private volatile MagicNumberIndex index = new MagicNumberIndex(List.of());
+
     /**
      * Log flag for storing parse errors - they will just be discarded. Switching this on will allow erroneous entries to be
      * logged and can be retrieved using the method getErrorLog to find out which entries had parsing errors. Using the
@@ -153,6 +157,9 @@ public final class MagicNumberUtil {
     /**
      * Input a byte array sample and it will be compared against the global magic number list. Descriptions for matching
      * entries inclusive of continuations.
+     * <p>
+     * Only the entries that can match the sample are tested, using a {@link MagicNumberIndex} rebuilt on each load, and the
+     * first of them in file order with a description wins. Calls may be made from many threads once loading is done.
      *
      * @param data a byte[]
      * @return {@link String} representing matching description plus matching continuation descriptions or null.
@@ -161,16 +168,9 @@ public final class MagicNumberUtil {
      * @see #load(byte[])
      */
     public String describe(final byte[] data) {
-        log.debug("Checking against {} magic items", this.magicNumbers.size());
-        String description = null;
-        for (final MagicNumber item : this.magicNumbers) {
-            log.debug("Checking magic item {}", item);
-            description = item.describe(data);
-            if (description != null && !description.isEmpty()) {
-                break;
-            }
-        }
-        return description;
+        final MagicNumberIndex current = this.index;
+        log.debug("Checking against {} magic items", current.size());
+        return current.describe(data);
     }
 
     /**
@@ -285,6 +285,7 @@ public final class MagicNumberUtil {
         }
         this.magicNumbers.addAll(MagicNumberFactory.buildMagicNumberList(Executrix.readDataFromFile(config.getAbsolutePath()), mErrorList,
                 mExtErrorMap, swallowParseException));
+        this.index = new MagicNumberIndex(this.magicNumbers);
     }
 
     /**
@@ -300,6 +301,7 @@ public final class MagicNumberUtil {
             mExtErrorMap = this.extErrorMap;
         }
         this.magicNumbers.addAll(MagicNumberFactory.buildMagicNumberList(configData, mErrorList, mExtErrorMap));
+        this.index = new MagicNumberIndex(this.magicNumbers);
     }
 
     public int size() {
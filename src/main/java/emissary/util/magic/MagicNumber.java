@@ -144,7 +144,9 @@ public class MagicNumber {
         StringBuilder s = new StringBuilder();
         for (int i = 0; i < desc.length(); i++) {
             if (desc.charAt(i) == '\\' && (i + 1) < desc.length() && desc.charAt(i + 1) == 'b') {
-                s = new StringBuilder(s.substring(0, s.length() - 1));
+                if (s.length() > 0) {
+                    s.setLength(s.length() - 1);
+                }
                 i++;
                 continue;
             }
@@ -248,18 +250,17 @@ public class MagicNumber {
     /**
      * Tests this magic number against the given data
      */
-    public boolean test(byte[] data) {
-        byte[] subject = getElement(data, offset, dataTypeLength);
-        if (subject == null) {
+    public boolean test(@Nullable byte[] data) {
+        if (data == null || offset < 0 || data.length < (offset + dataTypeLength)) {
             return false;
         }
-        return testNumeric(subject);
+        return testNumeric(data, offset);
     }
 
     /**
-     * Tests numeric byte data only
+     * Tests numeric byte data only, in place against the sample starting at the given position
      */
-    private boolean testNumeric(byte[] data) {
+    private boolean testNumeric(byte[] sample, int start) {
         if (substitute) {
             return true;
         }
@@ -272,34 +273,34 @@ public class MagicNumber {
             case MAGICOPERATOR_AND:
             case MAGICOPERATOR_BWAND:
                 for (int i = 0; i < end; i++) {
-                    if (data[i] != mValues[i]) {
+                    if (sample[start + i] != mValues[i]) {
                         return false;
                     }
                 }
                 return true;
             case MAGICOPERATOR_GTHAN:
                 for (int i = 0; i < end; i++) {
-                    if ((data[i] & 0xFF) < (mValues[i] & 0xFF)) {
+                    if ((sample[start + i] & 0xFF) < (mValues[i] & 0xFF)) {
                         return false;
                     }
-                    if (i == end - 1 && data[i] == mValues[i]) {
+                    if (i == end - 1 && sample[start + i] == mValues[i]) {
                         return false;
                     }
                 }
                 return true;
             case MAGICOPERATOR_LTHAN:
                 for (int i = 0; i < end; i++) {
-                    if ((data[i] & 0xFF) > (mValues[i] & 0xFF)) {
+                    if ((sample[start + i] & 0xFF) > (mValues[i] & 0xFF)) {
                         return false;
                     }
-                    if (i == end - 1 && data[i] == mValues[i]) {
+                    if (i == end - 1 && sample[start + i] == mValues[i]) {
                         return false;
                     }
                 }
                 return true;
             case MAGICOPERATOR_OR:
                 for (int i = 0; i < end; i++) {
-                    if (data[i] == mValues[i]) {
+                    if (sample[start + i] == mValues[i]) {
                         return true;
                     }
                 }
@@ -307,21 +308,21 @@ public class MagicNumber {
             case MAGICOPERATOR_BWNOT:
             case MAGICOPERATOR_NOT:
                 for (int i = 0; i < end; i++) {
-                    if (data[i] != mValues[i]) {
+                    if (sample[start + i] != mValues[i]) {
                         return true;
                     }
                 }
                 return false;
             case MAGICOPERATOR_EQUAL_GTHAN:
                 for (int i = 0; i < end; i++) {
-                    if ((data[i] & 0xFF) < (mValues[i] & 0xFF)) {
+                    if ((sample[start + i] & 0xFF) < (mValues[i] & 0xFF)) {
                         return false;
                     }
                 }
                 return true;
             case MAGICOPERATOR_EQUAL_LTHAN:
                 for (int i = 0; i < end; i++) {
-                    if ((data[i] & 0xFF) > (mValues[i] & 0xFF)) {
+                    if ((sample[start + i] & 0xFF) > (mValues[i] & 0xFF)) {
                         return false;
                     }
                 }
@@ -0,0 +1,153 @@
+package emissary.util.magic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable index over a list of top level magic numbers that finds the first entry describing a sample without
+ * testing every entry in the list.
+ * <p>
+ * Entries that test their value for equality can only match a sample holding the first byte of that value at their
+ * offset, so they are bucketed by offset and first byte. For a given sample only the bucket selected by the sample byte
+ * at each offset is tested, together with the entries using any other operator or a substitution, which are tested for
+ * every sample. Candidates are tested in the order of the original list and continuations are only tested once their
+ * entry matches, so the description returned is the one a walk of the whole list would return.
+ * <p>
+ * Once built the index is never modified, so it can be shared by any number of threads.
+ */
+public final class MagicNumberIndex {
+
+    /** The entries in their original order */
+    private final MagicNumber[] entries;
+
+    /** The distinct offsets of the indexed entries, ascending */
+    private final int[] offsets;
+
+    /** For each offset, the ascending positions in {@link #entries} of the indexed entries keyed by each byte value */
+    private final int[][][] buckets;
+
+    /** Ascending positions in {@link #entries} of the entries that must be tested for every sample */
+    private final int[] unindexed;
+
+    /**
+     * Build the index
+     *
+     * @param magicNumbers the top level entries, in the order they are to be tested
+     */
+    public MagicNumberIndex(final List<MagicNumber> magicNumbers) {
+        this.entries = magicNumbers.toArray(new MagicNumber[0]);
+
+        final Map<Integer, List<List<Integer>>> byOffset = new TreeMap<>();
+        final List<Integer> rest = new ArrayList<>();
+        for (int i = 0; i < entries.length; i++) {
+            final MagicNumber item = entries[i];
+            if (isIndexable(item)) {
+                final List<List<Integer>> slots = byOffset.computeIfAbsent(item.offset, k -> newSlots());
+                slots.get(item.value[0] & 0xff).add(i);
+            } else {
+                rest.add(i);
+            }
+        }
+
+        this.offsets = new int[byOffset.size()];
+        this.buckets = new int[byOffset.size()][][];
+        int k = 0;
+        for (final Map.Entry<Integer, List<List<Integer>>> e : byOffset.entrySet()) {
+            offsets[k] = e.getKey();
+            buckets[k] = new int[256][];
+            for (int b = 0; b < 256; b++) {
+                final List<Integer> slot = e.getValue().get(b);
+                if (!slot.isEmpty()) {
+                    buckets[k][b] = toArray(slot);
+                }
+            }
+            k++;
+        }
+        this.unindexed = toArray(rest);
+    }
+
+    /**
+     * Whether an entry can only match a sample holding the first byte of its value at its offset
+     */
+    private static boolean isIndexable(final MagicNumber item) {
+        return !item.substitute && item.offset >= 0 && item.value != null && item.value.length > 0
+                && (item.unaryOperator == MagicNumber.MAGICOPERATOR_AND || item.unaryOperator == MagicNumber.MAGICOPERATOR_BWAND);
+    }
+
+    private static List<List<Integer>> newSlots() {
+        final List<List<Integer>> slots = new ArrayList<>(256);
+        for (int b = 0; b < 256; b++) {
+            slots.add(new ArrayList<>(0));
+        }
+        return slots;
+    }
+
+    private static int[] toArray(final List<Integer> list) {
+        final int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Number of entries in the index
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Find the description of the first entry in list order that matches the sample with a non-empty description
+     *
+     * @param data the sample
+     * @return the description including those of matching continuations, or null if no entry matches
+     */
+    @Nullable
+    public String describe(@Nullable final byte[] data) {
+        if (data == null) {
+            return null;
+        }
+
+        // Gather the candidate lists for this sample, each already in list order
+        final int[][] lists = new int[offsets.length + 1][];
+        int count = 0;
+        if (unindexed.length > 0) {
+            lists[count++] = unindexed;
+        }
+        for (int k = 0; k < offsets.length && offsets[k] < data.length; k++) {
+            final int[] bucket = buckets[k][data[offsets[k]] & 0xff];
+            if (bucket != null) {
+                lists[count++] = bucket;
+            }
+        }
+
+        // Merge them lazily, testing candidates in list order until one describes the sample
+        final int[] positions = new int[count];
+        String description = null;
+        int last = -1;
+        while (true) {
+            int next = -1;
+            int from = -1;
+            for (int l = 0; l < count; l++) {
+                if (positions[l] < lists[l].length && (next < 0 || lists[l][positions[l]] < next)) {
+                    next = lists[l][positions[l]];
+                    from = l;
+                }
+            }
+            if (next < 0) {
+                // A linear walk ends with whatever the last entry said, which is null unless it was a candidate
+                return last == entries.length - 1 ? description : null;
+            }
+            positions[from]++;
+            last = next;
+            description = entries[next].describe(data);
+            if (description != null && !description.isEmpty()) {
+                return description;
+            }
+        }
+    }
+}
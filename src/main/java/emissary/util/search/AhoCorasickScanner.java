@@ -0,0 +1,509 @@
+package emissary.util.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
+/**
+ * An Aho-Corasick automaton compiled once from a keyword list that finds every occurrence of every keyword in a single
+ * forward pass over the data, however many keywords there are.
+ * <p>
+ * The automaton is immutable once built and keeps no per-scan state, so one instance can be shared by any number of
+ * threads scanning at the same time without locking, unlike {@link MultiKeywordScanner} and
+ * {@link BackwardsTreeScanner}. Hits are reported to a {@link HitSink} as primitive offset and keyword id pairs rather
+ * than as {@link Hit} objects; {@link IntHitList} collects them into an int array. Data too large for an array can be
+ * fed through a {@link Cursor} a buffer at a time.
+ * <p>
+ * Transitions are held in one dense table over the byte classes that occur in the keywords, with every byte that
+ * appears in no keyword sharing a single class, so the table stays small for large keyword lists. Case folding, when
+ * requested, applies to ASCII letters only.
+ */
+@SuppressWarnings("AvoidObjectArrays")
+public final class AhoCorasickScanner {
+
+    /**
+     * Receives the hits found by a scan
+     */
+    @FunctionalInterface
+    public interface HitSink {
+        /**
+         * Called for each keyword occurrence, in order of the position the occurrence ends at
+         *
+         * @param offset position in the data where the keyword starts
+         * @param id index of the keyword in the list the scanner was built from
+         * @return true to keep scanning, false to stop the scan
+         */
+        boolean hit(int offset, int id);
+    }
+
+    /**
+     * Receives the hits found by a {@link Cursor}, with offsets into a stream that may be longer than any array
+     */
+    @FunctionalInterface
+    public interface LongHitSink {
+        /**
+         * Called for each keyword occurrence, in order of the position the occurrence ends at
+         *
+         * @param offset position in the stream where the keyword starts
+         * @param id index of the keyword in the list the scanner was built from
+         * @return true to keep scanning, false to stop the scan
+         */
+        boolean hit(long offset, int id);
+    }
+
+    /** The state every scan starts in */
+    private static final int ROOT = 0;
+
+    /** Length in bytes of each keyword */
+    private final int[] lengths;
+
+    /** Byte value to byte class */
+    private final int[] classOf = new int[256];
+
+    /** Number of byte classes, the width of a row in the transition table */
+    private final int classes;
+
+    /**
+     * Transition table indexed by row offset plus byte class. Each entry is the row offset of the next state, bitwise
+     * inverted when the next state has output.
+     */
+    private final int[] delta;
+
+    /** Start of each state's keyword ids in {@link #outputs}, indexed by state number, with a final end marker */
+    private final int[] outputStart;
+
+    /** Keyword ids matched in each state, longest first */
+    private final int[] outputs;
+
+    /** Whether the scanner folds ASCII case */
+    private final boolean caseInsensitive;
+
+    /**
+     * Build a case sensitive scanner for keywords encoded as UTF-8
+     *
+     * @param keywords the keywords, their index in the array is the id reported on a hit
+     */
+    public AhoCorasickScanner(final String[] keywords) {
+        this(keywords, false);
+    }
+
+    /**
+     * Build a scanner for keywords encoded as UTF-8
+     *
+     * @param keywords the keywords, their index in the array is the id reported on a hit
+     * @param caseInsensitive true to fold ASCII case in both keywords and data
+     */
+    public AhoCorasickScanner(final String[] keywords, final boolean caseInsensitive) {
+        this(encode(keywords), caseInsensitive);
+    }
+
+    /**
+     * Build a scanner
+     *
+     * @param keywords the keywords, their index in the array is the id reported on a hit
+     * @param caseInsensitive true to fold ASCII case in both keywords and data
+     */
+    public AhoCorasickScanner(final byte[][] keywords, final boolean caseInsensitive) {
+        this.caseInsensitive = caseInsensitive;
+        this.lengths = new int[keywords.length];
+
+        // Give every byte value used by a keyword a class of its own, folding case if asked to
+        int nextClass = 1;
+        for (int k = 0; k < keywords.length; k++) {
+            if (keywords[k] == null || keywords[k].length == 0) {
+                throw new IllegalArgumentException("Keyword " + k + " is empty");
+            }
+            lengths[k] = keywords[k].length;
+            for (final byte b : keywords[k]) {
+                final int v = fold(b & 0xff);
+                if (classOf[v] == 0) {
+                    classOf[v] = nextClass++;
+                }
+            }
+        }
+        if (caseInsensitive) {
+            for (int v = 'A'; v <= 'Z'; v++) {
+                classOf[v] = classOf[v + ('a' - 'A')];
+            }
+        }
+        this.classes = nextClass;
+
+        // Build the keyword trie, -1 marks a missing transition
+        int states = 1;
+        int[] trie = newRows(null, 0, 16 * classes);
+        int[][] own = new int[16][];
+        for (int k = 0; k < keywords.length; k++) {
+            int s = ROOT;
+            for (final byte b : keywords[k]) {
+                final int c = classOf[b & 0xff];
+                int next = trie[s * classes + c];
+                if (next < 0) {
+                    if ((states + 1) * classes > trie.length) {
+                        trie = newRows(trie, states * classes, trie.length * 2);
+                        own = Arrays.copyOf(own, own.length * 2);
+                    }
+                    next = states++;
+                    trie[s * classes + c] = next;
+                }
+                s = next;
+            }
+            own[s] = append(own[s], k);
+        }
+
+        // Breadth first, set failure links, turn the trie into a complete transition function and collect each state's
+        // output, its own keywords followed by those of its failure state
+        final int[] fail = new int[states];
+        final int[] queue = new int[states];
+        final int[][] out = new int[states][];
+        int head = 0;
+        int tail = 0;
+        out[ROOT] = own[ROOT] == null ? new int[0] : own[ROOT];
+        for (int c = 0; c < classes; c++) {
+            final int next = trie[c];
+            if (next < 0) {
+                trie[c] = ROOT;
+            } else {
+                fail[next] = ROOT;
+                queue[tail++] = next;
+            }
+        }
+        while (head < tail) {
+            final int s = queue[head++];
+            out[s] = concat(own[s], out[fail[s]]);
+            for (int c = 0; c < classes; c++) {
+                final int next = trie[s * classes + c];
+                if (next < 0) {
+                    trie[s * classes + c] = trie[fail[s] * classes + c];
+                } else {
+                    fail[next] = trie[fail[s] * classes + c];
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        this.outputStart = new int[states + 1];
+        int total = 0;
+        for (int s = 0; s < states; s++) {
+            outputStart[s] = total;
+            total += out[s].length;
+        }
+        outputStart[states] = total;
+        this.outputs = new int[total];
+        for (int s = 0; s < states; s++) {
+            System.arraycopy(out[s], 0, outputs, outputStart[s], out[s].length);
+        }
+
+        this.delta = new int[states * classes];
+        for (int i = 0; i < delta.length; i++) {
+            final int target = trie[i];
+            delta[i] = out[target].length > 0 ? ~(target * classes) : target * classes;
+        }
+    }
+
+    private static byte[][] encode(final String[] keywords) {
+        final byte[][] bytes = new byte[keywords.length][];
+        for (int i = 0; i < keywords.length; i++) {
+            bytes[i] = keywords[i] == null ? null : keywords[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    private int fold(final int v) {
+        return caseInsensitive && v >= 'A' && v <= 'Z' ? v + ('a' - 'A') : v;
+    }
+
+    private static int[] newRows(@Nullable final int[] old, final int used, final int size) {
+        final int[] rows = new int[size];
+        if (old != null) {
+            System.arraycopy(old, 0, rows, 0, used);
+        }
+        Arrays.fill(rows, used, size, -1);
+        return rows;
+    }
+
+    private static int[] append(@Nullable final int[] ids, final int id) {
+        if (ids == null) {
+            return new int[] {id};
+        }
+        final int[] grown = Arrays.copyOf(ids, ids.length + 1);
+        grown[ids.length] = id;
+        return grown;
+    }
+
+    private static int[] concat(@Nullable final int[] first, final int[] second) {
+        if (first == null) {
+            return second;
+        }
+        final int[] both = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+        return both;
+    }
+
+    /**
+     * Number of keywords the scanner was built from
+     */
+    public int getKeywordCount() {
+        return lengths.length;
+    }
+
+    /**
+     * Length in bytes of a keyword
+     *
+     * @param id the keyword id
+     * @return the length
+     */
+    public int getKeywordLength(final int id) {
+        return lengths[id];
+    }
+
+    /**
+     * Whether the scanner folds ASCII case
+     */
+    public boolean isCaseInsensitive() {
+        return caseInsensitive;
+    }
+
+    /**
+     * Report every keyword occurrence in the data
+     *
+     * @param data the bytes to scan
+     * @param sink receives the hits
+     * @return the number of hits reported
+     */
+    public int scan(final byte[] data, final HitSink sink) {
+        return scan(data, 0, data.length, sink);
+    }
+
+    /**
+     * Report every keyword occurrence that lies entirely within a range of the data
+     *
+     * @param data the bytes to scan
+     * @param start first position to scan
+     * @param end position after the last one to scan
+     * @param sink receives the hits
+     * @return the number of hits reported
+     */
+    public int scan(final byte[] data, final int start, final int end, final HitSink sink) {
+        final int[] d = delta;
+        final int[] cls = classOf;
+        int s = ROOT;
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            s = d[s + cls[data[i] & 0xff]];
+            if (s < 0) {
+                s = ~s;
+                final int state = s / classes;
+                for (int o = outputStart[state]; o < outputStart[state + 1]; o++) {
+                    final int id = outputs[o];
+                    count++;
+                    if (!sink.hit(i - lengths[id] + 1, id)) {
+                        return count;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Check whether any keyword occurs in a range of the data, stopping at the first one
+     *
+     * @param data the bytes to scan
+     * @param start first position to scan
+     * @param end position after the last one to scan
+     * @return true if a keyword was found
+     */
+    public boolean containsAny(final byte[] data, final int start, final int end) {
+        return scan(data, start, end, (offset, id) -> false) > 0;
+    }
+
+    /**
+     * Find every keyword occurrence, collected as {@link Hit} objects for code written against {@link IMultiKeywordScanner}
+     *
+     * @param data the bytes to scan
+     * @param start first position to scan
+     * @param end position after the last one to scan
+     * @return the hits in order of the position each occurrence ends at
+     */
+    public HitList findAll(final byte[] data, final int start, final int end) {
+        final HitList hits = new HitList();
+        scan(data, start, end, (offset, id) -> hits.add(new Hit(offset, id)));
+        return hits;
+    }
+
+    /**
+     * Start a scan of a stream that is fed to the automaton a piece at a time
+     *
+     * @param position offset in the stream of the first byte that will be fed
+     * @param sink receives the hits
+     * @return a cursor positioned at the start of the stream
+     */
+    public Cursor cursor(final long position, final LongHitSink sink) {
+        return new Cursor(position, sink);
+    }
+
+    /**
+     * The progress of one scan through a stream. The automaton state is carried from one {@link #feed} to the next, so
+     * keywords that straddle the pieces are found just as if the stream had been scanned as a single array. It is not
+     * thread safe, use one per stream.
+     */
+    public final class Cursor {
+        private final LongHitSink sink;
+        private long position;
+        private long hits = 0;
+        private int state = ROOT;
+        private boolean stopped = false;
+
+        private Cursor(final long position, final LongHitSink sink) {
+            this.position = position;
+            this.sink = sink;
+        }
+
+        /**
+         * Scan the next piece of the stream
+         *
+         * @param data buffer holding the piece
+         * @param start first position of the piece in the buffer
+         * @param end position after the last one of the piece in the buffer
+         * @return false once the sink has stopped the scan, after which further pieces are ignored
+         */
+        public boolean feed(final byte[] data, final int start, final int end) {
+            if (stopped) {
+                return false;
+            }
+            final int[] d = delta;
+            final int[] cls = classOf;
+            final long base = position - start;
+            int s = state;
+            for (int i = start; i < end; i++) {
+                s = d[s + cls[data[i] & 0xff]];
+                if (s < 0) {
+                    s = ~s;
+                    final int st = s / classes;
+                    for (int o = outputStart[st]; o < outputStart[st + 1]; o++) {
+                        final int id = outputs[o];
+                        hits++;
+                        if (!sink.hit(base + i - lengths[id] + 1, id)) {
+                            position = base + i + 1;
+                            stopped = true;
+                            return false;
+                        }
+                    }
+                }
+            }
+            state = s;
+            position = base + end;
+            return true;
+        }
+
+        /**
+         * Offset in the stream of the next byte to be fed
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        /**
+         * Number of hits reported so far
+         */
+        public long getHitCount() {
+            return hits;
+        }
+
+        /**
+         * Whether the sink has stopped the scan
+         */
+        public boolean isStopped() {
+            return stopped;
+        }
+    }
+
+    /**
+     * A {@link HitSink} that keeps the hits in a growable int array of offset and id pairs. It is not thread safe, use one
+     * per scanning thread.
+     */
+    public static final class IntHitList implements HitSink {
+        private int[] pairs;
+        private int size = 0;
+
+        public IntHitList() {
+            this(16);
+        }
+
+        /**
+         * Create a list with room for some hits before it has to grow
+         *
+         * @param capacity number of hits
+         */
+        public IntHitList(final int capacity) {
+            this.pairs = new int[Math.max(1, capacity) * 2];
+        }
+
+        @Override
+        public boolean hit(final int offset, final int id) {
+            if (size * 2 == pairs.length) {
+                pairs = Arrays.copyOf(pairs, pairs.length * 2);
+            }
+            pairs[size * 2] = offset;
+            pairs[size * 2 + 1] = id;
+            size++;
+            return true;
+        }
+
+        /**
+         * Number of hits collected
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Whether no hits have been collected
+         */
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Offset of a hit
+         *
+         * @param i index of the hit
+         * @return where the keyword starts in the data
+         */
+        public int getOffset(final int i) {
+            checkIndex(i);
+            return pairs[i * 2];
+        }
+
+        /**
+         * Keyword id of a hit
+         *
+         * @param i index of the hit
+         * @return the keyword id
+         */
+        public int getId(final int i) {
+            checkIndex(i);
+            return pairs[i * 2 + 1];
+        }
+
+        /**
+         * Forget the hits collected so the list can be reused
+         */
+        public void clear() {
+            size = 0;
+        }
+
+        /**
+         * Copy of the hits as alternating offset and id values
+         */
+        public int[] toArray() {
+            return Arrays.copyOf(pairs, size * 2);
+        }
+
+        private void checkIndex(final int i) {
+            if (i < 0 || i >= size) {
+                throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size);
+            }
+        }
+    }
+}
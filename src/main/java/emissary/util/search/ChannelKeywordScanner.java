@@ -0,0 +1,275 @@
+package emissary.util.search;
+
+import emissary.core.channels.SeekableByteChannelFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongPredicate;
+import javax.annotation.Nullable;
+
+/**
+ * Finds byte patterns in the data of a {@link SeekableByteChannelFactory} without reading it all into memory.
+ * <p>
+ * The data is read through a buffer of fixed size that slides along the channel. Enough of the end of each buffer is
+ * carried into the next one that matches straddling the boundary are still found, and every offset reported is the
+ * absolute position in the channel as a {@code long}. A payload of any size, such as the channel of a large
+ * {@link emissary.core.IBaseDataObject}, can therefore be searched in constant memory.
+ * <p>
+ * Single patterns are matched with {@link KeywordScanner} and follow its rules: matches do not overlap and case folding
+ * applies to ASCII letters only. Many keywords at once are matched in one pass with an {@link AhoCorasickScanner}. Each
+ * search opens its own channel, so an instance may be used by several threads as long as the case sensitivity is not
+ * changed while they run.
+ */
+public class ChannelKeywordScanner {
+
+    /** Returned by {@link #indexOf} when the pattern is not found */
+    public static final long NOTFOUND = -1L;
+
+    /** Buffer size used when none is given */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final SeekableByteChannelFactory sbcf;
+    private final int bufferSize;
+    private boolean caseSensitive = true;
+
+    /**
+     * Scan a channel with the default buffer size
+     *
+     * @param sbcf the data to be scanned
+     */
+    public ChannelKeywordScanner(final SeekableByteChannelFactory sbcf) {
+        this(sbcf, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Scan a channel
+     *
+     * @param sbcf the data to be scanned
+     * @param bufferSize number of bytes read from the channel at a time, grown when a pattern needs more
+     */
+    public ChannelKeywordScanner(final SeekableByteChannelFactory sbcf, final int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.sbcf = sbcf;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Sets the case sensitivity of single pattern searches
+     *
+     * @param theCase if set to false, ASCII case is ignored. Default is true.
+     */
+    public void setCaseSensitive(final boolean theCase) {
+        this.caseSensitive = theCase;
+    }
+
+    /**
+     * Returns the case sensitivity of single pattern searches
+     *
+     * @return true if the scanner is case-sensitive, false otherwise
+     */
+    public boolean isCaseSensitive() {
+        return this.caseSensitive;
+    }
+
+    /**
+     * Returns the first occurrence of the pattern in the channel
+     *
+     * @param pattern the byte pattern to scan for, null or empty returns -1
+     * @return the offset in the channel where the pattern begins, -1 if not found
+     * @throws IOException if the channel cannot be read
+     */
+    public long indexOf(@Nullable final byte[] pattern) throws IOException {
+        return indexOf(pattern, 0L, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns the first occurrence of the pattern in the channel, starting from the specified offset
+     *
+     * @param pattern the byte pattern to scan for, null or empty returns -1
+     * @param start the offset to start searching from, negative values treated as 0
+     * @return the offset in the channel where the pattern begins, -1 if not found
+     * @throws IOException if the channel cannot be read
+     */
+    public long indexOf(@Nullable final byte[] pattern, final long start) throws IOException {
+        return indexOf(pattern, start, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns the first occurrence of the pattern that lies entirely between two offsets of the channel
+     *
+     * @param pattern the byte pattern to scan for, null or empty returns -1
+     * @param start the offset to start searching from, negative values treated as 0
+     * @param stop the offset to stop searching at, exclusive, values past the end of the channel treated as its size
+     * @return the offset in the channel where the pattern begins, -1 if not found
+     * @throws IOException if the channel cannot be read
+     */
+    public long indexOf(@Nullable final byte[] pattern, final long start, final long stop) throws IOException {
+        final long[] found = {NOTFOUND};
+        search(pattern, start, stop, offset -> {
+            found[0] = offset;
+            return false;
+        });
+        return found[0];
+    }
+
+    /**
+     * Returns the first occurrence of the pattern in the channel, ignoring ASCII case whatever the case sensitivity is set
+     * to
+     *
+     * @param pattern the byte pattern to scan for, null or empty returns -1
+     * @param start the offset to start searching from, negative values treated as 0
+     * @param stop the offset to stop searching at, exclusive, values past the end of the channel treated as its size
+     * @return the offset in the channel where the pattern begins, -1 if not found
+     * @throws IOException if the channel cannot be read
+     */
+    public long indexIgnoreCase(@Nullable final byte[] pattern, final long start, final long stop) throws IOException {
+        final long[] found = {NOTFOUND};
+        search(pattern, start, stop, false, offset -> {
+            found[0] = offset;
+            return false;
+        });
+        return found[0];
+    }
+
+    /**
+     * Returns the non-overlapping occurrences of the pattern in the channel
+     *
+     * @param pattern the byte pattern to scan for, null or empty returns an empty list
+     * @return offsets in the channel where the pattern begins, empty list if not found
+     * @throws IOException if the channel cannot be read
+     */
+    public List<Long> listIndexOf(@Nullable final byte[] pattern) throws IOException {
+        return listIndexOf(pattern, 0L, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns the non-overlapping occurrences of the pattern that lie entirely between two offsets of the channel
+     *
+     * @param pattern the byte pattern to scan for, null or empty returns an empty list
+     * @param start the offset to start searching from, negative values treated as 0
+     * @param stop the offset to stop searching at, exclusive, values past the end of the channel treated as its size
+     * @return offsets in the channel where the pattern begins, empty list if not found
+     * @throws IOException if the channel cannot be read
+     */
+    public List<Long> listIndexOf(@Nullable final byte[] pattern, final long start, final long stop) throws IOException {
+        final List<Long> matches = new ArrayList<>();
+        search(pattern, start, stop, matches::add);
+        return matches;
+    }
+
+    /**
+     * Report every occurrence of every keyword of an automaton in the channel
+     *
+     * @param keywords the compiled keywords, whose own setting decides case sensitivity
+     * @param sink receives the hits with their offsets in the channel
+     * @return the number of hits reported
+     * @throws IOException if the channel cannot be read
+     */
+    public long scan(final AhoCorasickScanner keywords, final AhoCorasickScanner.LongHitSink sink) throws IOException {
+        return scan(keywords, 0L, Long.MAX_VALUE, sink);
+    }
+
+    /**
+     * Report every occurrence of every keyword of an automaton that lies entirely between two offsets of the channel
+     *
+     * @param keywords the compiled keywords, whose own setting decides case sensitivity
+     * @param start the offset to start scanning from, negative values treated as 0
+     * @param stop the offset to stop scanning at, exclusive, values past the end of the channel treated as its size
+     * @param sink receives the hits with their offsets in the channel
+     * @return the number of hits reported
+     * @throws IOException if the channel cannot be read
+     */
+    public long scan(final AhoCorasickScanner keywords, final long start, final long stop, final AhoCorasickScanner.LongHitSink sink)
+            throws IOException {
+        try (SeekableByteChannel channel = sbcf.create()) {
+            final long end = Math.min(stop, channel.size());
+            final long first = Math.max(start, 0L);
+            final AhoCorasickScanner.Cursor cursor = keywords.cursor(first, sink);
+            if (first >= end) {
+                return 0L;
+            }
+            channel.position(first);
+            final byte[] buffer = new byte[(int) Math.min(bufferSize, end - first)];
+            while (cursor.getPosition() < end) {
+                final int read = read(channel, buffer, 0, (int) Math.min(buffer.length, end - cursor.getPosition()));
+                if (read == 0 || !cursor.feed(buffer, 0, read)) {
+                    break;
+                }
+            }
+            return cursor.getHitCount();
+        }
+    }
+
+    private void search(@Nullable final byte[] pattern, final long start, final long stop, final LongPredicate hit) throws IOException {
+        search(pattern, start, stop, this.caseSensitive, hit);
+    }
+
+    /**
+     * Pass each non-overlapping match to the predicate until it returns false
+     */
+    private void search(@Nullable final byte[] pattern, final long start, final long stop, final boolean theCase, final LongPredicate hit)
+            throws IOException {
+        if (pattern == null || pattern.length == 0) {
+            return;
+        }
+        try (SeekableByteChannel channel = sbcf.create()) {
+            final long end = Math.min(stop, channel.size());
+            long bufferStart = Math.max(start, 0L);
+            if (end - bufferStart < pattern.length) {
+                return;
+            }
+            channel.position(bufferStart);
+
+            // Room for a full read on top of the tail kept from the previous buffer
+            final long wanted = Math.max(bufferSize, 2L * pattern.length);
+            final byte[] buffer = new byte[(int) Math.min(wanted, end - bufferStart)];
+            final KeywordScanner scanner = new KeywordScanner(buffer);
+            scanner.setCaseSensitive(theCase);
+
+            int filled = 0;
+            int searchFrom = 0;
+            while (true) {
+                final int read = read(channel, buffer, filled, (int) Math.min(buffer.length - filled, end - bufferStart - filled));
+                filled += read;
+                int position = scanner.indexOf(pattern, searchFrom, filled);
+                while (position >= 0) {
+                    if (!hit.test(bufferStart + position)) {
+                        return;
+                    }
+                    searchFrom = position + pattern.length;
+                    position = scanner.indexOf(pattern, searchFrom, filled);
+                }
+                if (read == 0 || bufferStart + filled >= end) {
+                    return;
+                }
+
+                // Keep the bytes a match straddling into the next buffer could begin with
+                final int keepFrom = Math.max(searchFrom, filled - pattern.length + 1);
+                System.arraycopy(buffer, keepFrom, buffer, 0, filled - keepFrom);
+                bufferStart += keepFrom;
+                filled -= keepFrom;
+                searchFrom = 0;
+            }
+        }
+    }
+
+    /**
+     * Read from the channel until the requested length is filled or the channel is exhausted
+     *
+     * @return the number of bytes read, less than requested only at the end of the channel
+     */
+    private static int read(final SeekableByteChannel channel, final byte[] buffer, final int offset, final int length) throws IOException {
+        final ByteBuffer bb = ByteBuffer.wrap(buffer, offset, length);
+        while (bb.hasRemaining()) {
+            if (channel.read(bb) < 0) {
+                break;
+            }
+        }
+        return bb.position() - offset;
+    }
+}
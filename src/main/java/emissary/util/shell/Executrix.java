@@ -2,11 +2,15 @@ package emissary.util.shell;
 
 import emissary.config.Configurator;
 import emissary.config.ServiceConfigGuide;
+import emissary.core.channels.FileChannelFactory;
+import emissary.core.channels.SeekableByteChannelFactory;
+import emissary.core.channels.SeekableByteChannelHelper;
 import emissary.directory.KeyManipulator;
 import emissary.util.io.FileManipulator;
 
 import com.google.common.primitives.Ints;
-import org.apache.commons.exec.ExecuteWatchdog;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.DeferredFileOutputStream;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.slf4j.Logger;
@@ -15,6 +19,7 @@ import org.slf4j.MDC;
 
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.File;
@@ -25,10 +30,22 @@ import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 import static emissary.core.constants.Configurations.PLACE_NAME;
@@ -44,6 +61,21 @@ public class Executrix {
     private static final int DEFAULT_VM_SIZE_LIMIT = 200000;
     private static final int DEFAULT_CPU_TIME_LIMIT = 300;
     private static final long DEFAULT_PROCESS_MAX_MILLIS = 300 * 1000L; // 5 min
+    private static final int DEFAULT_SPILL_THRESHOLD = 16 * 1024 * 1024;
+
+    /** Threads shared by every execution to copy the output of processes, so none are created per call */
+    private static final ExecutorService OUTPUT_PUMPS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "ExecutrixOutput");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Timer shared by every execution to stop processes that run past PROCESS_MAX_MILLIS */
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ExecutrixWatchdog");
+        t.setDaemon(true);
+        return t;
+    });
 
     public enum OUTPUT_TYPE {
         STD, FILE
@@ -63,6 +95,8 @@ public class Executrix {
     protected int vmSizeLimit;
     protected int cpuTimeLimit;
     protected long processMaxMillis;
+    protected int spillThreshold;
+    protected boolean stageByLink;
 
     // Pieces and parts of file and path names
     public static final int DIR = 0;
@@ -106,6 +140,10 @@ public class Executrix {
      * <li>VM_SIZE_LIMIT: default is 200000 for ulimit argument</li>
      * <li>CPU_TIME_LIMIT: default is 300 seconds for ulimit argument</li>
      * <li>PROCESS_MAX_MILLIS: default is 300000 (5 Min) for process Watchdog. Set to 0 to disable watchdog use</li>
+     * <li>SPILL_THRESHOLD: bytes of output {@link #executeStreaming} keeps in memory before moving it to a file in
+     * TEMP_DIR, default is 16MB</li>
+     * <li>STAGE_BY_LINK: when true, file backed data is hard linked into TEMP_DIR rather than copied. The command must not
+     * modify its input. Default is false</li>
      * </ul>
      * 
      * @param configGArg the configuration stream
@@ -133,6 +171,8 @@ public class Executrix {
         this.cpuTimeLimit = configG.findIntEntry("CPU_TIME_LIMIT", DEFAULT_CPU_TIME_LIMIT);
         // Set to 0 to disable watchdog monitoring
         this.processMaxMillis = configG.findLongEntry("PROCESS_MAX_MILLIS", DEFAULT_PROCESS_MAX_MILLIS);
+        this.spillThreshold = configG.findIntEntry("SPILL_THRESHOLD", DEFAULT_SPILL_THRESHOLD);
+        this.stageByLink = configG.findBooleanEntry("STAGE_BY_LINK", false);
     }
 
     /**
@@ -834,47 +874,151 @@ public class Executrix {
 
     private int execute(ExecuteConfig eConfig) {
         int exitValue = -1;
-        ExecuteWatchdog dog = null;
+        ScheduledFuture<?> dog = null;
         try {
             final ProcessBuilder pb = eConfig.getProcessBuilder();
             final Process p = pb.start();
-            final ProcessReader stdOutThread = eConfig.getStdOutProcessReader(p);
-            final ProcessReader stdErrThread = eConfig.getStdErrProcessReader(p);
-
-            // pass context to child threads so the info is available for any messages logged on those threads
-            stdOutThread.setContextMap(MDC.getCopyOfContextMap());
-            stdErrThread.setContextMap(MDC.getCopyOfContextMap());
-
-            stdOutThread.start();
-            stdErrThread.start();
+            final Future<?> stdOut = pump(eConfig.getStdOutProcessReader(p));
+            final Future<?> stdErr = pump(eConfig.getStdErrProcessReader(p));
             streamData(p, eConfig.getData());
 
             // kill process if it's not done after 5 minutes - would prefer to
             // pass in a timeout value
-            if (this.processMaxMillis >= 1) {
-                dog = new ExecuteWatchdog(this.processMaxMillis);
-                dog.start(p);
-            }
+            dog = watch(p);
             p.waitFor();
-            stdOutThread.join();
-            stdErrThread.join();
-            stdOutThread.finish();
-            stdErrThread.finish();
+            stdOut.get();
+            stdErr.get();
             exitValue = p.exitValue();
-        } catch (IOException e) {
+        } catch (IOException | ExecutionException e) {
             logger.warn("Failure during execution: {}, external command={}", e, Arrays.asList(eConfig.getCmd()));
         } catch (InterruptedException e) {
             logger.warn("Interrupted during execution: {}, external command={}", e, Arrays.asList(eConfig.getCmd()));
             Thread.currentThread().interrupt();
         } finally {
             if (dog != null) {
-                dog.stop();
-                dog = null;
+                dog.cancel(false);
             }
         }
         return exitValue;
     }
 
+    /**
+     * Executes a command in a new process, streaming the input from a channel and the standard output into a stream so that
+     * neither has to fit in memory
+     *
+     * @param cmd the command and arguments to execute
+     * @param input the input data to the command, or null for none
+     * @param out the destination of the standard output, or null to discard it
+     * @param err the destination to capture the standard error, or null to discard it
+     * @param charset character set of the standard error
+     * @param env environment variables for the new process supplied in name=value format.
+     * @return process exit status
+     */
+    public int executeStreaming(final String[] cmd, @Nullable final SeekableByteChannelFactory input, @Nullable final OutputStream out,
+            @Nullable final StringBuilder err, @Nullable final String charset, @Nullable final Map<String, String> env) {
+        int exitValue = -1;
+        ScheduledFuture<?> dog = null;
+        try {
+            final ProcessBuilder pb = new ExecuteConfig.SbExecuteConfig(cmd, null, null, err, charset, env).getProcessBuilder();
+            final Process p = pb.start();
+            final Future<?> stdOut =
+                    pump(out == null ? new ReadOutputLogger("stdOut", p.getInputStream()) : new ReadOutputStream(p.getInputStream(), out));
+            final Future<?> stdErr =
+                    pump(err == null ? new ReadOutputLogger("stdErr", p.getErrorStream()) : new ReadOutputBuffer(p.getErrorStream(), err, charset));
+
+            // watch before streaming, a process that stops reading must not hold up the caller
+            dog = watch(p);
+            streamData(p, input);
+            p.waitFor();
+            stdOut.get();
+            stdErr.get();
+            exitValue = p.exitValue();
+        } catch (IOException | ExecutionException e) {
+            logger.warn("Failure during execution: {}, external command={}", e, Arrays.asList(cmd));
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted during execution: {}, external command={}", e, Arrays.asList(cmd));
+            Thread.currentThread().interrupt();
+        } finally {
+            if (dog != null) {
+                dog.cancel(false);
+            }
+        }
+        return exitValue;
+    }
+
+    /**
+     * Executes a command in a new process, streaming the input from a channel and collecting the standard output in memory
+     * until it passes SPILL_THRESHOLD bytes, after which it is moved to a file in TEMP_DIR. The caller must close the
+     * result to remove any such file.
+     *
+     * @param cmd the command and arguments to execute
+     * @param input the input data to the command, or null for none
+     * @param err the destination to capture the standard error, or null to discard it
+     * @return the exit status and standard output of the process
+     * @throws IOException if the spill file cannot be used
+     */
+    public StreamedOutput executeStreaming(final String[] cmd, @Nullable final SeekableByteChannelFactory input, @Nullable final StringBuilder err)
+            throws IOException {
+        final DeferredFileOutputStream out = DeferredFileOutputStream.builder()
+                .setThreshold(this.spillThreshold)
+                .setPrefix("executrix")
+                .setSuffix(".out")
+                .setDirectory(new File(this.tmpDir))
+                .get();
+        final int exitValue;
+        try (out) {
+            exitValue = executeStreaming(cmd, input, out, err, null, null);
+        } catch (IOException e) {
+            if (out.getFile() != null) {
+                Files.deleteIfExists(out.getPath());
+            }
+            throw e;
+        }
+        return out.isInMemory() ? new StreamedOutput(exitValue, SeekableByteChannelHelper.memory(out.getData()), null)
+                : new StreamedOutput(exitValue, SeekableByteChannelHelper.file(out.getPath()), out.getPath());
+    }
+
+    /**
+     * Copy process output on a shared thread, carrying the logging context of the caller
+     */
+    private static Future<?> pump(final ProcessReader reader) {
+        // the reader is run as a task rather than started as its own thread
+        reader.setContextMap(MDC.getCopyOfContextMap());
+        return OUTPUT_PUMPS.submit(() -> {
+            try {
+                reader.applyLogContextMap();
+                reader.runImpl();
+            } finally {
+                MDC.clear();
+            }
+        });
+    }
+
+    /**
+     * Arrange for the process to be destroyed if it is still running after PROCESS_MAX_MILLIS
+     */
+    @Nullable
+    private ScheduledFuture<?> watch(final Process p) {
+        if (this.processMaxMillis < 1) {
+            return null;
+        }
+        return WATCHDOG.schedule(() -> {
+            if (p.isAlive()) {
+                logger.warn("Destroying process that ran longer than {}ms", this.processMaxMillis);
+                p.destroyForcibly();
+            }
+        }, this.processMaxMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void streamData(Process p, @Nullable SeekableByteChannelFactory input) throws IOException {
+        try (OutputStream os = p.getOutputStream()) {
+            if (input != null) {
+                try (InputStream is = Channels.newInputStream(input.create())) {
+                    IOUtils.copyLarge(is, os);
+                }
+            }
+        }
+    }
 
     private static void streamData(Process p, byte[] data) throws IOException {
         try (OutputStream os = new BufferedOutputStream(new DataOutputStream(p.getOutputStream()))) {
@@ -948,6 +1092,93 @@ public class Executrix {
         return writeDataToNewTempDir(data, dirn);
     }
 
+    /**
+     * Stage part of a channel for processing into a new subdir under our configured temp area without reading it into
+     * memory
+     *
+     * @param sbcf the data to stage
+     * @param start offset of the first byte to stage
+     * @param len number of bytes to stage
+     * @return the tempNames structure that was created
+     * @see #stageChannel(SeekableByteChannelFactory, long, long, String)
+     */
+    public String[] writeDataToNewTempDir(final SeekableByteChannelFactory sbcf, final long start, final long len) {
+        final String[] tnames = makeTempFilenames();
+        stageChannel(sbcf, start, len, tnames[INPATH]);
+        return tnames;
+    }
+
+    /**
+     * Put part of a channel in a file for an external command to read. When the channel is backed by a file the bytes are
+     * moved by the kernel with {@link FileChannel#transferTo}, or the whole file is hard linked if STAGE_BY_LINK is set and
+     * TEMP_DIR is on the same file system. Other channels are copied through a small buffer. The data never has to fit in
+     * memory, and pointing TEMP_DIR at a tmpfs mount keeps it off disk as well.
+     *
+     * @param sbcf the data to stage
+     * @param start offset of the first byte to stage
+     * @param len number of bytes to stage
+     * @param filename the file to create
+     * @return true if the file was written
+     */
+    public boolean stageChannel(final SeekableByteChannelFactory sbcf, final long start, final long len, final String filename) {
+        final Path target = Paths.get(filename);
+        final Path source = FileChannelFactory.getPath(sbcf);
+        try {
+            final Path dir = target.getParent();
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+            if (source != null) {
+                if (this.stageByLink && start == 0 && len == Files.size(source) && link(source, target)) {
+                    return true;
+                }
+                try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                        FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                StandardOpenOption.TRUNCATE_EXISTING)) {
+                    long done = 0;
+                    while (done < len) {
+                        final long n = in.transferTo(start + done, len - done, out);
+                        if (n <= 0) {
+                            throw new EOFException("Source ended after " + done + " of " + len + " bytes: " + source);
+                        }
+                        done += n;
+                    }
+                }
+            } else {
+                try (SeekableByteChannel in = sbcf.create();
+                        FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                StandardOpenOption.TRUNCATE_EXISTING)) {
+                    in.position(start);
+                    long done = 0;
+                    while (done < len) {
+                        final long n = out.transferFrom(in, done, Math.min(len - done, 1024 * 1024));
+                        if (n <= 0) {
+                            throw new EOFException("Channel ended after " + done + " of " + len + " bytes");
+                        }
+                        done += n;
+                    }
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            logger.error("stageChannel({}) exception", filename, e);
+        }
+        return false;
+    }
+
+    /**
+     * Hard link the source to the target, false if the file system does not allow it
+     */
+    private static boolean link(final Path source, final Path target) {
+        try {
+            Files.createLink(target, source);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.debug("Copying {} since it cannot be linked: {}", source, e.toString());
+            return false;
+        }
+    }
+
     /**
      * Gets the value of command that this instance will execute adding configured limits and configured paths to the
      * configuration value
@@ -1331,15 +1562,80 @@ public class Executrix {
         return this.processMaxMillis;
     }
 
+    /**
+     * Set the number of bytes of output {@link #executeStreaming} keeps in memory
+     */
+    public void setSpillThreshold(final int spillThreshold) {
+        this.spillThreshold = spillThreshold;
+    }
+
+    public int getSpillThreshold() {
+        return this.spillThreshold;
+    }
+
+    public void setStageByLink(final boolean stageByLink) {
+        this.stageByLink = stageByLink;
+    }
+
+    public boolean isStageByLink() {
+        return this.stageByLink;
+    }
+
+    /**
+     * The exit status and standard output of a process run by {@link #executeStreaming}. Closing it removes the file
+     * holding the output, if it was too large to keep in memory.
+     */
+    public static final class StreamedOutput implements Closeable {
+        private final int exitValue;
+        private final SeekableByteChannelFactory output;
+        @Nullable
+        private final Path spillFile;
+
+        StreamedOutput(final int exitValue, final SeekableByteChannelFactory output, @Nullable final Path spillFile) {
+            this.exitValue = exitValue;
+            this.output = output;
+            this.spillFile = spillFile;
+        }
+
+        /**
+         * The process exit status, -1 if it could not be run
+         */
+        public int getExitValue() {
+            return exitValue;
+        }
+
+        /**
+         * The standard output of the process, valid until this is closed
+         */
+        public SeekableByteChannelFactory getOutput() {
+            return output;
+        }
+
+        /**
+         * Whether the output was moved to a file
+         */
+        public boolean isSpilled() {
+            return spillFile != null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (spillFile != null) {
+                Files.deleteIfExists(spillFile);
+            }
+        }
+    }
+
     private abstract static class ExecuteConfig {
 
         final String[] cmd;
+        @Nullable
         final byte[] data;
         final StringBuilder err;
         final String charset;
         final Map<String, String> env;
 
-        public ExecuteConfig(String[] cmd, byte[] data, StringBuilder err, String charset, Map<String, String> env) {
+        public ExecuteConfig(String[] cmd, @Nullable byte[] data, StringBuilder err, String charset, Map<String, String> env) {
             this.cmd = cmd;
             this.data = data;
             this.err = err;
@@ -1351,6 +1647,7 @@ public class Executrix {
             return cmd;
         }
 
+        @Nullable
         public byte[] getData() {
             return data;
         }
@@ -1375,9 +1672,11 @@ public class Executrix {
         }
 
         private static class SbExecuteConfig extends ExecuteConfig {
+            @Nullable
             final StringBuilder out;
 
-            public SbExecuteConfig(String[] cmd, byte[] data, StringBuilder out, StringBuilder err, String charset, Map<String, String> env) {
+            public SbExecuteConfig(String[] cmd, @Nullable byte[] data, @Nullable StringBuilder out, StringBuilder err, String charset,
+                    Map<String, String> env) {
                 super(cmd, data, err, charset, env);
                 this.out = out;
             }
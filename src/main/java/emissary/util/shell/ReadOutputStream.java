@@ -0,0 +1,47 @@
+package emissary.util.shell;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Copy process output into any stream as it arrives, without holding it in memory
+ */
+public class ReadOutputStream extends ProcessReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadOutputStream.class);
+
+    private final InputStream inputStream;
+    private final OutputStream outputStream;
+    private long count = 0;
+
+    public ReadOutputStream(final InputStream is, final OutputStream os) {
+        this.inputStream = is;
+        this.outputStream = os;
+    }
+
+    @Override
+    void runImpl() {
+        try {
+            count = IOUtils.copyLarge(inputStream, outputStream);
+        } catch (IOException e) {
+            logger.debug("Stopped copying process output", e);
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    @Override
+    public void finish() {}
+
+    /**
+     * Number of bytes copied
+     */
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,222 @@
+package emissary.util.shell;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * A pool of long running helper processes that are handed work on their standard input and answer on their standard
+ * output, so that each request costs a round trip over a pipe rather than launching a process.
+ * <p>
+ * A request is written as a four byte big endian length followed by that many bytes. The helper answers with a four
+ * byte status, zero for success, then a four byte length and that many bytes of output. Whatever the helper writes to
+ * standard error is logged. Helpers are started when first needed. One that has exited, breaks the framing or does not
+ * answer within the timeout is destroyed, and a new one is started in its place for the next request.
+ */
+public class ResidentProcessPool implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResidentProcessPool.class);
+
+    /** Largest answer accepted from a helper */
+    public static final int MAX_FRAME = Integer.MAX_VALUE - 8;
+
+    private final String[] command;
+    private final long timeoutMillis;
+    private final Semaphore slots;
+    private final Deque<Worker> idle = new ConcurrentLinkedDeque<>();
+    private final ScheduledExecutorService watchdog;
+    private volatile boolean closed = false;
+
+    /**
+     * Create a pool, no helper is started until the first request
+     *
+     * @param command the helper command and its arguments
+     * @param size most helpers running at once
+     * @param timeoutMillis how long a helper may take to answer before it is destroyed, 0 to wait forever
+     */
+    @SuppressWarnings("AvoidObjectArrays")
+    public ResidentProcessPool(final String[] command, final int size, final long timeoutMillis) {
+        if (command.length == 0 || size < 1) {
+            throw new IllegalArgumentException("A resident process pool needs a command and at least one helper");
+        }
+        this.command = command.clone();
+        this.timeoutMillis = timeoutMillis;
+        this.slots = new Semaphore(size, true);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ResidentProcessWatchdog");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Send data to a helper and wait for its answer
+     *
+     * @param data the request bytes
+     * @return the output of the helper, or null if it reported a failure
+     * @throws IOException if no helper could be started, or the helper died, broke the framing or timed out
+     * @throws InterruptedException if interrupted while waiting for a free helper
+     */
+    @Nullable
+    public byte[] exchange(final byte[] data) throws IOException, InterruptedException {
+        return exchange(data, 0, data.length);
+    }
+
+    /**
+     * Send part of an array to a helper and wait for its answer
+     *
+     * @param data the request bytes
+     * @param offset where the request starts in data
+     * @param length number of bytes in the request
+     * @return the output of the helper, or null if it reported a failure
+     * @throws IOException if no helper could be started, or the helper died, broke the framing or timed out
+     * @throws InterruptedException if interrupted while waiting for a free helper
+     */
+    @Nullable
+    public byte[] exchange(final byte[] data, final int offset, final int length) throws IOException, InterruptedException {
+        if (closed) {
+            throw new IOException("Resident process pool is closed");
+        }
+        slots.acquire();
+        Worker worker = null;
+        boolean healthy = false;
+        try {
+            worker = borrow();
+            final byte[] answer = worker.exchange(data, offset, length);
+            healthy = true;
+            return answer;
+        } finally {
+            if (worker != null) {
+                // the alarm may have gone off after the answer was read, so check before reuse
+                if (healthy && !closed && !worker.timedOut && worker.process.isAlive()) {
+                    idle.push(worker);
+                } else {
+                    worker.destroy();
+                }
+            }
+            slots.release();
+        }
+    }
+
+    /**
+     * Number of helpers started and waiting for work
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Destroy all helpers, requests in flight fail
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Worker w;
+        while ((w = idle.poll()) != null) {
+            w.destroy();
+        }
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * Take an idle helper that is still running or start a new one
+     */
+    private Worker borrow() throws IOException {
+        Worker w;
+        while ((w = idle.poll()) != null) {
+            if (w.process.isAlive()) {
+                return w;
+            }
+            logger.warn("Resident helper {} exited with {}, restarting", Arrays.asList(command), w.process.exitValue());
+            w.destroy();
+        }
+        return new Worker();
+    }
+
+    /**
+     * One running helper and its pipes
+     */
+    private final class Worker {
+        final Process process;
+        final DataOutputStream toHelper;
+        final DataInputStream fromHelper;
+        volatile boolean timedOut = false;
+
+        Worker() throws IOException {
+            process = new ProcessBuilder(command).start();
+            toHelper = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            fromHelper = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            final Thread errors = new Thread(this::logErrors, "ResidentProcessErrors-" + process.pid());
+            errors.setDaemon(true);
+            errors.start();
+            logger.debug("Started resident helper {} as {}", Arrays.asList(command), process.pid());
+        }
+
+        @Nullable
+        byte[] exchange(final byte[] data, final int offset, final int length) throws IOException {
+            final ScheduledFuture<?> alarm = timeoutMillis > 0 ? watchdog.schedule(this::expire, timeoutMillis, TimeUnit.MILLISECONDS) : null;
+            try {
+                toHelper.writeInt(length);
+                toHelper.write(data, offset, length);
+                toHelper.flush();
+
+                final int status = fromHelper.readInt();
+                final int size = fromHelper.readInt();
+                if (size < 0 || size > MAX_FRAME) {
+                    throw new IOException("Resident helper sent a frame of " + size + " bytes");
+                }
+                final byte[] answer = new byte[size];
+                fromHelper.readFully(answer);
+                if (status != 0) {
+                    logger.warn("Resident helper {} failed with status {}", Arrays.asList(command), status);
+                    return null;
+                }
+                return answer;
+            } catch (IOException e) {
+                throw timedOut ? new IOException("Resident helper did not answer within " + timeoutMillis + "ms", e) : e;
+            } finally {
+                // too late to cancel means the alarm has fired or is firing and the helper is being killed
+                if (alarm != null && !alarm.cancel(false)) {
+                    timedOut = true;
+                }
+            }
+        }
+
+        void expire() {
+            timedOut = true;
+            process.destroyForcibly();
+        }
+
+        void destroy() {
+            process.destroyForcibly();
+        }
+
+        private void logErrors() {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    logger.debug("{}: {}", process.pid(), line);
+                }
+            } catch (IOException ignore) {
+                // the helper has gone away
+            }
+        }
+    }
+}
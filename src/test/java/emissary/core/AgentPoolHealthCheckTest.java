@@ -0,0 +1,49 @@
+package emissary.core;
+
+import emissary.pool.AgentPool;
+import emissary.pool.MobileAgentFactory;
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AgentPoolHealthCheckTest extends UnitTest {
+
+    private AgentPool pool;
+
+    @BeforeEach
+    public void createPool() {
+        pool = new AgentPool(new MobileAgentFactory("emissary.core.HDMobileAgent"), 4);
+    }
+
+    @AfterEach
+    public void closePool() {
+        pool.kill();
+    }
+
+    @Test
+    void testHealthyAfterResize() {
+        AgentPoolHealthCheck check = new AgentPoolHealthCheck();
+        assertTrue(check.execute().isHealthy(), "Health check should pass on a full pool");
+
+        // retires the first agents, so the names left in the namespace are no longer contiguous
+        pool.resize(2);
+        pool.resize(6);
+        boolean contiguous = true;
+        for (int i = 0; i < pool.getMaxTotal(); i++) {
+            contiguous &= Namespace.exists(MobileAgentFactory.AGENT_NAME + "-" + String.format("%02d", i));
+        }
+        assertFalse(contiguous, "Resizing should have left a gap in the agent names");
+        assertTrue(check.execute().isHealthy(), "Health check should pass on a resized pool");
+    }
+
+    @Test
+    void testUnhealthyWhenAgentsAreMissing() throws Exception {
+        pool.invalidateObject(pool.borrowAgent());
+        assertFalse(new AgentPoolHealthCheck().execute().isHealthy(), "Health check should fail when the pool is short of agents");
+    }
+}
@@ -1,5 +1,7 @@
 package emissary.core;
 
+import emissary.directory.DirectoryEntry;
+import emissary.place.IServiceProviderPlace;
 import emissary.place.ServiceProviderPlace;
 import emissary.test.core.junit5.UnitTest;
 
@@ -9,8 +11,14 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  *
@@ -38,6 +46,187 @@ class HDMobileAgentTest extends UnitTest {
         assertEquals(2, ret.size());
     }
 
+    @Test
+    void testProcessSproutsInParallel() throws Exception {
+        final SproutingPlace place = new SproutingPlace("emissary.core.FakePlace.cfg");
+        final ScriptedAgent ma = new ScriptedAgent(place);
+        try {
+            final List<IBaseDataObject> sprouts = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                sprouts.add(DataObjectFactory.getInstance(new byte[] {}, "testFile-att-" + i, "LEVEL1"));
+            }
+
+            final List<IBaseDataObject> family = ma.processSproutsInParallel(place, sprouts);
+
+            // Each LEVEL1 sprout produces two LEVEL2 children
+            assertEquals(9, family.size());
+            for (final IBaseDataObject d : family) {
+                assertEquals("FINI", d.currentForm(), "Every family member should be ready for IO");
+                assertEquals(1, d.transformHistory().size(), "Every family member should have visited the place once");
+            }
+            assertFalse(place.threads.contains(Thread.currentThread().getName()), "Sprouts should run on the family pool");
+
+            // the first sprout finishes last, the family is still in the order the serial path would give
+            final List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                expected.add("testFile-att-" + i);
+            }
+            for (int i = 0; i < 3; i++) {
+                expected.add("testFile-att-" + i + "-att-1");
+                expected.add("testFile-att-" + i + "-att-2");
+            }
+            final List<String> names = new ArrayList<>();
+            for (final IBaseDataObject d : family) {
+                names.add(d.shortName());
+            }
+            assertEquals(expected, names, "Family should be in sprout order, not completion order");
+        } finally {
+            ma.killAgent();
+            place.shutDown();
+        }
+    }
+
+    @Test
+    void testParallelSproutPlaceTimeout() throws Exception {
+        final ResourceWatcher watcher = new ResourceWatcher();
+        final SlowPlace place = new SlowPlace("emissary.core.FakePlace.cfg");
+        final ScriptedAgent ma = new ScriptedAgent(place);
+        try {
+            final List<IBaseDataObject> sprouts = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                sprouts.add(DataObjectFactory.getInstance(new byte[] {}, "testFile-att-" + i, "SLOW"));
+            }
+
+            final long start = System.currentTimeMillis();
+            final List<IBaseDataObject> family = ma.processSproutsInParallel(place, sprouts);
+
+            assertTrue(System.currentTimeMillis() - start < 20000L, "Place time out should stop each sprout");
+            assertEquals(2, family.size());
+            assertEquals(2, place.interruptions.get(), "Each sprout's own thread should be interrupted");
+            assertFalse(place.interrupted.contains(Thread.currentThread().getName()), "Sprouts should run on the family pool");
+            assertFalse(Thread.currentThread().isInterrupted(), "The waiting thread should not be interrupted");
+        } finally {
+            ma.killAgent();
+            place.shutDown();
+            watcher.quit();
+            Namespace.unbind(ResourceWatcher.DEFAULT_NAMESPACE_NAME);
+        }
+    }
+
+    @Test
+    void testParallelFamilyProcessingSetting() {
+        HDMobileAgent ma = new HDMobileAgent();
+        try {
+            assertFalse(ma.isParallelFamilyProcessing(), "Parallel family processing should be off by default");
+            ma.setParallelFamilyProcessing(true);
+            assertTrue(ma.isParallelFamilyProcessing());
+        } finally {
+            ma.killAgent();
+        }
+    }
+
+    static final class ScriptedAgent extends HDMobileAgent {
+        static final long serialVersionUID = -4011286016478426613L;
+
+        private final transient IServiceProviderPlace place;
+
+        ScriptedAgent(final IServiceProviderPlace place) {
+            this.place = place;
+        }
+
+        @Override
+        @Nullable
+        protected DirectoryEntry getNextKey(@Nullable final IServiceProviderPlace current, @Nullable final IBaseDataObject payloadArg) {
+            if (payloadArg == null) {
+                return null;
+            }
+            if ("FINI".equals(payloadArg.currentForm())) {
+                return new DirectoryEntry("FINI.DROP.IO.http://localhost:8001/DropOffPlace$5050");
+            }
+            return new LocalEntry(payloadArg.currentForm() + ".FAKE.ANALYZE.http://localhost:8001/FakePlace$5050", place);
+        }
+    }
+
+    static final class LocalEntry extends DirectoryEntry {
+        static final long serialVersionUID = 3570423624453587717L;
+
+        private final transient IServiceProviderPlace place;
+
+        LocalEntry(final String key, final IServiceProviderPlace place) {
+            super(key);
+            this.place = place;
+        }
+
+        @Override
+        public boolean isLocal() {
+            return true;
+        }
+
+        @Override
+        public IServiceProviderPlace getLocalPlace() {
+            return place;
+        }
+    }
+
+    static final class SproutingPlace extends ServiceProviderPlace {
+
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        public SproutingPlace(String configInfo) throws IOException {
+            super(configInfo, "SproutingPlace.www.example.com:8001");
+        }
+
+        @Override
+        public List<IBaseDataObject> agentProcessHeavyDuty(List<IBaseDataObject> payloadListArg) {
+            threads.add(Thread.currentThread().getName());
+            final List<IBaseDataObject> children = new ArrayList<>();
+            for (final IBaseDataObject d : payloadListArg) {
+                if (d.shortName().endsWith("-att-0")) {
+                    try {
+                        Thread.sleep(200L);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if ("LEVEL1".equals(d.currentForm())) {
+                    children.add(DataObjectFactory.getInstance(new byte[] {}, d.shortName() + "-att-1", "LEVEL2"));
+                    children.add(DataObjectFactory.getInstance(new byte[] {}, d.shortName() + "-att-2", "LEVEL2"));
+                }
+                d.setCurrentForm("FINI");
+            }
+            return children;
+        }
+    }
+
+    static final class SlowPlace extends ServiceProviderPlace {
+
+        final Set<String> interrupted = ConcurrentHashMap.newKeySet();
+        final AtomicInteger interruptions = new AtomicInteger();
+
+        public SlowPlace(String configInfo) throws IOException {
+            super(configInfo, "SlowPlace.www.example.com:8001");
+        }
+
+        @Override
+        public long getResourceLimitMillis() {
+            return 200L;
+        }
+
+        @Override
+        public List<IBaseDataObject> agentProcessHeavyDuty(List<IBaseDataObject> payloadListArg) {
+            try {
+                Thread.sleep(30000L);
+            } catch (InterruptedException e) {
+                interrupted.add(Thread.currentThread().getName());
+                interruptions.incrementAndGet();
+            }
+            for (final IBaseDataObject d : payloadListArg) {
+                d.setCurrentForm("FINI");
+            }
+            return Collections.emptyList();
+        }
+    }
+
     static final class SimplePlace extends ServiceProviderPlace {
 
         private List<IBaseDataObject> children = Collections.emptyList();
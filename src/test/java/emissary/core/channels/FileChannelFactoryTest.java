@@ -16,6 +16,7 @@ import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -97,4 +98,13 @@ class FileChannelFactoryTest extends UnitTest {
         assertEquals(9, sbcf.create().size());
         assertThrows(NullPointerException.class, () -> FileChannelFactory.create(null), "Can't create a FCF with nulls");
     }
+
+    @Test
+    void testGetPath(@TempDir final Path tempDir) {
+        final Path path = tempDir.resolve("pathBytes");
+        assertEquals(path, FileChannelFactory.getPath(FileChannelFactory.create(path)));
+        assertNull(FileChannelFactory.getPath(InMemoryChannelFactory.create(TEST_BYTES)));
+        assertNull(FileChannelFactory.getPath(ImmutableChannelFactory.create(sbcf)));
+        assertNull(FileChannelFactory.getPath(null));
+    }
 }
@@ -10,6 +10,7 @@ import java.util.List;
 import javax.annotation.Nullable;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -52,6 +53,76 @@ class DirectoryEntryMapTest extends UnitTest {
         this.d3 = null;
     }
 
+    @Test
+    void testVersionChanges() {
+        long version = this.dm.getVersion();
+        this.dm.addEntry(new DirectoryEntry("OTHER.FOOPLACE.ID.http://host.domain.com:8001/ThePlace", "Other place", cost, quality));
+        assertTrue(this.dm.getVersion() > version, "Adding should change the version");
+
+        version = this.dm.getVersion();
+        this.dm.addCostToMatching(key, 100);
+        assertTrue(this.dm.getVersion() > version, "Cost change should change the version");
+
+        version = this.dm.getVersion();
+        this.dm.collectAllMatching("*.*.*.*");
+        assertEquals(version, this.dm.getVersion(), "Reading should not change the version");
+
+        this.dm.removeEntry(key);
+        assertTrue(this.dm.getVersion() > version, "Removing should change the version");
+
+        version = this.dm.getVersion();
+        this.dm.clear();
+        assertTrue(this.dm.getVersion() > version, "Clearing should change the version");
+    }
+
+    @Test
+    void testChangedSince() {
+        final long version = this.dm.getStableVersion();
+        assertEquals(0, this.dm.changedSince(version).size(), "Nothing changed yet");
+        assertNull(this.dm.changedSince(version + 1), "Future version is unknown");
+        assertNull(this.dm.changedSince(-1), "Negative version is unknown");
+        assertEquals(2, this.dm.changedSince(0).size(), "Both lists changed since the start");
+
+        this.dm.addCostToMatching(key3, 10);
+        assertEquals(List.of("UNKNOWN::TRANSFORM"), List.copyOf(this.dm.changedSince(version)), "Only the costed list changed");
+
+        final long removed = this.dm.getStableVersion();
+        this.dm.remove("UNKNOWN::TRANSFORM");
+        assertEquals(List.of("UNKNOWN::TRANSFORM"), List.copyOf(this.dm.changedSince(removed)), "Removal is remembered");
+
+        assertNotEquals(this.dm.getEpoch(), new DirectoryEntryMap().getEpoch(), "Each map has its own epoch");
+    }
+
+    @Test
+    void testWholeMapChange() {
+        final long version = this.dm.getStableVersion();
+        this.dm.remove("UNKNOWN::TRANSFORM");
+        final long removed = this.dm.getStableVersion();
+        this.dm.changed();
+        assertTrue(this.dm.getVersion() > removed, "A whole map change should change the version");
+        assertEquals(2, this.dm.changedSince(version).size(), "Every list, removed or not, changed");
+        assertEquals(2, this.dm.changedSince(removed).size(), "Every list changed after the removal");
+        assertEquals(0, this.dm.changedSince(this.dm.getStableVersion()).size(), "Nothing changed since the whole map change");
+    }
+
+    @Test
+    void testZoneTransferApply() {
+        final DirectoryEntryMap previous = new DirectoryEntryMap(this.dm, DirectoryEntryMap.DEEP_COPY);
+        final DirectoryEntryMap delta = new DirectoryEntryMap();
+        delta.put("UNKNOWN::TRANSFORM", new DirectoryEntryList());
+        delta.addEntry(new DirectoryEntry("OTHER.FOOPLACE.ID.http://host.domain.com:8001/ThePlace", "Other place", cost, quality));
+
+        final DirectoryEntryMap full = new ZoneTransfer(delta, this.dm.getEpoch(), 10, true).applyTo(previous);
+        assertEquals(2, full.size(), "Removed one list and added another");
+        assertNull(full.get("UNKNOWN::TRANSFORM"), "Empty list removes");
+        assertEquals(2, full.get("UNKNOWN::ID").size(), "Unchanged list kept");
+        assertEquals(1, full.get("OTHER::ID").size(), "New list added");
+        assertNotNull(previous.get("UNKNOWN::TRANSFORM"), "Previous map untouched");
+
+        final DirectoryEntryMap snapshot = new ZoneTransfer(delta, this.dm.getEpoch(), 10, false).applyTo(previous);
+        assertEquals(delta.keySet(), snapshot.keySet(), "Snapshot replaces everything");
+    }
+
     @Test
     void testAllEntries() {
         final List<DirectoryEntry> all = this.dm.allEntries();
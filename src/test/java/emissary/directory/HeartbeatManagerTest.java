@@ -18,9 +18,14 @@ import org.apache.hc.core5.http.protocol.HttpContext;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.net.ServerSocket;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -85,4 +90,107 @@ class HeartbeatManagerTest extends UnitTest {
         assertTrue(response.getContentString().contains("Bad request -> status: 401 message: " + responseString));
     }
 
+    @Test
+    void testHeartbeatDeadline() throws Exception {
+        String directoryKey = "EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://localhost:8001/DirectoryPlace";
+        HeartbeatManager mgr = new HeartbeatManager(directoryKey, 30, 30);
+        mgr.setTimeoutMillis(1);
+        // accepts the connection but never answers
+        try (ServerSocket silent = new ServerSocket(0)) {
+            long start = System.currentTimeMillis();
+            boolean isUp = mgr.heartbeat("*.*.*.http://localhost:" + silent.getLocalPort() + "/DirectoryPlace");
+            assertFalse(isUp);
+            assertTrue(System.currentTimeMillis() - start < 20000L, "Heartbeat should be aborted at its deadline");
+        } finally {
+            mgr.shutDown();
+        }
+    }
+
+    @Test
+    void testAdaptiveTimeout() {
+        String directoryKey = "EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://localhost:8001/DirectoryPlace";
+        String remoteKey = "EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://localhost:8002/DirectoryPlace";
+        HeartbeatManager mgr = new HeartbeatManager(directoryKey, 3600, 30);
+        try {
+            mgr.addRemoteDirectory(remoteKey);
+            HeartbeatManager.Health health = mgr.directories.get(KeyManipulator.getDefaultDirectoryKey(remoteKey));
+            assertEquals(30000L, health.getTimeoutMillis(), "Configured timeout until the peer answers");
+
+            for (int i = 0; i < 20; i++) {
+                health.addResponseTime(10);
+            }
+            assertEquals(HeartbeatManager.MIN_TIMEOUT_MILLIS, health.getTimeoutMillis(), "Fast peer gets the shortest deadline");
+
+            for (int i = 0; i < 20; i++) {
+                health.addResponseTime(5000);
+            }
+            long slow = health.getTimeoutMillis();
+            assertTrue(slow > 5000L && slow <= 30000L, "Deadline follows a slower peer: " + slow);
+
+            health.addResponseTime(100000);
+            assertEquals(30000L, health.getTimeoutMillis(), "Never beyond the configured timeout");
+        } finally {
+            mgr.shutDown();
+        }
+    }
+
+    @Test
+    void testScheduledHeartbeats() throws Exception {
+        String directoryKey = "EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://localhost:8001/DirectoryPlace";
+        String remoteKey = "EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://localhost:1222/DirectoryPlace";
+        HeartbeatManager mgr = new HeartbeatManager(directoryKey, 0, 1);
+        try {
+            mgr.setFailThreshold(1);
+            mgr.addRemoteDirectory(remoteKey, HeartbeatManager.IS_ALIVE);
+            assertTrue(mgr.isHealthy(remoteKey));
+            long stop = System.currentTimeMillis() + 20000L;
+            while (mgr.isHealthy(remoteKey) && System.currentTimeMillis() < stop) {
+                Thread.sleep(50);
+            }
+            assertFalse(mgr.isHealthy(remoteKey), "Scheduled heartbeat should have found the peer down");
+        } finally {
+            mgr.shutDown();
+        }
+    }
+
+    @Test
+    void testInitialDelayOnlyForStartingPeers() {
+        String directoryKey = "EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://localhost:8001/DirectoryPlace";
+        String startingKey = "EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://localhost:8002/DirectoryPlace";
+        String laterKey = "EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://localhost:8003/DirectoryPlace";
+        HeartbeatManager mgr = new HeartbeatManager(directoryKey, List.of(startingKey), 3600, 30);
+        try {
+            mgr.addRemoteDirectory(laterKey);
+            HeartbeatManager.Health starting = mgr.directories.get(KeyManipulator.getDefaultDirectoryKey(startingKey));
+            HeartbeatManager.Health later = mgr.directories.get(KeyManipulator.getDefaultDirectoryKey(laterKey));
+            assertTrue(starting.getNext().getDelay(TimeUnit.SECONDS) > 3500, "Starting peers should wait for the initial delay");
+            assertTrue(later.getNext().getDelay(TimeUnit.SECONDS) <= 33, "Later peers should be sent a heartbeat within an interval");
+        } finally {
+            mgr.shutDown();
+        }
+    }
+
+    @Test
+    void testRemovingPeerCancelsItsHeartbeats() {
+        String directoryKey = "EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://localhost:8001/DirectoryPlace";
+        String remoteKey = "EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://localhost:8002/DirectoryPlace";
+        HeartbeatManager mgr = new HeartbeatManager(directoryKey, 3600, 30);
+        try {
+            mgr.addRemoteDirectory(remoteKey);
+            HeartbeatManager.Health first = mgr.directories.get(KeyManipulator.getDefaultDirectoryKey(remoteKey));
+            assertNotNull(first.getNext());
+            assertFalse(first.getNext().isCancelled());
+
+            mgr.addRemoteDirectory(remoteKey, HeartbeatManager.IS_ALIVE);
+            assertTrue(first.getNext().isCancelled(), "Re-adding a peer should cancel its old heartbeats");
+            HeartbeatManager.Health second = mgr.directories.get(KeyManipulator.getDefaultDirectoryKey(remoteKey));
+            assertFalse(second.getNext().isCancelled());
+
+            mgr.removeRemoteDirectory(remoteKey);
+            assertTrue(second.isStopped());
+            assertTrue(second.getNext().isCancelled(), "Removing a peer should cancel its heartbeats");
+        } finally {
+            mgr.shutDown();
+        }
+    }
 }
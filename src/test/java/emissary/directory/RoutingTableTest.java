@@ -0,0 +1,72 @@
+package emissary.directory;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoutingTableTest extends UnitTest {
+
+    private DirectoryEntryMap map;
+
+    @Override
+    @BeforeEach
+    public void setUp() throws Exception {
+        this.map = new DirectoryEntryMap();
+        this.map.addEntry(new DirectoryEntry("FOO-BAR(ASCII).EXACT.ID.http://host.domain.com:8001/ExactPlace", "exact", 60, 50));
+        this.map.addEntry(new DirectoryEntry("FOO-BAR(*).PAREN.ID.http://host.domain.com:8001/ParenPlace", "paren", 50, 50));
+        this.map.addEntry(new DirectoryEntry("FOO-*.DASH.ID.http://host.domain.com:8001/DashPlace", "dash", 70, 50));
+        this.map.addEntry(new DirectoryEntry("*.PURE.ID.http://host.domain.com:8001/PurePlace", "pure", 80, 50));
+        this.map.addEntry(new DirectoryEntry("FOO-BAR(ASCII).XFORM.TRANSFORM.http://host.domain.com:8001/XformPlace", "xform", 50, 50));
+    }
+
+    @Test
+    void testLookupMatchesWildcardExpansion() {
+        final RoutingTable table = new RoutingTable(this.map);
+        for (final String dataId : new String[] {"FOO-BAR(ASCII)::ID", "FOO-BAZ::ID", "OTHER::ID", "FOO-BAR(ASCII)::TRANSFORM", "FOO::ANALYZE"}) {
+            final DirectoryEntryList expected = WildcardEntry.getWildcardedEntry(dataId, this.map);
+            final DirectoryEntry[] actual = table.lookup(dataId);
+            assertEquals(expected.size(), actual.length, "Candidate count for " + dataId);
+            for (int i = 0; i < actual.length; i++) {
+                assertEquals(expected.get(i).getFullKey(), actual[i].getFullKey(), "Candidate order for " + dataId);
+            }
+        }
+    }
+
+    @Test
+    void testCandidatesSortedByExpense() {
+        final DirectoryEntry[] candidates = new RoutingTable(this.map).lookup("FOO-BAR(ASCII)::ID");
+        assertEquals(4, candidates.length);
+        assertEquals("PAREN", candidates[0].getServiceName());
+        assertEquals("EXACT", candidates[1].getServiceName());
+        assertEquals("DASH", candidates[2].getServiceName());
+        assertEquals("PURE", candidates[3].getServiceName());
+    }
+
+    @Test
+    void testLookupIsRemembered() {
+        final RoutingTable table = new RoutingTable(this.map);
+        final int initial = table.size();
+        final DirectoryEntry[] first = table.lookup("FOO-QUUX::ID");
+        assertEquals(initial + 1, table.size(), "Wildcard-only dataId should be remembered");
+        assertSame(first, table.lookup("FOO-QUUX::ID"));
+    }
+
+    @Test
+    void testStaleAfterMapChange() {
+        final RoutingTable table = new RoutingTable(this.map);
+        assertTrue(table.isCurrentFor(this.map));
+        assertFalse(table.isCurrentFor(new DirectoryEntryMap(this.map)), "Table should only be current for its own map");
+
+        this.map.removeEntry("*.PURE.ID.http://host.domain.com:8001/PurePlace");
+        assertFalse(table.isCurrentFor(this.map), "Table should be stale after a removal");
+
+        final RoutingTable rebuilt = new RoutingTable(this.map);
+        assertEquals(3, rebuilt.lookup("FOO-BAR(ASCII)::ID").length);
+    }
+}
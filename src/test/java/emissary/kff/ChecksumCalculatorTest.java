@@ -1,20 +1,28 @@
 package emissary.kff;
 
 import emissary.core.channels.FillChannelFactory;
+import emissary.core.channels.InMemoryChannelFactory;
 import emissary.core.channels.SeekableByteChannelFactory;
 import emissary.test.core.junit5.UnitTest;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -168,4 +176,113 @@ class ChecksumCalculatorTest extends UnitTest {
             assertArrayEquals(crByte.getHash("SHA-256"), crSbcf.getHash("SHA-256"), "SHA-256's do not match!");
         }
     }
+
+    @Test
+    void testSmallBufferAcrossChunks() throws Exception {
+        final ChecksumCalculator cc = new ChecksumCalculator(List.of("CRC32", "MD5", "SHA-1", "SHA-256"));
+        cc.setBufferSize(7);
+        assertEquals(7, cc.getBufferSize());
+
+        final byte[] b = new byte[1000];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = (byte) (i * 31);
+        }
+
+        for (final int length : new int[] {0, 1, 6, 7, 8, 14, 15, 999, 1000}) {
+            final byte[] data = Arrays.copyOf(b, length);
+            final ChecksumResults crByte = cc.digest(data);
+            final ChecksumResults crSbcf = cc.digest(InMemoryChannelFactory.create(data));
+
+            assertEquals(crByte.getCrc(), crSbcf.getCrc(), "CRC's do not match for length " + length);
+            assertArrayEquals(crByte.getHash("MD5"), crSbcf.getHash("MD5"), "MD5's do not match for length " + length);
+            assertArrayEquals(crByte.getHash("SHA-1"), crSbcf.getHash("SHA-1"), "SHA-1's do not match for length " + length);
+            assertArrayEquals(crByte.getHash("SHA-256"), crSbcf.getHash("SHA-256"), "SHA-256's do not match for length " + length);
+        }
+    }
+
+    @Test
+    void testChannelFailingPartWay() throws Exception {
+        final ChecksumCalculator cc = new ChecksumCalculator(List.of("CRC32", "SHA-1", "SHA-256", "SSDEEP"));
+        cc.setBufferSize(4);
+        final ChecksumResults expected = cc.digest(DATA);
+
+        // only the first channel fails, on its second read
+        final AtomicInteger created = new AtomicInteger();
+        final SeekableByteChannelFactory inMemory = InMemoryChannelFactory.create(DATA);
+        final SeekableByteChannelFactory sbcf = () -> {
+            final SeekableByteChannel sbc = inMemory.create();
+            return created.getAndIncrement() == 0 ? new FailingChannel(sbc, 1) : sbc;
+        };
+
+        final ChecksumResults cr = cc.digest(sbcf);
+        assertEquals(expected.getCrc(), cr.getCrc(), "CRC should still be computed");
+        assertEquals(DATA_SSDEEP, cr.getSsdeep(), "SSDEEP should still be computed");
+        assertEquals(DATA_SHA1, cr.getHashString("SHA-1"), "SHA-1 should still be computed");
+        assertEquals(DATA_SHA256, cr.getHashString("SHA-256"), "SHA-256 should still be computed");
+        assertEquals(5, created.get(), "Each sum should read the data on its own after the failure");
+    }
+
+    @Test
+    void testInvalidBufferSize() throws Exception {
+        final ChecksumCalculator cc = new ChecksumCalculator();
+        assertThrows(IllegalArgumentException.class, () -> cc.setBufferSize(0));
+    }
+
+    /**
+     * Reads from another channel until a number of reads have been made, then fails
+     */
+    private static final class FailingChannel implements SeekableByteChannel {
+        private final SeekableByteChannel delegate;
+        private int reads;
+
+        FailingChannel(final SeekableByteChannel delegate, final int reads) {
+            this.delegate = delegate;
+            this.reads = reads;
+        }
+
+        @Override
+        public int read(final ByteBuffer dst) throws IOException {
+            if (reads-- <= 0) {
+                throw new IOException("Failed part way");
+            }
+            return delegate.read(dst);
+        }
+
+        @Override
+        public int write(final ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public SeekableByteChannel position(final long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public SeekableByteChannel truncate(final long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
 }
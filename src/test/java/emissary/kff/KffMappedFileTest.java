@@ -0,0 +1,96 @@
+package emissary.kff;
+
+import emissary.test.core.junit5.UnitTest;
+import emissary.util.io.ResourceReader;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static emissary.kff.KffFile.DEFAULT_RECORD_LENGTH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KffMappedFileTest extends UnitTest {
+
+    private static final String resourcePath = new ResourceReader().getResource("emissary/kff/KffFileTest/tmp.bin").getPath();
+
+    private byte[] records;
+    private KffMappedFile mapped;
+    private KffFile unmapped;
+
+    @Override
+    @BeforeEach
+    public void setUp() throws Exception {
+        records = Files.readAllBytes(Path.of(resourcePath));
+        mapped = new KffMappedFile(resourcePath, "testFilter", KffFilter.FilterType.IGNORE);
+        unmapped = new KffFile(resourcePath, "testFilter", KffFilter.FilterType.IGNORE);
+    }
+
+    @Test
+    void testKnownRecordsFound() throws Exception {
+        final int count = records.length / DEFAULT_RECORD_LENGTH;
+        assertEquals(count, mapped.recordCount);
+        for (int i = 0; i < count; i++) {
+            final ChecksumResults csr = hashOnly(Arrays.copyOfRange(records, i * DEFAULT_RECORD_LENGTH, i * DEFAULT_RECORD_LENGTH + 20));
+            assertTrue(mapped.check("known-" + i, csr), "Record " + i + " should be known");
+        }
+    }
+
+    @Test
+    void testMatchesUnmappedSearch() throws Exception {
+        final Random random = new Random(12345L);
+        for (int i = 0; i < 500; i++) {
+            final byte[] hash = new byte[20];
+            random.nextBytes(hash);
+            final ChecksumResults csr = hashOnly(hash);
+            assertEquals(unmapped.check("random", csr), mapped.check("random", csr));
+        }
+    }
+
+    @Test
+    void testWithoutBloomFilter() throws Exception {
+        final KffMappedFile noBloom = new KffMappedFile(resourcePath, "testFilter", KffFilter.FilterType.IGNORE, DEFAULT_RECORD_LENGTH, 0.0);
+        assertTrue(noBloom.check("known", hashOnly(Arrays.copyOfRange(records, 0, 20))));
+        final byte[] missing = new byte[20];
+        Arrays.fill(missing, (byte) 0xff);
+        assertFalse(noBloom.check("missing", hashOnly(missing)));
+    }
+
+    @Test
+    void testConcurrentChecks() throws Exception {
+        final int count = records.length / DEFAULT_RECORD_LENGTH;
+        final ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            final Future<?>[] futures = new Future<?>[count];
+            for (int i = 0; i < count; i++) {
+                final byte[] hash = Arrays.copyOfRange(records, i * DEFAULT_RECORD_LENGTH, i * DEFAULT_RECORD_LENGTH + 20);
+                futures[i] = executorService.submit(() -> {
+                    assertTrue(mapped.check("known", hashOnly(hash)));
+                    return null;
+                });
+            }
+            for (final Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            executorService.shutdown();
+            assertTrue(executorService.awaitTermination(1, TimeUnit.MINUTES));
+        }
+    }
+
+    private static ChecksumResults hashOnly(final byte[] hash) {
+        final ChecksumResults csr = new ChecksumResults();
+        csr.setHash("SHA-1", hash);
+        return csr;
+    }
+}
@@ -0,0 +1,138 @@
+package emissary.kff;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KffSsdeepIndexTest extends UnitTest {
+
+    private static final Ssdeep SSDEEP = new Ssdeep();
+
+    @TempDir
+    Path tempDir;
+
+    private final List<byte[]> known = new ArrayList<>();
+    private final List<String> signatures = new ArrayList<>();
+    private Path file;
+
+    @BeforeEach
+    void writeSignatures() throws Exception {
+        final Random random = new Random(4242L);
+        final StringBuilder sb = new StringBuilder("ssdeep,1.1--blocksize:hash:hash,filename\n");
+        sb.append("# comment lines and bad entries are skipped\n");
+        sb.append("not-a-signature\n\n");
+        for (int i = 0; i < 300; i++) {
+            final byte[] data = new byte[1000 + random.nextInt(60000)];
+            random.nextBytes(data);
+            known.add(data);
+            final String sig = SSDEEP.fuzzyHash(data);
+            signatures.add(sig);
+            sb.append(sig).append(",\"/known/file-").append(i).append("\"\n");
+        }
+        file = tempDir.resolve("known.ssdeep");
+        Files.write(file, sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static byte[] mutate(final byte[] data, final Random random, final int edits) {
+        final byte[] copy = data.clone();
+        for (int i = 0; i < edits; i++) {
+            copy[random.nextInt(copy.length)] = (byte) random.nextInt(256);
+        }
+        return copy;
+    }
+
+    @Test
+    void testLoad() throws Exception {
+        final KffSsdeepIndex index = new KffSsdeepIndex(file.toString(), "similar", KffFilter.FilterType.IGNORE, 50);
+        assertEquals(300, index.size());
+        assertEquals("similar", index.getName());
+        assertEquals(KffFilter.FilterType.IGNORE, index.getFilterType());
+        assertThrows(IllegalArgumentException.class, () -> index.setThreshold(0));
+    }
+
+    @Test
+    void testFindsModifiedCopy() throws Exception {
+        final KffSsdeepIndex index = new KffSsdeepIndex(file.toString(), "similar", KffFilter.FilterType.IGNORE, 50);
+        final Random random = new Random(99L);
+        for (int i = 0; i < known.size(); i += 7) {
+            final KffSsdeepIndex.Match m = index.findBestMatch(new SpamSumSignature(SSDEEP.fuzzyHash(mutate(known.get(i), random, 3))));
+            assertNotNull(m, "Modified copy of " + i + " should match");
+            assertEquals("/known/file-" + i, m.getName());
+        }
+
+        final byte[] unrelated = new byte[30000];
+        random.nextBytes(unrelated);
+        assertNull(index.findBestMatch(new SpamSumSignature(SSDEEP.fuzzyHash(unrelated))));
+    }
+
+    @Test
+    void testMatchesFullScan() throws Exception {
+        final KffSsdeepIndex index = new KffSsdeepIndex(file.toString(), "similar", KffFilter.FilterType.IGNORE, 50);
+        final Random random = new Random(7L);
+        for (int i = 0; i < 100; i++) {
+            final byte[] base = known.get(random.nextInt(known.size()));
+            // cut the data so block sizes either side of the original get compared too
+            final byte[] data = mutate(random.nextBoolean() ? base : Arrays.copyOf(base, base.length / 2), random, random.nextInt(40));
+            final SpamSumSignature sig = new SpamSumSignature(SSDEEP.fuzzyHash(data));
+
+            int best = 0;
+            for (final String s : signatures) {
+                best = Math.max(best, SSDEEP.compare(sig, new SpamSumSignature(s)));
+            }
+            final KffSsdeepIndex.Match m = index.findBestMatch(sig);
+            assertEquals(best, m == null ? 0 : m.getScore(), "Index should find the best score a full scan does");
+        }
+    }
+
+    @Test
+    void testChainRecordsMatch() throws Exception {
+        final KffChain chain = new KffChain();
+        chain.addAlgorithm("SHA-1");
+        chain.addAlgorithm("SSDEEP");
+        chain.addFilter(new KffSsdeepIndex(file.toString(), "similar", KffFilter.FilterType.DUPLICATE, 60));
+
+        final KffResult hit = chain.check("near", mutate(known.get(12), new Random(1L), 2));
+        assertTrue(hit.isDupe());
+        assertEquals("similar", hit.getFilterName());
+        assertEquals("/known/file-12", hit.getSimilarName());
+        assertTrue(hit.getSimilarScore() >= 60);
+
+        final byte[] unrelated = new byte[20000];
+        new Random(2L).nextBytes(unrelated);
+        final KffResult miss = chain.check("far", unrelated);
+        assertFalse(miss.isHit());
+        assertNull(miss.getSimilarName());
+        assertEquals(-1, miss.getSimilarScore());
+    }
+
+    @Test
+    void testHandlerAddsParameters() throws Exception {
+        final KffDataObjectHandler handler = new KffDataObjectHandler();
+        handler.kff = new KffChain();
+        handler.kff.addAlgorithm("SSDEEP");
+        handler.kff.addFilter(new KffSsdeepIndex(file.toString(), "similar", KffFilter.FilterType.DUPLICATE, 60));
+
+        final Map<String, String> params = handler.hashData(mutate(known.get(40), new Random(3L), 2), "near");
+        assertEquals("/known/file-40", params.get(KffDataObjectHandler.KFF_PARAM_SSDEEP_MATCH));
+        assertTrue(Integer.parseInt(params.get(KffDataObjectHandler.KFF_PARAM_SSDEEP_SCORE)) >= 60);
+        assertEquals("similar", params.get(KffDataObjectHandler.KFF_PARAM_DUPE_FILTER_NAME));
+    }
+}
@@ -1,12 +1,15 @@
 package emissary.kff;
 
+import emissary.core.channels.SeekableByteChannelHelper;
 import emissary.test.core.junit5.UnitTest;
 import emissary.util.Hexl;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
@@ -144,6 +147,27 @@ final class SsdeepTest extends UnitTest {
         assertEquals(ss.compare(hash1, hash2), ss.compare(hash2, hash1), "signature comparisons should not depend on the order");
     }
 
+    @Test
+    void testCompareIndependentOfEarlierComparisons() {
+        final Random rng = new Random(2468);
+        final SpamSumSignature[] hashes = new SpamSumSignature[20];
+        final byte[] input = new byte[20000];
+        rng.nextBytes(input);
+        for (int i = 0; i < hashes.length; i++) {
+            input[rng.nextInt(input.length)] = (byte) rng.nextInt();
+            hashes[i] = new SpamSumSignature(ss.fuzzyHash(Arrays.copyOf(input, input.length - rng.nextInt(12000))));
+        }
+        final int[] forward = new int[hashes.length - 1];
+        for (int i = 0; i < forward.length; i++) {
+            forward[i] = ss.compare(hashes[i], hashes[i + 1]);
+        }
+        final int[] backward = new int[hashes.length - 1];
+        for (int i = backward.length - 1; i >= 0; i--) {
+            backward[i] = ss.compare(hashes[i], hashes[i + 1]);
+        }
+        assertArrayEquals(forward, backward, "scores should not depend on what was compared before");
+    }
+
     // Changing the parameters will require a corresponding update in the expected scores.
     private static final int RANDOM_COMPARE_SEED = 13579;
     private static final int RANDOM_COMPARE_LENGTH = 400;
@@ -180,4 +204,57 @@ final class SsdeepTest extends UnitTest {
         // Check that the scores match the expected scores.
         assertArrayEquals(RANDOM_COMPARE_EXPECTED_SCORES, scores, "Mismatched random scores");
     }
+
+    @Test
+    void testHashLowEntropyArray() {
+        // needs several smaller block sizes than the length suggests
+        final byte[] input = new byte[100000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) ((i % 251) == 0 ? i : 'A');
+        }
+        assertEquals("24:Sa5xZXRZ0cRU8GsHBRm05xZUERZUsRBPmvsB0Pcn5xZXRZ0cRU8GsHBRm05H:Sa5HxnG8Rm05HxnmM0Un5HxnG8Rm05H", ss.fuzzyHash(input));
+    }
+
+    @Test
+    void testIncrementalMatchesWholeInput() {
+        final Random rng = new Random(13579);
+        for (int i = 0; i < 200; i++) {
+            final byte[] input = new byte[rng.nextInt(300000)];
+            if (i % 2 == 0) {
+                rng.nextBytes(input);
+            } else {
+                for (int j = 0; j < input.length; j++) {
+                    input[j] = (byte) "abc defgh\n".charAt(rng.nextInt(10));
+                }
+            }
+            final String expected = ss.fuzzyHash(input);
+
+            // unknown length, fed through heap and direct buffers of varying size
+            final Ssdeep.FuzzyHasher unknown = ss.newHasher();
+            final Ssdeep.FuzzyHasher known = ss.newHasher(input.length);
+            int pos = 0;
+            while (pos < input.length) {
+                final int len = Math.min(input.length - pos, 1 + rng.nextInt(20000));
+                final ByteBuffer direct = ByteBuffer.allocateDirect(len);
+                direct.put(input, pos, len).flip();
+                unknown.update(direct);
+                known.update(ByteBuffer.wrap(input, pos, len));
+                pos += len;
+            }
+            assertEquals(input.length, unknown.getLength());
+            assertEquals(expected, unknown.hash(), "Streamed hash of unknown length differs for input " + i);
+            assertEquals(expected, known.hash(), "Streamed hash of known length differs for input " + i);
+
+            known.reset();
+            known.update(input);
+            assertEquals(expected, known.hash(), "Hash differs after reset for input " + i);
+        }
+    }
+
+    @Test
+    void testHashChannel() {
+        final byte[] input = new byte[250000];
+        new Random(24680).nextBytes(input);
+        assertEquals(ss.fuzzyHash(input), ss.fuzzyHash(SeekableByteChannelHelper.memory(input)));
+    }
 }
@@ -3,6 +3,7 @@ package emissary.output.filter;
 import emissary.config.ServiceConfigGuide;
 import emissary.core.DataObjectFactory;
 import emissary.core.IBaseDataObject;
+import emissary.core.channels.SeekableByteChannelHelper;
 import emissary.test.core.junit5.UnitTest;
 
 import org.apache.commons.lang3.StringUtils;
@@ -17,6 +18,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -85,6 +87,37 @@ class JsonOutputFilterTest extends UnitTest {
         assertTrue(output.toString().contains("\"payload\":\"VGhpcyBpcyB0aGUgZGF0YQ==\""), "Filter should have payload");
     }
 
+    @Test
+    void testChannelPayloadOutputFromFilter() {
+        f.initialize(config, "FOO", config);
+
+        byte[] data = new byte[100_000];
+        Arrays.fill(data, (byte) 'A');
+        IBaseDataObject channelPayload = DataObjectFactory.getInstance();
+        channelPayload.setChannelFactory(SeekableByteChannelHelper.fill(data.length, (byte) 'A'));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = f.filter(Collections.singletonList(channelPayload), new HashMap<>(), output);
+
+        assertEquals(IDropOffFilter.STATUS_SUCCESS, status, "Filter should return success");
+        assertTrue(output.toString().contains("\"payload\":\"" + Base64.getEncoder().encodeToString(data) + "\""),
+                "Filter should have streamed the whole channel payload");
+    }
+
+    @Test
+    void testEmptyChannelPayloadOutputFromFilter() {
+        f.initialize(config, "FOO", config);
+
+        IBaseDataObject channelPayload = DataObjectFactory.getInstance();
+        channelPayload.setChannelFactory(SeekableByteChannelHelper.EMPTY_CHANNEL_FACTORY);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = f.filter(Collections.singletonList(channelPayload), new HashMap<>(), output);
+
+        assertEquals(IDropOffFilter.STATUS_SUCCESS, status, "Filter should return success");
+        assertFalse(output.toString().contains("\"payload\":"), "Filter should not have empty payload");
+    }
+
     @Test
     void testNoPayloadOutputFromFilter() {
         config.addEntry("EMIT_PAYLOAD", "false");
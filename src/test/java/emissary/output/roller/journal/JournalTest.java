@@ -6,12 +6,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class JournalTest extends UnitTest {
     private Path tmpDir;
@@ -78,6 +81,50 @@ class JournalTest extends UnitTest {
         return uuid;
     }
 
+    @Test
+    void testGroupCommit() throws Exception {
+        final String uuid = UUID.randomUUID().toString();
+        final Path journalPath = this.tmpDir.resolve(uuid + Journal.EXT);
+        try (JournalWriter instance = new JournalWriter(this.tmpDir, uuid, uuid, new GroupCommit(3, 0L, 0L, 0L))) {
+            instance.write(new JournalEntry(uuid, 0));
+            instance.write(new JournalEntry(uuid, 100));
+            final long header = Files.size(journalPath);
+            assertTrue(header < Journal.ENTRY_LENGTH, "Entries should be held until the batch is full");
+
+            instance.write(new JournalEntry(uuid, 200));
+            assertEquals(header + (3L * Journal.ENTRY_LENGTH), Files.size(journalPath), "Full batch should be written at once");
+
+            instance.write(new JournalEntry(uuid, 300));
+            instance.sync();
+            assertEquals(header + (4L * Journal.ENTRY_LENGTH), Files.size(journalPath), "Sync should write held entries");
+            instance.write(new JournalEntry(uuid, 400));
+        }
+        try (JournalReader reader = new JournalReader(journalPath)) {
+            final List<JournalEntry> entries = reader.getJournal().getEntries();
+            assertEquals(5, entries.size(), "Close should write held entries");
+            assertEquals(400L, reader.getJournal().getLastEntry().getOffset());
+        }
+    }
+
+    @Test
+    void testGroupCommitMaxDelay() throws Exception {
+        final String uuid = UUID.randomUUID().toString();
+        final Path journalPath = this.tmpDir.resolve(uuid + Journal.EXT);
+        try (JournalWriter instance = new JournalWriter(this.tmpDir, uuid, uuid, new GroupCommit(100, 10L, 0L, 0L))) {
+            instance.write(new JournalEntry(uuid, 100));
+            final long deadline = System.currentTimeMillis() + 5000L;
+            while (Files.size(journalPath) < Journal.ENTRY_LENGTH && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+            assertTrue(Files.size(journalPath) >= Journal.ENTRY_LENGTH, "Held entry should be written after the max delay");
+        }
+    }
+
+    @Test
+    void testGroupCommitInvalidBatch() {
+        assertThrows(IllegalArgumentException.class, () -> new GroupCommit(0, 0L, 0L, 0L));
+    }
+
     @Test
     void testEmptyJournal() {
         Journal j = new Journal(tmpDir);
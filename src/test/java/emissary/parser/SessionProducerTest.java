@@ -1,6 +1,7 @@
 package emissary.parser;
 
 import emissary.core.IBaseDataObject;
+import emissary.core.channels.SeekableByteChannelHelper;
 import emissary.test.core.junit5.UnitTest;
 
 import org.junit.jupiter.api.Test;
@@ -22,6 +23,22 @@ class SessionProducerTest extends UnitTest {
         assertEquals("This is a test", new String(payload.data()), "Parser/Producer should create payload object with correct data");
     }
 
+    @Test
+    void testChannelData() throws Exception {
+        SessionParser parser = Mockito.mock(SessionParser.class);
+        SessionProducer sp = new SessionProducer(parser, "UNKNOWN");
+        DecomposedSession d = new DecomposedSession();
+        d.setHeader("The Header".getBytes());
+        d.setDataChannelFactory(SeekableByteChannelHelper.memory("The Data".getBytes()));
+        IBaseDataObject payload = sp.createAndLoadDataObject(d, "name");
+        assertNotNull(payload.getChannelFactory(), "Payload must keep the channel");
+        assertEquals(8, payload.getChannelSize(), "Incorrect data size");
+        assertEquals("The Data", new String(payload.data()), "Incorrect data");
+        assertEquals("The Header", new String(payload.header()), "Incorrect header");
+        assertEquals("name", payload.shortName(), "Incorrect name");
+        assertEquals("UNKNOWN", payload.currentForm(), "Incorrect form");
+    }
+
     @Test
     void testZoneAssignments() {
         SessionParser parser = Mockito.mock(SessionParser.class);
@@ -1,5 +1,8 @@
 package emissary.parser;
 
+import emissary.core.channels.FileChannelFactory;
+import emissary.core.channels.SeekableByteChannelFactory;
+import emissary.core.channels.SeekableByteChannelHelper;
 import emissary.test.core.junit5.UnitTest;
 
 import org.junit.jupiter.api.AfterEach;
@@ -10,14 +13,18 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.List;
 import javax.annotation.Nullable;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -53,6 +60,30 @@ class SimpleNioParserTest extends UnitTest {
         assertEquals(DATALEN, sd.getData().length, "Data size");
     }
 
+    @Test
+    void testChannelSlicing() throws Exception {
+        SimpleNioParser sp = new SimpleNioParser(channel);
+        sp.setSourceChannelFactory(FileChannelFactory.create(testDataFile));
+        DecomposedSession sd = sp.getNextSession();
+        assertTrue(sd.isValid(), "Session decomposed");
+        assertNull(sd.getData(), "Data must not be copied");
+        assertNotNull(sd.getDataChannelFactory(), "Data must be a view of the file");
+        try (SeekableByteChannel sbc = sd.getDataChannelFactory().create()) {
+            assertEquals(DATALEN, sbc.size(), "Data size");
+        }
+        assertEquals(Integer.toString(DATALEN), sd.getStringMetadataItem(SessionParser.ORIG_DOC_SIZE_KEY));
+    }
+
+    @Test
+    void testChannelSliceOfSeveralRecords() throws Exception {
+        byte[] bytes = "0123456789".getBytes(StandardCharsets.US_ASCII);
+        SimpleNioParser sp = new SimpleNioParser(channel);
+        sp.setSourceChannelFactory(SeekableByteChannelHelper.memory(bytes));
+        SeekableByteChannelFactory slice = sp.makeChannelSlice(List.of(new PositionRecord(1, 2), new PositionRecord(6, 3)));
+        assertEquals("12678", new String(SeekableByteChannelHelper.getByteArrayFromChannel(slice, 100), StandardCharsets.US_ASCII));
+        assertNull(sp.makeChannelSlice(List.of()));
+    }
+
     @Test
     void testNonExistingSession() throws ParserException {
         SimpleNioParser sp = new SimpleNioParser(channel);
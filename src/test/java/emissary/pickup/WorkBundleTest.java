@@ -263,6 +263,26 @@ class WorkBundleTest extends UnitTest {
         assertEquals(0, w1.compareTo(w2));
     }
 
+    @Test
+    void testBatchSerDe() throws IOException {
+        WorkBundle w1 = new WorkBundle("/output/root", "/etc/prefix");
+        w1.addFileName("file1.txt", 15L, 4L);
+        WorkBundle w2 = new WorkBundle();
+        w2.setPriority(3);
+        w2.addFileName("<file2.txt&foo=bar>", 7L, 10L);
+
+        List<WorkBundle> read = WorkBundle.buildWorkBundles(WorkBundle.toBytes(Arrays.asList(w1, w2, new WorkBundle())));
+        assertEquals(3, read.size());
+        assertEquals(w1.getBundleId(), read.get(0).getBundleId());
+        assertEquals(0, w1.compareTo(read.get(0)));
+        assertEquals(w2.getFileNameList(), read.get(1).getFileNameList());
+        assertEquals(3, read.get(1).getPriority());
+        assertEquals(0, read.get(2).size());
+
+        assertThrows(IOException.class, () -> WorkBundle.buildWorkBundles(new byte[] {0x7f, 0, 0, 0}));
+        assertThrows(IOException.class, () -> WorkBundle.buildWorkBundles(new byte[] {0, 0, 0, 1}));
+    }
+
     @Test
     void testLimitAdd() {
         // generate test data.
@@ -7,8 +7,15 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -391,6 +398,133 @@ class WorkSpaceTest extends UnitTest {
         assertEquals(0, mws.getPendingQueueSize(), "Failed item no longer pending");
     }
 
+    @Test
+    void testTakeSeveral() {
+        String C1 = "INITIAL.INPUT.A.http://otherhost:7001/FilePickUpClient";
+        mws.addPickUp(C1);
+        for (int i = 0; i < 5; i++) {
+            WorkBundle wb = new WorkBundle("/fake/root", "/fake/eat");
+            wb.addFileName("faker-" + i + ".txt");
+            wb.setPriority(i);
+            mws.addOutboundBundle(wb);
+        }
+
+        List<WorkBundle> taken = mws.take(C1, 3);
+        assertEquals(3, taken.size());
+        for (int i = 0; i < taken.size(); i++) {
+            assertEquals(i, taken.get(i).getPriority(), "Bundles must be taken in queue order");
+            assertEquals("otherhost:7001", taken.get(i).getSentTo());
+        }
+        assertEquals(2, mws.take(C1, 3).size(), "Only what is left is taken");
+        assertEquals(5, mws.getPendingQueueSize());
+
+        taken = mws.take(C1, 3);
+        assertEquals(1, taken.size());
+        assertEquals(0, taken.get(0).size(), "An empty bundle tells the client there is no more work");
+    }
+
+    @Test
+    void testTakeIsLimitedByServer() {
+        String C1 = "INITIAL.INPUT.A.http://otherhost:7001/FilePickUpClient";
+        mws.addPickUp(C1);
+        for (int i = 0; i < 5; i++) {
+            WorkBundle wb = new WorkBundle("/fake/root", "/fake/eat");
+            wb.addFileName("faker-" + i + ".txt");
+            mws.addOutboundBundle(wb);
+        }
+
+        mws.maxBundlesPerTake = 2;
+        assertEquals(2, mws.take(C1, Integer.MAX_VALUE).size(), "Client cannot take more than the server allows");
+        assertEquals(3, mws.getOutboundQueueSize());
+    }
+
+    @Test
+    void testConcurrentTakesAndCompletions() throws Exception {
+        final int bundles = 2000;
+        final int clients = 8;
+        final Set<String> completed = ConcurrentHashMap.newKeySet();
+        final AtomicInteger duplicates = new AtomicInteger();
+        final AtomicInteger notPending = new AtomicInteger();
+        final CountDownLatch collected = new CountDownLatch(1);
+
+        // one collector adding work while the clients take and complete it, failing every tenth bundle once
+        final Thread collector = new Thread(() -> {
+            for (int i = 0; i < bundles; i++) {
+                WorkBundle wb = new WorkBundle("/fake/root", "/fake/eat");
+                wb.addFileName("faker-" + i + ".txt");
+                mws.addOutboundBundle(wb);
+            }
+            collected.countDown();
+        });
+        final List<Thread> workers = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            final String client = "INITIAL.INPUT.A.http://otherhost:" + (7001 + c) + "/FilePickUpClient";
+            mws.addPickUp(client);
+            workers.add(new Thread(() -> {
+                while (collected.getCount() > 0 || mws.getOutboundQueueSize() > 0) {
+                    WorkBundle taken = mws.take(client);
+                    if (taken.size() == 0) {
+                        Thread.yield();
+                        continue;
+                    }
+                    boolean itWorked = taken.getErrorCount() > 0 || taken.getFileNameList().get(0).hashCode() % 10 != 0;
+                    // asserted from the test thread, a failure here would not be seen
+                    if (!mws.workCompleted(client, taken.getBundleId(), itWorked)) {
+                        notPending.incrementAndGet();
+                    }
+                    if (itWorked && !completed.add(taken.getBundleId())) {
+                        duplicates.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        collector.start();
+        workers.forEach(Thread::start);
+        collector.join();
+        for (Thread t : workers) {
+            t.join();
+        }
+
+        assertEquals(0, notPending.get(), "Taken bundles must be pending");
+        assertEquals(bundles, completed.size(), "Every bundle must be completed");
+        assertEquals(0, duplicates.get(), "No bundle may be handed out twice");
+        assertEquals(0, mws.getOutboundQueueSize(), "Nothing left outbound");
+        assertEquals(0, mws.getPendingQueueSize(), "Nothing left pending");
+        assertEquals(0, mws.filesSeen.size(), "Completed files are no longer seen");
+        assertEquals(bundles, mws.filesDone.size(), "Completed files are done");
+    }
+
+    @Test
+    void testCompletionDuringCollection() throws Exception {
+        String C1 = "INITIAL.INPUT.A.http://otherhost:7001/FilePickUpClient";
+        mws.addPickUp(C1);
+        Path dir = Files.createDirectories(temporaryDirectory.toPath().resolve("collect"));
+        String fileName = Files.write(dir.resolve("done.txt"), "done".getBytes()).toString();
+        WorkBundle wb = new WorkBundle("/fake/root", "/fake/eat");
+        wb.addFileName(fileName);
+        mws.addOutboundBundle(wb);
+        WorkBundle taken = mws.take(C1);
+
+        // the bundle completes while the collector is looking the file up
+        final Map<String, Long> seen = mws.filesSeen;
+        mws.filesSeen = new ConcurrentHashMap<>(seen) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Long get(Object key) {
+                if (mws.pending.containsKey(taken.getBundleId())) {
+                    assertTrue(mws.workCompleted(C1, taken.getBundleId(), true));
+                }
+                return super.get(key);
+            }
+        };
+        WorkSpace.WorkSpaceCollector collector = mws.new WorkSpaceCollector(new PriorityDirectory(dir.toString(), 0));
+        collector.collectFiles(collector.myDirectory, false, new WorkBundle("/fake/root", "/fake/eat"), 0, 0L, false);
+
+        assertEquals(0, mws.getPendingQueueSize(), "Bundle was completed");
+        assertEquals(0, mws.getOutboundQueueSize(), "A completed file must not be collected again");
+    }
+
     @Test
     void testArgumentParsing() throws Exception {
         List<String> args = new ArrayList<>();
@@ -3,6 +3,11 @@ package emissary.pickup.file;
 import emissary.admin.PlaceStarter;
 import emissary.core.DataObjectFactory;
 import emissary.core.IBaseDataObject;
+import emissary.parser.DecomposedSession;
+import emissary.parser.ParserEOFException;
+import emissary.parser.ParserException;
+import emissary.parser.ParserFactory;
+import emissary.parser.SessionParser;
 import emissary.pickup.WorkBundle;
 import emissary.test.core.junit5.UnitTest;
 import emissary.util.Hexl;
@@ -16,14 +21,36 @@ import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
+import static emissary.core.constants.Parameters.FILE_DATE;
+import static emissary.core.constants.Parameters.INPUT_FILEDATE;
 import static emissary.core.constants.Parameters.INPUT_FILENAME;
 import static emissary.core.constants.Parameters.ORIGINAL_FILENAME;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class FilePickUpClientTest extends UnitTest {
@@ -121,10 +148,160 @@ class FilePickUpClientTest extends UnitTest {
         assertEquals("PETERPAN-" + resultString, payload.getFilename(), "Payload filename is not set to correct value");
     }
 
+    @Test
+    void testZeroCopyPayloadsAreViewsOfDoneFile() throws Exception {
+        String done = temporaryDirectory.toPath().resolve("done").toString();
+        client.setZeroCopy(true);
+        for (boolean simple : new boolean[] {true, false}) {
+            Path input = Files.write(temporaryDirectory.toPath().resolve("zero-" + simple + ".dat"), "zero copy data".getBytes());
+            Files.setLastModifiedTime(input, FileTime.fromMillis(1577934245000L));
+            File moved = client.getDoneAreaFileFor(input.toFile(), done);
+            client.dispatched.clear();
+            assertTrue(client.processDataFile(input.toFile(), input.getFileName().toString(), false, simple, done));
+
+            assertFalse(Files.exists(input), "Picked up file must be removed once processed");
+            assertTrue(moved.exists(), "File must be left in the done area");
+            assertEquals(1, client.dispatched.size());
+            IBaseDataObject d = client.dispatched.get(0);
+            assertNotNull(d.getChannelFactory(), "Payload must be a view of the file");
+            assertEquals(moved.length(), d.getChannelSize());
+            assertEquals("zero copy data", new String(d.data()));
+            assertEquals(TimeUtil.getDateAsISO8601(1577934245000L), d.getStringParameter(FILE_DATE), "File date is from the picked up file");
+            assertEquals(TimeUtil.getDateAsISO8601(1577934245000L), d.getStringParameter(INPUT_FILEDATE));
+        }
+    }
+
+    @Test
+    void testZeroCopyParseFailureMovesFileToErrorArea() throws Exception {
+        String done = temporaryDirectory.toPath().resolve("done").toString();
+        Path error = Files.createDirectories(temporaryDirectory.toPath().resolve("error"));
+        client.setZeroCopy(true);
+        client.setErrorArea(error.toString());
+        client.setParserFactory(new ParserFactory() {
+            @Override
+            public SessionParser makeSessionParser(SeekableByteChannel channel) {
+                return new LineParser(channel);
+            }
+        });
+        Path input = Files.write(temporaryDirectory.toPath().resolve("broken.dat"), Arrays.asList("line 1", LineParser.BROKEN));
+        File linked = client.getDoneAreaFileFor(input.toFile(), done);
+        client.pickedUp = input;
+
+        assertFalse(client.processDataFile(input.toFile(), "broken.dat", false, false, done));
+        assertEquals(1, client.dispatched.size());
+        assertTrue(client.pickedUpAtDispatch, "Picked up file must stay in place while it is processed");
+        assertFalse(Files.exists(input), "Failed file must be moved out of the pick up area");
+        assertTrue(Files.exists(error.resolve("broken.dat")), "Failed file must be moved to the error area");
+        assertFalse(linked.exists(), "Failed file must not be left in the done area");
+    }
+
+    @Test
+    void testPipelinedSessionsAreAllDispatched() throws Exception {
+        client.setSessionDispatchers(3, 2);
+        client.setParserFactory(new ParserFactory() {
+            @Override
+            public SessionParser makeSessionParser(SeekableByteChannel channel) {
+                return new LineParser(channel);
+            }
+        });
+
+        Set<String> lines = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            lines.add("line " + i);
+        }
+        Path input = Files.write(temporaryDirectory.toPath().resolve("lines.dat"), lines);
+        assertEquals(50, client.processSessions(input.toFile(), "lines.dat"));
+
+        Set<String> seen = new HashSet<>();
+        for (IBaseDataObject d : client.dispatched) {
+            seen.add(new String(d.data()));
+        }
+        assertEquals(50, client.dispatched.size());
+        assertEquals(lines, seen, "Every session must be dispatched exactly once, in any order");
+
+        client.failOn = "line 7";
+        client.dispatched.clear();
+        assertThrows(ParserException.class, () -> client.processSessions(input.toFile(), "lines.dat"));
+    }
+
+    @Test
+    void testConcurrentFilesHaveTheirOwnDispatchers() throws Exception {
+        client.setSessionDispatchers(1, 1);
+        client.setParserFactory(new ParserFactory() {
+            @Override
+            public SessionParser makeSessionParser(SeekableByteChannel channel) {
+                return new LineParser(channel);
+            }
+        });
+        // each file's first dispatch waits until the other file is dispatching too
+        client.together = new CountDownLatch(2);
+
+        Path first = Files.write(temporaryDirectory.toPath().resolve("first.dat"), Arrays.asList("a 1", "a 2"));
+        Path second = Files.write(temporaryDirectory.toPath().resolve("second.dat"), Arrays.asList("b 1", "b 2"));
+        ExecutorService files = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> a = files.submit(() -> client.processSessions(first.toFile(), "first.dat"));
+            Future<Integer> b = files.submit(() -> client.processSessions(second.toFile(), "second.dat"));
+            assertEquals(2, a.get(30, TimeUnit.SECONDS));
+            assertEquals(2, b.get(30, TimeUnit.SECONDS));
+        } finally {
+            files.shutdownNow();
+        }
+        assertFalse(client.waitedAlone, "Files being picked up at the same time must be dispatched at the same time");
+        assertEquals(4, client.dispatched.size());
+    }
+
+    /**
+     * Makes a session of each line of the data, failing on a broken line
+     */
+    private static class LineParser extends SessionParser {
+        static final String BROKEN = "broken";
+
+        private final List<String> lines;
+        private int next = 0;
+
+        LineParser(SeekableByteChannel channel) {
+            try (InputStream in = Channels.newInputStream(channel)) {
+                lines = Arrays.asList(new String(in.readAllBytes()).split("\n"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public DecomposedSession getNextSession() throws ParserException {
+            if (next >= lines.size()) {
+                throw new ParserEOFException("No more lines");
+            }
+            String line = lines.get(next++);
+            if (BROKEN.equals(line)) {
+                throw new ParserException("Cannot parse line " + next);
+            }
+            DecomposedSession session = new DecomposedSession();
+            session.setData(line.getBytes());
+            return session;
+        }
+    }
+
     public static class MyFilePickUpClient extends FilePickUpClient {
 
         public boolean nullifyCaseIdInHook = false;
 
+        @Nullable
+        public volatile String failOn = null;
+
+        @Nullable
+        public volatile CountDownLatch together = null;
+
+        public volatile boolean waitedAlone = false;
+
+        @Nullable
+        public volatile Path pickedUp = null;
+
+        public volatile boolean pickedUpAtDispatch = false;
+
+        public final List<IBaseDataObject> dispatched = Collections.synchronizedList(new ArrayList<>());
+
         public MyFilePickUpClient(InputStream configInfo, String dir, String placeLoc) throws IOException {
             super(configInfo, dir, placeLoc);
         }
@@ -142,6 +319,50 @@ class FilePickUpClientTest extends UnitTest {
             return currentBundle;
         }
 
+        public void setZeroCopy(boolean value) {
+            zeroCopy = value;
+        }
+
+        public void setErrorArea(String value) {
+            errorArea = value;
+        }
+
+        public void setSessionDispatchers(int dispatchers, int queueSize) {
+            sessionDispatchers = dispatchers;
+            sessionQueueSize = queueSize;
+        }
+
+        public void setParserFactory(ParserFactory factory) {
+            parserFactory = factory;
+        }
+
+        @Override
+        public File getDoneAreaFileFor(File theFile, String outputRoot) {
+            return super.getDoneAreaFileFor(theFile, outputRoot);
+        }
+
+        @Override
+        public void assignToPooledAgent(IBaseDataObject payload, long timeoutMs) {
+            if (pickedUp != null) {
+                pickedUpAtDispatch = Files.exists(pickedUp);
+            }
+            if (failOn != null && failOn.equals(new String(payload.data()))) {
+                throw new IllegalStateException("No agent for " + failOn);
+            }
+            CountDownLatch latch = together;
+            if (latch != null) {
+                latch.countDown();
+                try {
+                    if (!latch.await(5, TimeUnit.SECONDS)) {
+                        waitedAlone = true;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            dispatched.add(payload);
+        }
+
         @Override
         @Nullable
         protected String caseIdHook(String initialCaseId, String sessionname, String fileName, Map<String, Collection<Object>> metadata) {
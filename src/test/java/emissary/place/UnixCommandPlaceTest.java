@@ -2,9 +2,11 @@ package emissary.place;
 
 import emissary.core.DataObjectFactory;
 import emissary.core.IBaseDataObject;
+import emissary.core.channels.FileChannelFactory;
 import emissary.test.core.junit5.UnitTest;
 import emissary.util.io.ResourceReader;
 import emissary.util.shell.Executrix;
+import emissary.util.shell.ResidentProcessPool;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.AfterEach;
@@ -25,11 +27,13 @@ import javax.annotation.Nullable;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.validateMockitoUsage;
 import static org.mockito.Mockito.verify;
@@ -155,6 +159,49 @@ class UnixCommandPlaceTest extends UnitTest {
         assertEquals("", new String(place.stdOutProcess(new String[] {"zero"}, false)));
     }
 
+    @Test
+    void testFileBackedPayloadIsStaged() throws Exception {
+        Path input = Paths.get(TMPDIR, "testUnixCommandInput.dat");
+        try {
+            Files.write(input, "staged from a file".getBytes(StandardCharsets.US_ASCII));
+            payload.setChannelFactory(FileChannelFactory.create(input));
+            assertNull(place.findPreferredChannel(payload), "Staging from the file must be configured");
+            place.stageFromFile = true;
+            try (OutputStream fos = startScript()) {
+                fos.write("cat ${1}\n".getBytes());
+                scriptFile.toFile().setExecutable(true);
+            }
+
+            place.process(payload);
+            assertEquals("staged from a file", new String(payload.getAlternateView("TEST_VIEW"), StandardCharsets.US_ASCII).trim());
+            assertNotNull(place.findPreferredChannel(payload));
+        } finally {
+            Files.deleteIfExists(input);
+        }
+    }
+
+    @Test
+    void testResidentProcess() throws Exception {
+        Executrix e = mock(Executrix.class);
+        ResidentProcessPool pool = mock(ResidentProcessPool.class);
+        when(pool.exchange(any(byte[].class))).thenReturn("ABCDEFG\r\n\n".getBytes(StandardCharsets.UTF_8));
+        place.setExecutrix(e);
+        place.residentPool = pool;
+        place.perlChop = true;
+
+        place.process(payload);
+        assertEquals("ABCDEFG", new String(payload.getAlternateView("TEST_VIEW"), StandardCharsets.UTF_8));
+        verify(pool).exchange(any(byte[].class));
+        verify(e, never()).makeTempFilenames();
+
+        // a failed helper produces no view
+        IBaseDataObject failed = DataObjectFactory.getInstance(new Object[] {"xyz".getBytes(), "failed", FORM});
+        when(pool.exchange(any(byte[].class))).thenThrow(new IOException("gone"));
+        place.process(failed);
+        assertNull(failed.getAlternateView("TEST_VIEW"));
+        place.residentPool = null;
+    }
+
     private static final String[] LOG_MSGS = {"ERROR script error message", "WARN script warn message", "INFO script info message",
             "DEBUG script debug message"};
 
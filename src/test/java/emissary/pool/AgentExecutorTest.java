@@ -0,0 +1,138 @@
+package emissary.pool;
+
+import emissary.core.DataObjectFactory;
+import emissary.core.HDMobileAgent;
+import emissary.core.IBaseDataObject;
+import emissary.core.IMobileAgent;
+import emissary.core.Namespace;
+import emissary.directory.DirectoryEntry;
+import emissary.pickup.PickUpPlace;
+import emissary.place.IServiceProviderPlace;
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AgentExecutorTest extends UnitTest {
+
+    static final AtomicInteger running = new AtomicInteger();
+    static final AtomicInteger maxRunning = new AtomicInteger();
+    static final AtomicReference<CountDownLatch> done = new AtomicReference<>(new CountDownLatch(0));
+
+    @BeforeEach
+    public void unbindSpool() {
+        // a spool left by another test would take the launched payload before the executor
+        Namespace.unbind(MoveSpool.NAMESPACE_NAME);
+    }
+
+    @AfterEach
+    public void reset() {
+        running.set(0);
+        maxRunning.set(0);
+        Namespace.unbind(MoveSpool.NAMESPACE_NAME);
+    }
+
+    @Test
+    void testBoundedInFlight() throws Exception {
+        final int payloads = 8;
+        done.set(new CountDownLatch(payloads));
+        final AgentExecutor executor = new AgentExecutor(CountingAgent.class.getName(), 2, true);
+        for (int i = 0; i < payloads; i++) {
+            final IBaseDataObject d = DataObjectFactory.getInstance();
+            d.setFilename("payload-" + i);
+            executor.go(d, null);
+        }
+        assertTrue(done.get().await(30, TimeUnit.SECONDS), "All payloads should be processed");
+        assertTrue(executor.close(TimeUnit.SECONDS.toMillis(30)), "Executor should drain");
+        assertEquals(payloads, executor.getCompletedCount(), "Each payload should run on its own agent");
+        assertEquals(0, executor.getInFlight(), "Nothing should be left in flight");
+        assertTrue(maxRunning.get() <= 2, "No more than the maximum should run at once, saw " + maxRunning.get());
+    }
+
+    @Test
+    void testVirtualThreadsWhenAvailable() throws Exception {
+        final AgentExecutor executor = new AgentExecutor(CountingAgent.class.getName(), 1, true);
+        assertEquals(Runtime.version().feature() >= 21, executor.isVirtual(), "Virtual threads should be used when the JVM has them");
+        assertTrue(executor.close(0L));
+
+        final AgentExecutor platform = new AgentExecutor(CountingAgent.class.getName(), 1, false);
+        assertFalse(platform.isVirtual(), "Platform threads should be used when asked");
+        assertTrue(platform.close(0L));
+    }
+
+    @Test
+    void testClosed() throws Exception {
+        final AgentExecutor executor = new AgentExecutor(CountingAgent.class.getName(), 1, false);
+        assertTrue(executor.close(0L));
+        assertThrows(IllegalStateException.class, () -> executor.go(DataObjectFactory.getInstance(), null));
+        assertEquals(0, executor.getInFlight());
+    }
+
+    @Test
+    void testPickUpAndLauncherUseBoundExecutor() throws Exception {
+        done.set(new CountDownLatch(2));
+        final AgentExecutor executor = new AgentExecutor(CountingAgent.class.getName(), 2, false);
+        Namespace.bind(AgentExecutor.NAMESPACE_NAME, executor);
+        try {
+            final IServiceProviderPlace place = mock(IServiceProviderPlace.class);
+            final String key = "UNKNOWN.TEST.ID.http://localhost:8001/TestPlace$5050";
+            when(place.getKey()).thenReturn(key);
+            when(place.getDirectoryEntry()).thenReturn(new DirectoryEntry(key));
+            final IBaseDataObject picked = DataObjectFactory.getInstance();
+            picked.setFilename("picked-up");
+            final IMobileAgent agent = PickUpPlace.assignToPooledAgent(picked, null, place, -1L);
+            assertTrue(agent instanceof CountingAgent, "Pick up should hand the payload to the executor");
+
+            final IBaseDataObject arrived = DataObjectFactory.getInstance();
+            arrived.setFilename("arrived");
+            assertTrue(PayloadLauncher.launch(arrived, place, 0, Collections.emptyList()));
+
+            assertTrue(done.get().await(30, TimeUnit.SECONDS), "Both payloads should be processed");
+            assertTrue(executor.close(TimeUnit.SECONDS.toMillis(30)), "Executor should drain");
+            assertEquals(2, executor.getCompletedCount(), "Both payloads should run on the executor");
+        } finally {
+            Namespace.unbind(AgentExecutor.NAMESPACE_NAME);
+        }
+    }
+
+    @Test
+    void testInvalidMaxInFlight() {
+        assertThrows(IllegalArgumentException.class, () -> new AgentExecutor(CountingAgent.class.getName(), 0, false));
+    }
+
+    public static class CountingAgent extends HDMobileAgent {
+        private static final long serialVersionUID = 1L;
+
+        public CountingAgent(final String agentName) {
+            super(agentName);
+        }
+
+        @Override
+        protected void agentControl(final IServiceProviderPlace currentPlaceArg) {
+            final int now = running.incrementAndGet();
+            maxRunning.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+                done.get().countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package emissary.pool;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AgentPoolControllerTest extends UnitTest {
+
+    private AgentPool pool;
+    private AgentPoolController controller;
+
+    @BeforeEach
+    public void createPool() {
+        MobileAgentFactory factory = new MobileAgentFactory("emissary.core.HDMobileAgent");
+        factory.setUseNamespace(false);
+        pool = new AgentPool(factory, 10);
+        controller = new AgentPoolController(pool, 5, 20);
+    }
+
+    @AfterEach
+    public void closePool() {
+        pool.kill();
+    }
+
+    @Test
+    void testGrowWhenBusyWithBacklog() {
+        assertEquals(15, controller.decide(new AgentPoolController.Signals(1.0, 4, 0.3, 0.2, 0.0), 10));
+        assertEquals(20, controller.decide(new AgentPoolController.Signals(1.0, 4, 0.3, 0.2, 0.0), 18), "Should not grow past the maximum");
+    }
+
+    @Test
+    void testHoldWhenBusyWithoutResources() {
+        assertEquals(10, controller.decide(new AgentPoolController.Signals(1.0, 4, 0.75, 0.2, 0.0), 10), "Heap is not low enough to grow");
+        assertEquals(10, controller.decide(new AgentPoolController.Signals(1.0, 4, 0.3, 1.5, 0.0), 10), "CPU is saturated");
+        assertEquals(10, controller.decide(new AgentPoolController.Signals(1.0, 0, 0.3, 0.2, 500.0), 10), "Latency does not count by default");
+    }
+
+    @Test
+    void testShrinkOnHeapPressure() {
+        assertEquals(5, controller.decide(new AgentPoolController.Signals(1.0, 100, 0.9, 0.2, 0.0), 10));
+        assertEquals(5, controller.decide(new AgentPoolController.Signals(1.0, 100, 0.9, 0.2, 0.0), 7), "Should not shrink past the minimum");
+    }
+
+    @Test
+    void testShrinkWhenIdle() {
+        assertEquals(5, controller.decide(new AgentPoolController.Signals(0.1, 0, 0.3, 0.2, 0.0), 10));
+        assertEquals(10, controller.decide(new AgentPoolController.Signals(0.1, 3, 0.3, 0.2, 0.0), 10), "Should hold while work is queued");
+    }
+
+    @Test
+    void testBoundsChanged() {
+        controller.setMaxAgents(8);
+        assertEquals(8, controller.decide(new AgentPoolController.Signals(0.7, 0, 0.3, 0.2, 0.0), 10));
+        assertThrows(IllegalArgumentException.class, () -> controller.setMinAgents(9));
+        assertThrows(IllegalArgumentException.class, () -> new AgentPoolController(pool, 0, 10));
+    }
+
+    @Test
+    void testResize() {
+        pool.resize(14);
+        assertEquals(14, pool.getMaxTotal());
+        assertEquals(14, pool.getNumIdle());
+        pool.resize(6);
+        assertEquals(6, pool.getMaxTotal());
+        assertEquals(6, pool.getNumIdle());
+        assertThrows(IllegalArgumentException.class, () -> pool.resize(0));
+    }
+
+    @Test
+    void testCheckResizesPool() {
+        // an idle pool with nothing queued shrinks
+        controller.check();
+        assertEquals(5, pool.getMaxTotal());
+        assertEquals(5, controller.getPoolSize());
+        controller.setEnabled(false);
+        controller.setMinAgents(1);
+        controller.check();
+        assertEquals(5, pool.getMaxTotal(), "A disabled controller should only observe");
+    }
+}
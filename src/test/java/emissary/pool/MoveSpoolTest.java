@@ -0,0 +1,102 @@
+package emissary.pool;
+
+import emissary.core.DataObjectFactory;
+import emissary.core.IBaseDataObject;
+import emissary.core.IMobileAgent;
+import emissary.core.Namespace;
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoveSpoolTest extends UnitTest {
+
+    private AgentPool pool;
+    private IMobileAgent busy;
+    @Nullable
+    private MoveSpool spool = null;
+
+    @BeforeEach
+    public void exhaustPool() throws Exception {
+        // the spool thread waits on the only agent, so everything sent stays on the spool
+        Namespace.unbind(AgentExecutor.NAMESPACE_NAME);
+        MobileAgentFactory factory = new MobileAgentFactory("emissary.core.HDMobileAgent");
+        factory.setUseNamespace(false);
+        pool = new AgentPool(factory, 1);
+        busy = pool.borrowAgent();
+    }
+
+    @AfterEach
+    public void stopSpool() {
+        if (spool != null) {
+            spool.quit();
+            spool = null;
+        }
+        busy.killAgent();
+        pool.kill();
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void testUnbounded() {
+        spool = new MoveSpool(0, MoveSpool.FullPolicy.REJECT, 0L);
+        for (int i = 1; i <= 20; i++) {
+            assertEquals(i, spool.send(payload(i)));
+        }
+        assertEquals(20, spool.getCurrentSpoolSize());
+        assertEquals(0, spool.getRejectCount());
+        assertEquals(20, spool.getMoveCountMap().get("sprout"));
+        assertEquals(20, spool.moveCountMap.get("sprout"));
+    }
+
+    @Test
+    void testRejectWhenFull() {
+        spool = new MoveSpool(2, MoveSpool.FullPolicy.REJECT, 0L);
+        assertEquals(1, spool.send(payload(1)));
+        assertEquals(2, spool.send(payload(2)));
+        assertEquals(-1, spool.send(payload(3)), "A full spool should reject at once");
+        assertEquals(2, spool.getCurrentSpoolSize());
+        assertEquals(1, spool.getRejectCount());
+        assertEquals(2, spool.getMoveCountMap().get("sprout"), "Rejected items should not be counted as moves");
+
+        assertNotNull(spool.removeFirstPayload());
+        assertEquals(2, spool.send(payload(4)), "Taking an item should make room");
+        assertEquals(2, spool.getHighWaterMark());
+    }
+
+    @Test
+    void testBlockWhenFull() throws Exception {
+        spool = new MoveSpool(1, MoveSpool.FullPolicy.BLOCK, 200L);
+        assertEquals(1, spool.send(payload(1)));
+
+        long start = System.nanoTime();
+        assertEquals(-1, spool.send(payload(2)), "A full spool should reject once the wait is over");
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200), "Sender should wait for room");
+        assertEquals(1, spool.getRejectCount());
+
+        spool.quit();
+        final MoveSpool blocking = new MoveSpool(1, MoveSpool.FullPolicy.BLOCK, TimeUnit.SECONDS.toMillis(30));
+        spool = blocking;
+        assertEquals(1, spool.send(payload(3)));
+        CompletableFuture<Integer> sent = CompletableFuture.supplyAsync(() -> blocking.send(payload(4)));
+        Thread.sleep(100L);
+        assertFalse(sent.isDone(), "Sender should wait for room");
+        assertNotNull(spool.removeFirstPayload());
+        assertEquals(1, sent.get(30, TimeUnit.SECONDS), "Sender should go ahead once there is room");
+        assertEquals(0, spool.getRejectCount());
+    }
+
+    private static IBaseDataObject payload(int i) {
+        return DataObjectFactory.getInstance(new byte[0], "spool-" + i, "UNKNOWN");
+    }
+}
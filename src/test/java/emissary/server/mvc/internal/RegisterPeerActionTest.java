@@ -3,12 +3,15 @@ package emissary.server.mvc.internal;
 import emissary.config.ConfigUtil;
 import emissary.core.Namespace;
 import emissary.directory.DirectoryPlace;
+import emissary.directory.DirectoryXmlContainer;
 import emissary.directory.EmissaryNode;
+import emissary.directory.ZoneTransfer;
 import emissary.server.mvc.EndpointTestBase;
 
 import jakarta.ws.rs.client.Entity;
 import jakarta.ws.rs.core.MultivaluedHashMap;
 import jakarta.ws.rs.core.Response;
+import org.jdom2.JDOMException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,7 +24,11 @@ import java.util.Collections;
 
 import static emissary.server.mvc.adapters.DirectoryAdapter.DIRECTORY_NAME;
 import static emissary.server.mvc.adapters.DirectoryAdapter.TARGET_DIRECTORY;
+import static emissary.server.mvc.adapters.DirectoryAdapter.ZONE_EPOCH;
+import static emissary.server.mvc.adapters.DirectoryAdapter.ZONE_SINCE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -104,7 +111,40 @@ class RegisterPeerActionTest extends EndpointTestBase {
             final int status = response.getStatus();
             assertEquals(200, status);
             final String result = response.readEntity(String.class);
-            assertEquals(SUCCESS_RESULT, result);
+            assertTrue(result.contains(" epoch=\""), result);
+            assertEquals(SUCCESS_RESULT, result.replaceFirst(" epoch=\"[^\"]*\" version=\"\\d+\"", ""));
+        }
+    }
+
+    @Test
+    void registerPeerWithCurrentVersion() throws JDOMException {
+        final ZoneTransfer full;
+        try (Response response = target(REGISTER_PEER_ACTION).request().post(Entity.form(formParams))) {
+            assertEquals(200, response.getStatus());
+            full = DirectoryXmlContainer.buildZoneTransfer(response.readEntity(String.class));
+        }
+        assertNotNull(full.getEpoch());
+        assertFalse(full.isDelta());
+        assertEquals(1, full.getEntries().size());
+
+        // Naming the version just received gets a delta without the unchanged list
+        formParams.put(ZONE_EPOCH, Collections.singletonList(full.getEpoch()));
+        formParams.put(ZONE_SINCE, Collections.singletonList(Long.toString(full.getVersion())));
+        try (Response response = target(REGISTER_PEER_ACTION).request().post(Entity.form(formParams))) {
+            assertEquals(200, response.getStatus());
+            final ZoneTransfer delta = DirectoryXmlContainer.buildZoneTransfer(response.readEntity(String.class));
+            assertTrue(delta.isDelta());
+            assertEquals(0, delta.getEntries().size());
+            assertEquals(1, delta.applyTo(full.getEntries()).size());
+        }
+
+        // A version the map never reached falls back to everything
+        formParams.replace(ZONE_SINCE, Collections.singletonList(Long.toString(Long.MAX_VALUE)));
+        try (Response response = target(REGISTER_PEER_ACTION).request().post(Entity.form(formParams))) {
+            assertEquals(200, response.getStatus());
+            final ZoneTransfer again = DirectoryXmlContainer.buildZoneTransfer(response.readEntity(String.class));
+            assertFalse(again.isDelta());
+            assertEquals(1, again.getEntries().size());
         }
     }
 
@@ -6,6 +6,7 @@ import emissary.pickup.WorkSpace;
 import emissary.server.mvc.EndpointTestBase;
 
 import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.MultivaluedHashMap;
 import jakarta.ws.rs.core.Response;
 import org.junit.jupiter.api.AfterEach;
@@ -15,10 +16,13 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.NullAndEmptySource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import static emissary.server.mvc.internal.WorkSpaceClientSpaceTakeAction.CLIENT_NAME;
 import static emissary.server.mvc.internal.WorkSpaceClientSpaceTakeAction.SPACE_NAME;
+import static emissary.server.mvc.internal.WorkSpaceClientSpaceTakeAction.WORK_BUNDLE_MAX;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -138,5 +142,39 @@ class WorkSpaceClientSpaceTakeActionTest extends EndpointTestBase {
         }
     }
 
+    @Test
+    void binaryTakeOfSeveralBundles() throws Exception {
+        // setup
+        WorkSpace spy = spy(new WorkSpace());
+        List<WorkBundle> bundles = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            WorkBundle wb = new WorkBundle("/root", "/eat");
+            wb.addFileName("file" + i);
+            bundles.add(wb);
+        }
+        doReturn(bundles.subList(0, 2)).when(spy).take(PLACE_NAME, 2);
+        doReturn(bundles.get(2)).when(spy).take(PLACE_NAME);
+        Namespace.bind(WORKSPACE_BIND_KEY, spy);
+        formParams.put(WORK_BUNDLE_MAX, Collections.singletonList("2"));
 
+        // test
+        try (Response response = target(CLIENT_SPACE_TAKE_ACTION).request(MediaType.APPLICATION_OCTET_STREAM_TYPE).post(Entity.form(formParams))) {
+            assertEquals(200, response.getStatus());
+            assertEquals(MediaType.APPLICATION_OCTET_STREAM_TYPE, response.getMediaType());
+            final List<WorkBundle> result = WorkBundle.buildWorkBundles(response.readEntity(byte[].class));
+            assertEquals(2, result.size());
+            assertEquals(Collections.singletonList("file0"), result.get(0).getFileNameList());
+            assertEquals(Collections.singletonList("file1"), result.get(1).getFileNameList());
+        }
+
+        // a client preferring xml gets one bundle as before
+        try (Response response = target(CLIENT_SPACE_TAKE_ACTION).request(MediaType.APPLICATION_XML_TYPE, MediaType.APPLICATION_OCTET_STREAM_TYPE)
+                .post(Entity.form(formParams))) {
+            assertEquals(200, response.getStatus());
+            assertEquals(MediaType.APPLICATION_XML_TYPE, response.getMediaType());
+            final WorkBundle result = WorkBundle.buildWorkBundle(response.readEntity(String.class));
+            assertNotNull(result);
+            assertEquals(Collections.singletonList("file2"), result.getFileNameList());
+        }
+    }
 }
@@ -13,6 +13,7 @@ import java.util.Collections;
 import javax.annotation.Nullable;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 class FlexibleDateTimeParserTest extends UnitTest {
@@ -688,4 +689,38 @@ class FlexibleDateTimeParserTest extends UnitTest {
         test("Mon, 2 Feb 2017 06:20:30 PM +0000", 0L, "UNKNOWN");
         test("2016:01:04 18:20:30 GMT+0000<" + RandomStringUtils.randomAlphanumeric(75) + ">", 0L, "UNKNOWN");
     }
+
+    @Test
+    void testShapeOf() {
+        assertEquals("mon, 0 jan 0000 00:00:00 +0000", FlexibleDateTimeParser.shapeOf("Mon, 4 Jan 2016 18:20:30 +0000"));
+        assertEquals("0000-00-00", FlexibleDateTimeParser.shapeOf("2016-13-45"));
+    }
+
+    @Test
+    void testShapesMatchTryingEveryFormat() {
+        // the first of each pair shares its shape with the second but only one of them holds valid values
+        String[] dates = {"2016-01-04 18:20:30", "2016-13-04 18:20:30", "2016-01-04 18:20:30", "01/13/2016", "13/01/2016", "01/02/2016",
+                "Mon, 4 Jan 2016 18:20:30 +0000", "Mon, 4 Jan 2016 18:20:30 +2500", "Mon, 4 Jan 2016 18:20:30 +0000", "4 Jan 2016",
+                "40 Jan 2016", "20160104182030", "20161304182030", "20160104", "Jan 04 2016 18:20:30 +0000.5555555"};
+        for (String date : dates) {
+            for (int i = 0; i < 2; i++) {
+                assertEquals(FlexibleDateTimeParser.parse(date, FlexibleDateTimeParser.getDateFormatsMain()), FlexibleDateTimeParser.parse(date),
+                        date);
+            }
+        }
+    }
+
+    @Test
+    void testOutOfRangeValueDoesNotHideShape() {
+        // each bad offset comes first so its shape would be remembered without the formats that suit the good one
+        String[][] pairs = {{"2020-01-01 10:00:00 +0070", "2020-01-01 10:00:00 +0030"}, {"Mon, 3 Feb 2020 10:00:00 +0070",
+                "Mon, 3 Feb 2020 10:00:00 +0030"}, {"2020-01-01T10:00:00+00:70", "2020-01-01T10:00:00+00:30"}};
+        for (String[] pair : pairs) {
+            for (String date : pair) {
+                assertEquals(FlexibleDateTimeParser.parse(date, FlexibleDateTimeParser.getDateFormatsMain()), FlexibleDateTimeParser.parse(date),
+                        date);
+            }
+            assertNotNull(FlexibleDateTimeParser.parse(pair[1]), pair[1]);
+        }
+    }
 }
@@ -0,0 +1,85 @@
+package emissary.util.magic;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.Nullable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MagicNumberIndexTest extends UnitTest {
+
+    private static List<MagicNumber> build(final String config) {
+        return MagicNumberFactory.buildMagicNumberList(config.getBytes(StandardCharsets.ISO_8859_1), null, null, true);
+    }
+
+    /** The walk over every entry that the index replaces */
+    @Nullable
+    private static String linear(final List<MagicNumber> magicNumbers, final byte[] data) {
+        String description = null;
+        for (final MagicNumber item : magicNumbers) {
+            description = item.describe(data);
+            if (description != null && !description.isEmpty()) {
+                break;
+            }
+        }
+        return description;
+    }
+
+    @Test
+    void testFirstMatchInFileOrder() {
+        final List<MagicNumber> magicNumbers = build("0\tstring\tAB\tfirst\n"
+                + "0\tbyte\t>0x40\tgreater\n"
+                + "0\tstring\tABC\tsecond\n"
+                + "2\tstring\tC\tthird\n"
+                + ">3\tstring\tD\twith D\n");
+        final MagicNumberIndex index = new MagicNumberIndex(magicNumbers);
+        assertEquals(4, index.size());
+        assertEquals("first", index.describe("ABCD".getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals("greater", index.describe("ZZCD".getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals("third with D", index.describe("01CD".getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals("third", index.describe("01C".getBytes(StandardCharsets.ISO_8859_1)));
+        assertNull(index.describe("01".getBytes(StandardCharsets.ISO_8859_1)));
+        assertNull(index.describe(null));
+    }
+
+    @Test
+    void testEmptyDescriptionLast() {
+        final List<MagicNumber> magicNumbers = build("0\tstring\tAB\tfirst\n0\tstring\tX\t\n");
+        final MagicNumberIndex index = new MagicNumberIndex(magicNumbers);
+        for (final String sample : new String[] {"AB", "XY", "QQ"}) {
+            final byte[] data = sample.getBytes(StandardCharsets.ISO_8859_1);
+            assertEquals(linear(magicNumbers, data), index.describe(data), sample);
+        }
+    }
+
+    @Test
+    void testMatchesLinearWalkOfShippedMagic() throws Exception {
+        final List<MagicNumber> magicNumbers =
+                MagicNumberFactory.buildMagicNumberList(Files.readAllBytes(Paths.get("src/main/config/magic")), null, null, true);
+        final MagicNumberIndex index = new MagicNumberIndex(magicNumbers);
+        final Random random = new Random(1701L);
+
+        // Plant each entry's value at its offset so every bucket gets exercised, then try some noise
+        for (final MagicNumber item : magicNumbers) {
+            final byte[] data = new byte[256 + random.nextInt(512)];
+            random.nextBytes(data);
+            if (item.value != null && item.offset >= 0 && item.offset + item.value.length <= data.length) {
+                System.arraycopy(item.value, 0, data, item.offset, item.value.length);
+            }
+            assertEquals(linear(magicNumbers, data), index.describe(data), item.toString());
+        }
+        for (int i = 0; i < 500; i++) {
+            final byte[] data = new byte[random.nextInt(64)];
+            random.nextBytes(data);
+            assertEquals(linear(magicNumbers, data), index.describe(data));
+        }
+    }
+}
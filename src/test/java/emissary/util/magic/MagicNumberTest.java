@@ -5,6 +5,7 @@ import emissary.test.core.junit5.UnitTest;
 import jakarta.xml.bind.DatatypeConverter;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -24,6 +25,12 @@ class MagicNumberTest extends UnitTest {
         assertFalse(m.test("x\r\n\r\nBadCafe".getBytes()), "NEW_LINE in string operators must not match bad data " + m);
     }
 
+    @Test
+    void testLeadingBackspace() throws ParseException {
+        MagicNumber m = MagicNumberFactory.buildMagicNumber("0 string AB \\bFOO");
+        assertEquals("FOO", m.describe("ABC".getBytes()), "A backspace with nothing before it must be dropped");
+    }
+
     @Test
     void testBelong() throws ParseException {
         // ABCD
@@ -0,0 +1,173 @@
+package emissary.util.search;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AhoCorasickScannerTest extends UnitTest {
+
+    private static final byte[] DATA = "the quick brown fox jumped over the lazy dog".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testFindAll() {
+        final AhoCorasickScanner scanner = new AhoCorasickScanner(new String[] {"fox", "dog"});
+        final HitList hits = scanner.findAll(DATA, 0, DATA.length);
+        assertEquals(2, hits.size());
+        assertEquals(0, hits.get(0).getId());
+        assertEquals(16, hits.get(0).getOffset());
+        assertEquals(1, hits.get(1).getId());
+        assertEquals(41, hits.get(1).getOffset());
+
+        assertEquals(1, scanner.findAll(DATA, 28, DATA.length).size());
+        assertTrue(scanner.findAll(DATA, 0, 18).isEmpty(), "A keyword running past the end of the range is not a hit");
+    }
+
+    @Test
+    void testOverlappingKeywords() {
+        final AhoCorasickScanner scanner = new AhoCorasickScanner(new String[] {"he", "she", "his", "hers", "she"});
+        final AhoCorasickScanner.IntHitList hits = new AhoCorasickScanner.IntHitList(1);
+        assertEquals(4, scanner.scan("ushers".getBytes(StandardCharsets.UTF_8), hits));
+        // she and its duplicate end together with he, longest first, then hers
+        assertArrayEquals(new int[] {1, 1, 1, 4, 2, 0, 2, 3}, hits.toArray());
+        assertEquals(4, hits.size());
+        assertEquals(3, hits.getId(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> hits.getOffset(4));
+    }
+
+    @Test
+    void testCaseFolding() {
+        final byte[] data = "Subject: WIRE transfer from Account".getBytes(StandardCharsets.UTF_8);
+        final String[] keywords = {"subject:", "wire", "ACCOUNT", "Transfer"};
+        assertEquals(0, new AhoCorasickScanner(keywords).findAll(data, 0, data.length).size());
+
+        final AhoCorasickScanner folding = new AhoCorasickScanner(keywords, true);
+        assertTrue(folding.isCaseInsensitive());
+        final HitList hits = folding.findAll(data, 0, data.length);
+        assertEquals(4, hits.size());
+        assertEquals(0, hits.get(0).getOffset());
+        assertEquals(9, hits.get(1).getOffset());
+        assertEquals(14, hits.get(2).getOffset());
+        assertEquals(28, hits.get(3).getOffset());
+    }
+
+    @Test
+    void testStopEarly() {
+        final AhoCorasickScanner scanner = new AhoCorasickScanner(new String[] {"o"});
+        assertEquals(4, scanner.findAll(DATA, 0, DATA.length).size());
+        assertEquals(2, scanner.scan(DATA, 0, DATA.length, (offset, id) -> offset < 15));
+        assertTrue(scanner.containsAny(DATA, 0, DATA.length));
+        assertFalse(scanner.containsAny(DATA, 0, 12));
+    }
+
+    @Test
+    void testBadKeywords() {
+        assertThrows(IllegalArgumentException.class, () -> new AhoCorasickScanner(new String[] {"ok", ""}));
+        assertThrows(IllegalArgumentException.class, () -> new AhoCorasickScanner(new String[] {null}));
+        assertEquals(0, new AhoCorasickScanner(new String[0]).scan(DATA, new AhoCorasickScanner.IntHitList()));
+    }
+
+    @Test
+    void testMatchesBruteForce() {
+        final Random random = new Random(31337L);
+        for (int round = 0; round < 50; round++) {
+            final boolean fold = random.nextBoolean();
+            final byte[][] keywords = new byte[1 + random.nextInt(40)][];
+            for (int k = 0; k < keywords.length; k++) {
+                keywords[k] = randomBytes(random, 1 + random.nextInt(6));
+            }
+            final byte[] data = randomBytes(random, random.nextInt(5000));
+            final AhoCorasickScanner scanner = new AhoCorasickScanner(keywords, fold);
+            final AhoCorasickScanner.IntHitList hits = new AhoCorasickScanner.IntHitList();
+            scanner.scan(data, hits);
+            assertEquals(bruteForce(keywords, data, fold), sorted(hits), "Round " + round);
+        }
+    }
+
+    @Test
+    void testConcurrentScans() throws Exception {
+        final Random random = new Random(8L);
+        final byte[][] keywords = new byte[200][];
+        for (int k = 0; k < keywords.length; k++) {
+            keywords[k] = randomBytes(random, 2 + random.nextInt(4));
+        }
+        final byte[] data = randomBytes(random, 200000);
+        final AhoCorasickScanner scanner = new AhoCorasickScanner(keywords, false);
+        final AhoCorasickScanner.IntHitList expected = new AhoCorasickScanner.IntHitList();
+        scanner.scan(data, expected);
+
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<int[]>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(pool.submit(() -> {
+                    final AhoCorasickScanner.IntHitList hits = new AhoCorasickScanner.IntHitList();
+                    scanner.scan(data, hits);
+                    return hits.toArray();
+                }));
+            }
+            for (final Future<int[]> f : results) {
+                assertArrayEquals(expected.toArray(), f.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Random bytes from a small alphabet, mixed case, so keywords actually occur and overlap */
+    private static byte[] randomBytes(final Random random, final int length) {
+        final byte[] alphabet = {'a', 'b', 'c', 'A', 'B', (byte) 0xe9, 0};
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return bytes;
+    }
+
+    private static List<String> bruteForce(final byte[][] keywords, final byte[] data, final boolean fold) {
+        final List<String> hits = new ArrayList<>();
+        for (int pos = 0; pos < data.length; pos++) {
+            for (int k = 0; k < keywords.length; k++) {
+                if (pos + keywords[k].length <= data.length && matches(keywords[k], data, pos, fold)) {
+                    hits.add(pos + ":" + k);
+                }
+            }
+        }
+        hits.sort(null);
+        return hits;
+    }
+
+    private static boolean matches(final byte[] keyword, final byte[] data, final int pos, final boolean fold) {
+        for (int i = 0; i < keyword.length; i++) {
+            final int a = keyword[i] & 0xff;
+            final int b = data[pos + i] & 0xff;
+            if (fold ? Character.toLowerCase(a) != Character.toLowerCase(b) || (a >= 0x80 && a != b) : a != b) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> sorted(final AhoCorasickScanner.IntHitList hits) {
+        final List<String> list = new ArrayList<>();
+        for (int i = 0; i < hits.size(); i++) {
+            list.add(hits.getOffset(i) + ":" + hits.getId(i));
+        }
+        list.sort(null);
+        return list;
+    }
+}
@@ -0,0 +1,116 @@
+package emissary.util.search;
+
+import emissary.core.channels.SeekableByteChannelFactory;
+import emissary.core.channels.SeekableByteChannelHelper;
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChannelKeywordScannerTest extends UnitTest {
+
+    private static final byte[] DATA = "the quick brown fox jumped over the lazy dog".getBytes(StandardCharsets.UTF_8);
+
+    private static byte[] bytes(final String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testIndexOf() throws Exception {
+        // A buffer smaller than the patterns forces every match to straddle a boundary
+        final ChannelKeywordScanner scanner = new ChannelKeywordScanner(SeekableByteChannelHelper.memory(DATA), 3);
+        assertEquals(16, scanner.indexOf(bytes("fox")));
+        assertEquals(32, scanner.indexOf(bytes("the"), 1));
+        assertEquals(-1, scanner.indexOf(bytes("the"), 33));
+        assertEquals(-1, scanner.indexOf(bytes("fox"), 0, 18));
+        assertEquals(-1, scanner.indexOf(bytes("FOX")));
+        assertEquals(-1, scanner.indexOf(null));
+        assertEquals(-1, scanner.indexOf(new byte[0]));
+        assertEquals(0, scanner.indexOf(DATA));
+        assertEquals(List.of(0L, 32L), scanner.listIndexOf(bytes("the")));
+        assertEquals(List.of(0L, 32L), scanner.listIndexOf(bytes("the"), -5, 100));
+        assertEquals(List.of(32L), scanner.listIndexOf(bytes("the"), 1, 100));
+
+        assertEquals(16, scanner.indexIgnoreCase(bytes("FOX"), 0, DATA.length));
+        scanner.setCaseSensitive(false);
+        assertEquals(List.of(16L), scanner.listIndexOf(bytes("Fox")));
+
+        assertThrows(IllegalArgumentException.class, () -> new ChannelKeywordScanner(SeekableByteChannelHelper.memory(DATA), 0));
+    }
+
+    @Test
+    void testMatchesKeywordScanner() throws Exception {
+        final Random random = new Random(5150L);
+        for (int round = 0; round < 200; round++) {
+            final byte[] data = new byte[random.nextInt(3000)];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) ('a' + random.nextInt(3));
+            }
+            final byte[] pattern = new byte[1 + random.nextInt(5)];
+            for (int i = 0; i < pattern.length; i++) {
+                pattern[i] = (byte) ('a' + random.nextInt(3));
+            }
+            final int start = random.nextInt(20);
+
+            final List<Long> expected = new ArrayList<>();
+            for (final Integer i : new KeywordScanner(data).listIndexOf(pattern, start)) {
+                expected.add(i.longValue());
+            }
+            final ChannelKeywordScanner scanner = new ChannelKeywordScanner(SeekableByteChannelHelper.memory(data), 1 + random.nextInt(64));
+            assertEquals(expected, scanner.listIndexOf(pattern, start, Long.MAX_VALUE), "Round " + round);
+            assertEquals(expected.isEmpty() ? -1L : expected.get(0), scanner.indexOf(pattern, start), "Round " + round);
+        }
+    }
+
+    @Test
+    void testKeywordsAcrossBuffers() throws Exception {
+        final Random random = new Random(77L);
+        final byte[] data = new byte[20000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + random.nextInt(4));
+        }
+        final AhoCorasickScanner keywords = new AhoCorasickScanner(new String[] {"abc", "dd", "cabbage", "a"});
+        final AhoCorasickScanner.IntHitList expected = new AhoCorasickScanner.IntHitList();
+        keywords.scan(data, 100, 19000, expected);
+
+        final List<Long> hits = new ArrayList<>();
+        final long count = new ChannelKeywordScanner(SeekableByteChannelHelper.memory(data), 7).scan(keywords, 100, 19000, (offset, id) -> {
+            hits.add(offset);
+            hits.add((long) id);
+            return true;
+        });
+        assertEquals(expected.size(), count);
+        final List<Long> expectedHits = new ArrayList<>();
+        for (final int v : expected.toArray()) {
+            expectedHits.add((long) v);
+        }
+        assertEquals(expectedHits, hits);
+    }
+
+    @Test
+    void testLongOffsets() throws Exception {
+        // A channel past the reach of an int offset, read without holding it in memory
+        final long size = Integer.MAX_VALUE + 1000L;
+        final SeekableByteChannelFactory sbcf = SeekableByteChannelHelper.fill(size, (byte) 'x');
+        final ChannelKeywordScanner scanner = new ChannelKeywordScanner(sbcf);
+        assertEquals(size - 100, scanner.indexOf(bytes("xx"), size - 100));
+        assertEquals(-1, scanner.indexOf(bytes("xy"), size - 100));
+
+        final AhoCorasickScanner keywords = new AhoCorasickScanner(new String[] {"xxx"});
+        final long[] last = {-1L};
+        assertEquals(4, scanner.scan(keywords, size - 6, size + 5, (offset, id) -> {
+            last[0] = offset;
+            return true;
+        }));
+        assertEquals(size - 3, last[0]);
+        assertEquals(1, scanner.scan(keywords, size - 10, size, (offset, id) -> false));
+        assertEquals(0, scanner.scan(keywords, size, size + 10, (offset, id) -> true));
+    }
+}
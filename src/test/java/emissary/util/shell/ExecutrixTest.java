@@ -1,5 +1,7 @@
 package emissary.util.shell;
 
+import emissary.core.channels.SeekableByteChannelFactory;
+import emissary.core.channels.SeekableByteChannelHelper;
 import emissary.test.core.junit5.UnitTest;
 
 import org.junit.jupiter.api.AfterEach;
@@ -23,6 +25,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import javax.annotation.Nullable;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
@@ -450,6 +453,90 @@ class ExecutrixTest extends UnitTest {
         baosOut.reset();
     }
 
+    @Test
+    void testExecuteStreaming(@TempDir Path dir) throws IOException {
+        final byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        final String[] cmd = {"/bin/cat"};
+        e.setTmpDir(dir.toString());
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final StringBuilder serr = new StringBuilder();
+        assertEquals(0, e.executeStreaming(cmd, SeekableByteChannelHelper.memory(data), out, serr, null, null));
+        assertArrayEquals(data, out.toByteArray());
+        assertEquals("", serr.toString());
+
+        // small output stays in memory
+        e.setSpillThreshold(data.length * 2);
+        try (Executrix.StreamedOutput result = e.executeStreaming(cmd, SeekableByteChannelHelper.memory(data), serr)) {
+            assertEquals(0, result.getExitValue());
+            assertFalse(result.isSpilled());
+            assertArrayEquals(data, SeekableByteChannelHelper.getByteArrayFromChannel(result.getOutput(), data.length * 2));
+        }
+
+        // large output goes to a file that is removed on close
+        e.setSpillThreshold(1000);
+        final Executrix.StreamedOutput result = e.executeStreaming(cmd, SeekableByteChannelHelper.memory(data), serr);
+        try (result) {
+            assertEquals(0, result.getExitValue());
+            assertTrue(result.isSpilled());
+            assertArrayEquals(data, SeekableByteChannelHelper.getByteArrayFromChannel(result.getOutput(), data.length * 2));
+            try (Stream<Path> files = Files.list(dir)) {
+                assertEquals(1, files.count());
+            }
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testStageChannel(@TempDir Path dir) throws IOException {
+        final byte[] data = new byte[300000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 7);
+        }
+        final Path source = dir.resolve("source.dat");
+        Files.write(source, data);
+        final SeekableByteChannelFactory file = SeekableByteChannelHelper.file(source);
+
+        final Path copy = dir.resolve("stage/copy.dat");
+        assertTrue(e.stageChannel(file, 0, data.length, copy.toString()));
+        assertArrayEquals(data, Files.readAllBytes(copy));
+        assertFalse(Files.isSameFile(source, copy));
+
+        final Path part = dir.resolve("stage/part.dat");
+        assertTrue(e.stageChannel(file, 1000, 5000, part.toString()));
+        assertArrayEquals(Arrays.copyOfRange(data, 1000, 6000), Files.readAllBytes(part));
+
+        final Path memory = dir.resolve("stage/memory.dat");
+        assertTrue(e.stageChannel(SeekableByteChannelHelper.memory(data), 17, data.length - 17, memory.toString()));
+        assertArrayEquals(Arrays.copyOfRange(data, 17, data.length), Files.readAllBytes(memory));
+
+        // more than the source holds
+        assertFalse(e.stageChannel(file, 10, data.length, dir.resolve("stage/short.dat").toString()));
+
+        e.setStageByLink(true);
+        final Path link = dir.resolve("stage/link.dat");
+        assertTrue(e.stageChannel(file, 0, data.length, link.toString()));
+        assertTrue(Files.isSameFile(source, link));
+
+        e.setTmpDir(dir.toString());
+        final String[] names = e.writeDataToNewTempDir(file, 5, 10);
+        assertArrayEquals(Arrays.copyOfRange(data, 5, 15), Files.readAllBytes(Paths.get(names[Executrix.INPATH])));
+    }
+
+    @Test
+    void testExecuteStreamingTimeout() {
+        e.setProcessMaxMillis(200);
+        final long start = System.currentTimeMillis();
+        final int pstat = e.executeStreaming(new String[] {"/bin/sleep", "30"}, null, null, null, null, null);
+        assertTrue(pstat != 0, "Killed process must not succeed");
+        assertTrue(System.currentTimeMillis() - start < 20000, "Watchdog must stop the process");
+    }
+
     private static void readAndNuke(final String name) throws IOException {
         final File f = new File(name);
         assertTrue(f.exists(), "File " + name + " must exist");
@@ -0,0 +1,104 @@
+package emissary.util.shell;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ResidentProcessPoolTest extends UnitTest {
+
+    /** Answers with the request upper cased, fails on "fail", exits on "die" and hangs on "hang" */
+    private static final String HELPER = "$|=1; binmode STDIN; binmode STDOUT;"
+            + " while (read(STDIN, my $h, 4) == 4) { my $n = unpack('N', $h); my $d = ''; read(STDIN, $d, $n) if $n;"
+            + " exit 3 if $d eq 'die'; sleep 60 if $d eq 'hang'; print STDERR \"got $n\\n\";"
+            + " my $s = $d eq 'fail' ? 1 : 0; my $o = uc $d; print pack('NN', $s, length $o), $o; }";
+
+    private static final String[] COMMAND = {"perl", "-e", HELPER};
+
+    @BeforeAll
+    static void havePerl() {
+        assumeTrue(new File("/usr/bin/perl").canExecute(), "Needs perl for the helper process");
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testExchange() throws Exception {
+        try (ResidentProcessPool pool = new ResidentProcessPool(COMMAND, 1, 10000)) {
+            assertEquals(0, pool.getIdleCount());
+            assertArrayEquals(bytes("HELLO"), pool.exchange(bytes("hello")));
+            assertArrayEquals(bytes("THERE"), pool.exchange(bytes("why there"), 4, 5));
+            assertArrayEquals(new byte[0], pool.exchange(new byte[0]));
+            assertEquals(1, pool.getIdleCount());
+
+            // A reported failure leaves the helper in service
+            assertNull(pool.exchange(bytes("fail")));
+            assertEquals(1, pool.getIdleCount());
+        }
+    }
+
+    @Test
+    void testRestartAfterExit() throws Exception {
+        try (ResidentProcessPool pool = new ResidentProcessPool(COMMAND, 1, 10000)) {
+            assertArrayEquals(bytes("A"), pool.exchange(bytes("a")));
+            assertThrows(IOException.class, () -> pool.exchange(bytes("die")));
+            assertEquals(0, pool.getIdleCount());
+            assertArrayEquals(bytes("B"), pool.exchange(bytes("b")));
+        }
+    }
+
+    @Test
+    void testTimeout() throws Exception {
+        try (ResidentProcessPool pool = new ResidentProcessPool(COMMAND, 1, 500)) {
+            final long start = System.currentTimeMillis();
+            final IOException e = assertThrows(IOException.class, () -> pool.exchange(bytes("hang")));
+            assertTrue(e.getMessage().contains("500ms"), e.getMessage());
+            assertTrue(System.currentTimeMillis() - start < 30000);
+            assertArrayEquals(bytes("C"), pool.exchange(bytes("c")));
+        }
+    }
+
+    @Test
+    void testConcurrentExchanges() throws Exception {
+        final ExecutorService threads = Executors.newFixedThreadPool(6);
+        try (ResidentProcessPool pool = new ResidentProcessPool(COMMAND, 3, 10000)) {
+            final List<Future<byte[]>> answers = new ArrayList<>();
+            for (int i = 0; i < 60; i++) {
+                final String request = "request " + i;
+                answers.add(threads.submit(() -> pool.exchange(bytes(request))));
+            }
+            for (int i = 0; i < answers.size(); i++) {
+                assertArrayEquals(bytes("REQUEST " + i), answers.get(i).get());
+            }
+            assertTrue(pool.getIdleCount() <= 3);
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    void testClosed() {
+        final ResidentProcessPool pool = new ResidentProcessPool(COMMAND, 1, 0);
+        pool.close();
+        assertThrows(IOException.class, () -> pool.exchange(bytes("x")));
+        assertThrows(IllegalArgumentException.class, () -> new ResidentProcessPool(COMMAND, 0, 0));
+    }
+}